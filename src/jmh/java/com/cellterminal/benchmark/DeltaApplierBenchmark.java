@@ -0,0 +1,85 @@
+package com.cellterminal.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.client.StorageInfo;
+import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.network.chunked.DeltaApplier;
+import com.cellterminal.network.chunked.PayloadMode;
+import com.cellterminal.network.chunked.TerminalChannels;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Client side payload application: {@link DeltaApplier#apply} parsing a FULL STORAGES payload
+ * into fresh {@link StorageInfo}s, and patching the existing ones with a nested DELTA. The
+ * DELTA benchmark alternates between the forward and the backward delta of the same change,
+ * so the state never drifts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaApplierBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int cells;
+
+    private NBTTagCompound full;
+    private final NBTTagCompound[] deltas = new NBTTagCompound[2];
+    private final Map<Long, StorageInfo> state = new HashMap<>();
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MegabaseGenerator.bootstrap();
+
+        this.full = new MegabaseGenerator().cells(this.cells).storages();
+        NBTTagCompound changed = MegabaseGenerator.mutate(this.full, 0.05, 2);
+
+        DeltaSnapshot snapshot = new DeltaSnapshot();
+        snapshot.setVersioned(false);
+        snapshot.buildNestedDelta(TerminalChannels.STORAGES, this.full, "storages", "id");
+        this.deltas[0] = snapshot.buildNestedDelta(TerminalChannels.STORAGES, changed, "storages", "id").payload;
+        this.deltas[1] = snapshot.buildNestedDelta(TerminalChannels.STORAGES, this.full, "storages", "id").payload;
+
+        this.state.clear();
+        DeltaApplier.apply(PayloadMode.FULL, this.full, this.state, StorageInfo::new, StorageInfo::getId);
+    }
+
+    @Benchmark
+    public Map<Long, StorageInfo> applyFull() {
+        Map<Long, StorageInfo> target = new HashMap<>();
+        DeltaApplier.apply(PayloadMode.FULL, this.full, target, StorageInfo::new, StorageInfo::getId);
+
+        return target;
+    }
+
+    @Benchmark
+    public Map<Long, StorageInfo> applyDelta() {
+        DeltaApplier.apply(PayloadMode.DELTA, this.deltas[this.next], this.state, StorageInfo::new,
+            StorageInfo::getId, StorageInfo::applyPatch);
+        this.next ^= 1;
+
+        return this.state;
+    }
+}
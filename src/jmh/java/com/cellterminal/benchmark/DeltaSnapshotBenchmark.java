@@ -0,0 +1,78 @@
+package com.cellterminal.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.network.chunked.TerminalChannels;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Server side delta building: {@link DeltaSnapshot} diffing a STORAGES payload against the
+ * previous one, where about 5% of the cells changed a stored count. Each call alternates
+ * between the two payloads, so every call diffs the same amount of change.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeltaSnapshotBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int cells;
+
+    /** nested: storage → cell → contents patches; nbt: whole entries; hash: whole entries, hash-only snapshot */
+    @Param({"nested", "nbt", "hash"})
+    public String kind;
+
+    private final NBTTagCompound[] payloads = new NBTTagCompound[2];
+    private DeltaSnapshot snapshot;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MegabaseGenerator.bootstrap();
+
+        this.payloads[0] = new MegabaseGenerator().cells(this.cells).storages();
+        this.payloads[1] = MegabaseGenerator.mutate(this.payloads[0], 0.05, 2);
+
+        this.snapshot = new DeltaSnapshot();
+        this.snapshot.setHashOnly(this.kind.equals("hash"));
+        // No acks arrive here, so keep a single baseline (and leave the payloads unversioned)
+        this.snapshot.setVersioned(false);
+
+        build(this.payloads[0]);
+    }
+
+    @Benchmark
+    public DeltaSnapshot.DeltaResult buildDelta() {
+        this.next ^= 1;
+
+        return build(this.payloads[this.next]);
+    }
+
+    private DeltaSnapshot.DeltaResult build(NBTTagCompound payload) {
+        if (this.kind.equals("nested")) {
+            return this.snapshot.buildNestedDelta(TerminalChannels.STORAGES, payload, "storages", "id");
+        }
+
+        return this.snapshot.buildDelta(TerminalChannels.STORAGES, payload, "storages", "id");
+    }
+}
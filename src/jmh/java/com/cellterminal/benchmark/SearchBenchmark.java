@@ -0,0 +1,110 @@
+package com.cellterminal.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cellterminal.client.AdvancedSearchParser;
+import com.cellterminal.client.CellInfo;
+import com.cellterminal.client.SearchFilterMode;
+import com.cellterminal.client.StorageInfo;
+import com.cellterminal.gui.handler.TerminalDataManager;
+import com.cellterminal.network.chunked.PayloadMode;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Client side filtering: {@link TerminalDataManager#rebuildLines} with a plain or advanced search,
+ * and {@link AdvancedSearchParser} parsing a query and evaluating it against every cell.
+ * <p>
+ * The Inventory tab is collapsed for all drives: its content rows read the slot limit from
+ * the client config, which needs a running game.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int cells;
+
+    @Param({"", "iron", "?$name~iron|$name~diamond", "?$items>10&$priority>0"})
+    public String query;
+
+    private final TerminalDataManager manager = new TerminalDataManager();
+    private final List<CellInfo> cellList = new ArrayList<>();
+    private final List<StorageInfo> cellStorages = new ArrayList<>();
+    private AdvancedSearchParser.SearchMatcher matcher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MegabaseGenerator.bootstrap();
+
+        MegabaseGenerator generator = new MegabaseGenerator().cells(this.cells);
+        generator.collapseInventoryTabs();
+        this.manager.applyStorages(PayloadMode.FULL, generator.storages());
+        this.manager.setSearchFilter(this.query, SearchFilterMode.MIXED);
+
+        this.cellList.clear();
+        this.cellStorages.clear();
+        for (StorageInfo storage : this.manager.getStorageMap().values()) {
+            for (CellInfo cell : storage.getCells()) {
+                this.cellList.add(cell);
+                this.cellStorages.add(storage);
+            }
+        }
+
+        this.matcher = AdvancedSearchParser.isAdvancedQuery(this.query)
+            ? AdvancedSearchParser.parse(this.query).getMatcher()
+            : null;
+    }
+
+    @Benchmark
+    public List<Object> rebuildLines() {
+        this.manager.rebuildLines();
+
+        return this.manager.getLines();
+    }
+
+    @Benchmark
+    public AdvancedSearchParser.ParseResult parse() {
+        return AdvancedSearchParser.parse(this.query);
+    }
+
+    /**
+     * Evaluate the advanced query against every cell, for all three filter modes.
+     * Plain queries have no matcher and measure nothing.
+     */
+    @Benchmark
+    public int evaluate() {
+        if (this.matcher == null) return 0;
+
+        int matches = 0;
+        for (int i = 0; i < this.cellList.size(); i++) {
+            CellInfo cell = this.cellList.get(i);
+            StorageInfo storage = this.cellStorages.get(i);
+
+            if (this.matcher.matchesCell(cell, storage, SearchFilterMode.MIXED)) matches++;
+            if (this.matcher.matchesCell(cell, storage, SearchFilterMode.INVENTORY)) matches++;
+            if (this.matcher.matchesCell(cell, storage, SearchFilterMode.PARTITION)) matches++;
+        }
+
+        return matches;
+    }
+}
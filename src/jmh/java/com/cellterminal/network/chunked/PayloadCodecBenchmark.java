@@ -0,0 +1,78 @@
+package com.cellterminal.network.chunked;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Wire path of a FULL STORAGES payload: {@link ChunkedNBTSender#encode} (serialize, compress,
+ * split into chunks) and the receiver's decode (streaming inflate, parse, resolve the stack
+ * dictionary). The payload is dictionary-encoded first, as the container sends it.
+ * <p>
+ * Lives in the chunked package to reach the package-private encoder and decoder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadCodecBenchmark {
+
+    @Param({"100", "1000", "20000"})
+    public int cells;
+
+    @Param({"COMPACT", "NBT"})
+    public WireCodec codec;
+
+    private NBTTagCompound payload;
+    private final List<PacketNBTChunk> chunks = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        MegabaseGenerator.bootstrap();
+
+        NBTTagCompound storages = new MegabaseGenerator().cells(this.cells).storages();
+        this.payload = new StackDictionaryEncoder().encode(TerminalChannels.STORAGES, storages, true);
+
+        this.chunks.clear();
+        if (!ChunkedNBTSender.encode(TerminalChannels.STORAGES, 1, PayloadMode.FULL, this.codec, this.payload,
+                this.chunks::add)) {
+            throw new IllegalStateException("Benchmark payload failed to encode");
+        }
+    }
+
+    @Benchmark
+    public boolean encode(Blackhole blackhole) {
+        return ChunkedNBTSender.encode(TerminalChannels.STORAGES, 1, PayloadMode.FULL, this.codec, this.payload,
+            blackhole::consume);
+    }
+
+    @Benchmark
+    public NBTTagCompound decode() throws IOException {
+        NBTTagCompound nbt = ChunkedNBTReceiver.decode(this.chunks);
+        new StackDictionaryDecoder().decode(TerminalChannels.STORAGES, nbt);
+
+        return nbt;
+    }
+}
@@ -11,9 +11,15 @@ import net.minecraftforge.fml.common.SidedProxy;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.PlayerEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 
+import com.cellterminal.command.CommandCellTerminal;
 import com.cellterminal.config.CellTerminalServerConfig;
+import com.cellterminal.container.handler.GridScanCache;
 import com.cellterminal.gui.GuiHandler;
 import com.cellterminal.integration.CrazyAEIntegration;
 import com.cellterminal.integration.ECOAEExtensionIntegration;
@@ -28,7 +34,10 @@ import com.cellterminal.integration.storagebus.ThaumicEnergisticsBusScanner;
 import com.cellterminal.integration.subnet.AE2SubnetScanner;
 import com.cellterminal.integration.subnet.CellsSubnetScanner;
 import com.cellterminal.integration.subnet.SubnetScannerRegistry;
+import com.cellterminal.metrics.TerminalMBeans;
+import com.cellterminal.metrics.TerminalMetrics;
 import com.cellterminal.network.CellTerminalNetwork;
+import com.cellterminal.network.chunked.ChunkedNBTSender;
 import com.cellterminal.proxy.CommonProxy;
 
 
@@ -76,6 +85,9 @@ public class CellTerminal {
 
         // Register subnet scanners
         registerSubnetScanners();
+
+        // Expose terminal metrics to local JMX tools (JConsole, VisualVM)
+        TerminalMBeans.register();
     }
 
     /**
@@ -126,10 +138,36 @@ public class CellTerminal {
         proxy.postInit(event);
     }
 
+    @EventHandler
+    public void serverStarting(FMLServerStartingEvent event) {
+        event.registerServerCommand(new CommandCellTerminal());
+    }
+
+    @EventHandler
+    public void serverStopping(FMLServerStoppingEvent event) {
+        ChunkedNBTSender.shutdown();
+        GridScanCache.clear();
+        TerminalMetrics.reset();
+    }
+
     @SubscribeEvent
     public void onConfigChanged(ConfigChangedEvent.OnConfigChangedEvent event) {
         if (!event.getModID().equals(Tags.MODID)) return;
 
         CellTerminalServerConfig.getInstance().syncFromConfig();
     }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        // Send chunked payloads whose off-thread encoding finished during this tick
+        ChunkedNBTSender.flush();
+        GridScanCache.tick();
+    }
+
+    @SubscribeEvent
+    public void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        ChunkedNBTSender.forgetPlayer(event.player.getUniqueID());
+    }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 
 import net.minecraft.client.resources.I18n;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTPrimitive;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
@@ -38,6 +39,8 @@ import com.cellterminal.gui.rename.RenameTargetType;
  *   └─ each entry: "slot" int (4) + ItemStack NBT (~I per non-empty slot)
  * "contents"        NBTTagList            S * T  (T = stored item types, capped by slotLimit)
  *   └─ each entry: ItemStack NBT + "Cnt"/"fluidAmount"/"essentiaAmount" long
+ * "summary"         NBTTagCompound        8   (only on summarized cells, see below)
+ *   └─ "types" int + "partition" int (highest non-empty partition slot, -1 if none)
  * ─────────────────────────────────────────────────
  * Total ≈ 56 + I + U + P + S * T
  *   where S = average size of one content entry (~50-200 bytes per stack),
@@ -46,19 +49,30 @@ import com.cellterminal.gui.rename.RenameTargetType;
  *         U = total upgrades NBT size,
  *         P = total partition NBT size
  * </pre>
+ * With lazy cell contents, cells outside the client's viewport arrive summarized (see
+ * {@link com.cellterminal.container.handler.CellDetailFilter}): no contents or partition and
+ * a stripped cell item. {@link #hasDetails()} tells them apart; the count accessors below
+ * answer from the summary for them.
  */
 public class CellInfo implements Renameable {
 
+    private static final String[] HEADER_KEYS = {
+        "slot", "status", StorageType.NBT_KEY, "cellItem", "usedBytes", "totalBytes", "usedTypes", "totalTypes",
+        "storedItemCount", "upgrades", "upgradeSlotCount", "partition", "summary"
+    };
+
     private long parentStorageId;
-    private final int slot;
-    private final int status;
-    private final StorageType storageType;
-    private final ItemStack cellItem;
-    private final long usedBytes;
-    private final long totalBytes;
-    private final long usedTypes;
-    private final long totalTypes;
-    private final long storedItemCount;
+
+    // Header fields are not final: nested delta patches update them in place (see applyPatch).
+    private int slot;
+    private int status;
+    private StorageType storageType;
+    private ItemStack cellItem;
+    private long usedBytes;
+    private long totalBytes;
+    private long usedTypes;
+    private long totalTypes;
+    private long storedItemCount;
     private final List<ItemStack> partition = new ArrayList<>();
     private final List<ItemStack> contents = new ArrayList<>();
     private final List<Long> contentCounts = new ArrayList<>();
@@ -66,94 +80,192 @@ public class CellInfo implements Renameable {
     // Upgrade tracking
     private final List<ItemStack> upgrades = new ArrayList<>();
     private final List<Integer> upgradeSlotIndices = new ArrayList<>();
-    private final int upgradeSlotCount;
+    private int upgradeSlotCount;
+
+    // Set when the server sent a summary instead of the contents and partition
+    private boolean summarized;
+    private int summaryContentTypes;
+    private int summaryHighestPartitionSlot = -1;
 
     public CellInfo(NBTTagCompound nbt) {
-        this.slot = nbt.getInteger("slot");
-        this.status = nbt.getInteger("status");
-        this.storageType = StorageType.fromNBT(nbt);
-        this.cellItem = nbt.hasKey("cellItem") ? new ItemStack(nbt.getCompoundTag("cellItem")) : ItemStack.EMPTY;
-        this.usedBytes = nbt.getLong("usedBytes");
-        this.totalBytes = nbt.getLong("totalBytes");
-        this.usedTypes = nbt.getLong("usedTypes");
-        this.totalTypes = nbt.getLong("totalTypes");
-        this.storedItemCount = nbt.getLong("storedItemCount");
+        for (String key : HEADER_KEYS) readHeaderKey(key, nbt);
+
+        if (nbt.hasKey("contents")) {
+            NBTTagList contentList = nbt.getTagList("contents", Constants.NBT.TAG_COMPOUND);
+            for (int i = 0; i < contentList.tagCount(); i++) addContent(contentList.getCompoundTagAt(i));
+        }
+    }
+
+    /**
+     * Read one header field from {@code nbt}, falling back to its default when the key is absent.
+     */
+    private void readHeaderKey(String key, NBTTagCompound nbt) {
+        switch (key) {
+            case "slot":
+                this.slot = nbt.getInteger("slot");
+                break;
+            case "status":
+                this.status = nbt.getInteger("status");
+                break;
+            case StorageType.NBT_KEY:
+                this.storageType = StorageType.fromNBT(nbt);
+                break;
+            case "cellItem":
+                this.cellItem = nbt.hasKey("cellItem") ? new ItemStack(nbt.getCompoundTag("cellItem")) : ItemStack.EMPTY;
+                break;
+            case "usedBytes":
+                this.usedBytes = nbt.getLong("usedBytes");
+                break;
+            case "totalBytes":
+                this.totalBytes = nbt.getLong("totalBytes");
+                break;
+            case "usedTypes":
+                this.usedTypes = nbt.getLong("usedTypes");
+                break;
+            case "totalTypes":
+                this.totalTypes = nbt.getLong("totalTypes");
+                break;
+            case "storedItemCount":
+                this.storedItemCount = nbt.getLong("storedItemCount");
+                break;
+            case "upgrades":
+                readUpgrades(nbt);
+                break;
+            case "upgradeSlotCount":
+                // Upgrade slot count from server; fallback to 2 when not provided
+                this.upgradeSlotCount = nbt.hasKey("upgradeSlotCount") ? nbt.getInteger("upgradeSlotCount") : 2;
+                break;
+            case "partition":
+                readPartition(nbt);
+                break;
+            case "summary":
+                readSummary(nbt);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void readUpgrades(NBTTagCompound nbt) {
+        this.upgrades.clear();
+        this.upgradeSlotIndices.clear();
 
         // Parse upgrade items for display
-        if (nbt.hasKey("upgrades")) {
-            NBTTagList upgradeList = nbt.getTagList("upgrades", Constants.NBT.TAG_COMPOUND);
-            for (int i = 0; i < upgradeList.tagCount(); i++) {
-                NBTTagCompound upgradeNbt = upgradeList.getCompoundTagAt(i);
-                ItemStack upgrade = new ItemStack(upgradeNbt);
-                if (!upgrade.isEmpty()) {
-                    this.upgrades.add(upgrade);
-                    // Read actual slot index, fallback to iteration index for backwards compatibility
-                    int slotIndex = upgradeNbt.hasKey("slot") ? upgradeNbt.getInteger("slot") : i;
-                    this.upgradeSlotIndices.add(slotIndex);
-                }
+        if (!nbt.hasKey("upgrades")) return;
+
+        NBTTagList upgradeList = nbt.getTagList("upgrades", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < upgradeList.tagCount(); i++) {
+            NBTTagCompound upgradeNbt = upgradeList.getCompoundTagAt(i);
+            ItemStack upgrade = new ItemStack(upgradeNbt);
+            if (!upgrade.isEmpty()) {
+                this.upgrades.add(upgrade);
+                // Read actual slot index, fallback to iteration index for backwards compatibility
+                int slotIndex = upgradeNbt.hasKey("slot") ? upgradeNbt.getInteger("slot") : i;
+                this.upgradeSlotIndices.add(slotIndex);
             }
         }
+    }
 
-        // Upgrade slot count from server; fallback to 2 when not provided
-        this.upgradeSlotCount = nbt.hasKey("upgradeSlotCount") ? nbt.getInteger("upgradeSlotCount") : 2;
+    private void readPartition(NBTTagCompound nbt) {
+        this.partition.clear();
+        if (!nbt.hasKey("partition")) return;
 
-        if (nbt.hasKey("partition")) {
-            NBTTagList partList = nbt.getTagList("partition", Constants.NBT.TAG_COMPOUND);
+        NBTTagList partList = nbt.getTagList("partition", Constants.NBT.TAG_COMPOUND);
 
-            // Determine max slot to size the list properly
-            int maxSlot = 0;
-            for (int i = 0; i < partList.tagCount(); i++) {
-                NBTTagCompound partNbt = partList.getCompoundTagAt(i);
-                int slot = partNbt.hasKey("slot") ? partNbt.getInteger("slot") : i;
-                if (slot >= maxSlot) maxSlot = slot + 1;
-            }
+        // Determine max slot to size the list properly
+        int maxSlot = 0;
+        for (int i = 0; i < partList.tagCount(); i++) {
+            NBTTagCompound partNbt = partList.getCompoundTagAt(i);
+            int slot = partNbt.hasKey("slot") ? partNbt.getInteger("slot") : i;
+            if (slot >= maxSlot) maxSlot = slot + 1;
+        }
 
-            // Pre-fill partition list with empty stacks
-            for (int i = 0; i < maxSlot; i++) {
-                this.partition.add(ItemStack.EMPTY);
-            }
+        // Pre-fill partition list with empty stacks
+        for (int i = 0; i < maxSlot; i++) {
+            this.partition.add(ItemStack.EMPTY);
+        }
 
-            // Place items at their correct slot positions
-            for (int i = 0; i < partList.tagCount(); i++) {
-                NBTTagCompound partNbt = partList.getCompoundTagAt(i);
-                int slot = partNbt.hasKey("slot") ? partNbt.getInteger("slot") : i;
+        // Place items at their correct slot positions
+        for (int i = 0; i < partList.tagCount(); i++) {
+            NBTTagCompound partNbt = partList.getCompoundTagAt(i);
+            int slot = partNbt.hasKey("slot") ? partNbt.getInteger("slot") : i;
 
-                // Check if item data is present (id key indicates an item)
-                if (partNbt.hasKey("id")) {
-                    this.partition.set(slot, new ItemStack(partNbt));
-                }
+            // Check if item data is present (id key indicates an item)
+            if (partNbt.hasKey("id")) {
+                this.partition.set(slot, new ItemStack(partNbt));
             }
         }
+    }
 
-        if (nbt.hasKey("contents")) {
-            NBTTagList contentList = nbt.getTagList("contents", Constants.NBT.TAG_COMPOUND);
-            for (int i = 0; i < contentList.tagCount(); i++) {
-                NBTTagCompound stackNbt = contentList.getCompoundTagAt(i);
-                ItemStack stack = new ItemStack(stackNbt);
-
-                // Read the actual count from AE2's "Cnt" key, or fluidAmount/essentiaAmount for special cells
-                long count;
-                if (stackNbt.hasKey("fluidAmount")) {
-                    // For fluid stacks, count is stored in mB
-                    count = stackNbt.getLong("fluidAmount");
-                } else if (stackNbt.hasKey("essentiaAmount")) {
-                    // For essentia stacks, count is stored by our integration
-                    count = stackNbt.getLong("essentiaAmount");
-                } else if (stackNbt.hasKey("gasAmount")) {
-                    // For gas stacks, count is stored by our integration
-                    count = stackNbt.getLong("gasAmount");
-                } else if (stackNbt.hasKey("Cnt")) {
-                    // For item stacks, AE2 stores count as "Cnt"
-                    count = stackNbt.getLong("Cnt");
-                } else {
-                    // Fallback to ItemStack count
-                    count = stack.getCount();
-                }
-
-                this.contents.add(stack);
-                this.contentCounts.add(count);
-            }
+    private void readSummary(NBTTagCompound nbt) {
+        this.summarized = nbt.hasKey("summary");
+
+        NBTTagCompound summary = nbt.getCompoundTag("summary");
+        this.summaryContentTypes = summary.getInteger("types");
+        this.summaryHighestPartitionSlot = summary.hasKey("partition") ? summary.getInteger("partition") : -1;
+    }
+
+    private void addContent(NBTTagCompound stackNbt) {
+        ItemStack stack = new ItemStack(stackNbt);
+
+        // Read the actual count from AE2's "Cnt" key, or fluidAmount/essentiaAmount for special cells
+        long count;
+        if (stackNbt.hasKey("fluidAmount")) {
+            // For fluid stacks, count is stored in mB
+            count = stackNbt.getLong("fluidAmount");
+        } else if (stackNbt.hasKey("essentiaAmount")) {
+            // For essentia stacks, count is stored by our integration
+            count = stackNbt.getLong("essentiaAmount");
+        } else if (stackNbt.hasKey("gasAmount")) {
+            // For gas stacks, count is stored by our integration
+            count = stackNbt.getLong("gasAmount");
+        } else if (stackNbt.hasKey("Cnt")) {
+            // For item stacks, AE2 stores count as "Cnt"
+            count = stackNbt.getLong("Cnt");
+        } else {
+            // Fallback to ItemStack count
+            count = stack.getCount();
+        }
+
+        this.contents.add(stack);
+        this.contentCounts.add(count);
+    }
+
+    /**
+     * Apply a nested cell patch in place (format documented in
+     * {@link com.cellterminal.container.handler.NestedDeltaSnapshot}). Content operations
+     * use indices into the current content order: count updates first, then removals, then
+     * appended entries.
+     */
+    public void applyPatch(NBTTagCompound patch) {
+        NBTTagCompound set = patch.getCompoundTag("set");
+        for (String key : set.getKeySet()) readHeaderKey(key, set);
+
+        NBTTagList unset = patch.getTagList("unset", Constants.NBT.TAG_STRING);
+        NBTTagCompound empty = new NBTTagCompound();
+        for (int i = 0; i < unset.tagCount(); i++) readHeaderKey(unset.getStringTagAt(i), empty);
+
+        int[] countIndices = patch.getIntArray("cntIdx");
+        NBTTagList countValues = patch.getTagList("cntVal", Constants.NBT.TAG_LONG);
+        for (int i = 0; i < countIndices.length && i < countValues.tagCount(); i++) {
+            int index = countIndices[i];
+            if (index < 0 || index >= this.contentCounts.size()) continue;
+
+            this.contentCounts.set(index, ((NBTPrimitive) countValues.get(i)).getLong());
         }
+
+        // Indices are ascending; remove from the end so earlier indices stay valid.
+        int[] removed = patch.getIntArray("cntRemoved");
+        for (int i = removed.length - 1; i >= 0; i--) {
+            int index = removed[i];
+            if (index < 0 || index >= this.contents.size()) continue;
+
+            this.contents.remove(index);
+            this.contentCounts.remove(index);
+        }
+
+        NBTTagList added = patch.getTagList("cntAdded", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < added.tagCount(); i++) addContent(added.getCompoundTagAt(i));
     }
 
     public void setParentStorageId(long parentStorageId) {
@@ -212,6 +324,42 @@ public class CellInfo implements Renameable {
         return contents;
     }
 
+    /**
+     * @return false if the server only sent a summary of this cell: contents and partition are
+     *         empty until the client requests the cell
+     */
+    public boolean hasDetails() {
+        return !summarized;
+    }
+
+    /**
+     * Number of content entries, from the summary when the contents were not sent.
+     */
+    public int getContentTypeCount() {
+        return summarized ? summaryContentTypes : contents.size();
+    }
+
+    /**
+     * Highest non-empty partition slot below {@code limit}, from the summary when the partition
+     * was not sent.
+     *
+     * @return the slot index, or -1 if no partition items
+     */
+    public int getHighestPartitionSlot(int limit) {
+        if (summarized) return Math.min(summaryHighestPartitionSlot, limit - 1);
+
+        int highest = -1;
+        for (int i = 0; i < Math.min(partition.size(), limit); i++) {
+            if (!partition.get(i).isEmpty()) highest = i;
+        }
+
+        return highest;
+    }
+
+    public boolean hasPartition() {
+        return getHighestPartitionSlot(Integer.MAX_VALUE) >= 0;
+    }
+
     public long getContentCount(int index) {
         if (index < 0 || index >= contentCounts.size()) return 0;
 
@@ -295,9 +443,12 @@ public class CellInfo implements Renameable {
 
     @Override
     public void setCustomName(String name) {
-        // Client-side optimistic update for the ItemStack display name
+        // Client-side optimistic update for the ItemStack display name. The stack shares its
+        // tag with the payload, which may be the integrated server's own compound: rename a copy.
         if (cellItem.isEmpty()) return;
 
+        cellItem = cellItem.copy();
+
         if (name == null || name.isEmpty()) {
             cellItem.clearCustomName();
         } else {
@@ -41,25 +41,23 @@ import com.cellterminal.gui.rename.RenameTargetType;
  */
 public class StorageInfo implements Renameable, Prioritizable {
 
+    private static final String[] HEADER_KEYS = {"pos", "dim", "name", "blockItem", "slotCount", "priority", "supportsPriority"};
+
     private final long id;
-    private final BlockPos pos;
-    private final int dimension;
-    private final String name;
-    private final ItemStack blockItem;
-    private final int slotCount;
-    private final int priority;
-    private final boolean supportsPriorityFlag;
+
+    // Header fields are not final: nested delta patches update them in place (see applyPatch).
+    private BlockPos pos;
+    private int dimension;
+    private String name;
+    private ItemStack blockItem;
+    private int slotCount;
+    private int priority;
+    private boolean supportsPriorityFlag;
     private final List<CellInfo> cells = new ArrayList<>();
 
     public StorageInfo(NBTTagCompound nbt) {
         this.id = nbt.getLong("id");
-        this.pos = BlockPos.fromLong(nbt.getLong("pos"));
-        this.dimension = nbt.getInteger("dim");
-        this.name = nbt.getString("name");
-        this.blockItem = nbt.hasKey("blockItem") ? new ItemStack(nbt.getCompoundTag("blockItem")) : ItemStack.EMPTY;
-        this.slotCount = nbt.getInteger("slotCount");
-        this.priority = nbt.getInteger("priority");
-        this.supportsPriorityFlag = nbt.getBoolean("supportsPriority");
+        for (String key : HEADER_KEYS) readHeaderKey(key, nbt);
 
         if (nbt.hasKey("cells")) {
             NBTTagList cellList = nbt.getTagList("cells", Constants.NBT.TAG_COMPOUND);
@@ -71,6 +69,84 @@ public class StorageInfo implements Renameable, Prioritizable {
         }
     }
 
+    /**
+     * Read one header field from {@code nbt}, falling back to its default when the key is absent.
+     */
+    private void readHeaderKey(String key, NBTTagCompound nbt) {
+        switch (key) {
+            case "pos":
+                this.pos = BlockPos.fromLong(nbt.getLong("pos"));
+                break;
+            case "dim":
+                this.dimension = nbt.getInteger("dim");
+                break;
+            case "name":
+                this.name = nbt.getString("name");
+                break;
+            case "blockItem":
+                this.blockItem = nbt.hasKey("blockItem") ? new ItemStack(nbt.getCompoundTag("blockItem")) : ItemStack.EMPTY;
+                break;
+            case "slotCount":
+                this.slotCount = nbt.getInteger("slotCount");
+                break;
+            case "priority":
+                this.priority = nbt.getInteger("priority");
+                break;
+            case "supportsPriority":
+                this.supportsPriorityFlag = nbt.getBoolean("supportsPriority");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Apply a nested delta patch in place (format documented in
+     * {@link com.cellterminal.container.handler.NestedDeltaSnapshot}): changed header keys,
+     * removed cell slots, and per-slot cell replacements or patches.
+     */
+    public void applyPatch(NBTTagCompound patch) {
+        NBTTagCompound set = patch.getCompoundTag("set");
+        for (String key : set.getKeySet()) readHeaderKey(key, set);
+
+        NBTTagList unset = patch.getTagList("unset", Constants.NBT.TAG_STRING);
+        NBTTagCompound empty = new NBTTagCompound();
+        for (int i = 0; i < unset.tagCount(); i++) readHeaderKey(unset.getStringTagAt(i), empty);
+
+        for (int slot : patch.getIntArray("cellsRemoved")) {
+            this.cells.removeIf(cell -> cell.getSlot() == slot);
+        }
+
+        NBTTagList cellPatches = patch.getTagList("cells", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < cellPatches.tagCount(); i++) {
+            NBTTagCompound cellPatch = cellPatches.getCompoundTagAt(i);
+            int slot = cellPatch.getInteger("slot");
+            CellInfo existing = getCellAtSlot(slot);
+
+            if (cellPatch.hasKey("cell")) {
+                CellInfo cell = new CellInfo(cellPatch.getCompoundTag("cell"));
+                cell.setParentStorageId(this.id);
+                replaceCellAtSlot(slot, existing, cell);
+            } else if (existing != null) {
+                existing.applyPatch(cellPatch);
+            }
+        }
+    }
+
+    /**
+     * Replace the cell at {@code slot}, or insert it keeping the list ordered by slot.
+     */
+    private void replaceCellAtSlot(int slot, CellInfo existing, CellInfo cell) {
+        if (existing != null) {
+            this.cells.set(this.cells.indexOf(existing), cell);
+            return;
+        }
+
+        int index = 0;
+        while (index < this.cells.size() && this.cells.get(index).getSlot() < slot) index++;
+        this.cells.add(index, cell);
+    }
+
     public long getId() {
         return id;
     }
@@ -0,0 +1,88 @@
+package com.cellterminal.command;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraft.util.text.TextComponentTranslation;
+
+import com.cellterminal.CellTerminal;
+import com.cellterminal.metrics.MetricsReport;
+import com.cellterminal.metrics.TerminalMetrics;
+
+
+/**
+ * {@code /cellterminal stats [json|reset]}: show what the terminals cost the server.
+ * <ul>
+ *   <li>{@code stats}: chat summary of scan, delta and encode timings, traffic per channel,
+ *       throttling, and the players and grids with the most refresh and scan time.</li>
+ *   <li>{@code stats json}: write the full report to a JSON file in the server directory.</li>
+ *   <li>{@code stats reset}: start counting from zero.</li>
+ * </ul>
+ */
+public class CommandCellTerminal extends CommandBase {
+
+    @Override
+    public String getName() {
+        return "cellterminal";
+    }
+
+    @Override
+    public String getUsage(ICommandSender sender) {
+        return "commands.cellterminal.usage";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 2;
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 1 || args.length > 2 || !args[0].equals("stats")) {
+            throw new WrongUsageException("commands.cellterminal.usage");
+        }
+
+        if (args.length == 1) {
+            for (String line : MetricsReport.summary()) sender.sendMessage(new TextComponentString(line));
+            return;
+        }
+
+        switch (args[1]) {
+            case "json":
+                try {
+                    File file = MetricsReport.writeJson(server.getDataDirectory());
+                    sender.sendMessage(new TextComponentTranslation("commands.cellterminal.stats.json", file.getName()));
+                } catch (IOException e) {
+                    CellTerminal.LOGGER.error("Failed to write terminal stats", e);
+                    throw new CommandException("commands.cellterminal.stats.json_failed", e.getMessage());
+                }
+                break;
+            case "reset":
+                TerminalMetrics.reset();
+                sender.sendMessage(new TextComponentTranslation("commands.cellterminal.stats.reset"));
+                break;
+            default:
+                throw new WrongUsageException("commands.cellterminal.usage");
+        }
+    }
+
+    @Override
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args,
+                                          @Nullable BlockPos targetPos) {
+        if (args.length == 1) return getListOfStringsMatchingLastWord(args, "stats");
+        if (args.length == 2 && args[0].equals("stats")) return getListOfStringsMatchingLastWord(args, "json", "reset");
+
+        return Collections.emptyList();
+    }
+}
@@ -0,0 +1,10 @@
+/**
+ * Server commands of the Cell Terminal.
+ * <p>
+ * <b>Classes:</b>
+ * <ul>
+ *   <li>{@link com.cellterminal.command.CommandCellTerminal}: {@code /cellterminal} admin
+ *       command (terminal performance statistics).</li>
+ * </ul>
+ */
+package com.cellterminal.command;
@@ -39,6 +39,7 @@ public class CellTerminalClientConfig {
     private final Property adaptiveTextScaleProperty;
     private final Property adaptiveTextScaleMinPercentProperty;
     private final Property adaptiveTextScaleMaxPercentProperty;
+    private final Property recordPayloadsProperty;
     private int maxHighlightDistance = -1;  // -1 = unlimited
     private int highlightDuration = 15;  // seconds
     private int arrowScalePercent = 100;  // Arrow size scale percentage
@@ -46,6 +47,7 @@ public class CellTerminalClientConfig {
     private boolean adaptiveTextScale = true;  // Scale text based on arrow distance from camera
     private int adaptiveTextScaleMinPercent = 100;  // Minimum adaptive text scale
     private int adaptiveTextScaleMaxPercent = 200;  // Maximum adaptive text scale
+    private boolean recordPayloads = false;  // Debug: record received payloads for offline replay
 
     // GUI state properties (hidden from config GUI - persistent state)
     private final Property selectedTabProperty;
@@ -120,6 +122,12 @@ public class CellTerminalClientConfig {
         this.adaptiveTextScaleMaxPercentProperty.setLanguageKey("config.cellterminal.config.client.settings.adaptive_text_scale_max");
         this.adaptiveTextScaleMaxPercent = this.adaptiveTextScaleMaxPercentProperty.getInt();
 
+        this.recordPayloadsProperty = config.get(CATEGORY_SETTINGS, "recordPayloads", false,
+            "Debug: record every terminal payload received from the server to cellterminal/recordings\n" +
+            "in the game directory, for replaying the client side offline. Files grow with every refresh.");
+        this.recordPayloadsProperty.setLanguageKey("config.cellterminal.config.client.settings.record_payloads");
+        this.recordPayloads = this.recordPayloadsProperty.getBoolean();
+
         // GUI state category (hidden from config GUI - persistent state)
         this.selectedTabProperty = config.get(CATEGORY_GUI, "selectedTab", 0,
             "The currently selected tab in the Cell Terminal GUI (0=Terminal, 1=Inventory, 2=Partition)");
@@ -518,6 +526,13 @@ public class CellTerminalClientConfig {
         return adaptiveTextScaleMaxPercent / 100.0f;
     }
 
+    /**
+     * Check if received payloads are recorded (see {@link com.cellterminal.network.chunked.PayloadRecorder}).
+     */
+    public boolean isRecordPayloads() {
+        return recordPayloads;
+    }
+
     /**
      * Get the underlying Configuration object.
      */
@@ -550,6 +565,7 @@ public class CellTerminalClientConfig {
         this.adaptiveTextScale = this.adaptiveTextScaleProperty.getBoolean();
         this.adaptiveTextScaleMinPercent = this.adaptiveTextScaleMinPercentProperty.getInt();
         this.adaptiveTextScaleMaxPercent = this.adaptiveTextScaleMaxPercentProperty.getInt();
+        this.recordPayloads = this.recordPayloadsProperty.getBoolean();
 
         if (config.hasChanged()) config.save();
     }
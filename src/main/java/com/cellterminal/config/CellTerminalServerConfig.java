@@ -101,6 +101,28 @@ public class CellTerminalServerConfig {
     private final Property maxChunkBytesProperty;
     private final Property minRefreshIntervalTicksProperty;
     private final Property enableDeltaUpdatesProperty;
+    private final Property liveStorageUpdatesProperty;
+    private final Property liveStorageUpdateIntervalTicksProperty;
+    private final Property hashOnlySnapshotsProperty;
+    private final Property nestedStorageDeltasProperty;
+    private final Property enableBinaryCodecProperty;
+    private final Property stackDictionaryProperty;
+    private final Property compressionThresholdProperty;
+    private final Property compressionLevelProperty;
+    private final Property deltaCompressionLevelProperty;
+    private final Property compressionDictionaryProperty;
+    private final Property compressionThreadsProperty;
+    private final Property ackedDeltasProperty;
+    private final Property sendBytesPerTickProperty;
+    private final Property playerBytesPerSecondProperty;
+    private final Property playerBurstBytesProperty;
+    private final Property globalBytesPerSecondProperty;
+    private final Property scanCacheTicksProperty;
+    private final Property scanTimeBudgetMicrosProperty;
+    private final Property terminalTickShareProperty;
+    private final Property integratedFastPathProperty;
+    private final Property lazyCellContentsProperty;
+    private final Property lazyCellContentsMaxCellsProperty;
 
     // Default 512 KiB: stays well under vanilla's S2C custom-payload cap of 1 MiB
     // even after framing/varint overhead and the wrapping FMLProxyPacket header.
@@ -109,6 +131,28 @@ public class CellTerminalServerConfig {
     private int maxChunkBytes = 524288;
     private int minRefreshIntervalTicks = 10;
     private boolean enableDeltaUpdates = true;
+    private boolean liveStorageUpdates = true;
+    private int liveStorageUpdateIntervalTicks = 20;
+    private boolean hashOnlySnapshots = true;
+    private boolean nestedStorageDeltas = true;
+    private boolean enableBinaryCodec = true;
+    private boolean stackDictionary = true;
+    private int compressionThreshold = 256;
+    private int compressionLevel = 6;
+    private int deltaCompressionLevel = 1;
+    private boolean compressionDictionary = true;
+    private int compressionThreads = 2;
+    private boolean ackedDeltas = true;
+    private int sendBytesPerTick = 262144;
+    private int playerBytesPerSecond = 0;
+    private int playerBurstBytes = 4194304;
+    private int globalBytesPerSecond = 0;
+    private int scanCacheTicks = 10;
+    private int scanTimeBudgetMicros = 2000;
+    private double terminalTickShare = 0.05;
+    private boolean integratedFastPath = true;
+    private boolean lazyCellContents = true;
+    private int lazyCellContentsMaxCells = 256;
 
     private CellTerminalServerConfig(File configDir) {
         File configFile = new File(configDir, CONFIG_FILE);
@@ -316,6 +360,162 @@ public class CellTerminalServerConfig {
         this.enableDeltaUpdatesProperty.setLanguageKey("config.cellterminal.config.server.network.enable_delta_updates");
         this.enableDeltaUpdates = this.enableDeltaUpdatesProperty.getBoolean();
 
+        this.liveStorageUpdatesProperty = config.get(CATEGORY_NETWORK, "liveStorageUpdates", true,
+            "Refresh the storage list automatically when stored content changes on the viewed network.\n" +
+            "Keeps byte/type usage live (e.g. during autocrafting) without requiring a player action.\n" +
+            "Refreshes are batched and rate-limited by liveStorageUpdateIntervalTicks.");
+        this.liveStorageUpdatesProperty.setLanguageKey("config.cellterminal.config.server.network.live_storage_updates");
+        this.liveStorageUpdates = this.liveStorageUpdatesProperty.getBoolean();
+
+        this.liveStorageUpdateIntervalTicksProperty = config.get(CATEGORY_NETWORK, "liveStorageUpdateIntervalTicks", 20,
+            "Minimum number of ticks between automatic storage list refreshes (20 ticks = 1 second).\n" +
+            "Only used when liveStorageUpdates is enabled.\n" +
+            "Range: 1 - 1200.", 1, 1200);
+        this.liveStorageUpdateIntervalTicksProperty.setLanguageKey("config.cellterminal.config.server.network.live_storage_update_interval_ticks");
+        this.liveStorageUpdateIntervalTicks = this.liveStorageUpdateIntervalTicksProperty.getInt();
+
+        this.hashOnlySnapshotsProperty = config.get(CATEGORY_NETWORK, "hashOnlySnapshots", true,
+            "Keep only a 64-bit content hash per entry in the per-player delta snapshots instead of a copy of the sent NBT.\n" +
+            "Greatly reduces server memory with many open terminals on large networks.\n" +
+            "Disable to compare full NBT (useful for debugging delta issues).");
+        this.hashOnlySnapshotsProperty.setLanguageKey("config.cellterminal.config.server.network.hash_only_snapshots");
+        this.hashOnlySnapshots = this.hashOnlySnapshotsProperty.getBoolean();
+
+        this.nestedStorageDeltasProperty = config.get(CATEGORY_NETWORK, "nestedStorageDeltas", true,
+            "Send storage list updates as nested patches (storage, then cell slot, then content entry)\n" +
+            "instead of resending a whole drive when one of its cells changes.\n" +
+            "Only used when enableDeltaUpdates is enabled.");
+        this.nestedStorageDeltasProperty.setLanguageKey("config.cellterminal.config.server.network.nested_storage_deltas");
+        this.nestedStorageDeltas = this.nestedStorageDeltasProperty.getBoolean();
+
+        this.enableBinaryCodecProperty = config.get(CATEGORY_NETWORK, "enableBinaryCodec", true,
+            "Encode terminal payloads with a compact binary codec (string table + varints)\n" +
+            "instead of plain NBT, for clients that advertise support. Disable to fall back to NBT.");
+        this.enableBinaryCodecProperty.setLanguageKey("config.cellterminal.config.server.network.enable_binary_codec");
+        this.enableBinaryCodec = this.enableBinaryCodecProperty.getBoolean();
+
+        this.stackDictionaryProperty = config.get(CATEGORY_NETWORK, "stackDictionary", true,
+            "Send each distinct item stack (item, meta, NBT) once per terminal session and refer to it\n" +
+            "by a small ID afterwards. Shrinks payloads of networks where the same items appear in many cells.");
+        this.stackDictionaryProperty.setLanguageKey("config.cellterminal.config.server.network.stack_dictionary");
+        this.stackDictionary = this.stackDictionaryProperty.getBoolean();
+
+        this.compressionThresholdProperty = config.get(CATEGORY_NETWORK, "compressionThreshold", 256,
+            "Serialized payloads smaller than this many bytes are sent uncompressed.\n" +
+            "Small payloads (metadata, temp cells, most deltas) gain little from deflate.", 0, 1048576);
+        this.compressionThresholdProperty.setLanguageKey("config.cellterminal.config.server.network.compression_threshold");
+        this.compressionThreshold = this.compressionThresholdProperty.getInt();
+
+        this.compressionLevelProperty = config.get(CATEGORY_NETWORK, "compressionLevel", 6,
+            "Deflate level (0-9) for full payloads. Higher is smaller but costs more server CPU.", 0, 9);
+        this.compressionLevelProperty.setLanguageKey("config.cellterminal.config.server.network.compression_level");
+        this.compressionLevel = this.compressionLevelProperty.getInt();
+
+        this.deltaCompressionLevelProperty = config.get(CATEGORY_NETWORK, "deltaCompressionLevel", 1,
+            "Deflate level (0-9) for delta payloads, which are sent on every poll.\n" +
+            "Defaults to the fastest level.", 0, 9);
+        this.deltaCompressionLevelProperty.setLanguageKey("config.cellterminal.config.server.network.delta_compression_level");
+        this.deltaCompressionLevel = this.deltaCompressionLevelProperty.getInt();
+
+        this.compressionDictionaryProperty = config.get(CATEGORY_NETWORK, "compressionDictionary", true,
+            "Prime deflate with a preset dictionary of the terminal NBT keys.\n" +
+            "Mostly helps small and medium payloads.");
+        this.compressionDictionaryProperty.setLanguageKey("config.cellterminal.config.server.network.compression_dictionary");
+        this.compressionDictionary = this.compressionDictionaryProperty.getBoolean();
+
+        this.compressionThreadsProperty = config.get(CATEGORY_NETWORK, "compressionThreads", 2,
+            "Worker threads used to serialize and compress terminal payloads off the server thread.\n" +
+            "Set to 0 to encode on the server thread.", 0, 8);
+        this.compressionThreadsProperty.setLanguageKey("config.cellterminal.config.server.network.compression_threads");
+        this.compressionThreads = this.compressionThreadsProperty.getInt();
+
+        this.ackedDeltasProperty = config.get(CATEGORY_NETWORK, "ackedDeltas", true,
+            "Stamp delta payloads with snapshot versions that the client acknowledges.\n" +
+            "A delta whose base the client does not hold (e.g. after an abandoned transfer)\n" +
+            "is rejected and resent against the version the client has, or as a full payload.");
+        this.ackedDeltasProperty.setLanguageKey("config.cellterminal.config.server.network.acked_deltas");
+        this.ackedDeltas = this.ackedDeltasProperty.getBoolean();
+
+        this.sendBytesPerTickProperty = config.get(CATEGORY_NETWORK, "sendBytesPerTick", 262144,
+            "Maximum number of payload bytes sent to one player per tick (20 ticks = 1 second).\n" +
+            "Large terminal payloads are paced over several ticks so they do not delay movement\n" +
+            "and chunk packets; a chunk larger than this borrows from the following ticks.\n" +
+            "Default 262144 (256 KiB, about 5 MiB/s). 0 disables the limit.\n" +
+            "Range: 0 - 104857600 (100 MiB).", 0, 104857600);
+        this.sendBytesPerTickProperty.setLanguageKey("config.cellterminal.config.server.network.send_bytes_per_tick");
+        this.sendBytesPerTick = this.sendBytesPerTickProperty.getInt();
+
+        this.playerBytesPerSecondProperty = config.get(CATEGORY_NETWORK, "playerBytesPerSecond", 0,
+            "Sustained bandwidth quota for terminal traffic per player, in bytes per second.\n" +
+            "Once a player has used up the quota plus the burst allowance, their payloads wait\n" +
+            "and periodic refreshes are postponed (and merged) until budget is available again.\n" +
+            "0 disables the quota.\n" +
+            "Range: 0 - 1073741824 (1 GiB).", 0, 1073741824);
+        this.playerBytesPerSecondProperty.setLanguageKey("config.cellterminal.config.server.network.player_bytes_per_second");
+        this.playerBytesPerSecond = this.playerBytesPerSecondProperty.getInt();
+
+        this.playerBurstBytesProperty = config.get(CATEGORY_NETWORK, "playerBurstBytes", 4194304,
+            "Bytes a player may send above playerBytesPerSecond in a burst, e.g. when opening a terminal.\n" +
+            "Only used when playerBytesPerSecond is set.\n" +
+            "Default 4194304 (4 MiB).\n" +
+            "Range: 0 - 1073741824 (1 GiB).", 0, 1073741824);
+        this.playerBurstBytesProperty.setLanguageKey("config.cellterminal.config.server.network.player_burst_bytes");
+        this.playerBurstBytes = this.playerBurstBytesProperty.getInt();
+
+        this.globalBytesPerSecondProperty = config.get(CATEGORY_NETWORK, "globalBytesPerSecond", 0,
+            "Server-wide bandwidth limit for terminal traffic of all players combined, in bytes per second.\n" +
+            "Players are served in turn while the shared budget lasts; nothing is dropped,\n" +
+            "payloads wait and periodic refreshes are postponed (and merged).\n" +
+            "0 disables the limit.\n" +
+            "Range: 0 - 1073741824 (1 GiB).", 0, 1073741824);
+        this.globalBytesPerSecondProperty.setLanguageKey("config.cellterminal.config.server.network.global_bytes_per_second");
+        this.globalBytesPerSecond = this.globalBytesPerSecondProperty.getInt();
+
+        this.scanCacheTicksProperty = config.get(CATEGORY_NETWORK, "scanCacheTicks", 10,
+            "How long (in ticks) a storage or storage bus scan of a network is reused by other terminals\n" +
+            "viewing the same network. Content changes and player actions invalidate it earlier;\n" +
+            "terminals refreshing in the same tick always share one scan.\n" +
+            "0 shares only within a tick.\n" +
+            "Range: 0 - 200.", 0, 200);
+        this.scanCacheTicksProperty.setLanguageKey("config.cellterminal.config.server.network.scan_cache_ticks");
+        this.scanCacheTicks = this.scanCacheTicksProperty.getInt();
+
+        this.scanTimeBudgetMicrosProperty = config.get(CATEGORY_NETWORK, "scanTimeBudgetMicros", 2000,
+            "Time budget (in microseconds) per server tick for storage and storage bus scans, shared by all\n" +
+            "terminals. Scans that do not fit are resumed on the next tick and sent once complete, so a\n" +
+            "network with thousands of drives or buses no longer stalls a single tick.\n" +
+            "0 scans in one go.\n" +
+            "Range: 0 - 50000.", 0, 50000);
+        this.scanTimeBudgetMicrosProperty.setLanguageKey("config.cellterminal.config.server.network.scan_time_budget_micros");
+        this.scanTimeBudgetMicros = this.scanTimeBudgetMicrosProperty.getInt();
+
+        this.terminalTickShareProperty = config.get(CATEGORY_NETWORK, "terminalTickShare", 0.05,
+            "Share of a server tick (0.05 = 5%, 2.5 ms) each terminal may spend on average refreshing its\n" +
+            "storage and storage bus lists. Refresh and polling intervals are lengthened automatically on\n" +
+            "networks whose scans cost more, and shrink back to the configured intervals when they get cheaper.\n" +
+            "0 disables adaptation (fixed intervals).\n" +
+            "Range: 0.0 - 1.0.", 0.0, 1.0);
+        this.terminalTickShareProperty.setLanguageKey("config.cellterminal.config.server.network.terminal_tick_share");
+        this.terminalTickShare = this.terminalTickShareProperty.getDouble();
+
+        this.integratedFastPathProperty = config.get(CATEGORY_NETWORK, "integratedFastPath", true,
+            "In singleplayer and for the host of a LAN world, hand terminal payloads straight to the\n" +
+            "client instead of serializing, compressing and chunking them. Other players are unaffected.");
+        this.integratedFastPathProperty.setLanguageKey("config.cellterminal.config.server.network.integrated_fast_path");
+        this.integratedFastPath = this.integratedFastPathProperty.getBoolean();
+
+        this.lazyCellContentsProperty = config.get(CATEGORY_NETWORK, "lazyCellContents", true,
+            "Send stored contents, partitions and the full cell item NBT only for the cells the client\n" +
+            "shows (plus one screen above and below), or all cells while a search or the network tools\n" +
+            "need them. Other cells are sent as summaries (bytes, types, status, upgrades).");
+        this.lazyCellContentsProperty.setLanguageKey("config.cellterminal.config.server.network.lazy_cell_contents");
+        this.lazyCellContents = this.lazyCellContentsProperty.getBoolean();
+
+        this.lazyCellContentsMaxCellsProperty = config.get(CATEGORY_NETWORK, "lazyCellContentsMaxCells", 256,
+            "Maximum number of cells a client can request in full at once when lazyCellContents is on.", 16, 4096);
+        this.lazyCellContentsMaxCellsProperty.setLanguageKey("config.cellterminal.config.server.network.lazy_cell_contents_max_cells");
+        this.lazyCellContentsMaxCells = this.lazyCellContentsMaxCellsProperty.getInt();
+
         if (config.hasChanged()) config.save();
     }
 
@@ -378,6 +578,28 @@ public class CellTerminalServerConfig {
         this.maxChunkBytes = this.maxChunkBytesProperty.getInt();
         this.minRefreshIntervalTicks = this.minRefreshIntervalTicksProperty.getInt();
         this.enableDeltaUpdates = this.enableDeltaUpdatesProperty.getBoolean();
+        this.liveStorageUpdates = this.liveStorageUpdatesProperty.getBoolean();
+        this.liveStorageUpdateIntervalTicks = this.liveStorageUpdateIntervalTicksProperty.getInt();
+        this.hashOnlySnapshots = this.hashOnlySnapshotsProperty.getBoolean();
+        this.nestedStorageDeltas = this.nestedStorageDeltasProperty.getBoolean();
+        this.enableBinaryCodec = this.enableBinaryCodecProperty.getBoolean();
+        this.stackDictionary = this.stackDictionaryProperty.getBoolean();
+        this.compressionThreshold = this.compressionThresholdProperty.getInt();
+        this.compressionLevel = this.compressionLevelProperty.getInt();
+        this.deltaCompressionLevel = this.deltaCompressionLevelProperty.getInt();
+        this.compressionDictionary = this.compressionDictionaryProperty.getBoolean();
+        this.compressionThreads = this.compressionThreadsProperty.getInt();
+        this.ackedDeltas = this.ackedDeltasProperty.getBoolean();
+        this.sendBytesPerTick = this.sendBytesPerTickProperty.getInt();
+        this.playerBytesPerSecond = this.playerBytesPerSecondProperty.getInt();
+        this.playerBurstBytes = this.playerBurstBytesProperty.getInt();
+        this.globalBytesPerSecond = this.globalBytesPerSecondProperty.getInt();
+        this.scanCacheTicks = this.scanCacheTicksProperty.getInt();
+        this.scanTimeBudgetMicros = this.scanTimeBudgetMicrosProperty.getInt();
+        this.terminalTickShare = this.terminalTickShareProperty.getDouble();
+        this.integratedFastPath = this.integratedFastPathProperty.getBoolean();
+        this.lazyCellContents = this.lazyCellContentsProperty.getBoolean();
+        this.lazyCellContentsMaxCells = this.lazyCellContentsMaxCellsProperty.getInt();
 
         if (config.hasChanged()) config.save();
     }
@@ -545,4 +767,92 @@ public class CellTerminalServerConfig {
     public boolean isDeltaUpdatesEnabled() {
         return enableDeltaUpdates;
     }
+
+    public boolean isLiveStorageUpdatesEnabled() {
+        return liveStorageUpdates;
+    }
+
+    public int getLiveStorageUpdateIntervalTicks() {
+        return liveStorageUpdateIntervalTicks;
+    }
+
+    public boolean isHashOnlySnapshotsEnabled() {
+        return hashOnlySnapshots;
+    }
+
+    public boolean isNestedStorageDeltasEnabled() {
+        return nestedStorageDeltas;
+    }
+
+    public boolean isBinaryCodecEnabled() {
+        return enableBinaryCodec;
+    }
+
+    public boolean isStackDictionaryEnabled() {
+        return stackDictionary;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public int getDeltaCompressionLevel() {
+        return deltaCompressionLevel;
+    }
+
+    public boolean isCompressionDictionaryEnabled() {
+        return compressionDictionary;
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public boolean isAckedDeltasEnabled() {
+        return ackedDeltas;
+    }
+
+    public int getSendBytesPerTick() {
+        return sendBytesPerTick;
+    }
+
+    public int getPlayerBytesPerSecond() {
+        return playerBytesPerSecond;
+    }
+
+    public int getPlayerBurstBytes() {
+        return playerBurstBytes;
+    }
+
+    public int getGlobalBytesPerSecond() {
+        return globalBytesPerSecond;
+    }
+
+    public int getScanCacheTicks() {
+        return scanCacheTicks;
+    }
+
+    public int getScanTimeBudgetMicros() {
+        return scanTimeBudgetMicros;
+    }
+
+    public double getTerminalTickShare() {
+        return terminalTickShare;
+    }
+
+    public boolean isIntegratedFastPathEnabled() {
+        return integratedFastPath;
+    }
+
+    public boolean isLazyCellContentsEnabled() {
+        return lazyCellContents;
+    }
+
+    public int getLazyCellContentsMaxCells() {
+        return lazyCellContentsMaxCells;
+    }
 }
@@ -51,16 +51,20 @@ import com.cellterminal.client.CellFilter;
 import com.cellterminal.config.CellTerminalServerConfig;
 import com.cellterminal.container.handler.CellActionHandler;
 import com.cellterminal.container.handler.CellDataHandler;
+import com.cellterminal.container.handler.CellDetailFilter;
+import com.cellterminal.container.handler.ChannelPayloadBuilder;
 import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.container.handler.GridScanCache;
 import com.cellterminal.container.handler.NetworkToolActionHandler;
 import com.cellterminal.container.handler.StorageBusDataHandler;
+import com.cellterminal.container.handler.StorageEventWatcher;
 import com.cellterminal.container.handler.StorageBusDataHandler.StorageBusTracker;
 import com.cellterminal.container.handler.SubnetDataHandler;
 import com.cellterminal.container.handler.SubnetDataHandler.SubnetTracker;
 import com.cellterminal.container.handler.TempCellActionHandler;
 import com.cellterminal.gui.GuiConstants;
 import com.cellterminal.integration.CellsIntegration;
-import com.cellterminal.integration.storage.StorageScannerRegistry;
+import com.cellterminal.metrics.TerminalMetrics;
 import com.cellterminal.network.PacketExtractUpgrade;
 import com.cellterminal.network.PacketPartitionAction;
 import com.cellterminal.network.PacketStorageBusPartitionAction;
@@ -69,7 +73,9 @@ import com.cellterminal.network.PacketTempCellAction;
 import com.cellterminal.network.PacketTempCellPartitionAction;
 import com.cellterminal.network.chunked.ChunkedNBTSender;
 import com.cellterminal.network.chunked.PayloadMode;
+import com.cellterminal.network.chunked.StackDictionaryEncoder;
 import com.cellterminal.network.chunked.TerminalChannels;
+import com.cellterminal.util.AdaptiveInterval;
 import com.cellterminal.util.PlayerMessageHelper;
 
 
@@ -88,6 +94,25 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
     protected boolean needsStorageBusRefresh = false;
     protected boolean needsSubnetRefresh = false;
 
+    // Set when the client rejected a STORAGES / TEMP_CELLS delta (see onPayloadAck)
+    protected boolean needsStorageResend = false;
+    protected boolean needsTempCellRefresh = false;
+
+    // Set while the shared GridScanCache scan is still running over several ticks (time-sliced);
+    // the regen is retried every tick until the scan completes and its payload can be sent.
+    protected boolean storageScanPending = false;
+    protected boolean busScanPending = false;
+
+    // Measured cost of storage / storage bus regens, lengthening the refresh and polling
+    // intervals on networks where they are expensive (see CellTerminalServerConfig.getTerminalTickShare())
+    protected final AdaptiveInterval storageInterval = new AdaptiveInterval();
+    protected final AdaptiveInterval busInterval = new AdaptiveInterval();
+
+    // Metrics gauges: whether this (server-side) container is counted as open, and the delta
+    // snapshot size it last reported (see TerminalMetrics)
+    private boolean countedOpen = false;
+    private int reportedSnapshotEntries = 0;
+
     // Tick counter for throttling full refreshes; rate-limited via
     // CellTerminalServerConfig.getMinRefreshIntervalTicks().
     protected int tickCounter = 0;
@@ -97,6 +122,19 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
     // Per-channel server-side snapshot for delta updates. Reset on network switch so the
     // first payload after a switch is always a full snapshot.
     protected final DeltaSnapshot deltaSnapshot = new DeltaSnapshot();
+    protected final StackDictionaryEncoder stackDictionary = new StackDictionaryEncoder();
+
+    // Listens to the effective grid's storage monitors so the STORAGES channel refreshes on
+    // content changes (autocrafting, imports) instead of only after player actions.
+    protected final StorageEventWatcher storageWatcher = new StorageEventWatcher(this::isValidContainer);
+    protected int lastLiveRefreshTick = 0;
+
+    // Cells the client shows, sent with their contents while the rest are sent as summaries
+    // (see CellDetailFilter). The last scanned list is kept so a new request is answered
+    // without rescanning the grid.
+    protected final CellDetailFilter cellDetailFilter = new CellDetailFilter();
+    protected NBTTagList lastStorageList = null;
+    protected boolean cellDetailsChanged = false;
 
     // Current active tab on client - determines whether to poll storage bus data
     protected int activeTab = GuiConstants.TAB_TERMINAL;
@@ -179,14 +217,22 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         if (Platform.isClient()) return;
         super.detectAndSendChanges();
 
+        if (!this.countedOpen) {
+            TerminalMetrics.containerOpened();
+            this.countedOpen = true;
+        }
+
         if (!canSendUpdates()) return;
 
         this.tickCounter++;
 
         // Throttle full refreshes: don't regen storages/buses/temp more often than the configured
         // interval, even if many trigger events fire in quick succession. The very first refresh
-        // bypasses the throttle so the GUI populates immediately on open.
-        int minInterval = CellTerminalServerConfig.getInstance().getMinRefreshIntervalTicks();
+        // bypasses the throttle so the GUI populates immediately on open. A full refresh regens
+        // both storages and buses, so it waits for whichever has backed off more.
+        int configuredInterval = CellTerminalServerConfig.getInstance().getMinRefreshIntervalTicks();
+        int minInterval = Math.max(this.storageInterval.getInterval(configuredInterval),
+            this.busInterval.getInterval(configuredInterval));
         boolean throttleSatisfied = !firstFullRefreshDone || (this.tickCounter - this.lastFullRefreshTick) >= minInterval;
 
         if (needsFullRefresh && throttleSatisfied) {
@@ -218,6 +264,19 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
             this.firstFullRefreshDone = true;
         }
 
+        // Resume time-sliced scans that did not complete in an earlier tick
+        if (this.storageScanPending) regenStorageList();
+        if (this.busScanPending) regenStorageBusList();
+
+        handleLiveStorageRefresh();
+        handleCellDetailRequest();
+        handleStorageResend();
+
+        if (this.needsTempCellRefresh) {
+            this.regenTempCellList();
+            this.needsTempCellRefresh = false;
+        }
+
         // Handle storage bus polling when on storage bus tabs (independent of full-refresh path)
         handleStorageBusPolling();
 
@@ -251,6 +310,77 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         }
     }
 
+    /**
+     * Regenerate the storage list when the watched grid reported a storage change since the
+     * last send. Rate-limited separately from the full refresh so a busy autocrafting network
+     * produces at most one (delta) STORAGES payload per configured interval.
+     */
+    protected void handleLiveStorageRefresh() {
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+
+        if (!config.isLiveStorageUpdatesEnabled()) {
+            this.storageWatcher.unwatch();
+            return;
+        }
+
+        if (!this.firstFullRefreshDone || this.storageScanPending || !this.storageWatcher.isDirty()) return;
+        int interval = this.storageInterval.getInterval(config.getLiveStorageUpdateIntervalTicks());
+        if ((this.tickCounter - this.lastLiveRefreshTick) < interval) return;
+
+        // Previous STORAGES payload still queued (bandwidth limits): stay dirty and merge the
+        // changes into a later payload instead of stacking another one behind it.
+        if (isChannelBacklogged(TerminalChannels.STORAGES)) return;
+
+        regenStorageList();
+        this.lastLiveRefreshTick = this.tickCounter;
+    }
+
+    /**
+     * Resend the last storage list after the client asked for other cells in full.
+     */
+    protected void handleCellDetailRequest() {
+        if (!this.cellDetailsChanged || this.lastStorageList == null || this.storageScanPending) return;
+        if (!CellTerminalServerConfig.getInstance().isLazyCellContentsEnabled()) return;
+
+        // Answered by the next storage payload anyway
+        if (this.needsFullRefresh) return;
+
+        if (isChannelBacklogged(TerminalChannels.STORAGES)) return;
+
+        sendStorages(this.lastStorageList);
+    }
+
+    /**
+     * Resend the last storage list after the client rejected a STORAGES delta. The list is
+     * unchanged, only the client's copy of it is behind, so the grid is not rescanned.
+     */
+    protected void handleStorageResend() {
+        if (!this.needsStorageResend) return;
+
+        // A pending full refresh or scan sends the storages anyway
+        if (this.needsFullRefresh || this.storageScanPending || this.lastStorageList == null) {
+            this.needsStorageResend = false;
+            return;
+        }
+
+        if (isChannelBacklogged(TerminalChannels.STORAGES)) return;
+
+        sendStorages(this.lastStorageList);
+        this.needsStorageResend = false;
+    }
+
+    /**
+     * Set the cells the client wants with their contents (called from packet handler).
+     *
+     * @param all        True while the client needs every cell in full (search, network tools)
+     * @param storageIds Storage ID of each requested cell, parallel to {@code slots}
+     * @param slots      Slot of each requested cell
+     */
+    public void setCellDetailRequest(boolean all, long[] storageIds, int[] slots) {
+        int maxCells = CellTerminalServerConfig.getInstance().getLazyCellContentsMaxCells();
+        if (this.cellDetailFilter.setRequest(all, storageIds, slots, maxCells)) this.cellDetailsChanged = true;
+    }
+
     /**
      * Handle storage bus polling when the client is on a storage bus tab.
      * Only polls if activeTab is a storage bus tab, and respects poll interval from config.
@@ -279,7 +409,10 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         // Handle periodic polling
         storageBusPollCounter++;
 
-        if (storageBusPollCounter >= config.getPollingInterval()) {
+        if (busScanPending) return;
+
+        int interval = this.busInterval.getInterval(config.getPollingInterval());
+        if (storageBusPollCounter >= interval && !isChannelBacklogged(TerminalChannels.BUSES)) {
             regenStorageBusList();
             storageBusPollCounter = 0;
         }
@@ -351,40 +484,103 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
     }
 
     protected void regenStorageList() {
-        this.trackers.clear();
-        this.byId.clear();
+        long start = System.nanoTime();
+        IGrid effectiveGrid = getEffectiveGrid();
+
+        // (Re)attach the live-update listener to whatever grid is being viewed. Cleared when the
+        // scan starts so changes that happen during the scan are picked up by the next refresh.
+        if (!this.storageScanPending) {
+            if (CellTerminalServerConfig.getInstance().isLiveStorageUpdatesEnabled()) this.storageWatcher.watch(effectiveGrid);
+            this.storageWatcher.clearDirty();
+        }
 
-        NBTTagCompound data = new NBTTagCompound();
         NBTTagList storageList = new NBTTagList();
 
-        IGrid effectiveGrid = getEffectiveGrid();
         if (effectiveGrid != null) {
-            CellDataHandler.StorageTrackerCallback callback = (id, tile, storage) -> {
-                StorageTracker tracker = new StorageTracker(id, tile, storage);
-                this.trackers.put(tile, tracker);
-                this.byId.put(id, tracker);
-            };
-
-            // Use the registry-based scanner for all storage types, with slot limit
-            StorageScannerRegistry.scanAllStorages(effectiveGrid, storageList, callback, cellSlotLimit);
+            // Shared with every other terminal viewing this grid (see GridScanCache)
+            GridScanCache.StorageScan scan = GridScanCache.scanStorages(effectiveGrid, cellSlotLimit);
+
+            // Out of scan time for this tick: keep the current trackers and resume next tick
+            this.storageScanPending = (scan == null);
+            if (scan == null) {
+                this.storageInterval.addCost(System.nanoTime() - start);
+                return;
+            }
+
+            this.trackers.clear();
+            this.byId.clear();
+            for (StorageTracker tracker : scan.trackers.values()) {
+                trackers.put(tracker.tile, tracker);
+                byId.put(tracker.id, tracker);
+            }
+
+            storageList = scan.storages;
         } else {
+            this.storageScanPending = false;
+            this.trackers.clear();
+            this.byId.clear();
             CellTerminal.LOGGER.warn("regenStorageList: grid is null!");
         }
 
+        this.lastStorageList = storageList;
+        sendStorages(storageList);
+
+        this.storageInterval.addCost(System.nanoTime() - start);
+        this.storageInterval.complete(CellTerminalServerConfig.getInstance().getTerminalTickShare());
+        recordRefresh(this.storageInterval);
+    }
+
+    /**
+     * Send a storage list on the STORAGES channel, with unrequested cells summarized when
+     * lazy cell contents are enabled.
+     */
+    protected void sendStorages(NBTTagList storageList) {
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+        if (config.isLazyCellContentsEnabled()) storageList = this.cellDetailFilter.apply(storageList);
+        this.cellDetailsChanged = false;
+
+        NBTTagCompound data = new NBTTagCompound();
         data.setTag("storages", storageList);
-        sendChunked(TerminalChannels.STORAGES, data, "storages", "id");
+        sendChunked(TerminalChannels.STORAGES, data, "storages", "id", config.isNestedStorageDeltasEnabled());
     }
 
     /**
      * Regenerate storage bus list. Called periodically when client is on storage bus tab.
      * Sends a flat list of storage buses, sorted and displayed individually.
+     * On large networks the scan may take several ticks, in which case the list is sent
+     * once it completes (see {@link #busScanPending}).
      */
     protected void regenStorageBusList() {
-        this.storageBusById.clear();
-
+        long start = System.nanoTime();
         NBTTagCompound data = new NBTTagCompound();
-        data.setTag("storageBuses", StorageBusDataHandler.collectStorageBuses(getEffectiveGrid(), this.storageBusById));
+        IGrid effectiveGrid = getEffectiveGrid();
+        if (effectiveGrid != null) {
+            GridScanCache.BusScan scan = GridScanCache.scanBuses(effectiveGrid);
+            this.busScanPending = (scan == null);
+            if (scan == null) {
+                this.busInterval.addCost(System.nanoTime() - start);
+                return;
+            }
+
+            this.storageBusById.clear();
+            this.storageBusById.putAll(scan.trackers);
+            data.setTag("storageBuses", scan.buses);
+        } else {
+            this.busScanPending = false;
+            this.storageBusById.clear();
+            data.setTag("storageBuses", new NBTTagList());
+        }
+
         sendChunked(TerminalChannels.BUSES, data, "storageBuses", "id");
+
+        this.busInterval.addCost(System.nanoTime() - start);
+        this.busInterval.complete(CellTerminalServerConfig.getInstance().getTerminalTickShare());
+        recordRefresh(this.busInterval);
+    }
+
+    private void recordRefresh(AdaptiveInterval interval) {
+        EntityPlayerMP player = getServerPlayer();
+        if (player != null) TerminalMetrics.recordRefresh(player, interval.getLastCost());
     }
 
     /**
@@ -448,14 +644,25 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         meta.setLong("networkId", this.currentNetworkId);
         addTerminalPosition(meta);
 
-        // META is small and stateless; always send as FULL.
-        ChunkedNBTSender.send(player, TerminalChannels.META, PayloadMode.FULL, meta);
+        // META is small and stateless; always send as FULL, ahead of queued sections.
+        ChunkedNBTSender.send(player, TerminalChannels.META, PayloadMode.FULL, meta, true);
     }
 
     /**
      * Compute (FULL or DELTA) for the channel and send it via the chunked protocol.
      */
     protected void sendChunked(String channel, NBTTagCompound fullPayload, String listKey, String idKey) {
+        sendChunked(channel, fullPayload, listKey, idKey, false);
+    }
+
+    /**
+     * Compute (FULL or DELTA) for the channel and send it via the chunked protocol.
+     *
+     * @param nested True to diff storage-shaped entries hierarchically (storage → cells →
+     *               contents) so deltas carry nested patches instead of whole entries.
+     */
+    protected void sendChunked(String channel, NBTTagCompound fullPayload, String listKey, String idKey,
+                               boolean nested) {
         EntityPlayerMP player = getServerPlayer();
         if (player == null) return;
 
@@ -464,18 +671,100 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         // data could briefly overwrite the new network's state while the new META arrives).
         fullPayload.setLong("networkId", this.currentNetworkId);
 
-        boolean deltaEnabled = CellTerminalServerConfig.getInstance().isDeltaUpdatesEnabled();
-        DeltaSnapshot.DeltaResult result;
+        long start = System.nanoTime();
+        DeltaSnapshot.DeltaResult result = ChannelPayloadBuilder.build(this.deltaSnapshot, this.stackDictionary,
+            channel, fullPayload, listKey, idKey, nested, ChunkedNBTSender.isDeliveredLocally(player));
+        TerminalMetrics.record(TerminalMetrics.Timer.DELTA_BUILD, System.nanoTime() - start);
+        reportSnapshotSize();
 
-        if (deltaEnabled) {
-            result = this.deltaSnapshot.buildDelta(channel, fullPayload, listKey, idKey);
-        } else {
-            this.deltaSnapshot.reset(channel);
-            result = new DeltaSnapshot.DeltaResult(fullPayload, true);
-        }
+        // Nothing changed since the last payload on this channel
+        if (result == null) return;
 
         ChunkedNBTSender.send(player, channel,
-            result.isFull ? PayloadMode.FULL : PayloadMode.DELTA, result.payload);
+            result.isFull ? PayloadMode.FULL : PayloadMode.DELTA, result.payload, channel.equals(getActiveTabChannel()));
+    }
+
+    private void reportSnapshotSize() {
+        int entries = this.deltaSnapshot.getRetainedEntryCount();
+        TerminalMetrics.addSnapshotEntries(entries - this.reportedSnapshotEntries);
+        this.reportedSnapshotEntries = entries;
+    }
+
+    /**
+     * True if a payload on the channel is still queued for this player, in which case periodic
+     * refreshes are postponed (see {@link ChunkedNBTSender#deferIfBacklogged}).
+     */
+    protected boolean isChannelBacklogged(String channel) {
+        EntityPlayerMP player = getServerPlayer();
+
+        return player != null && ChunkedNBTSender.deferIfBacklogged(player, channel);
+    }
+
+    /**
+     * The payload channel shown by the client's active tab. Its payloads are queued ahead of
+     * the other sections so the visible tab fills first on slow links.
+     */
+    protected String getActiveTabChannel() {
+        switch (this.activeTab) {
+            case GuiConstants.TAB_SUBNETS:
+                return TerminalChannels.SUBNETS;
+            case GuiConstants.TAB_TEMP_AREA:
+                return TerminalChannels.TEMP_CELLS;
+            case GuiConstants.TAB_STORAGE_BUS_INVENTORY:
+            case GuiConstants.TAB_STORAGE_BUS_PARTITION:
+                return TerminalChannels.BUSES;
+            default:
+                return TerminalChannels.STORAGES;
+        }
+    }
+
+    /**
+     * Handle a payload acknowledgement from the client (see {@link DeltaSnapshot}).
+     *
+     * @param version the version the client now holds
+     * @param rejectedVersion 0 for a plain acknowledgement, otherwise the version of a delta the
+     *                        client dropped because it does not hold its base
+     */
+    public void onPayloadAck(String channel, int version, int rejectedVersion) {
+        if (rejectedVersion == 0) {
+            this.deltaSnapshot.acknowledge(channel, version);
+            return;
+        }
+
+        if (!this.deltaSnapshot.reject(channel, version, rejectedVersion)) return;
+
+        // Resend the channel so the client catches up without waiting for the next change.
+        // META is always sent FULL and unversioned, so it is never rejected.
+        switch (channel) {
+            case TerminalChannels.STORAGES:
+                this.needsStorageResend = true;
+                break;
+            case TerminalChannels.BUSES:
+                this.needsStorageBusRefresh = true;
+                break;
+            case TerminalChannels.TEMP_CELLS:
+                this.needsTempCellRefresh = true;
+                break;
+            case TerminalChannels.SUBNETS:
+                this.needsSubnetRefresh = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onContainerClosed(EntityPlayer player) {
+        super.onContainerClosed(player);
+
+        this.storageWatcher.unwatch();
+
+        if (this.countedOpen) {
+            TerminalMetrics.containerClosed();
+            TerminalMetrics.addSnapshotEntries(-this.reportedSnapshotEntries);
+            this.countedOpen = false;
+            this.reportedSnapshotEntries = 0;
+        }
     }
 
     /**
@@ -1418,6 +1707,8 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         // the next payload on each channel is a full rebuild on the client. Otherwise the
         // client would try to apply a delta against a different network's state.
         this.deltaSnapshot.resetAll();
+        this.cellDetailFilter.reset();
+        this.lastStorageList = null;
 
         // Trigger full refresh with new network context
         requestFullRefresh();
@@ -1488,11 +1779,25 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
         public final TileEntity tile;
         public final IChestOrDrive storage;
 
+        // Last NBT built for this storage and the change stamp it was built from
+        // (see CellDataHandler#computeCellStamp). Reused as-is while the stamp is unchanged.
+        private long dataStamp;
+        private NBTTagCompound data;
+
         public StorageTracker(long id, TileEntity tile, IChestOrDrive storage) {
             this.id = id;
             this.tile = tile;
             this.storage = storage;
         }
+
+        public NBTTagCompound getCachedData(long stamp) {
+            return (this.data != null && this.dataStamp == stamp) ? this.data : null;
+        }
+
+        public void setCachedData(long stamp, NBTTagCompound data) {
+            this.dataStamp = stamp;
+            this.data = data;
+        }
     }
 
     /**
@@ -1521,6 +1826,7 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
      */
     public void requestFullRefresh() {
         this.needsFullRefresh = true;
+        GridScanCache.invalidate(getEffectiveGrid());
     }
 
     /**
@@ -1528,6 +1834,7 @@ public abstract class ContainerCellTerminalBase extends AEBaseContainer {
      */
     public void requestStorageBusRefresh() {
         this.needsStorageBusRefresh = true;
+        GridScanCache.invalidate(getEffectiveGrid());
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.cellterminal.container.handler;
 
+import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
@@ -35,6 +36,12 @@ import com.cellterminal.integration.ThaumicEnergisticsIntegration;
  */
 public class CellDataHandler {
 
+    private static final long STAMP_SEED = 0xCBF29CE484222325L;
+    private static final long STAMP_PRIME = 0x100000001B3L;
+
+    // Mixed into the stamp of cells whose contents cannot be observed cheaply (server thread only)
+    private static long uncachedStampSequence = 0;
+
     /**
      * Create NBT data for a storage device (ME Drive or ME Chest).
      * @param storage The storage device
@@ -50,17 +57,28 @@ public class CellDataHandler {
 
         if (trackerCallback != null) trackerCallback.register(id, te, storage);
 
+        String name = getStorageName(storage, defaultName);
+        boolean hasPriority = te instanceof IPriorityHost;
+        int priority = hasPriority ? ((IPriorityHost) te).getPriority() : 0;
+        IItemHandler cellInventory = getCellInventory(storage);
+
+        // Reuse the NBT built on a previous refresh if nothing serialized below has changed.
+        long stamp = computeCellStamp(storage, cellInventory, slotLimit);
+        stamp = mixStamp(stamp, name.hashCode());
+        stamp = mixStamp(stamp, priority);
+
+        if (trackerCallback != null) {
+            NBTTagCompound cached = trackerCallback.getCachedData(id, stamp);
+            if (cached != null) return cached;
+        }
+
         NBTTagCompound storageData = new NBTTagCompound();
         storageData.setLong("id", id);
         storageData.setLong("pos", te.getPos().toLong());
         storageData.setInteger("dim", te.getWorld().provider.getDimension());
-
-        String name = getStorageName(storage, defaultName);
         storageData.setString("name", name);
 
-        if (te instanceof IPriorityHost) {
-            storageData.setInteger("priority", ((IPriorityHost) te).getPriority());
-        }
+        if (hasPriority) storageData.setInteger("priority", priority);
 
         ItemStack blockItem = getBlockItem(te);
         if (!blockItem.isEmpty()) {
@@ -72,7 +90,6 @@ public class CellDataHandler {
         storageData.setInteger("slotCount", storage.getCellCount());
 
         NBTTagList cellList = new NBTTagList();
-        IItemHandler cellInventory = getCellInventory(storage);
 
         if (cellInventory != null) {
             for (int slot = 0; slot < storage.getCellCount(); slot++) {
@@ -86,9 +103,83 @@ public class CellDataHandler {
 
         storageData.setTag("cells", cellList);
 
+        if (trackerCallback != null) trackerCallback.storeData(id, stamp, storageData);
+
         return storageData;
     }
 
+    /**
+     * Compute a change stamp over everything {@link #createCellData} reads from a storage's cells:
+     * the cell item, its NBT (which holds the stored contents, partition and upgrades for AE2
+     * cells), the cell status and the cell inventory's own counters (stored types, used bytes and
+     * stored count), plus the slot limit used to truncate contents. Two equal stamps mean the cell
+     * list would serialize identically, so the previously built NBT can be reused.
+     * <p>
+     * The counters catch cells whose handler keeps the contents outside the item NBT. Cells that
+     * are not item or fluid cells (essentia, gas, unknown handlers) get a stamp that never repeats,
+     * so their storage is always rebuilt.
+     * <p>
+     * This only hashes existing NBT and reads counters, which is much cheaper than rebuilding the
+     * cell data through the cell handlers. Callers mix in any storage-level fields (name,
+     * priority) they serialize.
+     *
+     * @param storage The storage device (used for cell count and status)
+     * @param cellInventory The storage's cell inventory, or null if unavailable
+     * @param slotLimit Maximum number of item types included per cell
+     * @return The change stamp
+     */
+    public static long computeCellStamp(IChestOrDrive storage, IItemHandler cellInventory, int slotLimit) {
+        long stamp = mixStamp(STAMP_SEED, slotLimit);
+        stamp = mixStamp(stamp, storage.getCellCount());
+        if (cellInventory == null) return stamp;
+
+        for (int slot = 0; slot < storage.getCellCount(); slot++) {
+            ItemStack cellStack = cellInventory.getStackInSlot(slot);
+            if (cellStack.isEmpty()) continue;
+
+            stamp = mixStamp(stamp, slot);
+            stamp = mixStamp(stamp, Item.getIdFromItem(cellStack.getItem()));
+            stamp = mixStamp(stamp, cellStack.getMetadata());
+            stamp = mixStamp(stamp, cellStack.hasTagCompound() ? cellStack.getTagCompound().hashCode() : 0);
+            stamp = mixStamp(stamp, storage.getCellStatus(slot));
+            stamp = mixCellInventoryStamp(stamp, cellStack);
+        }
+
+        return stamp;
+    }
+
+    private static long mixCellInventoryStamp(long stamp, ItemStack cellStack) {
+        ICellHandler cellHandler = AEApi.instance().registries().cell().getHandler(cellStack);
+        if (cellHandler == null) return stamp;
+
+        ICellInventoryHandler<IAEItemStack> itemHandler = cellHandler.getCellInventory(cellStack, null,
+            AEApi.instance().storage().getStorageChannel(IItemStorageChannel.class));
+        if (itemHandler != null) return mixCellInventoryStamp(stamp, itemHandler.getCellInv());
+
+        ICellInventoryHandler<IAEFluidStack> fluidHandler = cellHandler.getCellInventory(cellStack, null,
+            AEApi.instance().storage().getStorageChannel(IFluidStorageChannel.class));
+        if (fluidHandler != null) return mixCellInventoryStamp(stamp, fluidHandler.getCellInv());
+
+        return mixStamp(stamp, ++uncachedStampSequence);
+    }
+
+    private static long mixCellInventoryStamp(long stamp, ICellInventory<?> cellInv) {
+        // Null for cells without an inventory (void cells); their config and upgrades live in the item NBT
+        if (cellInv == null) return stamp;
+
+        stamp = mixStamp(stamp, cellInv.getStoredItemTypes());
+        stamp = mixStamp(stamp, cellInv.getUsedBytes());
+
+        return mixStamp(stamp, cellInv.getStoredItemCount());
+    }
+
+    /**
+     * Fold a value into a change stamp (FNV-1a style over 64-bit words).
+     */
+    public static long mixStamp(long stamp, long value) {
+        return (stamp ^ value) * STAMP_PRIME;
+    }
+
     /**
      * Create NBT data for a single cell.
      * @param slot The slot index in the storage device
@@ -392,9 +483,25 @@ public class CellDataHandler {
 
     /**
      * Callback interface for registering storage trackers.
+     * <p>
+     * The cache methods let the caller keep the NBT built for a storage across refreshes:
+     * {@link #getCachedData} is queried with the storage's current change stamp (see
+     * {@link #computeCellStamp}) right after {@link #register}, and {@link #storeData} receives
+     * freshly built NBT. The defaults disable caching.
      */
     @FunctionalInterface
     public interface StorageTrackerCallback {
         void register(long id, TileEntity tile, IChestOrDrive storage);
+
+        /**
+         * @return The NBT previously stored for this storage if it was built from the same stamp,
+         *         otherwise null. The returned compound must not be modified by the caller.
+         */
+        default NBTTagCompound getCachedData(long id, long stamp) {
+            return null;
+        }
+
+        default void storeData(long id, long stamp, NBTTagCompound data) {
+        }
     }
 }
@@ -0,0 +1,212 @@
+package com.cellterminal.container.handler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+
+/**
+ * Headers-first filter for the STORAGES channel: only the cells the client asked for (the ones
+ * in or near its scroll viewport, see {@code CellDetailRequester}) are sent with their contents,
+ * partition and full cell item NBT. Every other cell is sent as a summary:
+ * <pre>
+ * summary cell:
+ *   (every header key of the cell, except "contents", "partition" and "cellItem")
+ *   "cellItem"   compound   id, Count, Damage and the display tag only (the AE2 cell NBT
+ *                           holding the stored items is dropped)
+ *   "summary"    compound
+ *     "types"      int      number of content entries the full cell carries
+ *     "partition"  int      highest non-empty partition slot, -1 if none
+ * </pre>
+ * The client lays out rows and applies the "has items" / "partitioned" filters from the
+ * summary, and asks for everything while a search or the network tools need contents.
+ * <p>
+ * A cell moving between summary and full flips the presence of its "contents" key, so
+ * {@link NestedDeltaSnapshot} resends it whole; unchanged storages keep the compound built for
+ * them last time, so the delta snapshot still skips them by identity.
+ * <p>
+ * Input compounds are shared with {@link GridScanCache} and other terminals, so they are never
+ * modified: storages with summarized cells are rebuilt as new compounds sharing the unchanged tags.
+ */
+public class CellDetailFilter {
+
+    private static final String SUMMARY_KEY = "summary";
+
+    private boolean all = false;
+    private Map<Long, Set<Integer>> requested = Collections.emptyMap();
+
+    // Filtered storage compound per storage ID, with the input and request it was built from
+    private Map<Long, Filtered> cache = new HashMap<>();
+
+    private static final class Filtered {
+        final NBTTagCompound source;
+        final Set<Integer> slots;
+        final NBTTagCompound result;
+
+        Filtered(NBTTagCompound source, Set<Integer> slots, NBTTagCompound result) {
+            this.source = source;
+            this.slots = slots;
+            this.result = result;
+        }
+    }
+
+    /**
+     * Replace the set of cells sent in full.
+     *
+     * @param all        True to send every cell in full (search or network tools on the client)
+     * @param storageIds Storage ID of each requested cell, parallel to {@code slots}
+     * @param slots      Slot of each requested cell
+     * @param maxCells   Requested cells beyond this count are ignored
+     * @return true if the request differs from the previous one
+     */
+    public boolean setRequest(boolean all, long[] storageIds, int[] slots, int maxCells) {
+        Map<Long, Set<Integer>> request = new HashMap<>();
+        int count = Math.min(Math.min(storageIds.length, slots.length), maxCells);
+        for (int i = 0; i < count; i++) request.computeIfAbsent(storageIds[i], id -> new HashSet<>()).add(slots[i]);
+
+        if (all == this.all && request.equals(this.requested)) return false;
+
+        this.all = all;
+        this.requested = request;
+
+        return true;
+    }
+
+    /**
+     * Forget the request and the cached compounds (network switch).
+     */
+    public void reset() {
+        this.all = false;
+        this.requested = Collections.emptyMap();
+        this.cache = new HashMap<>();
+    }
+
+    /**
+     * Filter a storage list for sending.
+     *
+     * @param storages Storage compounds as built by {@link CellDataHandler}, not modified
+     * @return the list to send; {@code storages} itself when every cell is requested
+     */
+    public NBTTagList apply(NBTTagList storages) {
+        if (this.all) {
+            this.cache = new HashMap<>();
+            return storages;
+        }
+
+        Map<Long, Filtered> next = new HashMap<>();
+        NBTTagList result = new NBTTagList();
+
+        for (int i = 0; i < storages.tagCount(); i++) {
+            NBTTagCompound storage = storages.getCompoundTagAt(i);
+            long id = storage.getLong("id");
+            Set<Integer> slots = this.requested.getOrDefault(id, Collections.emptySet());
+
+            Filtered filtered = this.cache.get(id);
+            if (filtered == null || filtered.source != storage || !filtered.slots.equals(slots)) {
+                filtered = new Filtered(storage, slots, filterStorage(storage, slots));
+            }
+
+            next.put(id, filtered);
+            result.appendTag(filtered.result);
+        }
+
+        this.cache = next;
+
+        return result;
+    }
+
+    private static NBTTagCompound filterStorage(NBTTagCompound storage, Set<Integer> slots) {
+        NBTTagList cells = storage.getTagList(NestedDeltaSnapshot.CELLS_KEY, Constants.NBT.TAG_COMPOUND);
+        NBTTagList filteredCells = new NBTTagList();
+        boolean summarized = false;
+
+        for (int i = 0; i < cells.tagCount(); i++) {
+            NBTTagCompound cell = cells.getCompoundTagAt(i);
+
+            if (slots.contains(cell.getInteger(NestedDeltaSnapshot.SLOT_KEY))) {
+                filteredCells.appendTag(cell);
+            } else {
+                filteredCells.appendTag(summarize(cell));
+                summarized = true;
+            }
+        }
+
+        if (!summarized) return storage;
+
+        NBTTagCompound copy = new NBTTagCompound();
+        for (String key : storage.getKeySet()) {
+            if (!key.equals(NestedDeltaSnapshot.CELLS_KEY)) copy.setTag(key, storage.getTag(key));
+        }
+        copy.setTag(NestedDeltaSnapshot.CELLS_KEY, filteredCells);
+
+        return copy;
+    }
+
+    /**
+     * Build the summary of a cell (format in the class comment).
+     */
+    static NBTTagCompound summarize(NBTTagCompound cell) {
+        NBTTagCompound header = new NBTTagCompound();
+        for (String key : cell.getKeySet()) {
+            switch (key) {
+                case NestedDeltaSnapshot.CONTENTS_KEY:
+                case "partition":
+                    break;
+                case "cellItem":
+                    header.setTag(key, stripCellItem(cell.getCompoundTag(key)));
+                    break;
+                default:
+                    header.setTag(key, cell.getTag(key));
+                    break;
+            }
+        }
+
+        NBTTagCompound summary = new NBTTagCompound();
+        summary.setInteger("types", cell.getTagList(NestedDeltaSnapshot.CONTENTS_KEY, Constants.NBT.TAG_COMPOUND).tagCount());
+        summary.setInteger("partition", getHighestPartitionSlot(cell));
+        header.setTag(SUMMARY_KEY, summary);
+
+        return header;
+    }
+
+    /**
+     * Keep what the client needs to draw and name the cell item.
+     */
+    private static NBTTagCompound stripCellItem(NBTTagCompound item) {
+        NBTTagCompound stripped = new NBTTagCompound();
+        for (String key : new String[] {"id", "Count", "Damage"}) {
+            if (item.hasKey(key)) stripped.setTag(key, item.getTag(key));
+        }
+
+        NBTTagCompound tag = item.getCompoundTag("tag");
+        if (tag.hasKey("display")) {
+            NBTTagCompound strippedTag = new NBTTagCompound();
+            strippedTag.setTag("display", tag.getTag("display"));
+            stripped.setTag("tag", strippedTag);
+        }
+
+        return stripped;
+    }
+
+    private static int getHighestPartitionSlot(NBTTagCompound cell) {
+        NBTTagList partition = cell.getTagList("partition", Constants.NBT.TAG_COMPOUND);
+        int highest = -1;
+
+        for (int i = 0; i < partition.tagCount(); i++) {
+            NBTTagCompound part = partition.getCompoundTagAt(i);
+            // Empty slots carry only their slot index (see CellDataHandler#populateConfigInventory)
+            if (!part.hasKey("id")) continue;
+
+            int slot = part.hasKey("slot") ? part.getInteger("slot") : i;
+            if (slot > highest) highest = slot;
+        }
+
+        return highest;
+    }
+}
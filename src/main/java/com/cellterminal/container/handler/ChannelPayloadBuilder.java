@@ -0,0 +1,69 @@
+package com.cellterminal.container.handler;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.config.CellTerminalServerConfig;
+import com.cellterminal.network.chunked.StackDictionaryEncoder;
+
+
+/**
+ * Turns a freshly built channel payload into the payload to send: a FULL or DELTA against
+ * what the client holds (see {@link DeltaSnapshot}), with its item stacks dictionary-encoded
+ * (see {@link StackDictionaryEncoder}), as the server config asks and unless the payload is
+ * handed to the client in memory.
+ * <p>
+ * Used by {@code ContainerCellTerminalBase.sendChunked}, and by the wire-size regression tests
+ * so they measure exactly what the container sends.
+ */
+public final class ChannelPayloadBuilder {
+
+    private ChannelPayloadBuilder() {}
+
+    /**
+     * @param deltaSnapshot the terminal's snapshot of what each channel last sent
+     * @param stackDictionary the terminal's stack dictionary
+     * @param nested True to diff storage-shaped entries hierarchically (storage → cells →
+     *               contents) so deltas carry nested patches instead of whole entries.
+     * @param local True if the payload is handed to the client in memory (see
+     *              {@code ChunkedNBTSender#isDeliveredLocally}): it is never serialized, so the
+     *              stack dictionary is skipped.
+     * @return the payload and whether it is FULL, or null if nothing changed since the last
+     *         payload on this channel
+     */
+    @Nullable
+    public static DeltaSnapshot.DeltaResult build(DeltaSnapshot deltaSnapshot, StackDictionaryEncoder stackDictionary,
+                                                  String channel, NBTTagCompound fullPayload, String listKey,
+                                                  String idKey, boolean nested, boolean local) {
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+        DeltaSnapshot.DeltaResult result;
+
+        // The stack dictionary restarts with FULL payloads, so force one when it has no state
+        // for this channel (first send, re-enabled) or has grown too large.
+        boolean useStackDictionary = config.isStackDictionaryEnabled() && !local;
+        if (!useStackDictionary) {
+            stackDictionary.reset(channel);
+        } else if (stackDictionary.needsFull(channel)) {
+            deltaSnapshot.reset(channel);
+        }
+
+        if (config.isDeltaUpdatesEnabled()) {
+            deltaSnapshot.setHashOnly(config.isHashOnlySnapshotsEnabled());
+            deltaSnapshot.setVersioned(config.isAckedDeltasEnabled());
+            result = nested
+                ? deltaSnapshot.buildNestedDelta(channel, fullPayload, listKey, idKey)
+                : deltaSnapshot.buildDelta(channel, fullPayload, listKey, idKey);
+
+            if (result == null) return null;
+        } else {
+            deltaSnapshot.reset(channel);
+            result = new DeltaSnapshot.DeltaResult(fullPayload, true);
+        }
+
+        if (!useStackDictionary) return result;
+
+        return new DeltaSnapshot.DeltaResult(stackDictionary.encode(channel, result.payload, result.isFull),
+            result.isFull);
+    }
+}
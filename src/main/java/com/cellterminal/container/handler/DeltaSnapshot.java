@@ -1,19 +1,26 @@
 package com.cellterminal.container.handler;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 
+import com.cellterminal.util.NBTHasher;
+
 
 /**
  * Per-channel server-side snapshot tracker for delta updates.
  * <p>
- * Holds the last full payload we sent for a given channel, keyed by entry ID. On the next regen,
- * the new entries are diffed against the snapshot and an incremental payload is produced
+ * Holds the full payloads we sent for a given channel, keyed by entry ID. On the next regen,
+ * the new entries are diffed against a snapshot and an incremental payload is produced
  * containing:
  * <ul>
  *   <li>{@code added}: NBTTagList of compounds present in the new state but not in the old</li>
@@ -21,15 +28,41 @@ import net.minecraftforge.common.util.Constants;
  *   <li>{@code removed}: NBTTagList of long IDs present in old but not new</li>
  * </ul>
  * Static (non-list) keys (e.g. {@code networkId}, {@code terminalPos}) are always included in
- * every payload so the client always has them in sync.
+ * every payload so the client always has them in sync. A delta with no entry changes and
+ * unchanged static keys is not sent at all ({@code null} result).
+ * <p>
+ * Snapshots are versioned (see {@link #setVersioned}): every payload carries its version
+ * ({@link #KEY_VERSION}) and deltas the version they were computed against ({@link #KEY_BASE}).
+ * The client acknowledges each version it applied and rejects deltas whose base it does not
+ * hold, which happens when the chunked receiver abandoned a payload in favour of a newer
+ * session. Deltas are computed optimistically against the last sent version; after a reject
+ * the next one is computed against the version the client reported instead, or is sent FULL
+ * when that version is no longer retained. Versions older than the last acknowledged one are
+ * dropped, and at most {@link #MAX_RETAINED} are kept per channel.
  * <p>
  * Reset whenever the underlying network/grid identity changes (e.g. switching subnets) so the
  * next payload is forced to be a full rebuild on the client.
+ * <p>
+ * In hash-only mode (see {@link #setHashOnly}) the snapshot keeps a 64-bit content hash per
+ * entry instead of a reference to the sent compound, computed with {@link NBTHasher}. This
+ * drops the retained NBT per open terminal and turns change detection into a long compare,
+ * at the cost of hashing every entry on each regen.
  */
 public class DeltaSnapshot {
 
+    /** Top-level int: snapshot version of a payload. Absent when versioning is off. */
+    public static final String KEY_VERSION = "ver";
+
+    /** Top-level int: version a DELTA payload applies on top of. */
+    public static final String KEY_BASE = "base";
+
+    /** Versions kept per channel while waiting for acknowledgements. */
+    static final int MAX_RETAINED = 8;
+
+    private static final String[] DIFF_LIST_KEYS = {"added", "updated", "removed", "patched"};
+
     /**
-     * Wrapper for the result of {@link #buildDelta(NBTTagCompound, String, String)}.
+     * Wrapper for the result of {@link #buildDelta(String, NBTTagCompound, String, String)}.
      */
     public static class DeltaResult {
         public final NBTTagCompound payload;
@@ -42,23 +75,108 @@ public class DeltaSnapshot {
     }
 
     /**
-     * Map: channel -> (entryId -> last-sent NBT compound for that entry).
-     * Empty map means we have never sent a full payload yet (next send must be FULL).
+     * Map: channel -> sent versions and acknowledgement state.
+     * Missing channel means we have never sent a full payload yet (next send must be FULL).
+     */
+    private final Map<String, ChannelHistory> histories = new HashMap<>();
+
+    /**
+     * Map: channel -> last version handed out. Survives resets so that acknowledgements still
+     * in flight from before a reset can never match a newer snapshot.
+     */
+    private final Map<String, Integer> lastVersions = new HashMap<>();
+
+    private final NestedDeltaSnapshot nested = new NestedDeltaSnapshot();
+    private final NBTHasher hasher = new NBTHasher();
+    private boolean hashOnly = false;
+    private boolean versioned = true;
+
+    /**
+     * Switch between full-NBT and hash-only snapshots. Switching drops all snapshots, so the
+     * next send on every channel is FULL.
+     */
+    public void setHashOnly(boolean hashOnly) {
+        if (this.hashOnly == hashOnly) return;
+
+        this.hashOnly = hashOnly;
+        resetAll();
+    }
+
+    /**
+     * Enable or disable version stamps and acknowledgements. Without them only the last sent
+     * snapshot is kept and every delta is computed against it. Switching drops all snapshots.
      */
-    private final Map<String, Map<Long, NBTTagCompound>> snapshots = new HashMap<>();
+    public void setVersioned(boolean versioned) {
+        if (this.versioned == versioned) return;
+
+        this.versioned = versioned;
+        resetAll();
+    }
 
     /**
      * Reset the snapshot for one channel (next send on that channel will be FULL).
      */
     public void reset(String channel) {
-        snapshots.remove(channel);
+        histories.remove(channel);
     }
 
     /**
      * Reset all snapshots. Use when network/grid identity changes underneath us.
      */
     public void resetAll() {
-        snapshots.clear();
+        histories.clear();
+    }
+
+    /**
+     * Number of entries retained over all channels and versions, as a rough measure of the
+     * snapshot's memory. NBT baselines reference the compounds that were sent, hash-only
+     * baselines cost two longs per entry.
+     */
+    public int getRetainedEntryCount() {
+        int count = 0;
+        for (ChannelHistory history : histories.values()) {
+            for (Baseline baseline : history.baselines.values()) {
+                if (baseline.entries != null) count += baseline.entries.size();
+                if (baseline.hashes != null) count += baseline.hashes.size();
+                if (baseline.storages != null) count += baseline.storages.size();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * The client applied the given version: older snapshots can no longer be needed as a base.
+     */
+    public void acknowledge(String channel, int version) {
+        ChannelHistory history = histories.get(channel);
+        if (history == null || !history.baselines.containsKey(version)) return;
+
+        history.baselines.keySet().removeIf(v -> v < version);
+    }
+
+    /**
+     * The client dropped a delta because it does not hold the delta's base. The next payload
+     * on the channel is computed against the version the client holds, or sent FULL if that
+     * version is no longer retained.
+     *
+     * @param clientVersion the version the client currently holds (0 if none is usable)
+     * @param rejectedVersion the version of the dropped payload
+     * @return true if a resend is needed, false if the reject is stale (a FULL or resync
+     *         payload sent after the rejected one already brings the client back in sync)
+     */
+    public boolean reject(String channel, int clientVersion, int rejectedVersion) {
+        ChannelHistory history = histories.get(channel);
+        if (history == null || rejectedVersion < history.resyncVersion) return false;
+
+        if (!history.baselines.containsKey(clientVersion)) {
+            histories.remove(channel);
+            return true;
+        }
+
+        history.resyncBase = clientVersion;
+
+        return true;
     }
 
     /**
@@ -68,13 +186,79 @@ public class DeltaSnapshot {
      * @param fullPayload the freshly-built full NBT (must contain a list of compounds at {@code listKey})
      * @param listKey the NBT key of the entry list inside {@code fullPayload}
      * @param idKey the field name inside each entry that uniquely identifies it (typically {@code "id"})
+     * @return the payload to send, or null if nothing changed since the last send
      */
     public DeltaResult buildDelta(String channel, NBTTagCompound fullPayload, String listKey, String idKey) {
-        NBTTagList list = fullPayload.getTagList(listKey, Constants.NBT.TAG_COMPOUND);
-        Map<Long, NBTTagCompound> oldSnapshot = snapshots.get(channel);
+        return build(channel, fullPayload, listKey, idKey, this.hashOnly ? Kind.HASH : Kind.NBT);
+    }
+
+    /**
+     * Compute a hierarchical delta for a storage-shaped channel (storage → cells → contents).
+     * Same contract as {@link #buildDelta}, but storages present on both sides are sent as
+     * nested patches in a {@code patched} list instead of whole compounds in {@code updated}.
+     * See {@link NestedDeltaSnapshot} for the patch format. Always hash-based.
+     */
+    public DeltaResult buildNestedDelta(String channel, NBTTagCompound fullPayload, String listKey, String idKey) {
+        return build(channel, fullPayload, listKey, idKey, Kind.NESTED);
+    }
+
+    private DeltaResult build(String channel, NBTTagCompound fullPayload, String listKey, String idKey, Kind kind) {
+        ChannelHistory history = histories.computeIfAbsent(channel, c -> new ChannelHistory());
+        boolean resync = history.resyncBase >= 0;
+        int baseVersion = resync ? history.resyncBase : history.latest;
+        Baseline base = history.baselines.get(baseVersion);
+
+        Baseline next = new Baseline(hasher.hashExcluding(fullPayload, Collections.singleton(listKey)));
+        DeltaResult result;
+        switch (kind) {
+            case HASH:
+                next.hashes = new HashMap<>();
+                result = diffHashes(base != null ? base.hashes : null, next.hashes, fullPayload, listKey, idKey);
+                break;
+            case NESTED:
+                next.storages = new HashMap<>();
+                result = nested.build(base != null ? base.storages : null, next.storages, fullPayload, listKey, idKey);
+                break;
+            default:
+                next.entries = new HashMap<>();
+                result = diffEntries(base != null ? base.entries : null, next.entries, fullPayload, listKey, idKey);
+                break;
+        }
+
+        // Nothing moved since the payload the client is (optimistically) holding: skip the send.
+        if (!result.isFull && !resync && base.staticHash == next.staticHash && isEmpty(result.payload)) return null;
+
+        int version = lastVersions.merge(channel, 1, Integer::sum);
+        if (result.isFull || !this.versioned) history.baselines.clear();
+        history.baselines.put(version, next);
+        history.latest = version;
+
+        while (history.baselines.size() > MAX_RETAINED) {
+            Iterator<Integer> oldest = history.baselines.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
 
-        // Build new snapshot map first (we always commit it after sending, regardless of mode).
-        Map<Long, NBTTagCompound> newSnapshot = new HashMap<>(list.tagCount() * 2);
+        // Rejects of anything sent before this payload are answered by it.
+        if (resync || result.isFull) {
+            history.resyncBase = -1;
+            history.resyncVersion = version;
+        }
+
+        if (this.versioned) {
+            result.payload.setInteger(KEY_VERSION, version);
+            if (!result.isFull) result.payload.setInteger(KEY_BASE, baseVersion);
+        }
+
+        return result;
+    }
+
+    /**
+     * Full-NBT diff: entries are compared by deep equality against the base snapshot.
+     */
+    private static DeltaResult diffEntries(@Nullable Map<Long, NBTTagCompound> oldSnapshot, Map<Long, NBTTagCompound> newSnapshot,
+                                           NBTTagCompound fullPayload, String listKey, String idKey) {
+        NBTTagList list = fullPayload.getTagList(listKey, Constants.NBT.TAG_COMPOUND);
         for (int i = 0; i < list.tagCount(); i++) {
             NBTTagCompound entry = list.getCompoundTagAt(i);
             if (!entry.hasKey(idKey)) continue;
@@ -82,10 +266,7 @@ public class DeltaSnapshot {
         }
 
         // First send on this channel: full snapshot.
-        if (oldSnapshot == null) {
-            snapshots.put(channel, newSnapshot);
-            return new DeltaResult(fullPayload, true);
-        }
+        if (oldSnapshot == null) return new DeltaResult(fullPayload, true);
 
         // Compute diff
         NBTTagList added = new NBTTagList();
@@ -109,10 +290,66 @@ public class DeltaSnapshot {
             }
         }
 
-        // Commit new snapshot.
-        snapshots.put(channel, newSnapshot);
+        return new DeltaResult(assembleDelta(fullPayload, listKey, idKey, added, updated, removedIds), false);
+    }
+
+    /**
+     * Hash-only variant of {@link #diffEntries}: same output, but the snapshot only keeps one
+     * content hash per entry ID.
+     */
+    private DeltaResult diffHashes(@Nullable Map<Long, Long> oldSnapshot, Map<Long, Long> newSnapshot,
+                                   NBTTagCompound fullPayload, String listKey, String idKey) {
+        NBTTagList list = fullPayload.getTagList(listKey, Constants.NBT.TAG_COMPOUND);
+        NBTTagList added = new NBTTagList();
+        NBTTagList updated = new NBTTagList();
+
+        for (int i = 0; i < list.tagCount(); i++) {
+            NBTTagCompound entry = list.getCompoundTagAt(i);
+            if (!entry.hasKey(idKey)) continue;
+
+            long id = entry.getLong(idKey);
+            long hash = hasher.hash(entry);
+            newSnapshot.put(id, hash);
+
+            if (oldSnapshot == null) continue;
+
+            Long oldHash = oldSnapshot.get(id);
+            if (oldHash == null) {
+                added.appendTag(entry);
+            } else if (oldHash != hash) {
+                updated.appendTag(entry);
+            }
+        }
+
+        // First send on this channel: full snapshot.
+        if (oldSnapshot == null) return new DeltaResult(fullPayload, true);
+
+        NBTTagList removedIds = new NBTTagList();
+        for (Long oldId : oldSnapshot.keySet()) {
+            if (newSnapshot.containsKey(oldId)) continue;
+
+            NBTTagCompound idTag = new NBTTagCompound();
+            idTag.setLong(idKey, oldId);
+            removedIds.appendTag(idTag);
+        }
+
+        return new DeltaResult(assembleDelta(fullPayload, listKey, idKey, added, updated, removedIds), false);
+    }
+
+    private static boolean isEmpty(NBTTagCompound delta) {
+        for (String key : DIFF_LIST_KEYS) {
+            if (delta.getTagList(key, Constants.NBT.TAG_COMPOUND).tagCount() > 0) return false;
+        }
+
+        return true;
+    }
 
-        // Build delta payload: copy all non-list static keys from full payload, then attach diff lists.
+    /**
+     * Build the delta payload: copy all non-list static keys from the full payload, then attach
+     * the diff lists.
+     */
+    static NBTTagCompound assembleDelta(NBTTagCompound fullPayload, String listKey, String idKey,
+                                                NBTTagList added, NBTTagList updated, NBTTagList removedIds) {
         NBTTagCompound delta = new NBTTagCompound();
         for (String key : fullPayload.getKeySet()) {
             if (key.equals(listKey)) continue;
@@ -124,7 +361,7 @@ public class DeltaSnapshot {
         delta.setTag("updated", updated);
         delta.setTag("removed", removedIds);
 
-        return new DeltaResult(delta, false);
+        return delta;
     }
 
     /**
@@ -135,4 +372,39 @@ public class DeltaSnapshot {
         if (a == null || b == null) return false;
         return a.equals(b);
     }
+
+    // ---- State holders ----
+
+    private enum Kind {
+        NBT, HASH, NESTED
+    }
+
+    /**
+     * Sent versions of one channel, oldest first.
+     */
+    private static final class ChannelHistory {
+        final Map<Integer, Baseline> baselines = new LinkedHashMap<>();
+        int latest = 0;
+
+        // Version the client reported after a reject; the next delta is computed against it.
+        int resyncBase = -1;
+
+        // First payload sent after the last FULL or resync. Rejects of older payloads are stale.
+        int resyncVersion = 0;
+    }
+
+    /**
+     * What was sent at one version. Only the field matching the channel's diff kind is set;
+     * a baseline of another kind (after a mode switch) is treated as missing.
+     */
+    private static final class Baseline {
+        final long staticHash;
+        Map<Long, NBTTagCompound> entries;
+        Map<Long, Long> hashes;
+        Map<Long, NestedDeltaSnapshot.StorageState> storages;
+
+        Baseline(long staticHash) {
+            this.staticHash = staticHash;
+        }
+    }
 }
@@ -0,0 +1,317 @@
+package com.cellterminal.container.handler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
+
+import appeng.api.implementations.tiles.IChestOrDrive;
+import appeng.api.networking.IGrid;
+
+import com.cellterminal.config.CellTerminalServerConfig;
+import com.cellterminal.container.ContainerCellTerminalBase.StorageTracker;
+import com.cellterminal.container.handler.StorageBusDataHandler.StorageBusTracker;
+import com.cellterminal.integration.storage.StorageScannerRegistry;
+import com.cellterminal.integration.storagebus.StorageBusScannerRegistry;
+import com.cellterminal.metrics.TerminalMetrics;
+
+
+/**
+ * Server-wide cache of storage and storage bus scans per grid, shared by every terminal
+ * viewing the same network. Five players looking at one base cost one scan per refresh
+ * instead of five.
+ * <p>
+ * A scan is reused while it is younger than {@link CellTerminalServerConfig#getScanCacheTicks()}
+ * and its grid has not changed since: a {@link StorageEventWatcher} on the grid reports stored
+ * content and cell array changes, and {@link #invalidate} drops the scans after player
+ * actions. Scans made in the current tick survive content changes, so terminals refreshing
+ * together share one scan even while autocrafting keeps the grid dirty. Storage scans are
+ * keyed by cell slot limit, since the limit changes the serialized contents.
+ * <p>
+ * Per-storage trackers are kept across scans of a grid, so a rescan only re-serializes drives
+ * whose change stamp moved, no matter which terminal triggered it. Scan results are shared:
+ * callers must not modify the returned lists, compounds or maps (the delta, dictionary and
+ * sender stages only read them).
+ * <p>
+ * Scans are time-sliced: each is split into one unit per device ({@link ScanCursor}) and all
+ * scans together get {@link CellTerminalServerConfig#getScanTimeBudgetMicros()} per tick. A scan
+ * that does not fit returns null and resumes when it is requested again on a later tick; every
+ * terminal asking in the meantime shares the same scan in progress. Each scan in progress
+ * advances at least one unit per tick, so none starves once the budget is spent.
+ * <p>
+ * Subnet lists are not cached here: they are filtered by the viewing player's security
+ * permissions. Grids nobody asked about for a while are dropped (see {@link #tick()}).
+ * Main thread only.
+ */
+public final class GridScanCache {
+
+    // Grids not requested for this many ticks are dropped along with their listeners
+    private static final int EXPIRY_TICKS = 200;
+
+    private static final Map<IGrid, GridEntry> grids = new HashMap<>();
+    private static long currentTick = 0;
+    private static long budgetLeftNanos = 0;
+
+    private GridScanCache() {}
+
+    /**
+     * Result of a storage scan: the STORAGES list and the trackers of the scanned storages.
+     */
+    public static final class StorageScan {
+        public final NBTTagList storages;
+        public final Map<Long, StorageTracker> trackers;
+        final long tick;
+        final int generation;
+
+        StorageScan(NBTTagList storages, Map<Long, StorageTracker> trackers, long tick, int generation) {
+            this.storages = storages;
+            this.trackers = Collections.unmodifiableMap(trackers);
+            this.tick = tick;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Result of a storage bus scan: the BUSES list and the trackers of the scanned buses.
+     */
+    public static final class BusScan {
+        public final NBTTagList buses;
+        public final Map<Long, StorageBusTracker> trackers;
+        final long tick;
+        final int generation;
+
+        BusScan(NBTTagList buses, Map<Long, StorageBusTracker> trackers, long tick, int generation) {
+            this.buses = buses;
+            this.trackers = Collections.unmodifiableMap(trackers);
+            this.tick = tick;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Get the storages of a grid, scanning only if no valid cached scan exists.
+     *
+     * @return the scan, or null if it is still in progress (request again on a later tick)
+     */
+    @Nullable
+    public static StorageScan scanStorages(IGrid grid, int slotLimit) {
+        GridEntry entry = entry(grid);
+        StorageScan cached = entry.storageScans.get(slotLimit);
+        if (cached != null && entry.isValid(cached.tick, cached.generation)) return cached;
+
+        PendingStorageScan pending = entry.pendingStorageScans.get(slotLimit);
+        if (pending == null) {
+            pending = new PendingStorageScan(grid, slotLimit,
+                entry.storageTrackers.getOrDefault(slotLimit, Collections.emptyMap()), entry.generation);
+            entry.pendingStorageScans.put(slotLimit, pending);
+        }
+
+        if (!advance(pending.cursor)) return null;
+
+        entry.pendingStorageScans.remove(slotLimit);
+        entry.storageTrackers.put(slotLimit, pending.trackers);
+        TerminalMetrics.recordGridScan(grid, TerminalMetrics.Timer.STORAGE_SCAN,
+            pending.cursor.getElapsedNanos(), pending.storages.tagCount());
+
+        // Stamped with the generation the scan started in: changes made while it was running
+        // over several ticks make it stale for later ticks
+        StorageScan scan = new StorageScan(pending.storages, pending.trackers, currentTick, pending.generation);
+        entry.storageScans.put(slotLimit, scan);
+
+        return scan;
+    }
+
+    /**
+     * Get the storage buses of a grid, scanning only if no valid cached scan exists.
+     *
+     * @return the scan, or null if it is still in progress (request again on a later tick)
+     */
+    @Nullable
+    public static BusScan scanBuses(IGrid grid) {
+        GridEntry entry = entry(grid);
+        BusScan cached = entry.busScan;
+        if (cached != null && entry.isValid(cached.tick, cached.generation)) return cached;
+
+        PendingBusScan pending = entry.pendingBusScan;
+        if (pending == null) {
+            pending = new PendingBusScan(grid, entry.generation);
+            entry.pendingBusScan = pending;
+        }
+
+        if (!advance(pending.cursor)) return null;
+
+        entry.pendingBusScan = null;
+        TerminalMetrics.recordGridScan(grid, TerminalMetrics.Timer.BUS_SCAN,
+            pending.cursor.getElapsedNanos(), pending.buses.tagCount());
+        entry.busScan = new BusScan(pending.buses, pending.trackers, currentTick, pending.generation);
+
+        return entry.busScan;
+    }
+
+    /**
+     * Run a scan in progress within what is left of this tick's budget.
+     *
+     * @return true if the scan is complete
+     */
+    private static boolean advance(ScanCursor cursor) {
+        int budgetMicros = CellTerminalServerConfig.getInstance().getScanTimeBudgetMicros();
+        if (budgetMicros <= 0) {
+            cursor.advance(Long.MAX_VALUE, currentTick);
+
+            return true;
+        }
+
+        // Budget spent: scans that already ran a unit this tick wait for the next one
+        if (budgetLeftNanos <= 0 && cursor.hasAdvancedIn(currentTick)) return cursor.isDone();
+
+        budgetLeftNanos -= cursor.advance(budgetLeftNanos, currentTick);
+
+        return cursor.isDone();
+    }
+
+    /**
+     * Force the next request for this grid to rescan (e.g. after a player changed a cell,
+     * partition or name through a terminal).
+     */
+    public static void invalidate(IGrid grid) {
+        if (grid == null) return;
+
+        GridEntry entry = grids.get(grid);
+        if (entry == null) return;
+
+        // Drop the scans outright: unlike content changes, this also applies within the tick.
+        // Scans in progress restart too, since devices they already covered may have changed.
+        entry.storageScans.clear();
+        entry.busScan = null;
+        entry.pendingStorageScans.clear();
+        entry.pendingBusScan = null;
+    }
+
+    /**
+     * Advance the cache clock, renew the scan time budget and drop grids that were not
+     * requested recently. Called once per server tick.
+     */
+    public static void tick() {
+        currentTick++;
+        budgetLeftNanos = CellTerminalServerConfig.getInstance().getScanTimeBudgetMicros() * 1000L;
+
+        if (grids.isEmpty()) return;
+
+        Iterator<GridEntry> it = grids.values().iterator();
+        while (it.hasNext()) {
+            GridEntry entry = it.next();
+            if (currentTick - entry.lastAccess < EXPIRY_TICKS) continue;
+
+            entry.watcher.unwatch();
+            it.remove();
+        }
+    }
+
+    /**
+     * Drop everything (server stopping).
+     */
+    public static void clear() {
+        for (GridEntry entry : grids.values()) entry.watcher.unwatch();
+
+        grids.clear();
+    }
+
+    private static GridEntry entry(IGrid grid) {
+        GridEntry entry = grids.computeIfAbsent(grid, GridEntry::new);
+        entry.lastAccess = currentTick;
+
+        return entry;
+    }
+
+    private static final class GridEntry {
+        final StorageEventWatcher watcher;
+        final Map<Integer, StorageScan> storageScans = new HashMap<>();
+        final Map<Integer, Map<Long, StorageTracker>> storageTrackers = new HashMap<>();
+        final Map<Integer, PendingStorageScan> pendingStorageScans = new HashMap<>();
+        BusScan busScan;
+        PendingBusScan pendingBusScan;
+        int generation = 0;
+        long lastAccess;
+
+        GridEntry(IGrid grid) {
+            this.watcher = new StorageEventWatcher(() -> grids.get(grid) == this);
+            this.watcher.watch(grid);
+        }
+
+        boolean isValid(long scanTick, int scanGeneration) {
+            if (this.watcher.isDirty()) {
+                this.watcher.clearDirty();
+                this.generation++;
+            }
+
+            if (scanTick == currentTick) return true;
+
+            int ttl = CellTerminalServerConfig.getInstance().getScanCacheTicks();
+
+            return scanGeneration == this.generation && currentTick - scanTick < ttl;
+        }
+    }
+
+    /**
+     * A storage scan in progress: the cursor and the list and trackers it fills.
+     */
+    private static final class PendingStorageScan {
+        final NBTTagList storages = new NBTTagList();
+        final Map<Long, StorageTracker> trackers = new LinkedHashMap<>();
+        final ScanCursor cursor;
+        final int generation;
+
+        PendingStorageScan(IGrid grid, int slotLimit, Map<Long, StorageTracker> previous, int generation) {
+            this.generation = generation;
+
+            // Trackers survive across scans so each keeps the NBT last built for its storage,
+            // letting CellDataHandler skip re-serializing drives whose change stamp did not move.
+            // Storages that do not show up in this scan are dropped with the old map.
+            this.cursor = new ScanCursor(StorageScannerRegistry.collectScanUnits(grid, this.storages,
+                new CellDataHandler.StorageTrackerCallback() {
+                    @Override
+                    public void register(long id, TileEntity tile, IChestOrDrive storage) {
+                        StorageTracker tracker = previous.get(id);
+                        if (tracker == null || tracker.tile != tile) tracker = new StorageTracker(id, tile, storage);
+
+                        trackers.put(id, tracker);
+                    }
+
+                    @Override
+                    public NBTTagCompound getCachedData(long id, long stamp) {
+                        StorageTracker tracker = trackers.get(id);
+
+                        return tracker != null ? tracker.getCachedData(stamp) : null;
+                    }
+
+                    @Override
+                    public void storeData(long id, long stamp, NBTTagCompound data) {
+                        StorageTracker tracker = trackers.get(id);
+                        if (tracker != null) tracker.setCachedData(stamp, data);
+                    }
+                }, slotLimit));
+        }
+    }
+
+    /**
+     * A storage bus scan in progress.
+     */
+    private static final class PendingBusScan {
+        final NBTTagList buses = new NBTTagList();
+        final Map<Long, StorageBusTracker> trackers = new LinkedHashMap<>();
+        final ScanCursor cursor;
+        final int generation;
+
+        PendingBusScan(IGrid grid, int generation) {
+            this.generation = generation;
+            this.cursor = new ScanCursor(StorageBusScannerRegistry.collectScanUnits(grid, this.buses, this.trackers));
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.cellterminal.container.handler;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.util.NBTHasher;
+
+
+/**
+ * Hierarchical delta snapshot for the STORAGES channel: storage → cells (keyed by slot) →
+ * contents (keyed by item identity).
+ * <p>
+ * Where {@link DeltaSnapshot} resends a whole storage compound when anything in it changes,
+ * this produces a {@code patched} list that only carries what moved:
+ * <pre>
+ * storage patch:
+ *   "id"           long       storage ID (idKey)
+ *   "set"          compound   changed storage header keys (everything except "cells")
+ *   "unset"        list       header keys no longer present (NBTTagString)
+ *   "cellsRemoved" int[]      slots that became empty
+ *   "cells"        list       cell patches
+ * cell patch:
+ *   "slot"         int
+ *   "cell"         compound   full cell compound (new cell, or contents changed too much to patch)
+ *   -- or --
+ *   "set"/"unset"             changed cell header keys (everything except "contents")
+ *   "cntIdx"       int[]      indices (in the client's current order) whose count changed...
+ *   "cntVal"       list       ...and their new counts (NBTTagLong), applied first
+ *   "cntRemoved"   int[]      indices (in the client's current order) to remove, applied second
+ *   "cntAdded"     list       content compounds appended at the end, applied last
+ * </pre>
+ * Only hashes are retained: per storage and per cell a full hash (quick skip) and per-key
+ * header hashes, and per content entry an identity hash (the compound without its count keys)
+ * plus its count. The content order kept in a state mirrors the client's order after patches,
+ * so indices in a patch always refer to what the client holds at that version.
+ * <p>
+ * The states themselves are owned by {@link DeltaSnapshot}, which keeps one map per sent
+ * version. A build never mutates the base states (unchanged storages and cells are shared
+ * into the new map as-is), so any retained version can serve as the base of a later diff.
+ * <p>
+ * The {@code cellItem} header key carries the whole cell ItemStack, whose AE2 NBT changes with
+ * the stored contents. Its header hash only covers what identifies and names the item (id,
+ * Count, Damage and the display tag), so a content change patches the content lists and the
+ * byte/type counters without resending the item; the client gets the current item NBT whenever
+ * the cell is sent whole.
+ */
+public class NestedDeltaSnapshot {
+
+    static final String CELLS_KEY = "cells";
+    static final String SLOT_KEY = "slot";
+    static final String CONTENTS_KEY = "contents";
+    static final String CELL_ITEM_KEY = "cellItem";
+
+    /**
+     * Content keys holding the stored amount, in the priority order {@code CellInfo} reads them.
+     */
+    private static final String[] COUNT_KEYS = {"fluidAmount", "essentiaAmount", "gasAmount", "Cnt"};
+
+    /**
+     * Keys ignored when computing a content entry's identity (amounts and AE2 request/craft state).
+     */
+    private static final Set<String> NON_IDENTITY_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "fluidAmount", "essentiaAmount", "gasAmount", "Cnt", "Req", "Craft")));
+
+    private static final Set<String> ITEM_TAG_KEYS = Collections.singleton("tag");
+
+    private final NBTHasher hasher = new NBTHasher();
+
+    /**
+     * Compute the payload for the next send: FULL without base states, otherwise a DELTA whose
+     * {@code added}/{@code removed} lists carry whole storages and {@code patched} carries
+     * nested patches for storages present on both sides.
+     *
+     * @param oldStates the states of the version the delta is based on, or null for FULL
+     * @param newStates filled with the states of the payload being built
+     */
+    public DeltaSnapshot.DeltaResult build(@Nullable Map<Long, StorageState> oldStates, Map<Long, StorageState> newStates,
+                                           NBTTagCompound fullPayload, String listKey, String idKey) {
+        NBTTagList list = fullPayload.getTagList(listKey, Constants.NBT.TAG_COMPOUND);
+
+        NBTTagList added = new NBTTagList();
+        NBTTagList patched = new NBTTagList();
+
+        for (int i = 0; i < list.tagCount(); i++) {
+            NBTTagCompound entry = list.getCompoundTagAt(i);
+            if (!entry.hasKey(idKey)) continue;
+
+            long id = entry.getLong(idKey);
+            StorageState oldState = (oldStates != null) ? oldStates.get(id) : null;
+
+            // Same compound instance as last time (reused by the storage tracker): unchanged.
+            if (oldState != null && oldState.source == entry) {
+                newStates.put(id, oldState);
+                continue;
+            }
+
+            long fullHash = this.hasher.hash(entry);
+            if (oldState != null && oldState.fullHash == fullHash) {
+                // Equal content in a new compound: the base state stays untouched for older diffs.
+                newStates.put(id, oldState.withSource(entry));
+                continue;
+            }
+
+            StorageState newState = buildStorageState(entry, fullHash);
+            newStates.put(id, newState);
+
+            if (oldStates == null) continue;
+
+            if (oldState == null) {
+                added.appendTag(entry);
+            } else {
+                NBTTagCompound patch = diffStorage(oldState, newState, entry);
+                if (patch != null) {
+                    patch.setLong(idKey, id);
+                    patched.appendTag(patch);
+                }
+            }
+        }
+
+        if (oldStates == null) return new DeltaSnapshot.DeltaResult(fullPayload, true);
+
+        NBTTagList removedIds = new NBTTagList();
+        for (Long oldId : oldStates.keySet()) {
+            if (newStates.containsKey(oldId)) continue;
+
+            NBTTagCompound idTag = new NBTTagCompound();
+            idTag.setLong(idKey, oldId);
+            removedIds.appendTag(idTag);
+        }
+
+        NBTTagCompound delta = DeltaSnapshot.assembleDelta(fullPayload, listKey, idKey, added, new NBTTagList(), removedIds);
+        delta.setTag("patched", patched);
+
+        return new DeltaSnapshot.DeltaResult(delta, false);
+    }
+
+    // ---- State building ----
+
+    private StorageState buildStorageState(NBTTagCompound entry, long fullHash) {
+        StorageState state = new StorageState(entry, fullHash, buildHeader(entry, CELLS_KEY), new LinkedHashMap<>());
+
+        NBTTagList cells = entry.getTagList(CELLS_KEY, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < cells.tagCount(); i++) {
+            NBTTagCompound cell = cells.getCompoundTagAt(i);
+            state.cells.put(cell.getInteger(SLOT_KEY), buildCellState(cell));
+        }
+
+        return state;
+    }
+
+    private CellState buildCellState(NBTTagCompound cell) {
+        CellState state = new CellState();
+        state.fullHash = this.hasher.hash(cell);
+        state.header = buildHeader(cell, CONTENTS_KEY);
+        state.hasContents = cell.hasKey(CONTENTS_KEY);
+
+        NBTTagList contents = cell.getTagList(CONTENTS_KEY, Constants.NBT.TAG_COMPOUND);
+        state.identities = new long[contents.tagCount()];
+        state.counts = new long[contents.tagCount()];
+
+        for (int i = 0; i < contents.tagCount(); i++) {
+            NBTTagCompound content = contents.getCompoundTagAt(i);
+            state.identities[i] = this.hasher.hashExcluding(content, NON_IDENTITY_KEYS);
+            state.counts[i] = readCount(content);
+        }
+
+        return state;
+    }
+
+    private HeaderState buildHeader(NBTTagCompound compound, String childKey) {
+        int size = compound.getKeySet().size() - (compound.hasKey(childKey) ? 1 : 0);
+        HeaderState header = new HeaderState(size);
+
+        int i = 0;
+        for (String key : compound.getKeySet()) {
+            if (key.equals(childKey)) continue;
+
+            header.keys[i] = key;
+            header.hashes[i] = key.equals(CELL_ITEM_KEY)
+                ? hashCellItem(compound.getCompoundTag(key))
+                : this.hasher.hashTag(compound.getTag(key));
+            i++;
+        }
+
+        return header;
+    }
+
+    /**
+     * Hash the parts of a cell item that identify and name it. The rest of its NBT (for AE2
+     * cells, the stored items) changes with every insert and is already diffed through the
+     * content lists.
+     */
+    private long hashCellItem(NBTTagCompound item) {
+        long hash = this.hasher.hashExcluding(item, ITEM_TAG_KEYS);
+
+        NBTTagCompound tag = item.getCompoundTag("tag");
+        if (tag.hasKey("display")) hash = hash * 31 + this.hasher.hashTag(tag.getTag("display"));
+
+        return hash;
+    }
+
+    // ---- Diffing ----
+
+    private NBTTagCompound diffStorage(StorageState oldState, StorageState newState, NBTTagCompound entry) {
+        NBTTagCompound patch = new NBTTagCompound();
+        boolean changed = diffHeader(oldState.header, newState.header, entry, patch);
+
+        Map<Integer, NBTTagCompound> cellsBySlot = new HashMap<>();
+        NBTTagList cells = entry.getTagList(CELLS_KEY, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < cells.tagCount(); i++) {
+            NBTTagCompound cell = cells.getCompoundTagAt(i);
+            cellsBySlot.put(cell.getInteger(SLOT_KEY), cell);
+        }
+
+        NBTTagList cellPatches = new NBTTagList();
+        for (Map.Entry<Integer, CellState> e : newState.cells.entrySet()) {
+            int slot = e.getKey();
+            CellState newCell = e.getValue();
+            CellState oldCell = oldState.cells.get(slot);
+            if (oldCell != null && oldCell.fullHash == newCell.fullHash) {
+                // Keep the old state: its content order is what the client holds.
+                e.setValue(oldCell);
+                continue;
+            }
+
+            NBTTagCompound cellPatch = new NBTTagCompound();
+            cellPatch.setInteger(SLOT_KEY, slot);
+
+            if (oldCell == null) {
+                cellPatch.setTag("cell", cellsBySlot.get(slot));
+            } else {
+                diffCell(oldCell, newCell, cellsBySlot.get(slot), cellPatch);
+            }
+
+            // Only the cell item's inventory NBT moved: nothing the client is sent changed
+            if (cellPatch.getSize() > 1) cellPatches.appendTag(cellPatch);
+        }
+
+        int[] removedSlots = oldState.cells.keySet().stream()
+            .filter(slot -> !newState.cells.containsKey(slot))
+            .mapToInt(Integer::intValue)
+            .toArray();
+
+        if (cellPatches.tagCount() > 0) {
+            patch.setTag(CELLS_KEY, cellPatches);
+            changed = true;
+        }
+
+        if (removedSlots.length > 0) {
+            patch.setTag("cellsRemoved", new NBTTagIntArray(removedSlots));
+            changed = true;
+        }
+
+        return changed ? patch : null;
+    }
+
+    /**
+     * Diff one cell and fill {@code patch}. Rewrites {@code newCell}'s content arrays into the
+     * order the client will hold after applying the patch.
+     */
+    private void diffCell(CellState oldCell, CellState newCell, NBTTagCompound cell, NBTTagCompound patch) {
+        if (oldCell.hasContents != newCell.hasContents) {
+            replaceWithFullCell(patch, cell);
+            return;
+        }
+
+        diffHeader(oldCell.header, newCell.header, cell, patch);
+
+        Map<Long, Integer> newIndexByIdentity = new HashMap<>(newCell.identities.length * 2);
+        for (int j = 0; j < newCell.identities.length; j++) {
+            // Duplicate identities cannot be addressed by identity: fall back to the full cell.
+            if (newIndexByIdentity.put(newCell.identities[j], j) != null) {
+                replaceWithFullCell(patch, cell);
+                return;
+            }
+        }
+
+        boolean[] matched = new boolean[newCell.identities.length];
+        int[] countIdx = new int[oldCell.identities.length];
+        long[] countVal = new long[oldCell.identities.length];
+        int[] removed = new int[oldCell.identities.length];
+        int countChanges = 0;
+        int removals = 0;
+
+        // Client order after the patch: surviving old entries in old order, then additions.
+        long[] orderedIdentities = new long[newCell.identities.length];
+        long[] orderedCounts = new long[newCell.identities.length];
+        int ordered = 0;
+
+        for (int i = 0; i < oldCell.identities.length; i++) {
+            Integer j = newIndexByIdentity.get(oldCell.identities[i]);
+            if (j == null || matched[j]) {
+                removed[removals++] = i;
+                continue;
+            }
+
+            matched[j] = true;
+            if (oldCell.counts[i] != newCell.counts[j]) {
+                countIdx[countChanges] = i;
+                countVal[countChanges] = newCell.counts[j];
+                countChanges++;
+            }
+
+            orderedIdentities[ordered] = newCell.identities[j];
+            orderedCounts[ordered] = newCell.counts[j];
+            ordered++;
+        }
+
+        NBTTagList contents = cell.getTagList(CONTENTS_KEY, Constants.NBT.TAG_COMPOUND);
+        NBTTagList addedContents = new NBTTagList();
+        for (int j = 0; j < newCell.identities.length; j++) {
+            if (matched[j]) continue;
+
+            addedContents.appendTag(contents.getCompoundTagAt(j));
+            orderedIdentities[ordered] = newCell.identities[j];
+            orderedCounts[ordered] = newCell.counts[j];
+            ordered++;
+        }
+
+        // When most of the list turned over, the full cell is smaller than the patch.
+        if (removals + addedContents.tagCount() > Math.max(1, newCell.identities.length / 2)) {
+            replaceWithFullCell(patch, cell);
+            return;
+        }
+
+        if (countChanges > 0) {
+            NBTTagList values = new NBTTagList();
+            for (int k = 0; k < countChanges; k++) values.appendTag(new NBTTagLong(countVal[k]));
+
+            patch.setTag("cntIdx", new NBTTagIntArray(Arrays.copyOf(countIdx, countChanges)));
+            patch.setTag("cntVal", values);
+        }
+
+        if (removals > 0) patch.setTag("cntRemoved", new NBTTagIntArray(Arrays.copyOf(removed, removals)));
+        if (addedContents.tagCount() > 0) patch.setTag("cntAdded", addedContents);
+
+        newCell.identities = orderedIdentities;
+        newCell.counts = orderedCounts;
+    }
+
+    private static void replaceWithFullCell(NBTTagCompound patch, NBTTagCompound cell) {
+        patch.removeTag("set");
+        patch.removeTag("unset");
+        patch.setTag("cell", cell);
+    }
+
+    /**
+     * Write changed keys of {@code compound} into {@code patch.set} and vanished keys into
+     * {@code patch.unset}. Returns true if anything changed.
+     */
+    private static boolean diffHeader(HeaderState oldHeader, HeaderState newHeader, NBTTagCompound compound,
+                                      NBTTagCompound patch) {
+        NBTTagCompound set = new NBTTagCompound();
+        for (int i = 0; i < newHeader.keys.length; i++) {
+            int oldIndex = oldHeader.indexOf(newHeader.keys[i]);
+            if (oldIndex >= 0 && oldHeader.hashes[oldIndex] == newHeader.hashes[i]) continue;
+
+            set.setTag(newHeader.keys[i], compound.getTag(newHeader.keys[i]));
+        }
+
+        NBTTagList unset = new NBTTagList();
+        for (String key : oldHeader.keys) {
+            if (newHeader.indexOf(key) < 0) unset.appendTag(new NBTTagString(key));
+        }
+
+        boolean hasSet = !set.getKeySet().isEmpty();
+        if (hasSet) patch.setTag("set", set);
+        if (unset.tagCount() > 0) patch.setTag("unset", unset);
+
+        return hasSet || unset.tagCount() > 0;
+    }
+
+    /**
+     * Read a content entry's stored amount, mirroring {@code CellInfo}. Entries without a known
+     * count key return 0 (their amount is then part of the identity).
+     */
+    static long readCount(NBTTagCompound content) {
+        for (String key : COUNT_KEYS) {
+            if (content.hasKey(key)) return content.getLong(key);
+        }
+
+        return 0;
+    }
+
+    // ---- State holders ----
+
+    static final class StorageState {
+        final NBTTagCompound source;
+        final long fullHash;
+        final HeaderState header;
+        final Map<Integer, CellState> cells;
+
+        StorageState(NBTTagCompound source, long fullHash, HeaderState header, Map<Integer, CellState> cells) {
+            this.source = source;
+            this.fullHash = fullHash;
+            this.header = header;
+            this.cells = cells;
+        }
+
+        /**
+         * The same state for an equal compound. Shares the cell states, which are never modified
+         * once their build is done.
+         */
+        StorageState withSource(NBTTagCompound source) {
+            return new StorageState(source, this.fullHash, this.header, this.cells);
+        }
+    }
+
+    private static final class CellState {
+        long fullHash;
+        HeaderState header;
+        boolean hasContents;
+        long[] identities;
+        long[] counts;
+    }
+
+    /**
+     * Parallel arrays of header key names and value hashes. Headers have ~10 keys, so a linear
+     * scan beats a map in both memory and time.
+     */
+    private static final class HeaderState {
+        final String[] keys;
+        final long[] hashes;
+
+        HeaderState(int size) {
+            this.keys = new String[size];
+            this.hashes = new long[size];
+        }
+
+        int indexOf(String key) {
+            for (int i = 0; i < this.keys.length; i++) {
+                if (this.keys[i].equals(key)) return i;
+            }
+
+            return -1;
+        }
+    }
+}
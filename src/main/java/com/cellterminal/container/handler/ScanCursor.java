@@ -0,0 +1,73 @@
+package com.cellterminal.container.handler;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+
+/**
+ * Resumable position in a grid scan that was split into units (typically one per drive or
+ * storage bus, see the scanners' {@code collectScanUnits}). Each call to {@link #advance}
+ * runs units until its time budget is used up; the remaining units wait for the next call.
+ * <p>
+ * Units append to the scan's output in order, so a scan run over several ticks produces the
+ * same list as one run in a single tick (minus devices that left the grid in between).
+ * Main thread only.
+ */
+public final class ScanCursor {
+
+    private final Deque<Runnable> units;
+    private long lastAdvanceTick = -1;
+    private long elapsedNanos = 0;
+
+    public ScanCursor(Collection<Runnable> units) {
+        this.units = new ArrayDeque<>(units);
+    }
+
+    /**
+     * Run units until the budget is used up or none are left. At least one unit runs per call,
+     * so a scan always makes progress even when the budget is already spent.
+     *
+     * @param budgetNanos time budget for this call, in nanoseconds
+     * @param tick the current tick, remembered for {@link #hasAdvancedIn}
+     * @return the time spent, in nanoseconds
+     */
+    public long advance(long budgetNanos, long tick) {
+        this.lastAdvanceTick = tick;
+
+        long start = System.nanoTime();
+        long elapsed = 0;
+        while (!this.units.isEmpty()) {
+            this.units.poll().run();
+
+            elapsed = System.nanoTime() - start;
+            if (elapsed >= budgetNanos) break;
+        }
+
+        this.elapsedNanos += elapsed;
+
+        return elapsed;
+    }
+
+    /**
+     * Whether {@link #advance} already ran in the given tick.
+     */
+    public boolean hasAdvancedIn(long tick) {
+        return this.lastAdvanceTick == tick;
+    }
+
+    public boolean isDone() {
+        return this.units.isEmpty();
+    }
+
+    public int getRemaining() {
+        return this.units.size();
+    }
+
+    /**
+     * Total time spent in {@link #advance} so far, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+}
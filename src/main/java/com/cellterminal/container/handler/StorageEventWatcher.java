@@ -0,0 +1,145 @@
+package com.cellterminal.container.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nullable;
+
+import appeng.api.AEApi;
+import appeng.api.networking.IGrid;
+import appeng.api.networking.security.IActionSource;
+import appeng.api.networking.storage.IBaseMonitor;
+import appeng.api.networking.storage.IStorageGrid;
+import appeng.api.storage.IMEMonitor;
+import appeng.api.storage.IMEMonitorHandlerReceiver;
+import appeng.api.storage.IStorageChannel;
+import appeng.api.storage.data.IAEStack;
+
+import com.cellterminal.CellTerminal;
+
+
+/**
+ * Listens to the ME storage monitors of a grid and raises a dirty flag whenever stored
+ * content changes (items inserted/extracted, cells added/removed from the cell array).
+ * <p>
+ * The container polls {@link #isDirty()} from {@code detectAndSendChanges} and regenerates
+ * the STORAGES channel when set, so byte/type usage stays live while autocrafting runs
+ * instead of only refreshing after a player action. The listener callbacks only flip a
+ * boolean; all scanning and serialization stays on the regular (throttled) refresh path.
+ * <p>
+ * AE2 monitors report changes per network, not per drive, so the watcher cannot tell which
+ * drive changed. Per-drive cost is handled downstream by the tracker change stamps and the
+ * delta snapshot, which only re-serialize and send drives whose content actually moved.
+ */
+public class StorageEventWatcher {
+
+    private final BooleanSupplier ownerValid;
+    private final List<Registration<?>> registrations = new ArrayList<>();
+
+    // Token handed to AE2 with each listener. Replaced on every (re)attach so listeners
+    // registered against a previous grid report themselves invalid and get pruned by AE2.
+    private Object token = new Object();
+    private IGrid watchedGrid = null;
+    private boolean dirty = false;
+
+    /**
+     * @param ownerValid Returns false once the owning container is closed, so AE2 drops
+     *                   our listeners even if {@link #unwatch()} was never called.
+     */
+    public StorageEventWatcher(BooleanSupplier ownerValid) {
+        this.ownerValid = ownerValid;
+    }
+
+    /**
+     * Attach to the storage monitors of the given grid. No-op if already watching it.
+     * Passing null detaches from the current grid.
+     */
+    public void watch(@Nullable IGrid grid) {
+        if (grid == this.watchedGrid) return;
+
+        unwatch();
+        if (grid == null) return;
+
+        IStorageGrid storageGrid;
+        try {
+            storageGrid = grid.getCache(IStorageGrid.class);
+        } catch (Exception e) {
+            return;
+        }
+
+        if (storageGrid == null) return;
+
+        this.watchedGrid = grid;
+        this.token = new Object();
+
+        for (IStorageChannel<? extends IAEStack<?>> channel : AEApi.instance().storage().storageChannels()) {
+            attach(storageGrid, channel);
+        }
+    }
+
+    /**
+     * Detach all listeners. Safe to call repeatedly.
+     */
+    public void unwatch() {
+        for (Registration<?> registration : this.registrations) registration.remove();
+
+        this.registrations.clear();
+        this.watchedGrid = null;
+        this.token = new Object();
+    }
+
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void attach(IStorageGrid storageGrid, IStorageChannel channel) {
+        try {
+            IMEMonitor monitor = storageGrid.getInventory(channel);
+            if (monitor == null) return;
+
+            Registration registration = new Registration(monitor);
+            monitor.addListener(registration, this.token);
+            this.registrations.add(registration);
+        } catch (Exception e) {
+            // Some addon channels may not be backed by this grid; skip them.
+            CellTerminal.LOGGER.debug("Could not watch storage channel {}: {}", channel, e.getMessage());
+        }
+    }
+
+    /**
+     * A single monitor subscription. Kept so it can be removed explicitly on detach.
+     */
+    private final class Registration<T extends IAEStack<T>> implements IMEMonitorHandlerReceiver<T> {
+
+        private final IMEMonitor<T> monitor;
+
+        private Registration(IMEMonitor<T> monitor) {
+            this.monitor = monitor;
+        }
+
+        private void remove() {
+            this.monitor.removeListener(this);
+        }
+
+        @Override
+        public boolean isValid(Object verificationToken) {
+            return verificationToken == StorageEventWatcher.this.token && StorageEventWatcher.this.ownerValid.getAsBoolean();
+        }
+
+        @Override
+        public void postChange(IBaseMonitor<T> monitor, Iterable<T> change, IActionSource actionSource) {
+            StorageEventWatcher.this.dirty = true;
+        }
+
+        @Override
+        public void onListUpdate() {
+            StorageEventWatcher.this.dirty = true;
+        }
+    }
+}
@@ -43,6 +43,7 @@ import appeng.util.helpers.ItemHandlerUtil;
 import com.cells.api.ISubnetProxy;
 import com.cellterminal.integration.CellsIntegration;
 import com.cellterminal.integration.subnet.SubnetScannerRegistry;
+import com.cellterminal.metrics.TerminalMetrics;
 import com.cellterminal.network.PacketSubnetPartitionAction;
 import com.cellterminal.network.PacketStorageBusPartitionAction;
 
@@ -114,7 +115,9 @@ public class SubnetDataHandler {
         if (grid == null) return subnetList;
 
         // Delegate to registered scanners
+        long start = System.nanoTime();
         SubnetScannerRegistry.scanAll(grid, subnetList, trackerMap, playerId, slotLimit);
+        TerminalMetrics.record(TerminalMetrics.Timer.SUBNET_SCAN, System.nanoTime() - start);
 
         return subnetList;
     }
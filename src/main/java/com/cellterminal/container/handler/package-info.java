@@ -14,6 +14,14 @@
  *       NBT data (partition, I/O mode, priority) via storage bus scanner registries.</li>
  *   <li>{@link com.cellterminal.container.handler.SubnetDataHandler}: Gathers subnet list data
  *       for the subnet overview tab.</li>
+ *   <li>{@link com.cellterminal.container.handler.GridScanCache}: Shares storage and storage
+ *       bus scans between terminals viewing the same grid.</li>
+ *   <li>{@link com.cellterminal.container.handler.ScanCursor}: Resumes a scan split into
+ *       per-device units over several ticks within a time budget.</li>
+ *   <li>{@link com.cellterminal.container.handler.ChannelPayloadBuilder}: Turns a channel
+ *       payload into the FULL or DELTA to send, with its stacks dictionary-encoded.</li>
+ *   <li>{@link com.cellterminal.container.handler.CellDetailFilter}: Sends only the cells the
+ *       client shows with their contents and summarizes the others.</li>
  * </ul>
  * <p>
  * <b>Action handlers (client → server):</b>
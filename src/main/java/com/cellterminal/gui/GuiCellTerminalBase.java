@@ -46,6 +46,7 @@ import com.cellterminal.client.StorageBusContentRow;
 import com.cellterminal.client.StorageInfo;
 import com.cellterminal.config.CellTerminalServerConfig;
 import com.cellterminal.gui.buttons.*;
+import com.cellterminal.gui.handler.CellDetailRequester;
 import com.cellterminal.gui.handler.TabManager;
 import com.cellterminal.gui.handler.TabRenderingHandler;
 import com.cellterminal.gui.handler.TerminalDataManager;
@@ -62,9 +63,12 @@ import com.cellterminal.network.PacketHighlightBlock;
 import com.cellterminal.network.PacketSwitchNetwork;
 import com.cellterminal.network.PacketSlotLimitChange;
 import com.cellterminal.network.PacketTabChange;
+import com.cellterminal.network.PacketTerminalHello;
 import com.cellterminal.network.chunked.PayloadDispatcher;
+import com.cellterminal.network.chunked.PayloadHandler;
 import com.cellterminal.network.chunked.PayloadMode;
 import com.cellterminal.network.chunked.TerminalChannels;
+import com.cellterminal.network.chunked.WireCodec;
 import com.cellterminal.gui.rename.InlineRenameManager;
 
 
@@ -91,6 +95,7 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
 
     // Handlers
     protected TerminalDataManager dataManager;
+    protected final CellDetailRequester cellDetailRequester = new CellDetailRequester();
 
     // Terminal style button
     protected GuiTerminalStyleButton terminalStyleButton;
@@ -167,6 +172,9 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         this.currentNetworkId = config.getLastViewedNetworkId();
 
         registerPayloadHandlers();
+
+        // Tell the server which payload codecs we can decode (compact binary vs plain NBT)
+        CellTerminalNetwork.INSTANCE.sendToServer(new PacketTerminalHello(WireCodec.supportedMask()));
     }
 
     /**
@@ -184,32 +192,64 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         // META: terminalPos / terminalDim / networkId. Used to confirm network-switch completion.
         PayloadDispatcher.register(TerminalChannels.META, this::onMetaPayload);
 
-        // STORAGES / BUSES / TEMP_CELLS: data sections, gated by networkId.
-        PayloadDispatcher.register(TerminalChannels.STORAGES, (mode, data) -> {
-            if (!acceptForCurrentNetwork(data)) return;
-            dataManager.applyStorages(mode, data);
-            updateScrollbarForCurrentTab();
-            restoreInitialScrollIfNeeded();
-        });
-        PayloadDispatcher.register(TerminalChannels.BUSES, (mode, data) -> {
-            if (!acceptForCurrentNetwork(data)) return;
-            dataManager.applyBuses(mode, data);
-            updateScrollbarForCurrentTab();
-            restoreInitialScrollIfNeeded();
-        });
-        PayloadDispatcher.register(TerminalChannels.TEMP_CELLS, (mode, data) -> {
-            if (!acceptForCurrentNetwork(data)) return;
-            dataManager.applyTempCells(mode, data);
-            updateScrollbarForCurrentTab();
-            restoreInitialScrollIfNeeded();
-        });
+        // STORAGES / BUSES / TEMP_CELLS: data sections, gated by networkId. Stack dictionary
+        // references are resolved on the payload decoder thread, before the gate, so definitions
+        // in dropped payloads are kept. Entries are parsed on the main thread, since building
+        // ItemStacks touches the item registry and capabilities. Deltas are checked against the
+        // applied snapshot version and acknowledged once applied.
+        PayloadDispatcher.register(TerminalChannels.STORAGES, PayloadHandler.prepared(
+            (mode, data) -> {
+                dataManager.decodeStacks(TerminalChannels.STORAGES, data);
+                return null;
+            },
+            (mode, data, unused) -> {
+                if (!acceptForCurrentNetwork(data)) return;
+                if (!dataManager.acceptVersion(TerminalChannels.STORAGES, mode, data)) return;
+                dataManager.applyStorages(mode, data);
+                dataManager.acknowledgeVersion(TerminalChannels.STORAGES, data);
+                updateScrollbarForCurrentTab();
+                restoreInitialScrollIfNeeded();
+            }));
+        PayloadDispatcher.register(TerminalChannels.BUSES, PayloadHandler.prepared(
+            (mode, data) -> {
+                dataManager.decodeStacks(TerminalChannels.BUSES, data);
+                return null;
+            },
+            (mode, data, unused) -> {
+                if (!acceptForCurrentNetwork(data)) return;
+                if (!dataManager.acceptVersion(TerminalChannels.BUSES, mode, data)) return;
+                dataManager.applyBuses(mode, data);
+                dataManager.acknowledgeVersion(TerminalChannels.BUSES, data);
+                updateScrollbarForCurrentTab();
+                restoreInitialScrollIfNeeded();
+            }));
+        PayloadDispatcher.register(TerminalChannels.TEMP_CELLS, PayloadHandler.prepared(
+            (mode, data) -> {
+                dataManager.decodeStacks(TerminalChannels.TEMP_CELLS, data);
+                return null;
+            },
+            (mode, data, unused) -> {
+                if (!acceptForCurrentNetwork(data)) return;
+                if (!dataManager.acceptVersion(TerminalChannels.TEMP_CELLS, mode, data)) return;
+                dataManager.applyTempCells(mode, data);
+                dataManager.acknowledgeVersion(TerminalChannels.TEMP_CELLS, data);
+                updateScrollbarForCurrentTab();
+                restoreInitialScrollIfNeeded();
+            }));
 
         // SUBNETS: routed to the subnet overview tab widget. Not gated by networkId since the
         // subnet list is global per main grid, not per current view.
-        PayloadDispatcher.register(TerminalChannels.SUBNETS, (mode, data) -> {
-            tabManager.getSubnetTab().applySubnetPayload(mode, data);
-            updateScrollbarForCurrentTab();
-        });
+        PayloadDispatcher.register(TerminalChannels.SUBNETS, PayloadHandler.prepared(
+            (mode, data) -> {
+                dataManager.decodeStacks(TerminalChannels.SUBNETS, data);
+                return null;
+            },
+            (mode, data, unused) -> {
+                if (!dataManager.acceptVersion(TerminalChannels.SUBNETS, mode, data)) return;
+                tabManager.getSubnetTab().applySubnetPayload(mode, data);
+                dataManager.acknowledgeVersion(TerminalChannels.SUBNETS, data);
+                updateScrollbarForCurrentTab();
+            }));
     }
 
     /**
@@ -339,6 +379,9 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         // the initial scrollbar range was limited during initGui().
         this.initialScrollRestored = false;
 
+        // The server forgets the requested cells with its container
+        this.cellDetailRequester.reset();
+
         // Notify server of the current tab so it can start sending appropriate data
         // This is especially important for storage bus tabs which require server polling
         CellTerminalNetwork.INSTANCE.sendToServer(new PacketTabChange(tabManager.getCurrentTab()));
@@ -646,8 +689,10 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         AbstractTabWidget activeTab = tabManager.getActiveTab();
         boolean isSubnetTab = isInSubnetOverviewMode();
         if (activeTab != null) {
-            activeTab.buildVisibleRows(tabManager.getActiveLines(dataManager), currentScroll);
+            List<Object> activeLines = tabManager.getActiveLines(dataManager);
+            activeTab.buildVisibleRows(activeLines, currentScroll);
             activeTab.draw(relMouseX, relMouseY);
+            requestCellDetails(activeLines, currentScroll);
         }
 
         // FIXME: is the guard necessary? They won't trigger unless we call them from headers
@@ -670,6 +715,21 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         drawControlsHelpForCurrentTab();
     }
 
+    /**
+     * Ask the server for the contents of the cells around the viewport, or of every cell while
+     * the search or the network tools need them (see {@link CellDetailRequester}).
+     */
+    protected void requestCellDetails(List<Object> activeLines, int currentScroll) {
+        int tab = tabManager.getCurrentTab();
+        boolean isCellTab = tab == GuiConstants.TAB_TERMINAL || tab == GuiConstants.TAB_INVENTORY
+            || tab == GuiConstants.TAB_PARTITION;
+        boolean needsAll = tab == GuiConstants.TAB_NETWORK_TOOLS || dataManager.needsAllCellDetails();
+
+        if (isCellTab || needsAll) {
+            cellDetailRequester.update(activeLines, currentScroll, this.rowsVisible, needsAll);
+        }
+    }
+
     // Constants for controls help widget positioning
     // JEI buttons are at guiLeft - 18, with ~4px margin from screen edge
     // We position the panel to leave similar margins on both sides
@@ -1164,6 +1224,7 @@ public abstract class GuiCellTerminalBase extends AEBaseGui implements IJEIGhost
         // Reset data manager so the next update does a full rebuild with proper filters
         // instead of using snapshots from the old network context
         this.dataManager.resetForNetworkSwitch();
+        this.cellDetailRequester.reset();
 
         // Update back button state - now we're in normal view, not overview
         if (this.subnetBackButton != null) this.subnetBackButton.setInOverviewMode(false);
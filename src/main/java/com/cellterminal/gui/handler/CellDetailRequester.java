@@ -0,0 +1,105 @@
+package com.cellterminal.gui.handler;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.cellterminal.client.CellContentRow;
+import com.cellterminal.client.CellInfo;
+import com.cellterminal.network.CellTerminalNetwork;
+import com.cellterminal.network.PacketCellDetailRequest;
+
+
+/**
+ * Tells the server which cells to send with their contents and partition when lazy cell
+ * contents are enabled (see {@code CellDetailFilter}): the cells of the lines in the scroll
+ * viewport plus one screen above and below, so short scrolls find their contents already there.
+ * While a search or the network tools read every cell, all cells are requested instead.
+ * <p>
+ * Called every frame while a cell tab is shown (or everything is needed); the request is rebuilt
+ * at most every {@link #UPDATE_INTERVAL_MS} and only sent when it changed. Other tabs keep the
+ * last request.
+ */
+public class CellDetailRequester {
+
+    private static final long UPDATE_INTERVAL_MS = 100;
+
+    private long lastUpdate = 0;
+    private boolean sentAll = false;
+    private long[] sentStorageIds = null;
+    private int[] sentSlots = null;
+
+    // Reused between updates
+    private long[] storageIds = new long[64];
+    private int[] slots = new int[64];
+
+    /**
+     * Forget what was sent, so the next update sends a request (GUI opened, network switched).
+     */
+    public void reset() {
+        this.lastUpdate = 0;
+        this.sentAll = false;
+        this.sentStorageIds = null;
+        this.sentSlots = null;
+    }
+
+    /**
+     * @param lines        Lines of the active cell tab (Terminal, Inventory or Partition)
+     * @param scrollOffset First line in the viewport
+     * @param rowsVisible  Lines in the viewport
+     * @param needsAll     True while every cell is needed with its details
+     */
+    public void update(List<?> lines, int scrollOffset, int rowsVisible, boolean needsAll) {
+        long now = System.currentTimeMillis();
+        if (now - this.lastUpdate < UPDATE_INTERVAL_MS) return;
+        this.lastUpdate = now;
+
+        if (needsAll) {
+            if (this.sentAll) return;
+
+            send(true, new long[0], new int[0]);
+            return;
+        }
+
+        int start = Math.max(0, scrollOffset - rowsVisible);
+        int end = Math.min(lines.size(), scrollOffset + 2 * rowsVisible);
+        int count = 0;
+        CellInfo previous = null;
+
+        for (int i = start; i < end; i++) {
+            CellInfo cell = getCell(lines.get(i));
+            // Cells with several content rows appear on consecutive lines
+            if (cell == null || cell == previous) continue;
+            previous = cell;
+
+            if (count == this.storageIds.length) {
+                this.storageIds = Arrays.copyOf(this.storageIds, count * 2);
+                this.slots = Arrays.copyOf(this.slots, count * 2);
+            }
+
+            this.storageIds[count] = cell.getParentStorageId();
+            this.slots[count] = cell.getSlot();
+            count++;
+        }
+
+        long[] ids = Arrays.copyOf(this.storageIds, count);
+        int[] cellSlots = Arrays.copyOf(this.slots, count);
+        if (!this.sentAll && Arrays.equals(ids, this.sentStorageIds) && Arrays.equals(cellSlots, this.sentSlots)) return;
+
+        send(false, ids, cellSlots);
+    }
+
+    private void send(boolean all, long[] ids, int[] cellSlots) {
+        this.sentAll = all;
+        this.sentStorageIds = ids;
+        this.sentSlots = cellSlots;
+
+        CellTerminalNetwork.INSTANCE.sendToServer(new PacketCellDetailRequest(all, ids, cellSlots));
+    }
+
+    private static CellInfo getCell(Object line) {
+        if (line instanceof CellInfo) return (CellInfo) line;
+        if (line instanceof CellContentRow) return ((CellContentRow) line).getCell();
+
+        return null;
+    }
+}
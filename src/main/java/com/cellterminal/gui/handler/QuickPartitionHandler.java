@@ -407,14 +407,7 @@ public class QuickPartitionHandler {
     }
 
     private static boolean hasEmptyPartition(CellInfo cell) {
-        List<ItemStack> partition = cell.getPartition();
-
-        if (partition.isEmpty()) return true;
-
-        for (ItemStack stack : partition) {
-            if (!stack.isEmpty()) return false;
-        }
-
-        return true;
+        // Also covers summarized cells, whose partition list is not sent
+        return !cell.hasPartition();
     }
 }
@@ -31,6 +31,8 @@ import com.cellterminal.client.TempCellInfo;
 import com.cellterminal.config.CellTerminalClientConfig;
 import com.cellterminal.network.chunked.DeltaApplier;
 import com.cellterminal.network.chunked.PayloadMode;
+import com.cellterminal.network.chunked.PayloadVersionTracker;
+import com.cellterminal.network.chunked.StackDictionaryDecoder;
 
 
 /**
@@ -67,6 +69,12 @@ public class TerminalDataManager {
     private BlockPos terminalPos = BlockPos.ORIGIN;
     private int terminalDimension = 0;
 
+    // Item stack identities learned from the server during this session, per channel
+    private final StackDictionaryDecoder stackDictionary = new StackDictionaryDecoder();
+
+    // Snapshot version applied per channel, acknowledged to the server
+    private final PayloadVersionTracker payloadVersions = new PayloadVersionTracker();
+
     // Current filter settings
     private String searchFilter = "";
     private SearchFilterMode searchMode = SearchFilterMode.MIXED;
@@ -91,6 +99,36 @@ public class TerminalDataManager {
     private boolean hasInitialBusData = false;
     private boolean hasInitialTempCellData = false;
 
+    // Set when the last filter evaluation searched cells that only had a summary (lazy cell
+    // contents): their details are on the way, so the next storage update re-evaluates filters
+    private boolean searchAwaitingCellDetails = false;
+
+    /**
+     * Resolve item stack dictionary references in a channel payload (see
+     * {@link StackDictionaryDecoder}). Must be called for every payload of a channel before
+     * any filtering, since dropped payloads may still carry dictionary definitions. Thread-safe:
+     * called on the payload decoder thread.
+     */
+    public void decodeStacks(String channel, NBTTagCompound data) {
+        if (!this.stackDictionary.decode(channel, data)) this.payloadVersions.requestFull(channel, data);
+    }
+
+    /**
+     * Check a channel payload against the snapshot version applied so far (see
+     * {@link PayloadVersionTracker}). Deltas against another version are dropped and the
+     * server is asked to resend.
+     */
+    public boolean acceptVersion(String channel, PayloadMode mode, NBTTagCompound data) {
+        return this.payloadVersions.accept(channel, mode, data);
+    }
+
+    /**
+     * Acknowledge a channel payload once it has been applied.
+     */
+    public void acknowledgeVersion(String channel, NBTTagCompound data) {
+        this.payloadVersions.applied(channel, data);
+    }
+
     public Map<Long, StorageInfo> getStorageMap() {
         return storageMap;
     }
@@ -143,7 +181,7 @@ public class TerminalDataManager {
      */
     public void applyStorages(PayloadMode mode, NBTTagCompound data) {
         Set<Long> previousIds = new HashSet<>(this.storageMap.keySet());
-        DeltaApplier.apply(mode, data, this.storageMap, StorageInfo::new, StorageInfo::getId);
+        DeltaApplier.apply(mode, data, this.storageMap, StorageInfo::new, StorageInfo::getId, StorageInfo::applyPatch);
         finishUpdate(Section.STORAGES, hasNewIds(this.storageMap.keySet(), previousIds));
     }
 
@@ -185,7 +223,7 @@ public class TerminalDataManager {
 
         switch (section) {
             case STORAGES:
-                needsFullRebuild |= !this.hasInitialStorageData;
+                needsFullRebuild |= !this.hasInitialStorageData || this.searchAwaitingCellDetails;
                 this.hasInitialStorageData = true;
                 break;
             case BUSES:
@@ -321,6 +359,14 @@ public class TerminalDataManager {
         return useAdvancedSearch;
     }
 
+    /**
+     * Check if the current search reads cell contents and partitions, in which case every
+     * cell has to be requested with its details (see {@link CellInfo#hasDetails()}).
+     */
+    public boolean needsAllCellDetails() {
+        return !searchFilter.isEmpty() || useAdvancedSearch;
+    }
+
     /**
      * Get the advanced search matcher (may be null if not using advanced search).
      */
@@ -351,6 +397,7 @@ public class TerminalDataManager {
      */
     public void rebuildLines() {
         // Clear snapshots - we're re-evaluating filters
+        this.searchAwaitingCellDetails = false;
         this.visibleCellSnapshot.clear();
         this.visibleCellSnapshotInventory.clear();
         this.visibleCellSnapshotPartition.clear();
@@ -418,6 +465,8 @@ public class TerminalDataManager {
                         // Evaluate filters and update snapshots
                         if (!cellMatchesCellFilters(cell)) continue;
 
+                        if (!cell.hasDetails() && needsAllCellDetails()) searchAwaitingCellDetails = true;
+
                         if (useAdvancedSearch && advancedMatcher != null) {
                             showInTerminal = advancedMatcher.matchesCellFilter(cell, storage, searchMode);
                             showInInventory = advancedMatcher.matchesCellFilter(cell, storage, SearchFilterMode.INVENTORY);
@@ -462,7 +511,7 @@ public class TerminalDataManager {
                         // Only add content rows if storage is expanded in this tab
                         if (TabStateManager.getInstance().isExpanded(TabStateManager.TabType.INVENTORY, storage.getId())) {
                             SlotLimit slotLimit = CellTerminalClientConfig.getInstance().getCellSlotLimit();
-                            int contentCount = slotLimit.getEffectiveCount(cell.getContents().size());
+                            int contentCount = slotLimit.getEffectiveCount(cell.getContentTypeCount());
                             int contentRows = Math.max(1, (contentCount + SLOTS_PER_ROW - 1) / SLOTS_PER_ROW);
                             for (int row = 0; row < contentRows; row++) {
                                 this.inventoryLines.add(new CellContentRow(cell, row * SLOTS_PER_ROW, row == 0));
@@ -852,7 +901,7 @@ public class TerminalDataManager {
         // Has items filter
         State hasItemsState = activeFilters.getOrDefault(CellFilter.HAS_ITEMS, State.SHOW_ALL);
         if (hasItemsState != State.SHOW_ALL) {
-            boolean hasContents = !cell.getContents().isEmpty();
+            boolean hasContents = cell.getContentTypeCount() > 0;
             if (hasItemsState == State.SHOW_ONLY && !hasContents) return false;
             if (hasItemsState == State.HIDE && hasContents) return false;
         }
@@ -860,7 +909,7 @@ public class TerminalDataManager {
         // Partitioned filter
         State partitionedState = activeFilters.getOrDefault(CellFilter.PARTITIONED, State.SHOW_ALL);
         if (partitionedState != State.SHOW_ALL) {
-            boolean isPartitioned = hasNonEmptyPartition(cell);
+            boolean isPartitioned = cell.hasPartition();
             if (partitionedState == State.SHOW_ONLY && !isPartitioned) return false;
             if (partitionedState == State.HIDE && isPartitioned) return false;
         }
@@ -868,17 +917,6 @@ public class TerminalDataManager {
         return true;
     }
 
-    /**
-     * Check if a cell has at least one non-empty partition slot.
-     */
-    private boolean hasNonEmptyPartition(CellInfo cell) {
-        for (ItemStack stack : cell.getPartition()) {
-            if (!stack.isEmpty()) return true;
-        }
-
-        return false;
-    }
-
     private int getHighestNonEmptyPartitionSlot(CellInfo cell) {
         return getHighestNonEmptyPartitionSlot(cell, SLOTS_PER_ROW);
     }
@@ -892,19 +930,11 @@ public class TerminalDataManager {
      * @return The highest slot index to show, or -1 if no partition items
      */
     private int getHighestNonEmptyPartitionSlot(CellInfo cell, int slotsPerRow) {
-        List<ItemStack> partition = cell.getPartition();
-
         // Cap at cell's actual type limit (e.g. 8 for some custom cells) to avoid
         // generating empty continuation rows beyond what the cell can hold.
         int maxTypes = (int) cell.getTotalTypes();
         int effectiveMax = Math.min(MAX_PARTITION_SLOTS, maxTypes);
-        int highest = -1;
-
-        for (int i = 0; i < Math.min(partition.size(), effectiveMax); i++) {
-            if (!partition.get(i).isEmpty()) {
-                highest = i;
-            }
-        }
+        int highest = cell.getHighestPartitionSlot(effectiveMax);
 
         if (highest >= 0) {
             int currentRows = (highest / slotsPerRow) + 1;
@@ -960,6 +990,10 @@ public class TerminalDataManager {
         this.storageBusMap.clear();
         this.tempCellSlotData.clear();
         this.tempAreaLines.clear();
+
+        // The server restarts its dictionaries and snapshots with the new network's FULL payloads
+        this.stackDictionary.clear();
+        this.payloadVersions.clear();
     }
 
     /**
@@ -22,6 +22,8 @@
  *       drops for adding items to cell partitions via drag-and-drop.</li>
  *   <li>{@link com.cellterminal.gui.handler.QuickPartitionHandler}: Batch partition setup
  *       from JEI recipe views.</li>
+ *   <li>{@link com.cellterminal.gui.handler.CellDetailRequester}: Requests the contents of the
+ *       cells around the viewport from the server (lazy cell contents).</li>
  * </ul>
  *
  * @see com.cellterminal.gui.GuiCellTerminalBase
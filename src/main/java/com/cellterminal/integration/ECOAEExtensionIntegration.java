@@ -148,7 +148,17 @@ public class ECOAEExtensionIntegration {
 
             // Register with callback for server-side tracking
             // Note: We use EStorageDriveWrapper to handle IChestOrDrive interface
-            if (callback != null) callback.register(id, drive, new EStorageDriveWrapper(drive));
+            EStorageDriveWrapper wrapper = new EStorageDriveWrapper(drive);
+            if (callback != null) callback.register(id, drive, wrapper);
+
+            AppEngCellInventory driveInv = drive.getDriveInv();
+
+            // Reuse the NBT built on a previous refresh if the cell and priority are unchanged
+            long stamp = CellDataHandler.mixStamp(CellDataHandler.computeCellStamp(wrapper, driveInv, slotLimit), channelPriority);
+            if (callback != null) {
+                NBTTagCompound cached = callback.getCachedData(id, stamp);
+                if (cached != null) return cached;
+            }
 
             NBTTagCompound storageData = new NBTTagCompound();
             storageData.setLong("id", id);
@@ -174,7 +184,6 @@ public class ECOAEExtensionIntegration {
 
             // Get cell data
             NBTTagList cellList = new NBTTagList();
-            AppEngCellInventory driveInv = drive.getDriveInv();
             ItemStack cellStack = driveInv.getStackInSlot(0);
 
             if (!cellStack.isEmpty()) {
@@ -185,6 +194,8 @@ public class ECOAEExtensionIntegration {
 
             storageData.setTag("cells", cellList);
 
+            if (callback != null) callback.storeData(id, stamp, storageData);
+
             return storageData;
         }
 
@@ -1,8 +1,11 @@
 package com.cellterminal.integration.storage;
 
+import java.util.List;
+
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 
+import appeng.api.implementations.tiles.IChestOrDrive;
 import appeng.api.networking.IGrid;
 import appeng.api.networking.IGridNode;
 import appeng.tile.storage.TileChest;
@@ -22,6 +25,9 @@ public class AE2StorageScanner extends AbstractStorageScanner {
 
     public static final AE2StorageScanner INSTANCE = new AE2StorageScanner();
 
+    private static final String DRIVE_NAME = "tile.appliedenergistics2.drive.name";
+    private static final String CHEST_NAME = "tile.appliedenergistics2.chest.name";
+
     private AE2StorageScanner() {}
 
     @Override
@@ -39,30 +45,43 @@ public class AE2StorageScanner extends AbstractStorageScanner {
                               int slotLimit) {
         // Scan ME Drives
         for (IGridNode gn : grid.getMachines(TileDrive.class)) {
-            if (!gn.isActive()) continue;
-
-            NBTTagCompound storageData = CellDataHandler.createStorageData(
-                (TileDrive) gn.getMachine(),
-                "tile.appliedenergistics2.drive.name",
-                callback,
-                slotLimit
-            );
-            applyCapabilities(storageData);
-            storageList.appendTag(storageData);
+            scanStorage(gn, DRIVE_NAME, storageList, callback, slotLimit);
         }
 
         // Scan ME Chests
         for (IGridNode gn : grid.getMachines(TileChest.class)) {
-            if (!gn.isActive()) continue;
-
-            NBTTagCompound storageData = CellDataHandler.createStorageData(
-                (TileChest) gn.getMachine(),
-                "tile.appliedenergistics2.chest.name",
-                callback,
-                slotLimit
-            );
-            applyCapabilities(storageData);
-            storageList.appendTag(storageData);
+            scanStorage(gn, CHEST_NAME, storageList, callback, slotLimit);
+        }
+    }
+
+    @Override
+    public void collectScanUnits(IGrid grid, NBTTagList storageList, CellDataHandler.StorageTrackerCallback callback,
+                                 int slotLimit, List<Runnable> units) {
+        // One unit per device, drives before chests like scanStorages
+        for (IGridNode gn : grid.getMachines(TileDrive.class)) {
+            units.add(() -> {
+                if (gn.getGrid() == grid) scanStorage(gn, DRIVE_NAME, storageList, callback, slotLimit);
+            });
         }
+
+        for (IGridNode gn : grid.getMachines(TileChest.class)) {
+            units.add(() -> {
+                if (gn.getGrid() == grid) scanStorage(gn, CHEST_NAME, storageList, callback, slotLimit);
+            });
+        }
+    }
+
+    private void scanStorage(IGridNode gn, String defaultName, NBTTagList storageList,
+                             CellDataHandler.StorageTrackerCallback callback, int slotLimit) {
+        if (!gn.isActive()) return;
+
+        NBTTagCompound storageData = CellDataHandler.createStorageData(
+            (IChestOrDrive) gn.getMachine(),
+            defaultName,
+            callback,
+            slotLimit
+        );
+        applyCapabilities(storageData);
+        storageList.appendTag(storageData);
     }
 }
@@ -43,6 +43,10 @@ public abstract class AbstractStorageScanner implements IStorageScanner {
      * @param nbt The storage NBT data to modify
      */
     protected void applyCapabilities(NBTTagCompound nbt) {
+        // Reused (cached) storage NBT already carries the flag and may still be read by the
+        // payload encoder thread, so leave it untouched.
+        if (nbt.hasKey("supportsPriority")) return;
+
         nbt.setBoolean("supportsPriority", supportsPriority());
     }
 }
@@ -1,5 +1,7 @@
 package com.cellterminal.integration.storage;
 
+import java.util.List;
+
 import net.minecraft.nbt.NBTTagList;
 
 import appeng.api.networking.IGrid;
@@ -41,4 +43,19 @@ public interface IStorageScanner {
      * @param slotLimit maximum number of item types to include per cell
      */
     void scanStorages(IGrid grid, NBTTagList storageList, CellDataHandler.StorageTrackerCallback callback, int slotLimit);
+
+    /**
+     * Split the scan into units that may run over several ticks (time-sliced scanning).
+     * Each unit appends to the storage list in order; units collected later run after earlier
+     * ones. Units must re-check that their device is still part of the grid, since the grid
+     * can change between ticks.
+     * <p>
+     * Default: the whole {@link #scanStorages} call as a single unit.
+     *
+     * @param units the list to add the scan units to
+     */
+    default void collectScanUnits(IGrid grid, NBTTagList storageList, CellDataHandler.StorageTrackerCallback callback,
+                                  int slotLimit, List<Runnable> units) {
+        units.add(() -> scanStorages(grid, storageList, callback, slotLimit));
+    }
 }
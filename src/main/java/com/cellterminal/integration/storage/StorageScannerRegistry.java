@@ -9,6 +9,7 @@ import appeng.api.networking.IGrid;
 
 import com.cellterminal.CellTerminal;
 import com.cellterminal.container.handler.CellDataHandler;
+import com.cellterminal.metrics.TerminalMetrics;
 
 
 /**
@@ -55,12 +56,57 @@ public final class StorageScannerRegistry {
         for (IStorageScanner scanner : scanners) {
             if (!scanner.isAvailable()) continue;
 
+            long start = System.nanoTime();
             try {
                 scanner.scanStorages(grid, storageList, callback, slotLimit);
             } catch (Exception e) {
                 CellTerminal.LOGGER.error("Error scanning storage with {}: {}", scanner.getId(), e.getMessage());
             }
+
+            TerminalMetrics.recordScanner("storage", scanner.getId(), System.nanoTime() - start);
         }
     }
 
+    /**
+     * Collect the scan units of all registered scanners, in registration order, for a scan
+     * that is run over several ticks (see {@link IStorageScanner#collectScanUnits}).
+     * A failing unit is logged and skipped like a failing scanner in {@link #scanAllStorages}.
+     *
+     * @param grid the ME network grid to scan
+     * @param storageList the list the units append storage data to
+     * @param callback callback to register storage trackers
+     * @param slotLimit maximum number of item types to include per cell
+     * @return the scan units
+     */
+    public static List<Runnable> collectScanUnits(IGrid grid, NBTTagList storageList,
+                                                  CellDataHandler.StorageTrackerCallback callback, int slotLimit) {
+        List<Runnable> units = new ArrayList<>();
+
+        for (IStorageScanner scanner : scanners) {
+            if (!scanner.isAvailable()) continue;
+
+            List<Runnable> scannerUnits = new ArrayList<>();
+            try {
+                scanner.collectScanUnits(grid, storageList, callback, slotLimit, scannerUnits);
+            } catch (Exception e) {
+                CellTerminal.LOGGER.error("Error scanning storage with {}: {}", scanner.getId(), e.getMessage());
+                continue;
+            }
+
+            for (Runnable unit : scannerUnits) {
+                units.add(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        unit.run();
+                    } catch (Exception e) {
+                        CellTerminal.LOGGER.error("Error scanning storage with {}: {}", scanner.getId(), e.getMessage());
+                    }
+
+                    TerminalMetrics.recordScanner("storage", scanner.getId(), System.nanoTime() - start);
+                });
+            }
+        }
+
+        return units;
+    }
 }
@@ -1,5 +1,6 @@
 package com.cellterminal.integration.storagebus;
 
+import java.util.List;
 import java.util.Map;
 
 import net.minecraft.nbt.NBTTagCompound;
@@ -39,33 +40,56 @@ public class AE2StorageBusScanner extends AbstractStorageBusScanner {
         if (grid == null) return;
 
         // Item storage buses
+        for (IGridNode gn : grid.getMachines(PartStorageBus.class)) scanItemBus(gn, out, trackerMap);
+
+        // Fluid storage buses
+        for (IGridNode gn : grid.getMachines(PartFluidStorageBus.class)) scanFluidBus(gn, out, trackerMap);
+    }
+
+    @Override
+    public void collectScanUnits(IGrid grid, NBTTagList out, Map<Long, StorageBusTracker> trackerMap,
+                                 List<Runnable> units) {
+        if (grid == null) return;
+
+        // One unit per bus, item buses before fluid buses like scanStorageBuses
         for (IGridNode gn : grid.getMachines(PartStorageBus.class)) {
-            if (!gn.isActive()) continue;
-            PartStorageBus bus = (PartStorageBus) gn.getMachine();
-            TileEntity hostTile = bus.getHost().getTile();
-            if (hostTile == null) continue;
-
-            long busId = StorageBusDataHandler.createBusId(hostTile, bus.getSide().ordinal(), StorageType.ITEM.ordinal());
-            NBTTagCompound nbt = StorageBusDataHandler.createItemStorageBusData(bus, busId);
-            applyCapabilities(nbt);
-            applySlotParameters(nbt);
-            out.appendTag(nbt);
-            trackerMap.put(busId, new StorageBusTracker(busId, bus, hostTile, bus.getSide().ordinal(), StorageType.ITEM));
+            units.add(() -> {
+                if (gn.getGrid() == grid) scanItemBus(gn, out, trackerMap);
+            });
         }
 
-        // Fluid storage buses
         for (IGridNode gn : grid.getMachines(PartFluidStorageBus.class)) {
-            if (!gn.isActive()) continue;
-            PartFluidStorageBus bus = (PartFluidStorageBus) gn.getMachine();
-            TileEntity hostTile = bus.getHost().getTile();
-            if (hostTile == null) continue;
-
-            long busId = StorageBusDataHandler.createBusId(hostTile, bus.getSide().ordinal(), StorageType.FLUID.ordinal());
-            NBTTagCompound nbt = StorageBusDataHandler.createFluidStorageBusData(bus, busId);
-            applyCapabilities(nbt);
-            applySlotParameters(nbt);
-            out.appendTag(nbt);
-            trackerMap.put(busId, new StorageBusTracker(busId, bus, hostTile, bus.getSide().ordinal(), StorageType.FLUID));
+            units.add(() -> {
+                if (gn.getGrid() == grid) scanFluidBus(gn, out, trackerMap);
+            });
         }
     }
+
+    private void scanItemBus(IGridNode gn, NBTTagList out, Map<Long, StorageBusTracker> trackerMap) {
+        if (!gn.isActive()) return;
+        PartStorageBus bus = (PartStorageBus) gn.getMachine();
+        TileEntity hostTile = bus.getHost().getTile();
+        if (hostTile == null) return;
+
+        long busId = StorageBusDataHandler.createBusId(hostTile, bus.getSide().ordinal(), StorageType.ITEM.ordinal());
+        NBTTagCompound nbt = StorageBusDataHandler.createItemStorageBusData(bus, busId);
+        applyCapabilities(nbt);
+        applySlotParameters(nbt);
+        out.appendTag(nbt);
+        trackerMap.put(busId, new StorageBusTracker(busId, bus, hostTile, bus.getSide().ordinal(), StorageType.ITEM));
+    }
+
+    private void scanFluidBus(IGridNode gn, NBTTagList out, Map<Long, StorageBusTracker> trackerMap) {
+        if (!gn.isActive()) return;
+        PartFluidStorageBus bus = (PartFluidStorageBus) gn.getMachine();
+        TileEntity hostTile = bus.getHost().getTile();
+        if (hostTile == null) return;
+
+        long busId = StorageBusDataHandler.createBusId(hostTile, bus.getSide().ordinal(), StorageType.FLUID.ordinal());
+        NBTTagCompound nbt = StorageBusDataHandler.createFluidStorageBusData(bus, busId);
+        applyCapabilities(nbt);
+        applySlotParameters(nbt);
+        out.appendTag(nbt);
+        trackerMap.put(busId, new StorageBusTracker(busId, bus, hostTile, bus.getSide().ordinal(), StorageType.FLUID));
+    }
 }
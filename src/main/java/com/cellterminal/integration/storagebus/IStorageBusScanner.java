@@ -1,5 +1,6 @@
 package com.cellterminal.integration.storagebus;
 
+import java.util.List;
 import java.util.Map;
 
 import net.minecraft.nbt.NBTTagList;
@@ -30,6 +31,16 @@ public interface IStorageBusScanner {
      */
     void scanStorageBuses(IGrid grid, NBTTagList out, Map<Long, StorageBusTracker> trackerMap);
 
+    /**
+     * Split the scan into units that may run over several ticks (time-sliced scanning).
+     * Units append to the list in order and must re-check that their bus is still part of
+     * the grid. Default: the whole {@link #scanStorageBuses} call as a single unit.
+     */
+    default void collectScanUnits(IGrid grid, NBTTagList out, Map<Long, StorageBusTracker> trackerMap,
+                                  List<Runnable> units) {
+        units.add(() -> scanStorageBuses(grid, out, trackerMap));
+    }
+
     /**
      * Whether buses scanned by this implementation support priority editing.
      */
@@ -10,6 +10,7 @@ import appeng.api.networking.IGrid;
 
 import com.cellterminal.CellTerminal;
 import com.cellterminal.container.handler.StorageBusDataHandler.StorageBusTracker;
+import com.cellterminal.metrics.TerminalMetrics;
 
 /**
  * Registry for storage bus scanners.
@@ -32,12 +33,48 @@ public final class StorageBusScannerRegistry {
     public static void scanAll(IGrid grid, NBTTagList out, Map<Long, StorageBusTracker> trackerMap) {
         for (IStorageBusScanner scanner : scanners) {
             if (!scanner.isAvailable()) continue;
+            long start = System.nanoTime();
             try {
                 scanner.scanStorageBuses(grid, out, trackerMap);
             } catch (Exception e) {
                 CellTerminal.LOGGER.error("Error scanning storage buses with {}: {}", scanner.getId(), e.getMessage());
             }
+            TerminalMetrics.recordScanner("bus", scanner.getId(), System.nanoTime() - start);
         }
     }
 
+    /**
+     * Collect the scan units of all registered scanners, in registration order, for a scan
+     * that is run over several ticks (see {@link IStorageBusScanner#collectScanUnits}).
+     */
+    public static List<Runnable> collectScanUnits(IGrid grid, NBTTagList out, Map<Long, StorageBusTracker> trackerMap) {
+        List<Runnable> units = new ArrayList<>();
+
+        for (IStorageBusScanner scanner : scanners) {
+            if (!scanner.isAvailable()) continue;
+
+            List<Runnable> scannerUnits = new ArrayList<>();
+            try {
+                scanner.collectScanUnits(grid, out, trackerMap, scannerUnits);
+            } catch (Exception e) {
+                CellTerminal.LOGGER.error("Error scanning storage buses with {}: {}", scanner.getId(), e.getMessage());
+                continue;
+            }
+
+            for (Runnable unit : scannerUnits) {
+                units.add(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        unit.run();
+                    } catch (Exception e) {
+                        CellTerminal.LOGGER.error("Error scanning storage buses with {}: {}", scanner.getId(), e.getMessage());
+                    }
+
+                    TerminalMetrics.recordScanner("bus", scanner.getId(), System.nanoTime() - start);
+                });
+            }
+        }
+
+        return units;
+    }
 }
@@ -10,6 +10,7 @@ import appeng.api.networking.IGrid;
 
 import com.cellterminal.CellTerminal;
 import com.cellterminal.container.handler.SubnetDataHandler.SubnetTracker;
+import com.cellterminal.metrics.TerminalMetrics;
 
 
 /**
@@ -50,11 +51,14 @@ public final class SubnetScannerRegistry {
         for (ISubnetScanner scanner : scanners) {
             if (!scanner.isAvailable()) continue;
 
+            long start = System.nanoTime();
             try {
                 scanner.scanSubnets(grid, out, trackerMap, playerId, slotLimit);
             } catch (Exception e) {
                 CellTerminal.LOGGER.error("Error scanning subnets with {}: {}", scanner.getId(), e.getMessage());
             }
+
+            TerminalMetrics.recordScanner("subnet", scanner.getId(), System.nanoTime() - start);
         }
     }
 
@@ -0,0 +1,23 @@
+package com.cellterminal.metrics;
+
+
+/**
+ * JMX view of one payload channel ({@code com.cellterminal:type=Channel,name=<channel>}).
+ * Payload sizes are the encoded (compressed) sizes in bytes.
+ */
+public interface ChannelMXBean {
+
+    long getFullPayloads();
+
+    long getDeltaPayloads();
+
+    long getChunks();
+
+    long getBytes();
+
+    long getPayloadMeanBytes();
+
+    long getPayloadP99Bytes();
+
+    long getPayloadMaxBytes();
+}
@@ -0,0 +1,84 @@
+package com.cellterminal.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Lock-free histogram of non-negative values (durations in nanoseconds, sizes in bytes) with
+ * power-of-two buckets. Records count, sum and maximum exactly; percentiles are estimated as
+ * the upper bound of the bucket they fall in (within a factor of two), which is enough to tell
+ * a 0.1 ms scan from a 40 ms one.
+ * <p>
+ * Safe to record from any thread (payload encoding runs on the worker pool).
+ */
+public final class Histogram {
+
+    // Bucket i holds values in [2^(i-1), 2^i - 1]; bucket 0 holds 0
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+        this.buckets.incrementAndGet(bucket);
+        this.count.incrementAndGet();
+        this.sum.addAndGet(value);
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return this.count.get();
+    }
+
+    public long getSum() {
+        return this.sum.get();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public long getMean() {
+        long n = this.count.get();
+
+        return n == 0 ? 0 : this.sum.get() / n;
+    }
+
+    /**
+     * Estimate a percentile.
+     *
+     * @param percentile the percentile, between 0 and 1 (e.g. 0.99)
+     * @return the upper bound of the bucket holding the percentile, capped at the maximum
+     */
+    public long getPercentile(double percentile) {
+        long n = this.count.get();
+        if (n == 0) return 0;
+
+        long rank = (long) Math.ceil(percentile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.buckets.get(i);
+            if (seen < rank) continue;
+
+            long upper = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+
+            return Math.min(upper, this.max.get());
+        }
+
+        return this.max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) this.buckets.set(i, 0);
+
+        this.count.set(0);
+        this.sum.set(0);
+        this.max.set(0);
+    }
+}
@@ -0,0 +1,201 @@
+package com.cellterminal.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import com.cellterminal.network.chunked.ChunkedNBTSender;
+
+
+/**
+ * Formats {@link TerminalMetrics} as a short chat summary (worst players and grids first) or
+ * as a full JSON dump.
+ */
+public final class MetricsReport {
+
+    // Players and grids listed in the chat summary
+    private static final int TOP_ENTRIES = 5;
+
+    private MetricsReport() {}
+
+    /**
+     * Build the chat summary, one line per entry.
+     */
+    public static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        long seconds = Math.max(1, (System.currentTimeMillis() - TerminalMetrics.getStartedAt()) / 1000);
+        lines.add(String.format("Cell Terminal stats (last %ds)", seconds));
+
+        for (TerminalMetrics.Timer timer : TerminalMetrics.Timer.values()) {
+            Histogram h = TerminalMetrics.getTimer(timer);
+            if (h.getCount() == 0) continue;
+
+            lines.add(String.format("  %s: %d x, mean %s, p99 %s, max %s, total %s", timer.getKey(), h.getCount(),
+                millis(h.getMean()), millis(h.getPercentile(0.99)), millis(h.getMax()), millis(h.getSum())));
+        }
+
+        for (Map.Entry<String, TerminalMetrics.ChannelStats> entry : TerminalMetrics.getChannels().entrySet()) {
+            TerminalMetrics.ChannelStats c = entry.getValue();
+            lines.add(String.format("  channel %s: %d full / %d delta, %d chunks, %s sent, payload p99 %s",
+                entry.getKey(), c.fullPayloads.get(), c.deltaPayloads.get(), c.chunks.get(), bytes(c.bytes.get()),
+                bytes(c.payloadBytes.getPercentile(0.99))));
+        }
+
+        StringBuilder throttles = new StringBuilder("  throttled:");
+        for (ChunkedNBTSender.Throttle throttle : ChunkedNBTSender.Throttle.values()) {
+            throttles.append(' ').append(throttle.name().toLowerCase()).append('=')
+                .append(ChunkedNBTSender.getThrottleCount(throttle));
+        }
+        lines.add(throttles.toString());
+
+        List<TerminalMetrics.PlayerStats> players = new ArrayList<>(TerminalMetrics.getPlayers().values());
+        players.sort(Comparator.comparingLong((TerminalMetrics.PlayerStats p) -> p.refreshNanos.getSum()).reversed());
+        if (!players.isEmpty()) lines.add("Top players (refresh time):");
+        for (int i = 0; i < Math.min(TOP_ENTRIES, players.size()); i++) {
+            TerminalMetrics.PlayerStats p = players.get(i);
+            lines.add(String.format("  %s: %s in %d refreshes (max %s), %s sent, %d throttled",
+                p.name, millis(p.refreshNanos.getSum()), p.refreshNanos.getCount(), millis(p.refreshNanos.getMax()),
+                bytes(p.bytes.get()), p.throttled.get()));
+        }
+
+        List<TerminalMetrics.GridStats> grids = TerminalMetrics.getGrids();
+        grids.sort(Comparator.comparingLong(MetricsReport::gridScanTime).reversed());
+        if (!grids.isEmpty()) lines.add("Top grids (scan time):");
+        for (int i = 0; i < Math.min(TOP_ENTRIES, grids.size()); i++) {
+            TerminalMetrics.GridStats g = grids.get(i);
+            lines.add(String.format("  %s: %d storages (max %s), %d buses (max %s), total %s",
+                g.label, g.storages, millis(g.storageScans.getMax()), g.buses, millis(g.busScans.getMax()),
+                millis(gridScanTime(g))));
+        }
+
+        return lines;
+    }
+
+    /**
+     * Build the full JSON report.
+     */
+    public static JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("startedAt", TerminalMetrics.getStartedAt());
+        root.addProperty("writtenAt", System.currentTimeMillis());
+
+        JsonObject timers = new JsonObject();
+        for (TerminalMetrics.Timer timer : TerminalMetrics.Timer.values()) {
+            timers.add(timer.getKey(), histogram(TerminalMetrics.getTimer(timer)));
+        }
+        root.add("timersNanos", timers);
+
+        JsonObject scanners = new JsonObject();
+        for (Map.Entry<String, Histogram> entry : TerminalMetrics.getScanners().entrySet()) {
+            scanners.add(entry.getKey(), histogram(entry.getValue()));
+        }
+        root.add("scannersNanos", scanners);
+
+        JsonObject channels = new JsonObject();
+        for (Map.Entry<String, TerminalMetrics.ChannelStats> entry : TerminalMetrics.getChannels().entrySet()) {
+            TerminalMetrics.ChannelStats c = entry.getValue();
+            JsonObject json = new JsonObject();
+            json.addProperty("fullPayloads", c.fullPayloads.get());
+            json.addProperty("deltaPayloads", c.deltaPayloads.get());
+            json.addProperty("chunks", c.chunks.get());
+            json.addProperty("bytes", c.bytes.get());
+            json.add("payloadBytes", histogram(c.payloadBytes));
+            channels.add(entry.getKey(), json);
+        }
+        root.add("channels", channels);
+
+        JsonObject throttles = new JsonObject();
+        for (ChunkedNBTSender.Throttle throttle : ChunkedNBTSender.Throttle.values()) {
+            throttles.addProperty(throttle.name().toLowerCase(), ChunkedNBTSender.getThrottleCount(throttle));
+        }
+        root.add("throttles", throttles);
+
+        JsonArray players = new JsonArray();
+        for (Map.Entry<UUID, TerminalMetrics.PlayerStats> entry : TerminalMetrics.getPlayers().entrySet()) {
+            TerminalMetrics.PlayerStats p = entry.getValue();
+            JsonObject json = new JsonObject();
+            json.addProperty("uuid", entry.getKey().toString());
+            json.addProperty("name", p.name);
+            json.addProperty("fullPayloads", p.fullPayloads.get());
+            json.addProperty("deltaPayloads", p.deltaPayloads.get());
+            json.addProperty("chunks", p.chunks.get());
+            json.addProperty("bytes", p.bytes.get());
+            json.addProperty("throttled", p.throttled.get());
+            json.add("refreshNanos", histogram(p.refreshNanos));
+            players.add(json);
+        }
+        root.add("players", players);
+
+        JsonArray grids = new JsonArray();
+        for (TerminalMetrics.GridStats g : TerminalMetrics.getGrids()) {
+            JsonObject json = new JsonObject();
+            json.addProperty("grid", g.label);
+            json.addProperty("storages", g.storages);
+            json.addProperty("buses", g.buses);
+            json.add("storageScanNanos", histogram(g.storageScans));
+            json.add("busScanNanos", histogram(g.busScans));
+            grids.add(json);
+        }
+        root.add("grids", grids);
+
+        return root;
+    }
+
+    /**
+     * Write the JSON report to a timestamped file in the given directory.
+     *
+     * @return the written file
+     */
+    public static File writeJson(File directory) throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(directory, "cellterminal-stats-" + stamp + ".json");
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(toJson(), writer);
+        }
+
+        return file;
+    }
+
+    private static JsonObject histogram(Histogram h) {
+        JsonObject json = new JsonObject();
+        json.addProperty("count", h.getCount());
+        json.addProperty("sum", h.getSum());
+        json.addProperty("mean", h.getMean());
+        json.addProperty("p50", h.getPercentile(0.5));
+        json.addProperty("p99", h.getPercentile(0.99));
+        json.addProperty("max", h.getMax());
+
+        return json;
+    }
+
+    private static long gridScanTime(TerminalMetrics.GridStats g) {
+        return g.storageScans.getSum() + g.busScans.getSum();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f ms", nanos / 1_000_000.0);
+    }
+
+    private static String bytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KiB", bytes / 1024.0);
+
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,269 @@
+package com.cellterminal.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraftforge.fml.common.FMLCommonHandler;
+
+import com.cellterminal.CellTerminal;
+import com.cellterminal.network.chunked.ChunkedNBTSender;
+import com.cellterminal.network.chunked.TerminalChannels;
+
+
+/**
+ * Registers the terminal's MXBeans with the platform MBean server, so local JMX tools
+ * (JConsole, VisualVM) can chart terminal overhead over time:
+ * <ul>
+ *   <li>{@code com.cellterminal:type=Terminal}: open containers, delta snapshot size, encoder
+ *       queue depth, traffic totals (see {@link TerminalMXBean}).</li>
+ *   <li>{@code com.cellterminal:type=Timer,name=<key>}: one per {@link TerminalMetrics.Timer}.</li>
+ *   <li>{@code com.cellterminal:type=Channel,name=<channel>}: one per payload channel.</li>
+ * </ul>
+ * The beans only read the counters kept by {@link TerminalMetrics}, which the container and
+ * the chunked sender update anyway; registering them adds no work to the tick.
+ */
+public final class TerminalMBeans {
+
+    private static final String DOMAIN = "com.cellterminal";
+
+    private static final List<ObjectName> registered = new ArrayList<>();
+
+    private TerminalMBeans() {}
+
+    /**
+     * Register all beans. Failures (e.g. no platform MBean server) are logged and ignored.
+     */
+    public static synchronized void register() {
+        if (!registered.isEmpty()) return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            register(server, new ObjectName(DOMAIN + ":type=Terminal"), new TerminalBean());
+
+            for (TerminalMetrics.Timer timer : TerminalMetrics.Timer.values()) {
+                register(server, new ObjectName(DOMAIN + ":type=Timer,name=" + ObjectName.quote(timer.getKey())),
+                    new TimerBean(timer));
+            }
+
+            String[] channels = {
+                TerminalChannels.META, TerminalChannels.STORAGES, TerminalChannels.BUSES,
+                TerminalChannels.TEMP_CELLS, TerminalChannels.SUBNETS
+            };
+            for (String channel : channels) {
+                register(server, new ObjectName(DOMAIN + ":type=Channel,name=" + ObjectName.quote(channel)),
+                    new ChannelBean(channel));
+            }
+        } catch (JMException | RuntimeException e) {
+            CellTerminal.LOGGER.warn("Could not register Cell Terminal MBeans: {}", e.getMessage());
+        }
+    }
+
+    private static void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        // Left over from an earlier load of the mod in the same JVM
+        if (server.isRegistered(name)) server.unregisterMBean(name);
+
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    static final class TerminalBean implements TerminalMXBean {
+
+        @Override
+        public int getOpenContainers() {
+            return TerminalMetrics.getOpenContainers();
+        }
+
+        @Override
+        public long getDeltaSnapshotEntries() {
+            return TerminalMetrics.getSnapshotEntries();
+        }
+
+        @Override
+        public int getEncoderQueueDepth() {
+            return ChunkedNBTSender.getEncoderQueueDepth();
+        }
+
+        @Override
+        public int getActiveEncoders() {
+            return ChunkedNBTSender.getActiveEncoders();
+        }
+
+        @Override
+        public int getQueuedPayloads() {
+            return ChunkedNBTSender.getQueuedPayloads();
+        }
+
+        @Override
+        public long getBytesSent() {
+            long total = 0;
+            for (TerminalMetrics.ChannelStats stats : TerminalMetrics.getChannels().values()) total += stats.bytes.get();
+
+            return total;
+        }
+
+        @Override
+        public long getChunksSent() {
+            long total = 0;
+            for (TerminalMetrics.ChannelStats stats : TerminalMetrics.getChannels().values()) total += stats.chunks.get();
+
+            return total;
+        }
+
+        @Override
+        public long getFullPayloads() {
+            long total = 0;
+            for (TerminalMetrics.ChannelStats stats : TerminalMetrics.getChannels().values()) {
+                total += stats.fullPayloads.get();
+            }
+
+            return total;
+        }
+
+        @Override
+        public long getDeltaPayloads() {
+            long total = 0;
+            for (TerminalMetrics.ChannelStats stats : TerminalMetrics.getChannels().values()) {
+                total += stats.deltaPayloads.get();
+            }
+
+            return total;
+        }
+
+        @Override
+        public long getThrottledSends() {
+            long total = 0;
+            for (ChunkedNBTSender.Throttle throttle : ChunkedNBTSender.Throttle.values()) {
+                total += ChunkedNBTSender.getThrottleCount(throttle);
+            }
+
+            return total;
+        }
+
+        @Override
+        public long getStartedAt() {
+            return TerminalMetrics.getStartedAt();
+        }
+
+        @Override
+        public void reset() {
+            // Grid counters are main thread only
+            MinecraftServer server = FMLCommonHandler.instance().getMinecraftServerInstance();
+            if (server != null) {
+                server.addScheduledTask(TerminalMetrics::reset);
+            } else {
+                TerminalMetrics.reset();
+            }
+        }
+    }
+
+    static final class TimerBean implements TimerMXBean {
+        private final TerminalMetrics.Timer timer;
+
+        TimerBean(TerminalMetrics.Timer timer) {
+            this.timer = timer;
+        }
+
+        @Override
+        public long getCount() {
+            return TerminalMetrics.getTimer(this.timer).getCount();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return millis(TerminalMetrics.getTimer(this.timer).getMean());
+        }
+
+        @Override
+        public double getP50Millis() {
+            return millis(TerminalMetrics.getTimer(this.timer).getPercentile(0.5));
+        }
+
+        @Override
+        public double getP99Millis() {
+            return millis(TerminalMetrics.getTimer(this.timer).getPercentile(0.99));
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return millis(TerminalMetrics.getTimer(this.timer).getMax());
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return millis(TerminalMetrics.getTimer(this.timer).getSum());
+        }
+    }
+
+    static final class ChannelBean implements ChannelMXBean {
+        private final String channel;
+
+        ChannelBean(String channel) {
+            this.channel = channel;
+        }
+
+        // Counters are created on the first payload and dropped on reset
+        private TerminalMetrics.ChannelStats stats() {
+            return TerminalMetrics.getChannels().get(this.channel);
+        }
+
+        @Override
+        public long getFullPayloads() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.fullPayloads.get() : 0;
+        }
+
+        @Override
+        public long getDeltaPayloads() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.deltaPayloads.get() : 0;
+        }
+
+        @Override
+        public long getChunks() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.chunks.get() : 0;
+        }
+
+        @Override
+        public long getBytes() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.bytes.get() : 0;
+        }
+
+        @Override
+        public long getPayloadMeanBytes() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.payloadBytes.getMean() : 0;
+        }
+
+        @Override
+        public long getPayloadP99Bytes() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.payloadBytes.getPercentile(0.99) : 0;
+        }
+
+        @Override
+        public long getPayloadMaxBytes() {
+            TerminalMetrics.ChannelStats stats = stats();
+
+            return stats != null ? stats.payloadBytes.getMax() : 0;
+        }
+    }
+}
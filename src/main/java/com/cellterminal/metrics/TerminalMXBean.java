@@ -0,0 +1,43 @@
+package com.cellterminal.metrics;
+
+
+/**
+ * JMX view of the terminal's server-wide state ({@code com.cellterminal:type=Terminal}).
+ * All values are read live from {@link TerminalMetrics} and the chunked sender.
+ */
+public interface TerminalMXBean {
+
+    /** Server-side terminal containers currently open. */
+    int getOpenContainers();
+
+    /** Entries retained by the delta snapshots of all open terminals. */
+    long getDeltaSnapshotEntries();
+
+    /** Payloads waiting for an encoder thread. */
+    int getEncoderQueueDepth();
+
+    /** Encoder threads currently encoding a payload. */
+    int getActiveEncoders();
+
+    /** Payloads queued for players (encoding or waiting for send budget). */
+    int getQueuedPayloads();
+
+    /** Bytes sent to players over all channels. */
+    long getBytesSent();
+
+    /** Chunks sent to players over all channels. */
+    long getChunksSent();
+
+    long getFullPayloads();
+
+    long getDeltaPayloads();
+
+    /** Sends held back by any send limit, plus refreshes postponed behind a queued payload. */
+    long getThrottledSends();
+
+    /** Time the counters started, in epoch milliseconds. */
+    long getStartedAt();
+
+    /** Drop all counters (same as {@code /cellterminal stats reset}). */
+    void reset();
+}
@@ -0,0 +1,298 @@
+package com.cellterminal.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+
+import appeng.api.networking.IGrid;
+import appeng.api.networking.IGridNode;
+import appeng.api.util.DimensionalCoord;
+
+import com.cellterminal.network.chunked.PayloadMode;
+
+
+/**
+ * Server-wide performance counters of the terminal: scan and delta timings, payload sizes,
+ * bytes and chunks sent per channel, FULL vs DELTA payloads and throttled sends, broken down
+ * per player and per grid. Reported by {@code /cellterminal stats} (see {@link MetricsReport}).
+ * <p>
+ * Counters only grow until {@link #reset()}; the open container and snapshot size gauges are
+ * kept across resets. Channel, scanner and player counters may be updated from the encoder
+ * threads; grid counters are main thread only. Everything except the grid counters may be read
+ * from any thread (see {@link TerminalMBeans}).
+ */
+public final class TerminalMetrics {
+
+    /**
+     * Timed operations, each with its own histogram (nanoseconds).
+     */
+    public enum Timer {
+        /** A complete storage scan of a grid (all slices of a time-sliced scan). */
+        STORAGE_SCAN("scan.storages"),
+        /** A complete storage bus scan of a grid. */
+        BUS_SCAN("scan.buses"),
+        /** A subnet scan for one terminal. */
+        SUBNET_SCAN("scan.subnets"),
+        /** Building the FULL or DELTA payload of a channel from its snapshot. */
+        DELTA_BUILD("delta.build"),
+        /** Serializing and compressing a payload into chunks (worker thread). */
+        ENCODE("encode");
+
+        private final String key;
+
+        Timer(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+    }
+
+    private static final Histogram[] timers = new Histogram[Timer.values().length];
+    private static final Map<String, Histogram> scanners = new ConcurrentHashMap<>();
+    private static final Map<String, ChannelStats> channels = new ConcurrentHashMap<>();
+    private static final Map<UUID, PlayerStats> players = new ConcurrentHashMap<>();
+    private static final Map<IGrid, GridStats> grids = new WeakHashMap<>();
+    private static final AtomicInteger openContainers = new AtomicInteger();
+    private static final AtomicLong snapshotEntries = new AtomicLong();
+    private static volatile long startedAt = System.currentTimeMillis();
+
+    static {
+        for (int i = 0; i < timers.length; i++) timers[i] = new Histogram();
+    }
+
+    private TerminalMetrics() {}
+
+    /**
+     * Counters of one payload channel.
+     */
+    public static final class ChannelStats {
+        public final AtomicLong fullPayloads = new AtomicLong();
+        public final AtomicLong deltaPayloads = new AtomicLong();
+        public final AtomicLong chunks = new AtomicLong();
+        public final AtomicLong bytes = new AtomicLong();
+        /** Encoded (compressed) size of each payload, in bytes */
+        public final Histogram payloadBytes = new Histogram();
+    }
+
+    /**
+     * Counters of one player.
+     */
+    public static final class PlayerStats {
+        public volatile String name;
+        public final AtomicLong fullPayloads = new AtomicLong();
+        public final AtomicLong deltaPayloads = new AtomicLong();
+        public final AtomicLong chunks = new AtomicLong();
+        public final AtomicLong bytes = new AtomicLong();
+        public final AtomicLong throttled = new AtomicLong();
+        /** Main-thread time of each storage / storage bus refresh of the player's terminal */
+        public final Histogram refreshNanos = new Histogram();
+
+        PlayerStats(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Counters of one grid. Scan timings are only recorded for grids that were scanned for
+     * terminals, so shared scans count once.
+     */
+    public static final class GridStats {
+        public final String label;
+        public final Histogram storageScans = new Histogram();
+        public final Histogram busScans = new Histogram();
+        public volatile int storages;
+        public volatile int buses;
+
+        GridStats(String label) {
+            this.label = label;
+        }
+    }
+
+    public static void record(Timer timer, long nanos) {
+        timers[timer.ordinal()].record(nanos);
+    }
+
+    public static Histogram getTimer(Timer timer) {
+        return timers[timer.ordinal()];
+    }
+
+    /**
+     * Record the time one scanner (or one unit of a time-sliced scan) took.
+     *
+     * @param kind "storage", "bus" or "subnet"
+     * @param scannerId the scanner's ID
+     */
+    public static void recordScanner(String kind, String scannerId, long nanos) {
+        scanners.computeIfAbsent(kind + "/" + scannerId, k -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * Record a complete scan of a grid. Main thread only.
+     *
+     * @param timer {@link Timer#STORAGE_SCAN} or {@link Timer#BUS_SCAN}
+     * @param devices number of storages or buses found
+     */
+    public static void recordGridScan(IGrid grid, Timer timer, long nanos, int devices) {
+        record(timer, nanos);
+
+        GridStats stats = grids.computeIfAbsent(grid, TerminalMetrics::describeGrid);
+        if (timer == Timer.BUS_SCAN) {
+            stats.busScans.record(nanos);
+            stats.buses = devices;
+        } else {
+            stats.storageScans.record(nanos);
+            stats.storages = devices;
+        }
+    }
+
+    /**
+     * Record a payload handed to the sender.
+     */
+    public static void recordPayload(EntityPlayerMP player, String channel, PayloadMode mode) {
+        boolean full = mode == PayloadMode.FULL;
+        ChannelStats channelStats = channel(channel);
+        PlayerStats playerStats = player(player);
+
+        (full ? channelStats.fullPayloads : channelStats.deltaPayloads).incrementAndGet();
+        (full ? playerStats.fullPayloads : playerStats.deltaPayloads).incrementAndGet();
+    }
+
+    /**
+     * Record the encoded size of a payload (worker thread).
+     */
+    public static void recordEncoded(String channel, long bytes) {
+        channel(channel).payloadBytes.record(bytes);
+    }
+
+    /**
+     * Record a chunk written to a player's connection.
+     */
+    public static void recordChunk(EntityPlayerMP player, String channel, int bytes) {
+        ChannelStats channelStats = channel(channel);
+        channelStats.chunks.incrementAndGet();
+        channelStats.bytes.addAndGet(bytes);
+
+        PlayerStats playerStats = player(player);
+        playerStats.chunks.incrementAndGet();
+        playerStats.bytes.addAndGet(bytes);
+    }
+
+    /**
+     * Record that a send limit held back a player's payloads (at most once per tick).
+     */
+    public static void recordThrottle(EntityPlayerMP player) {
+        player(player).throttled.incrementAndGet();
+    }
+
+    /**
+     * Record the main-thread cost of one refresh of a player's terminal.
+     */
+    public static void recordRefresh(EntityPlayerMP player, long nanos) {
+        player(player).refreshNanos.record(nanos);
+    }
+
+    /**
+     * Track a server-side terminal container being opened or closed.
+     */
+    public static void containerOpened() {
+        openContainers.incrementAndGet();
+    }
+
+    public static void containerClosed() {
+        openContainers.decrementAndGet();
+    }
+
+    /**
+     * Adjust the number of entries retained by the delta snapshots of all open terminals.
+     *
+     * @param delta change of one terminal's retained entries since it last reported
+     */
+    public static void addSnapshotEntries(long delta) {
+        snapshotEntries.addAndGet(delta);
+    }
+
+    public static int getOpenContainers() {
+        return openContainers.get();
+    }
+
+    public static long getSnapshotEntries() {
+        return snapshotEntries.get();
+    }
+
+    public static Map<String, Histogram> getScanners() {
+        return Collections.unmodifiableMap(scanners);
+    }
+
+    public static Map<String, ChannelStats> getChannels() {
+        return Collections.unmodifiableMap(channels);
+    }
+
+    public static Map<UUID, PlayerStats> getPlayers() {
+        return Collections.unmodifiableMap(players);
+    }
+
+    /**
+     * Snapshot of the grid counters of grids that are still loaded. Main thread only.
+     */
+    public static List<GridStats> getGrids() {
+        return new ArrayList<>(grids.values());
+    }
+
+    /**
+     * Time the counters started, in epoch milliseconds.
+     */
+    public static long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * Drop all counters. Main thread only.
+     */
+    public static void reset() {
+        for (Histogram timer : timers) timer.reset();
+
+        scanners.clear();
+        channels.clear();
+        players.clear();
+        grids.clear();
+        startedAt = System.currentTimeMillis();
+    }
+
+    private static ChannelStats channel(String channel) {
+        return channels.computeIfAbsent(channel, k -> new ChannelStats());
+    }
+
+    private static PlayerStats player(EntityPlayerMP player) {
+        PlayerStats stats = players.computeIfAbsent(player.getUniqueID(), k -> new PlayerStats(player.getName()));
+        stats.name = player.getName();
+
+        return stats;
+    }
+
+    private static GridStats describeGrid(IGrid grid) {
+        String id = Integer.toHexString(System.identityHashCode(grid));
+
+        // Locate the grid by its pivot node, which is enough to find the base in the world
+        IGridNode pivot = grid.getPivot();
+        if (pivot == null) return new GridStats(id);
+
+        try {
+            DimensionalCoord loc = pivot.getGridBlock().getLocation();
+
+            return new GridStats(String.format("%s [%d, %d, %d] (DIM %d)",
+                id, loc.x, loc.y, loc.z, loc.getWorld().provider.getDimension()));
+        } catch (RuntimeException e) {
+            return new GridStats(id);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.cellterminal.metrics;
+
+
+/**
+ * JMX view of one {@link TerminalMetrics.Timer} ({@code com.cellterminal:type=Timer,name=<key>}).
+ * Durations are in milliseconds; percentiles are bucket estimates (see {@link Histogram}).
+ */
+public interface TimerMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getTotalMillis();
+}
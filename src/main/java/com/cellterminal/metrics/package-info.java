@@ -0,0 +1,23 @@
+/**
+ * Server-side performance instrumentation of the Cell Terminal.
+ * <p>
+ * Scan, delta and encode timings, payload sizes, bytes and chunks per channel and throttled
+ * sends are recorded by the container, the scanner registries and the chunked sender, broken
+ * down per player and per grid, and reported by the {@code /cellterminal stats} command.
+ * <p>
+ * <b>Classes:</b>
+ * <ul>
+ *   <li>{@link com.cellterminal.metrics.Histogram}: Lock-free power-of-two histogram of
+ *       durations or sizes.</li>
+ *   <li>{@link com.cellterminal.metrics.TerminalMetrics}: Server-wide counters, per channel,
+ *       scanner, player and grid.</li>
+ *   <li>{@link com.cellterminal.metrics.MetricsReport}: Chat summary and JSON dump of the
+ *       counters.</li>
+ *   <li>{@link com.cellterminal.metrics.TerminalMBeans}: Registers the
+ *       {@link com.cellterminal.metrics.TerminalMXBean}, {@link com.cellterminal.metrics.TimerMXBean}
+ *       and {@link com.cellterminal.metrics.ChannelMXBean} views for local JMX monitoring.</li>
+ * </ul>
+ *
+ * @see com.cellterminal.command.CommandCellTerminal
+ */
+package com.cellterminal.metrics;
@@ -218,5 +218,29 @@ public class CellTerminalNetwork {
             packetId++,
             Side.CLIENT
         );
+
+        // Client -> Server: Advertise supported chunked-payload codecs on GUI open
+        INSTANCE.registerMessage(
+            PacketTerminalHello.Handler.class,
+            PacketTerminalHello.class,
+            packetId++,
+            Side.SERVER
+        );
+
+        // Client -> Server: Acknowledge or reject a versioned delta payload
+        INSTANCE.registerMessage(
+            PacketPayloadAck.Handler.class,
+            PacketPayloadAck.class,
+            packetId++,
+            Side.SERVER
+        );
+
+        // Client -> Server: Cells to send with their contents (lazy cell contents)
+        INSTANCE.registerMessage(
+            PacketCellDetailRequest.Handler.class,
+            PacketCellDetailRequest.class,
+            packetId++,
+            Side.SERVER
+        );
     }
 }
@@ -0,0 +1,78 @@
+package com.cellterminal.network;
+
+import io.netty.buffer.ByteBuf;
+
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+import com.cellterminal.container.ContainerCellTerminalBase;
+
+
+/**
+ * Packet sent from client to server with the cells it wants sent with their contents and
+ * partition (the cells in or near its viewport), or all cells while a search or the network
+ * tools need them. Other cells are sent as summaries when lazy cell contents are enabled.
+ */
+public class PacketCellDetailRequest implements IMessage {
+
+    // Bounds the packet size whatever the client sends; the server applies its own limit
+    private static final int MAX_CELLS = 4096;
+
+    private boolean all;
+    private long[] storageIds;
+    private int[] slots;
+
+    public PacketCellDetailRequest() {
+    }
+
+    /**
+     * @param storageIds Storage ID of each requested cell, parallel to {@code slots}
+     */
+    public PacketCellDetailRequest(boolean all, long[] storageIds, int[] slots) {
+        this.all = all;
+        this.storageIds = storageIds;
+        this.slots = slots;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        this.all = buf.readBoolean();
+
+        // Clamped to [0, MAX_CELLS] and to the entries actually present (12 bytes each), so a
+        // malformed count cannot allocate a negative or oversized array
+        int count = Math.max(0, Math.min(buf.readInt(), Math.min(MAX_CELLS, buf.readableBytes() / 12)));
+        this.storageIds = new long[count];
+        this.slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            this.storageIds[i] = buf.readLong();
+            this.slots[i] = buf.readInt();
+        }
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeBoolean(all);
+
+        int count = Math.min(Math.min(storageIds.length, slots.length), MAX_CELLS);
+        buf.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            buf.writeLong(storageIds[i]);
+            buf.writeInt(slots[i]);
+        }
+    }
+
+    public static class Handler implements IMessageHandler<PacketCellDetailRequest, IMessage> {
+        @Override
+        public IMessage onMessage(PacketCellDetailRequest message, MessageContext ctx) {
+            ctx.getServerHandler().player.getServerWorld().addScheduledTask(() -> {
+                if (ctx.getServerHandler().player.openContainer instanceof ContainerCellTerminalBase) {
+                    ContainerCellTerminalBase container = (ContainerCellTerminalBase) ctx.getServerHandler().player.openContainer;
+                    container.setCellDetailRequest(message.all, message.storageIds, message.slots);
+                }
+            });
+
+            return null;
+        }
+    }
+}
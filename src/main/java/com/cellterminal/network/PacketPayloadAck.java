@@ -0,0 +1,74 @@
+package com.cellterminal.network;
+
+import io.netty.buffer.ByteBuf;
+
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraftforge.fml.common.network.ByteBufUtils;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+import com.cellterminal.container.ContainerCellTerminalBase;
+
+
+/**
+ * Packet sent from client to server after a versioned chunked payload was handled: either an
+ * acknowledgement of the version the client now holds, or a reject of a delta whose base the
+ * client does not hold (see {@link com.cellterminal.container.handler.DeltaSnapshot}).
+ * <p>
+ * Carries the window ID of the terminal container it refers to, so acknowledgements still in
+ * flight when the terminal is reopened are not applied to the new container's versions.
+ */
+public class PacketPayloadAck implements IMessage {
+
+    private int windowId;
+    private String channel;
+    private int version;
+    private int rejectedVersion;
+
+    public PacketPayloadAck() {
+    }
+
+    /**
+     * @param version the version the client holds after handling the payload (0 if none)
+     * @param rejectedVersion 0 for an acknowledgement, otherwise the version of the dropped delta
+     */
+    public PacketPayloadAck(int windowId, String channel, int version, int rejectedVersion) {
+        this.windowId = windowId;
+        this.channel = channel;
+        this.version = version;
+        this.rejectedVersion = rejectedVersion;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        this.windowId = buf.readInt();
+        this.channel = ByteBufUtils.readUTF8String(buf);
+        this.version = buf.readInt();
+        this.rejectedVersion = buf.readInt();
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeInt(windowId);
+        ByteBufUtils.writeUTF8String(buf, channel);
+        buf.writeInt(version);
+        buf.writeInt(rejectedVersion);
+    }
+
+    public static class Handler implements IMessageHandler<PacketPayloadAck, IMessage> {
+        @Override
+        public IMessage onMessage(PacketPayloadAck message, MessageContext ctx) {
+            EntityPlayerMP player = ctx.getServerHandler().player;
+            player.getServerWorld().addScheduledTask(() -> {
+                if (!(player.openContainer instanceof ContainerCellTerminalBase)) return;
+                if (player.openContainer.windowId != message.windowId) return;
+
+                ContainerCellTerminalBase container = (ContainerCellTerminalBase) player.openContainer;
+                container.onPayloadAck(message.channel, message.version, message.rejectedVersion);
+            });
+
+            return null;
+        }
+    }
+}
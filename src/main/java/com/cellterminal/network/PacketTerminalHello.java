@@ -0,0 +1,50 @@
+package com.cellterminal.network;
+
+import io.netty.buffer.ByteBuf;
+
+import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
+import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
+import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
+
+import com.cellterminal.network.chunked.ChunkedNBTSender;
+import com.cellterminal.network.chunked.WireCodec;
+
+
+/**
+ * Packet sent from client to server when a terminal GUI opens, advertising which
+ * {@link WireCodec}s the client can decode. The server keeps the mask per player and picks
+ * the compact codec for chunked payloads once it is known; until then (or for clients that
+ * never send this packet) payloads are sent as plain NBT.
+ */
+public class PacketTerminalHello implements IMessage {
+
+    private int codecMask;
+
+    public PacketTerminalHello() {
+    }
+
+    public PacketTerminalHello(int codecMask) {
+        this.codecMask = codecMask;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf) {
+        this.codecMask = buf.readInt();
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf) {
+        buf.writeInt(codecMask);
+    }
+
+    public static class Handler implements IMessageHandler<PacketTerminalHello, IMessage> {
+        @Override
+        public IMessage onMessage(PacketTerminalHello message, MessageContext ctx) {
+            ctx.getServerHandler().player.getServerWorld().addScheduledTask(() ->
+                ChunkedNBTSender.setClientCodecs(ctx.getServerHandler().player, message.codecMask)
+            );
+
+            return null;
+        }
+    }
+}
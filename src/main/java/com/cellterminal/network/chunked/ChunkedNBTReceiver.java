@@ -1,12 +1,14 @@
 package com.cellterminal.network.chunked;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTSizeTracker;
 import net.minecraft.nbt.NBTTagCompound;
@@ -21,18 +23,39 @@ import com.cellterminal.CellTerminal;
  * <p>
  * Maintains one in-flight buffer per ({@code channel}). When a chunk arrives with a session ID
  * different from the one currently buffered for that channel, the previous buffer is discarded
- * (old session aborted). When all chunks of a session are present, the byte slices are concatenated,
- * gzip-decompressed, parsed as NBT and dispatched to the channel's
- * {@link PayloadHandler}.
+ * (old session aborted). Chunks are decompressed as they arrive (see {@link StreamingInflater},
+ * using the {@link PayloadCompression} carried by the chunks), so the compressed bytes are not
+ * kept around; when the last one is in, the inflated bytes are parsed as NBT (with the chunks'
+ * {@link WireCodec}) and dispatched to the channel's {@link PayloadHandler}.
  * <p>
- * Threading: all calls go through {@link #acceptChunk} on the client main thread (scheduled by
- * {@link PacketNBTChunk.Handler}), so no synchronization is needed.
+ * Threading: chunks go through {@link #acceptChunk} on the client main thread (scheduled by
+ * {@link PacketNBTChunk.Handler}), so the in-flight buffers need no synchronization. Once a
+ * payload is complete, decompression, decoding and the handler's {@link PayloadHandler#prepare}
+ * step run on a single background thread, which keeps payloads in arrival order; only
+ * {@link PayloadHandler#onPrepared} is scheduled back on the main thread. Large refreshes thus
+ * no longer stall a frame while the NBT is inflated and parsed.
+ * <p>
+ * With the {@code recordPayloads} debug option, decoded payloads are also handed to
+ * {@link PayloadRecorder}.
+ * <p>
+ * On an integrated server, payloads for the hosting player skip the wire entirely and arrive
+ * through {@link #acceptLocal}; from there they take the same prepare/apply route.
  */
 @SideOnly(Side.CLIENT)
 public final class ChunkedNBTReceiver {
 
     private static final Map<String, Assembler> inflight = new HashMap<>();
 
+    // Sanity bound on chunk indices (at the default 512 KiB per chunk, far beyond any payload)
+    private static final int MAX_CHUNKS = 1 << 16;
+
+    // Single thread: payloads must be prepared and applied in the order they completed
+    private static final ExecutorService decoder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "CellTerminal Payload Decoder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private ChunkedNBTReceiver() {}
 
     public static void acceptChunk(PacketNBTChunk chunk) {
@@ -42,7 +65,7 @@ public final class ChunkedNBTReceiver {
         // If the GUI that owns this channel is closed, drop any late chunks immediately so a
         // reopened GUI does not inherit stale partial assemblies from the previous instance.
         if (handler == null) {
-            inflight.remove(channel);
+            abandon(inflight.remove(channel));
             return;
         }
 
@@ -51,66 +74,177 @@ public final class ChunkedNBTReceiver {
 
         // New session: start fresh. This abandons any partially-received older session.
         if (assembler == null || assembler.sessionId != chunk.getSessionId()) {
-            assembler = new Assembler(chunk.getSessionId(), chunk.getTotalChunks(), chunk.getMode());
+            abandon(assembler);
+            assembler = new Assembler(chunk.getSessionId(), chunk.getMode(), chunk.getCodec(),
+                chunk.getCompression());
             inflight.put(channel, assembler);
         }
 
-        if (chunkIndex < 0 || chunkIndex >= assembler.totalChunks) {
-            CellTerminal.LOGGER.warn("Discarding out-of-range chunk {} for channel {} (total={})",
-                chunkIndex, channel, assembler.totalChunks);
+        if (chunkIndex < 0 || chunkIndex >= MAX_CHUNKS
+                || (assembler.lastIndex >= 0 && chunkIndex > assembler.lastIndex)) {
+            CellTerminal.LOGGER.warn("Discarding out-of-range chunk {} for channel {} (last={})",
+                chunkIndex, channel, assembler.lastIndex);
             return;
         }
 
-        if (assembler.parts[chunkIndex] != null) return;
+        if (chunkIndex < assembler.nextToFeed || assembler.parts.containsKey(chunkIndex)) return;
+
+        assembler.parts.put(chunkIndex, chunk.getPayload());
+        if (chunk.isLast()) assembler.lastIndex = chunkIndex;
 
-        assembler.parts[chunkIndex] = chunk.getPayload();
-        assembler.received++;
+        // Feed the contiguous prefix to the inflater. Chunks normally arrive in order, so each one
+        // is handed over (and released here) as soon as it lands; out-of-order chunks wait in
+        // parts until the gap before them is filled.
+        final Assembler current = assembler;
+        byte[] next;
+        while ((next = current.parts.remove(current.nextToFeed)) != null) {
+            final byte[] part = next;
+            current.nextToFeed++;
+            decoder.execute(() -> current.feed(part));
+        }
 
-        if (assembler.received < assembler.totalChunks) return;
+        // The chunk count is only known once the chunk flagged LAST has arrived
+        if (current.lastIndex < 0 || current.nextToFeed <= current.lastIndex) return;
 
-        // All chunks present: assemble and dispatch.
+        // All chunks fed: finish decoding off-thread, then dispatch on the main thread.
         inflight.remove(channel);
+        decoder.execute(() -> decodeAndDispatch(channel, handler, current));
+    }
+
+    /**
+     * Accept a payload handed over in memory by the integrated server (see
+     * {@link ChunkedNBTSender#send}), skipping chunking, compression and decoding. Called on the
+     * client main thread. The payload is shared with the server, so handlers only read it.
+     */
+    public static void acceptLocal(String channel, PayloadMode mode, NBTTagCompound data) {
+        // A local payload supersedes any chunked one still being received on the channel
+        abandon(inflight.remove(channel));
+
+        PayloadHandler handler = PayloadDispatcher.get(channel);
+        if (handler == null) return;
+
+        decoder.execute(() -> prepareAndDispatch(channel, handler, mode, data));
+    }
+
+    private static void decodeAndDispatch(String channel, PayloadHandler handler, Assembler assembler) {
+        NBTTagCompound nbt;
 
         try {
-            NBTTagCompound nbt = decode(assembler);
-            handler.onPayload(assembler.mode, nbt);
-        } catch (IOException e) {
+            nbt = assembler.decode();
+        } catch (IOException | RuntimeException e) {
             CellTerminal.LOGGER.error("Failed to decode chunked payload for channel " + channel, e);
+            return;
+        } finally {
+            assembler.close();
         }
+
+        prepareAndDispatch(channel, handler, assembler.mode, nbt);
     }
 
-    private static NBTTagCompound decode(Assembler assembler) throws IOException {
-        // Concatenate all chunk byte arrays then gzip-decompress + read NBT.
-        // We avoid a single big intermediate buffer by streaming the parts via SequenceInputStream;
-        // but with at most a handful of chunks, a flat byte[] is simpler and fast enough.
-        int total = 0;
-        for (byte[] part : assembler.parts) total += part.length;
-
-        byte[] joined = new byte[total];
-        int offset = 0;
-        for (byte[] part : assembler.parts) {
-            System.arraycopy(part, 0, joined, offset, part.length);
-            offset += part.length;
+    private static void prepareAndDispatch(String channel, PayloadHandler handler, PayloadMode mode,
+                                           NBTTagCompound nbt) {
+        Object prepared;
+
+        try {
+            // Before prepare, which resolves stack dictionary references in place
+            PayloadRecorder.record(channel, mode, nbt);
+            prepared = handler.prepare(mode, nbt);
+        } catch (RuntimeException e) {
+            CellTerminal.LOGGER.error("Failed to prepare payload for channel " + channel, e);
+            return;
         }
 
-        try (GZIPInputStream gzis = new GZIPInputStream(new ByteArrayInputStream(joined));
-             DataInputStream dis = new DataInputStream(gzis)) {
-            return CompressedStreamTools.read(dis, NBTSizeTracker.INFINITE);
+        Minecraft.getMinecraft().addScheduledTask(() -> {
+            // The GUI may have been closed (or re-registered its handlers) while decoding: the
+            // result was prepared for that handler, so it is dropped rather than handed to another
+            if (PayloadDispatcher.get(channel) != handler) return;
+
+            handler.onPrepared(mode, nbt, prepared);
+        });
+    }
+
+    /**
+     * Release an incomplete assembly. Its inflater is freed on the decoder thread, after any
+     * feed tasks already queued for it.
+     */
+    private static void abandon(Assembler assembler) {
+        if (assembler == null) return;
+
+        decoder.execute(assembler::close);
+    }
+
+    /**
+     * Reassemble and decode one complete session on the calling thread, the way
+     * {@link #acceptChunk} does it, but without the dispatcher. Chunks must be in index order.
+     * Used by the headless perf harness and the benchmarks.
+     */
+    static NBTTagCompound decode(List<PacketNBTChunk> chunks) throws IOException {
+        if (chunks.isEmpty()) throw new IOException("Empty chunked payload");
+
+        PacketNBTChunk first = chunks.get(0);
+        Assembler assembler = new Assembler(first.getSessionId(), first.getMode(), first.getCodec(),
+            first.getCompression());
+
+        try {
+            for (PacketNBTChunk chunk : chunks) assembler.feed(chunk.getPayload());
+
+            return assembler.decode();
+        } finally {
+            assembler.close();
         }
     }
 
+    /**
+     * One payload being received. {@code parts} only holds chunks that arrived ahead of a
+     * missing one; everything before {@code nextToFeed} has been handed to the inflater.
+     * The inflater state is only touched on the decoder thread.
+     */
     private static final class Assembler {
         final long sessionId;
-        final int totalChunks;
         final PayloadMode mode;
-        final byte[][] parts;
-        int received;
+        final WireCodec codec;
+        final PayloadCompression compression;
+        final Map<Integer, byte[]> parts = new HashMap<>();
+        int nextToFeed;
+        int lastIndex = -1;
 
-        Assembler(long sessionId, int totalChunks, PayloadMode mode) {
+        // Decoder thread only
+        private StreamingInflater inflater;
+        private IOException failure;
+
+        Assembler(long sessionId, PayloadMode mode, WireCodec codec, PayloadCompression compression) {
             this.sessionId = sessionId;
-            this.totalChunks = totalChunks;
             this.mode = mode;
-            this.parts = new byte[totalChunks][];
+            this.codec = codec;
+            this.compression = compression;
+        }
+
+        void feed(byte[] part) {
+            if (this.failure != null) return;
+
+            try {
+                if (this.inflater == null) this.inflater = new StreamingInflater(this.compression, part.length);
+                this.inflater.feed(part);
+            } catch (IOException e) {
+                this.failure = e;
+            }
+        }
+
+        NBTTagCompound decode() throws IOException {
+            if (this.failure != null) throw this.failure;
+            if (this.inflater == null) throw new IOException("Empty chunked payload");
+
+            try (DataInputStream dis = new DataInputStream(this.inflater.finish())) {
+                if (this.codec == WireCodec.COMPACT) return CompactNBTCodec.read(dis);
+
+                return CompressedStreamTools.read(dis, NBTSizeTracker.INFINITE);
+            }
+        }
+
+        void close() {
+            if (this.inflater != null) this.inflater.close();
+
+            this.inflater = null;
         }
     }
 }
@@ -1,40 +1,229 @@
 package com.cellterminal.network.chunked;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.network.NetHandlerPlayServer;
 
 import com.cellterminal.CellTerminal;
 import com.cellterminal.config.CellTerminalServerConfig;
+import com.cellterminal.metrics.TerminalMetrics;
 import com.cellterminal.network.CellTerminalNetwork;
 
 
 /**
- * Server-side helper that serializes an NBT compound, gzip-compresses it, splits it into chunks
- * sized according to {@link CellTerminalServerConfig#getMaxChunkBytes()}, and sends the chunks
- * to a player as {@link PacketNBTChunk} messages on a given logical channel.
+ * Server-side helper that serializes an NBT compound (with the codec negotiated for the target
+ * player, see {@link WireCodec}), compresses it (see {@link PayloadCompression}) and cuts it into
+ * chunks sized according to {@link CellTerminalServerConfig#getMaxChunkBytes()} as the compressed
+ * bytes are produced (see {@link ChunkingOutputStream}), and sends the chunks to a player as
+ * {@link PacketNBTChunk} messages on a given logical channel.
  * <p>
  * Each call increments the per-channel session counter so the receiver can tell payloads apart
  * and discard old in-flight assemblies.
  * <p>
- * Threading: must be called from the server main thread (typical container tick context).
+ * Threading: {@link #send} must be called from the server main thread (typical container tick
+ * context). Serialization, compression and chunk slicing run on a small bounded worker pool
+ * ({@link CellTerminalServerConfig#getCompressionThreads()}), so a multi-megabyte storage list
+ * no longer stalls the tick. Chunks are queued per player as soon as they are compressed and
+ * sent from the main thread, in queue order, by {@link #flush()} (called every server tick)
+ * or by a later {@link #send}, so the first chunk of a large payload leaves before the rest is
+ * even serialized. Session IDs are assigned at submission, so ordering per channel is preserved
+ * even when a small payload finishes encoding before a large one queued ahead of it.
+ * <p>
+ * Flow control: each player's queue releases at most
+ * {@link CellTerminalServerConfig#getSendBytesPerTick()} bytes per tick (a chunk larger than
+ * the budget borrows from the following ticks), and nothing while the player's Netty channel
+ * is not writable, so a large storage list no longer crowds out movement and chunk packets on
+ * slow links. Priority payloads (META, the channel of the tab being viewed) are queued ahead of
+ * normal ones, but never ahead of an older payload on their own channel. A queued FULL payload
+ * replaces every older payload of its channel still in the queue, since the client would
+ * discard them anyway.
+ * <p>
+ * Bandwidth limits: besides the per-tick pacing, each player has a sustained quota with a
+ * burst allowance ({@link CellTerminalServerConfig#getPlayerBytesPerSecond()},
+ * {@link CellTerminalServerConfig#getPlayerBurstBytes()}) and all players share a server-wide
+ * token bucket ({@link CellTerminalServerConfig#getGlobalBytesPerSecond()}). Players are served
+ * one chunk at a time in turn so the shared budget is split fairly. Nothing is dropped when a
+ * budget runs out: chunks wait in the queue, and periodic refreshes are deferred by their
+ * callers while their channel is still backlogged (see {@link #deferIfBacklogged}), which
+ * coalesces them into a single later payload. How often each limit kicked in is counted per
+ * {@link Throttle}.
+ * <p>
+ * Integrated server: payloads for the player hosting the world are handed to the client in
+ * memory (see {@code CommonProxy#deliverLocalPayload}), skipping the codec, compression,
+ * chunking and flow control, unless the {@code integratedFastPath} server option is off.
+ * <p>
+ * The payload compound is never copied: callers must not mutate it (or compounds shared with
+ * it, like tracker caches and delta snapshots) after calling {@link #send}. All senders in this
+ * mod build a fresh top-level compound per payload and never modify shared entries once built.
+ * A payload delivered in memory is therefore shared between the server and the client, which
+ * treats it as read-only (see {@link PayloadHandler}).
  */
 public final class ChunkedNBTSender {
 
     // Per-channel monotonic session counter. Shared across all players: receivers key by
     // channel and only care that the value differs from the previously-buffered one.
-    private static final Map<String, AtomicLong> sessionCounters = new HashMap<>();
+    // Concurrent: written from the main thread, kept safe for any caller thread.
+    private static final Map<String, AtomicLong> sessionCounters = new ConcurrentHashMap<>();
+
+    // Encoded (or still encoding) payloads per player, in send order. Main thread only.
+    private static final Map<UUID, PlayerQueue> pending = new HashMap<>();
+
+    // Payloads waiting in all player queues after the last flush, for the metrics MBeans
+    private static volatile int queuedPayloads = 0;
+
+    // Server-wide budget shared by all players. Main thread only.
+    private static final TokenBucket globalBucket = new TokenBucket();
+
+    // Number of times each throttle kicked in, indexed by Throttle ordinal. Read from anywhere.
+    private static final AtomicLongArray throttleCounts = new AtomicLongArray(Throttle.values().length);
+
+    private static final int TICKS_PER_SECOND = 20;
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int SERIALIZE_BUFFER = 8192;
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    // Volatile: also read by the metrics MBeans (see getEncoderQueueDepth)
+    private static volatile ExecutorService executor = null;
+    private static int executorThreads = 0;
+
+    // Codec bit mask advertised by each connected client (see PacketTerminalHello). Players
+    // missing from the map get the NBT fallback. Written from packet handlers, hence concurrent.
+    private static final Map<UUID, Integer> clientCodecs = new ConcurrentHashMap<>();
+
+    /**
+     * Reasons a payload was held back, counted by {@link #getThrottleCount}.
+     */
+    public enum Throttle {
+        /** A player's per-tick pacing budget was used up. */
+        TICK_BUDGET,
+        /** A player's sustained quota (including burst) was used up. */
+        PLAYER_QUOTA,
+        /** The server-wide budget was used up. */
+        GLOBAL_LIMIT,
+        /** The player's connection was not writable (client not keeping up). */
+        CONNECTION,
+        /** A periodic refresh was postponed because its channel was still queued. */
+        DEFERRED_REFRESH
+    }
 
     private ChunkedNBTSender() {}
 
+    /**
+     * Number of times the given throttle kicked in since the server started. Counted at most
+     * once per player and tick for the send limits.
+     */
+    public static long getThrottleCount(Throttle throttle) {
+        return throttleCounts.get(throttle.ordinal());
+    }
+
+    /**
+     * Number of payloads waiting for the encoder pool. Safe to call from any thread.
+     */
+    public static int getEncoderQueueDepth() {
+        ExecutorService pool = executor;
+
+        return pool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) pool).getQueue().size() : 0;
+    }
+
+    /**
+     * Number of encoder threads currently encoding a payload. Safe to call from any thread.
+     */
+    public static int getActiveEncoders() {
+        ExecutorService pool = executor;
+
+        return pool instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) pool).getActiveCount() : 0;
+    }
+
+    /**
+     * Number of payloads queued for players (being encoded or waiting for send budget) as of
+     * the last flush. Safe to call from any thread.
+     */
+    public static int getQueuedPayloads() {
+        return queuedPayloads;
+    }
+
+    /**
+     * Check whether a payload on the channel is still queued (encoding or waiting for budget)
+     * for the player. If so, the caller should keep its refresh pending and retry later instead
+     * of queueing another payload behind it; the deferral is counted.
+     */
+    public static boolean deferIfBacklogged(EntityPlayerMP player, String channel) {
+        PlayerQueue queue = pending.get(player.getUniqueID());
+        if (queue == null || !queue.hasChannel(channel)) return false;
+
+        throttleCounts.incrementAndGet(Throttle.DEFERRED_REFRESH.ordinal());
+
+        return true;
+    }
+
+    /**
+     * Record the codecs a client can decode.
+     */
+    public static void setClientCodecs(EntityPlayerMP player, int codecMask) {
+        clientCodecs.put(player.getUniqueID(), codecMask);
+    }
+
+    /**
+     * Drop per-connection state for a player (on logout).
+     */
+    public static void forgetPlayer(UUID playerId) {
+        clientCodecs.remove(playerId);
+        pending.remove(playerId);
+    }
+
+    /**
+     * Whether payloads for the player are handed to the client in memory instead of being
+     * encoded (integrated server host, see {@link #send}). Such payloads are never serialized,
+     * so wire-size optimizations like the stack dictionary only cost time for them.
+     */
+    public static boolean isDeliveredLocally(EntityPlayerMP player) {
+        return CellTerminalServerConfig.getInstance().isIntegratedFastPathEnabled()
+            && CellTerminal.proxy.isLocalPlayer(player);
+    }
+
+    /**
+     * Pick the codec for a player: the compact codec when enabled and advertised by the client,
+     * vanilla NBT otherwise.
+     */
+    public static WireCodec selectCodec(EntityPlayerMP player) {
+        if (!CellTerminalServerConfig.getInstance().isBinaryCodecEnabled()) return WireCodec.NBT;
+
+        int mask = clientCodecs.getOrDefault(player.getUniqueID(), WireCodec.NBT.bit());
+
+        return (mask & WireCodec.COMPACT.bit()) != 0 ? WireCodec.COMPACT : WireCodec.NBT;
+    }
+
+    /**
+     * Send an NBT payload on the given channel as a chunked stream, with normal priority.
+     *
+     * @see #send(EntityPlayerMP, String, PayloadMode, NBTTagCompound, boolean)
+     */
+    public static void send(EntityPlayerMP player, String channel, PayloadMode mode, NBTTagCompound data) {
+        send(player, channel, mode, data, false);
+    }
+
     /**
      * Send an NBT payload on the given channel as a chunked stream.
      *
@@ -42,52 +231,345 @@ public final class ChunkedNBTSender {
      * @param channel logical channel name
      * @param mode FULL or DELTA (informational; the receiver uses it to decide how to apply the payload)
      * @param data the NBT data to send. The compound itself is what arrives on the client side.
+     *             It is encoded asynchronously and must not be modified after this call.
+     * @param priority true to queue the payload ahead of normal-priority payloads of other channels
      */
-    public static void send(EntityPlayerMP player, String channel, PayloadMode mode, NBTTagCompound data) {
-        byte[] compressed;
+    public static void send(EntityPlayerMP player, String channel, PayloadMode mode, NBTTagCompound data,
+                            boolean priority) {
+        // Integrated server host: the client shares this JVM. Once nothing is queued for the
+        // player (so payloads stay in order), hand the compound over instead of encoding it.
+        if (CellTerminalServerConfig.getInstance().isIntegratedFastPathEnabled()
+                && !pending.containsKey(player.getUniqueID())
+                && CellTerminal.proxy.deliverLocalPayload(player, channel, mode, data)) {
+            TerminalMetrics.recordPayload(player, channel, mode);
+            return;
+        }
+
+        WireCodec codec = selectCodec(player);
+        long sessionId = nextSessionId(channel);
+        TerminalMetrics.recordPayload(player, channel, mode);
+        PendingPayload payload = new PendingPayload(channel, priority);
+
+        ExecutorService pool = getExecutor();
+        Runnable job = () -> {
+            encode(channel, sessionId, mode, codec, data, payload.chunks::add);
+            payload.done = true;
+        };
 
-        try {
-            compressed = compress(data);
-        } catch (IOException e) {
-            CellTerminal.LOGGER.error("Failed to compress NBT payload for channel " + channel, e);
+        if (pool != null) {
+            pool.execute(job);
+        } else {
+            job.run();
+        }
+
+        PlayerQueue queue = pending.computeIfAbsent(player.getUniqueID(), k -> new PlayerQueue(player));
+        queue.player = player;
+        queue.enqueue(payload, mode);
+
+        flush(player.getUniqueID());
+    }
+
+    /**
+     * Refill the byte budgets and send the chunks produced so far, one chunk per player in
+     * turn, stopping per player at the first payload still being encoded so payloads leave in
+     * queue order. Chunks of that payload that are already compressed go out immediately. Must
+     * be called from the server main thread, once per tick.
+     */
+    public static void flush() {
+        long globalPerSecond = CellTerminalServerConfig.getInstance().getGlobalBytesPerSecond();
+        globalBucket.refill(perTick(globalPerSecond), globalPerSecond);
+
+        if (pending.isEmpty()) {
+            queuedPayloads = 0;
             return;
         }
 
-        int maxChunkBytes = CellTerminalServerConfig.getInstance().getMaxChunkBytes();
+        for (PlayerQueue queue : pending.values()) queue.refill();
+
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (PlayerQueue queue : pending.values()) progress |= queue.sendNext();
+        }
+
+        pending.values().removeIf(queue -> queue.payloads.isEmpty());
+
+        int queued = 0;
+        for (PlayerQueue queue : pending.values()) queued += queue.payloads.size();
+        queuedPayloads = queued;
+    }
+
+    /**
+     * Stop the worker pool and drop all queued payloads (server stopping).
+     */
+    public static void shutdown() {
+        if (executor != null) executor.shutdownNow();
+
+        executor = null;
+        executorThreads = 0;
+        pending.clear();
+    }
+
+    private static void flush(UUID playerId) {
+        PlayerQueue queue = pending.get(playerId);
+        if (queue == null) return;
+
+        while (queue.sendNext()) {
+            // Send until a budget runs out or nothing is ready
+        }
+
+        if (queue.payloads.isEmpty()) pending.remove(playerId);
+    }
+
+    /**
+     * Serialize a payload through a {@link ChunkingOutputStream}, which compresses it and hands
+     * each chunk to {@code sink} as soon as it is full. Runs on a worker thread (or inline when
+     * the pool is disabled), so it must only read the payload and the config.
+     *
+     * @return true if the payload was fully written (the sink received a chunk flagged LAST)
+     */
+    static boolean encode(String channel, long sessionId, PayloadMode mode, WireCodec codec,
+                          NBTTagCompound data, Consumer<PacketNBTChunk> sink) {
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+
+        int maxChunkBytes = config.getMaxChunkBytes();
         if (maxChunkBytes <= 0) maxChunkBytes = 524288;
 
-        int totalChunks = Math.max(1, (compressed.length + maxChunkBytes - 1) / maxChunkBytes);
-        long sessionId = nextSessionId(channel);
+        PayloadCompression deflateKind = config.isCompressionDictionaryEnabled()
+            ? PayloadCompression.DEFLATE_DICT
+            : PayloadCompression.DEFLATE;
 
-        for (int i = 0; i < totalChunks; i++) {
-            int start = i * maxChunkBytes;
-            int end = Math.min(start + maxChunkBytes, compressed.length);
-            byte[] slice = new byte[end - start];
-            System.arraycopy(compressed, start, slice, 0, slice.length);
+        long start = System.nanoTime();
+        long[] encodedBytes = {0};
+        Consumer<PacketNBTChunk> countingSink = chunk -> {
+            encodedBytes[0] += chunk.getPayload().length;
+            sink.accept(chunk);
+        };
 
-            CellTerminalNetwork.INSTANCE.sendTo(
-                new PacketNBTChunk(channel, sessionId, i, totalChunks, mode, slice),
-                player
-            );
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(
+                new ChunkingOutputStream(channel, sessionId, mode, codec, maxChunkBytes,
+                    config.getCompressionThreshold(), deflateKind, compressionLevel(mode), countingSink),
+                SERIALIZE_BUFFER))) {
+            if (codec == WireCodec.COMPACT) {
+                CompactNBTCodec.write(data, dos);
+            } else {
+                CompressedStreamTools.write(data, dos);
+            }
+        } catch (IOException | RuntimeException e) {
+            // Chunks already sent are discarded by the client when the next session starts
+            CellTerminal.LOGGER.error("Failed to encode NBT payload for channel " + channel, e);
+            return false;
         }
+
+        TerminalMetrics.record(TerminalMetrics.Timer.ENCODE, System.nanoTime() - start);
+        TerminalMetrics.recordEncoded(channel, encodedBytes[0]);
+
+        return true;
     }
 
-    private static byte[] compress(NBTTagCompound data) throws IOException {
-        // TODO: should we use GZip or a direct bytebuffer?
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzos = new GZIPOutputStream(baos);
-             DataOutputStream dos = new DataOutputStream(gzos)) {
-            CompressedStreamTools.write(data, dos);
+    /**
+     * The encoder pool, (re)created when the configured thread count changes.
+     * Returns null when off-thread encoding is disabled (0 threads).
+     */
+    private static ExecutorService getExecutor() {
+        int threads = CellTerminalServerConfig.getInstance().getCompressionThreads();
+        if (threads == executorThreads && (executor != null || threads == 0)) return executor;
+
+        // Already-queued jobs still finish on the old pool
+        if (executor != null) executor.shutdown();
+
+        executorThreads = threads;
+        if (threads <= 0) {
+            executor = null;
+            return null;
         }
-        return baos.toByteArray();
+
+        // Bounded queue: when the pool is saturated the main thread encodes the payload itself
+        // (CallerRunsPolicy), which throttles producers instead of buffering without limit.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+            runnable -> {
+                Thread thread = new Thread(runnable, "CellTerminal Encoder #" + threadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+
+        return executor;
+    }
+
+    /**
+     * Deltas are sent on every poll, so they get their own (by default fastest) level.
+     */
+    private static int compressionLevel(PayloadMode mode) {
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+
+        return mode == PayloadMode.DELTA ? config.getDeltaCompressionLevel() : config.getCompressionLevel();
+    }
+
+    private static long perTick(long perSecond) {
+        return (perSecond <= 0) ? 0 : Math.max(1, perSecond / TICKS_PER_SECOND);
     }
 
     private static long nextSessionId(String channel) {
-        AtomicLong counter = sessionCounters.get(channel);
-        if (counter == null) {
-            counter = new AtomicLong();
-            sessionCounters.put(channel, counter);
+        return sessionCounters.computeIfAbsent(channel, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * A payload queued for one player. The encoder appends chunks as they are produced and
+     * flags completion; the main thread drains them.
+     */
+    static final class PendingPayload {
+        final String channel;
+        final boolean priority;
+        final Queue<PacketNBTChunk> chunks = new ConcurrentLinkedQueue<>();
+        volatile boolean done = false;
+
+        PendingPayload(String channel, boolean priority) {
+            this.channel = channel;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * One player's payloads in send order, plus the bytes they may still send.
+     * Main thread only.
+     */
+    static class PlayerQueue {
+        // Refreshed on every send: the entity is replaced on respawn and dimension change
+        EntityPlayerMP player;
+        final List<PendingPayload> payloads = new LinkedList<>();
+        final TokenBucket tickBudget = new TokenBucket();
+        final TokenBucket quota = new TokenBucket();
+        final TokenBucket global;
+
+        // Set once a throttle has been counted for this player in the current tick
+        boolean throttled = false;
+
+        PlayerQueue(EntityPlayerMP player) {
+            this(player, globalBucket);
+            refill();
+        }
+
+        PlayerQueue(EntityPlayerMP player, TokenBucket global) {
+            this.player = player;
+            this.global = global;
+        }
+
+        boolean hasChannel(String channel) {
+            for (PendingPayload payload : this.payloads) {
+                if (payload.channel.equals(channel)) return true;
+            }
+
+            return false;
+        }
+
+        /**
+         * Add a payload: after the last priority payload if it has priority (but never ahead of
+         * its own channel), at the end otherwise. A FULL payload drops older payloads of its
+         * channel first.
+         */
+        void enqueue(PendingPayload payload, PayloadMode mode) {
+            if (mode == PayloadMode.FULL) this.payloads.removeIf(p -> p.channel.equals(payload.channel));
+
+            if (!payload.priority) {
+                this.payloads.add(payload);
+                return;
+            }
+
+            int index = 0;
+            for (int i = 0; i < this.payloads.size(); i++) {
+                PendingPayload queued = this.payloads.get(i);
+                if (queued.priority || queued.channel.equals(payload.channel)) index = i + 1;
+            }
+
+            this.payloads.add(index, payload);
+        }
+
+        /**
+         * Add one tick worth of budget. The pacing budget does not accumulate past one tick and
+         * the quota not past its burst size, but a debt left by an oversized chunk is paid back
+         * first. A limit of 0 means unlimited.
+         */
+        void refill() {
+            CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+
+            refill(config.getSendBytesPerTick(), config.getPlayerBytesPerSecond(), config.getPlayerBurstBytes());
+        }
+
+        void refill(int tickBytes, long quotaPerSecond, long burstBytes) {
+            this.tickBudget.refill(tickBytes, tickBytes);
+            this.quota.refill(perTick(quotaPerSecond), Math.max(burstBytes, perTick(quotaPerSecond)));
+            this.throttled = false;
+        }
+
+        /**
+         * Send the next ready chunk, dropping payloads that are fully sent on the way.
+         *
+         * @return true if a chunk was sent, false if nothing is ready or a limit is reached
+         */
+        boolean sendNext() {
+            while (!this.payloads.isEmpty()) {
+                PendingPayload head = this.payloads.get(0);
+
+                // Read the flag before polling so no chunk added before completion is left behind
+                boolean done = head.done;
+
+                if (!head.chunks.isEmpty()) {
+                    Throttle limit = currentLimit();
+                    if (limit != null) {
+                        if (!this.throttled) recordThrottle(limit);
+                        this.throttled = true;
+                        return false;
+                    }
+
+                    PacketNBTChunk chunk = head.chunks.poll();
+                    sendChunk(head.channel, chunk);
+
+                    int bytes = chunk.getPayload().length;
+                    this.tickBudget.consume(bytes);
+                    this.quota.consume(bytes);
+                    this.global.consume(bytes);
+                    return true;
+                }
+
+                if (!done) return false;
+
+                this.payloads.remove(0);
+            }
+
+            return false;
+        }
+
+        private Throttle currentLimit() {
+            if (!isWritable()) return Throttle.CONNECTION;
+            if (!this.tickBudget.hasTokens()) return Throttle.TICK_BUDGET;
+            if (!this.quota.hasTokens()) return Throttle.PLAYER_QUOTA;
+            if (!this.global.hasTokens()) return Throttle.GLOBAL_LIMIT;
+
+            return null;
+        }
+
+        void sendChunk(String channel, PacketNBTChunk chunk) {
+            CellTerminalNetwork.INSTANCE.sendTo(chunk, this.player);
+            TerminalMetrics.recordChunk(this.player, channel, chunk.getPayload().length);
+        }
+
+        void recordThrottle(Throttle limit) {
+            throttleCounts.incrementAndGet(limit.ordinal());
+            TerminalMetrics.recordThrottle(this.player);
+        }
+
+        /**
+         * False while the connection's outbound buffer is above Netty's high water mark, i.e.
+         * the client is not keeping up with what was already written.
+         */
+        boolean isWritable() {
+            NetHandlerPlayServer connection = this.player.connection;
+
+            return connection == null || connection.netManager.channel().isWritable();
         }
-        return counter.incrementAndGet();
     }
 }
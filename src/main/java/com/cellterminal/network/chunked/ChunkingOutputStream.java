@@ -0,0 +1,170 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+
+/**
+ * Output stream that compresses a serialized payload and emits it as {@link PacketNBTChunk}s
+ * while it is still being written, instead of building the whole compressed payload first.
+ * <p>
+ * The first {@code threshold} bytes are held back to choose the compression: if the stream
+ * closes before reaching it the payload is sent uncompressed, otherwise a deflate stream (with or
+ * without the preset dictionary) is started. Compressed output fills a buffer of
+ * {@code maxChunkBytes}; each time it is full and more output follows, it is handed to the sink
+ * as a chunk. {@link #close()} emits the remaining bytes as the chunk flagged
+ * {@link PacketNBTChunk#FLAG_LAST}, so the total chunk count never has to be known up front.
+ * <p>
+ * Not thread-safe: owned by the encoder task writing the payload. The sink is called on that
+ * thread.
+ */
+final class ChunkingOutputStream extends OutputStream {
+
+    private static final int DEFLATE_BUFFER = 8192;
+
+    private final String channel;
+    private final long sessionId;
+    private final PayloadMode mode;
+    private final WireCodec codec;
+    private final int threshold;
+    private final PayloadCompression deflateKind;
+    private final int level;
+    private final Consumer<PacketNBTChunk> sink;
+
+    private final byte[] chunkBuffer;
+    private int chunkSize = 0;
+    private int chunkIndex = 0;
+    private long bytesEmitted = 0;
+
+    // Raw bytes held back until the compression is chosen
+    private ByteArrayOutputStream prefix = new ByteArrayOutputStream();
+
+    // Chosen once the prefix is resolved: either this stream's chunker directly or a deflater on it
+    private PayloadCompression compression = null;
+    private OutputStream body = null;
+    private Deflater deflater = null;
+    private boolean closed = false;
+
+    /**
+     * @param threshold   raw payloads shorter than this are sent uncompressed
+     * @param deflateKind {@link PayloadCompression#DEFLATE} or {@link PayloadCompression#DEFLATE_DICT}
+     * @param level       Deflater level (0-9)
+     */
+    ChunkingOutputStream(String channel, long sessionId, PayloadMode mode, WireCodec codec,
+                         int maxChunkBytes, int threshold, PayloadCompression deflateKind, int level,
+                         Consumer<PacketNBTChunk> sink) {
+        this.channel = channel;
+        this.sessionId = sessionId;
+        this.mode = mode;
+        this.codec = codec;
+        this.threshold = threshold;
+        this.deflateKind = deflateKind;
+        this.level = level;
+        this.sink = sink;
+        this.chunkBuffer = new byte[maxChunkBytes];
+    }
+
+    /**
+     * @return the compressed size emitted so far (all chunks once closed)
+     */
+    long getBytesEmitted() {
+        return this.bytesEmitted;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (this.body == null) {
+            this.prefix.write(b);
+            if (this.prefix.size() >= this.threshold) start(this.deflateKind);
+            return;
+        }
+
+        this.body.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (this.body == null) {
+            this.prefix.write(b, off, len);
+            if (this.prefix.size() >= this.threshold) start(this.deflateKind);
+            return;
+        }
+
+        this.body.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.closed) return;
+
+        this.closed = true;
+
+        try {
+            // Never reached the threshold: send as-is
+            if (this.body == null) start(PayloadCompression.NONE);
+
+            if (this.deflater != null) ((DeflaterOutputStream) this.body).finish();
+
+            emit(true);
+        } finally {
+            if (this.deflater != null) this.deflater.end();
+        }
+    }
+
+    private void start(PayloadCompression chosen) throws IOException {
+        this.compression = chosen;
+
+        OutputStream chunker = new OutputStream() {
+            @Override
+            public void write(int b) {
+                appendCompressed(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                appendCompressed(b, off, len);
+            }
+        };
+
+        if (chosen == PayloadCompression.NONE) {
+            this.body = chunker;
+        } else {
+            this.deflater = new Deflater(this.level);
+            if (chosen == PayloadCompression.DEFLATE_DICT) this.deflater.setDictionary(PayloadCompression.DICTIONARY);
+
+            this.body = new DeflaterOutputStream(chunker, this.deflater, DEFLATE_BUFFER);
+        }
+
+        this.prefix.writeTo(this.body);
+        this.prefix = null;
+    }
+
+    private void appendCompressed(byte[] b, int off, int len) {
+        while (len > 0) {
+            // A full buffer is only emitted once more output follows, so the last chunk is
+            // always the one emitted by close()
+            if (this.chunkSize == this.chunkBuffer.length) emit(false);
+
+            int n = Math.min(len, this.chunkBuffer.length - this.chunkSize);
+            System.arraycopy(b, off, this.chunkBuffer, this.chunkSize, n);
+            this.chunkSize += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void emit(boolean last) {
+        byte[] slice = new byte[this.chunkSize];
+        System.arraycopy(this.chunkBuffer, 0, slice, 0, this.chunkSize);
+
+        this.sink.accept(new PacketNBTChunk(this.channel, this.sessionId, this.chunkIndex++,
+            last ? PacketNBTChunk.FLAG_LAST : 0, this.mode, this.codec, this.compression, slice));
+
+        this.bytesEmitted += this.chunkSize;
+        this.chunkSize = 0;
+    }
+}
@@ -0,0 +1,299 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagDouble;
+import net.minecraft.nbt.NBTTagFloat;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagShort;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraftforge.common.util.Constants;
+
+
+/**
+ * Compact binary encoding of an NBT tree, used as the {@link WireCodec#COMPACT} wire format.
+ * <p>
+ * The tree structure is kept (so every channel, delta and patch format works unchanged), but
+ * the bytes that dominate terminal payloads are squeezed out:
+ * <ul>
+ *   <li>Strings (compound keys such as {@code "usedBytes"} and string values such as registry
+ *       names) go through a per-payload string table: the first occurrence is written inline
+ *       and assigned the next index, later occurrences are written as that index.</li>
+ *   <li>short/int/long values and all lengths are zigzag varints, so the common small counts,
+ *       slots and flags take one byte instead of four or eight.</li>
+ *   <li>Compounds are prefixed with their entry count instead of an end tag.</li>
+ * </ul>
+ * Encoding:
+ * <pre>
+ * payload   := version(byte) compound
+ * compound  := varint(count) { string(key) byte(type) value }*
+ * string    := varint(0) utf        (new entry, appended to the table)
+ *            | varint(index + 1)    (reference to an earlier entry)
+ * list      := byte(elemType) varint(count) value*
+ * int[]     := varint(len) zigzag*
+ * byte[]    := varint(len) bytes
+ * </pre>
+ * Tag types without an accessor in this MC version (long arrays) are embedded as vanilla NBT.
+ */
+public final class CompactNBTCodec {
+
+    private static final byte VERSION = 1;
+    private static final int MAX_DEPTH = 512;
+
+    private CompactNBTCodec() {}
+
+    public static void write(NBTTagCompound compound, DataOutput out) throws IOException {
+        out.writeByte(VERSION);
+        new Writer(out).writeCompound(compound, 0);
+    }
+
+    public static NBTTagCompound read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != VERSION) throw new IOException("Unsupported compact NBT version " + version);
+
+        return new Reader(in).readCompound(0);
+    }
+
+    // ---- Encoding ----
+
+    private static final class Writer {
+        private final DataOutput out;
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        Writer(DataOutput out) {
+            this.out = out;
+        }
+
+        void writeCompound(NBTTagCompound compound, int depth) throws IOException {
+            if (depth > MAX_DEPTH) throw new IOException("NBT tree too deep");
+
+            writeVarInt(compound.getKeySet().size());
+            for (String key : compound.getKeySet()) {
+                NBTBase tag = compound.getTag(key);
+                writeString(key);
+                out.writeByte(tag.getId());
+                writeValue(tag, depth);
+            }
+        }
+
+        void writeValue(NBTBase tag, int depth) throws IOException {
+            switch (tag.getId()) {
+                case Constants.NBT.TAG_BYTE:
+                    out.writeByte(((NBTTagByte) tag).getByte());
+                    break;
+                case Constants.NBT.TAG_SHORT:
+                    writeVarLong(zigzag(((NBTTagShort) tag).getShort()));
+                    break;
+                case Constants.NBT.TAG_INT:
+                    writeVarLong(zigzag(((NBTTagInt) tag).getInt()));
+                    break;
+                case Constants.NBT.TAG_LONG:
+                    writeVarLong(zigzag(((NBTTagLong) tag).getLong()));
+                    break;
+                case Constants.NBT.TAG_FLOAT:
+                    out.writeFloat(((NBTTagFloat) tag).getFloat());
+                    break;
+                case Constants.NBT.TAG_DOUBLE:
+                    out.writeDouble(((NBTTagDouble) tag).getDouble());
+                    break;
+                case Constants.NBT.TAG_BYTE_ARRAY: {
+                    byte[] bytes = ((NBTTagByteArray) tag).getByteArray();
+                    writeVarInt(bytes.length);
+                    out.write(bytes);
+                    break;
+                }
+                case Constants.NBT.TAG_STRING:
+                    writeString(((NBTTagString) tag).getString());
+                    break;
+                case Constants.NBT.TAG_LIST: {
+                    NBTTagList list = (NBTTagList) tag;
+                    out.writeByte(list.getTagType());
+                    writeVarInt(list.tagCount());
+                    for (int i = 0; i < list.tagCount(); i++) writeValue(list.get(i), depth + 1);
+                    break;
+                }
+                case Constants.NBT.TAG_COMPOUND:
+                    writeCompound((NBTTagCompound) tag, depth + 1);
+                    break;
+                case Constants.NBT.TAG_INT_ARRAY: {
+                    int[] ints = ((NBTTagIntArray) tag).getIntArray();
+                    writeVarInt(ints.length);
+                    for (int value : ints) writeVarLong(zigzag(value));
+                    break;
+                }
+                default:
+                    writeEmbedded(tag);
+                    break;
+            }
+        }
+
+        private void writeEmbedded(NBTBase tag) throws IOException {
+            NBTTagCompound wrapper = new NBTTagCompound();
+            wrapper.setTag("v", tag);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CompressedStreamTools.write(wrapper, new DataOutputStream(bytes));
+
+            writeVarInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+
+        private void writeString(String value) throws IOException {
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+
+            strings.put(value, strings.size());
+            writeVarInt(0);
+            out.writeUTF(value);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+
+            out.writeByte((int) value);
+        }
+
+        private static long zigzag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    // ---- Decoding ----
+
+    private static final class Reader {
+        private final DataInput in;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(DataInput in) {
+            this.in = in;
+        }
+
+        NBTTagCompound readCompound(int depth) throws IOException {
+            if (depth > MAX_DEPTH) throw new IOException("NBT tree too deep");
+
+            NBTTagCompound compound = new NBTTagCompound();
+            int count = readVarInt();
+            for (int i = 0; i < count; i++) {
+                String key = readString();
+                byte type = in.readByte();
+                compound.setTag(key, readValue(type, depth));
+            }
+
+            return compound;
+        }
+
+        NBTBase readValue(byte type, int depth) throws IOException {
+            switch (type) {
+                case Constants.NBT.TAG_BYTE:
+                    return new NBTTagByte(in.readByte());
+                case Constants.NBT.TAG_SHORT:
+                    return new NBTTagShort((short) unzigzag(readVarLong()));
+                case Constants.NBT.TAG_INT:
+                    return new NBTTagInt((int) unzigzag(readVarLong()));
+                case Constants.NBT.TAG_LONG:
+                    return new NBTTagLong(unzigzag(readVarLong()));
+                case Constants.NBT.TAG_FLOAT:
+                    return new NBTTagFloat(in.readFloat());
+                case Constants.NBT.TAG_DOUBLE:
+                    return new NBTTagDouble(in.readDouble());
+                case Constants.NBT.TAG_BYTE_ARRAY: {
+                    byte[] bytes = new byte[readVarInt()];
+                    in.readFully(bytes);
+                    return new NBTTagByteArray(bytes);
+                }
+                case Constants.NBT.TAG_STRING:
+                    return new NBTTagString(readString());
+                case Constants.NBT.TAG_LIST: {
+                    byte elemType = in.readByte();
+                    int count = readVarInt();
+                    NBTTagList list = new NBTTagList();
+                    for (int i = 0; i < count; i++) list.appendTag(readValue(elemType, depth + 1));
+                    return list;
+                }
+                case Constants.NBT.TAG_COMPOUND:
+                    return readCompound(depth + 1);
+                case Constants.NBT.TAG_INT_ARRAY: {
+                    int[] ints = new int[readVarInt()];
+                    for (int i = 0; i < ints.length; i++) ints[i] = (int) unzigzag(readVarLong());
+                    return new NBTTagIntArray(ints);
+                }
+                default:
+                    return readEmbedded();
+            }
+        }
+
+        private NBTBase readEmbedded() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+
+            NBTTagCompound wrapper = CompressedStreamTools.read(
+                new DataInputStream(new ByteArrayInputStream(bytes)), NBTSizeTracker.INFINITE);
+
+            return wrapper.getTag("v");
+        }
+
+        private String readString() throws IOException {
+            int ref = readVarInt();
+            if (ref == 0) {
+                String value = in.readUTF();
+                strings.add(value);
+                return value;
+            }
+
+            if (ref > strings.size()) throw new IOException("Invalid string table reference " + ref);
+
+            return strings.get(ref - 1);
+        }
+
+        private int readVarInt() throws IOException {
+            long value = readVarLong();
+            if (value > Integer.MAX_VALUE) throw new IOException("Varint out of range: " + value);
+
+            return (int) value;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+
+            throw new IOException("Varint too long");
+        }
+
+        private static long unzigzag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
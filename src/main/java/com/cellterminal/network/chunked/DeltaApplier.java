@@ -1,6 +1,7 @@
 package com.cellterminal.network.chunked;
 
 import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -10,6 +11,7 @@ import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import com.cellterminal.CellTerminal;
 
 /**
  * Client-side helper that applies {@link PayloadMode#FULL} or {@link PayloadMode#DELTA} payloads
@@ -23,6 +25,10 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  * The {@code parser} converts an entry NBT compound into the consumer's domain object. The
  * {@code idExtractor} reads the ID from a parsed object (for ordering / equality with the NBT
  * {@code idKey}).
+ * <p>
+ * Nested DELTA payloads (see {@link com.cellterminal.container.handler.NestedDeltaSnapshot})
+ * additionally carry a {@code patched} list, applied in place to existing objects through the
+ * {@code patcher} overload.
  */
 @SideOnly(Side.CLIENT)
 public final class DeltaApplier {
@@ -48,6 +54,38 @@ public final class DeltaApplier {
         }
     }
 
+    /**
+     * Apply a FULL or DELTA payload to a state map, patching existing objects in place for
+     * entries listed in the DELTA's {@code patched} list.
+     *
+     * @param patcher applies one nested patch compound to an existing object
+     * @see #apply(PayloadMode, NBTTagCompound, Map, Function, Function)
+     */
+    public static <T> void apply(PayloadMode mode, NBTTagCompound payload, Map<Long, T> target,
+                                 Function<NBTTagCompound, T> parser, Function<T, Long> idFromObject,
+                                 BiConsumer<T, NBTTagCompound> patcher) {
+        apply(mode, payload, target, parser, idFromObject);
+        if (mode == PayloadMode.FULL) return;
+
+        String idKey = payload.getString("idKey");
+        if (idKey.isEmpty()) idKey = "id";
+
+        NBTTagList patched = payload.getTagList("patched", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < patched.tagCount(); i++) {
+            NBTTagCompound patch = patched.getCompoundTagAt(i);
+            T existing = target.get(patch.getLong(idKey));
+
+            // A patch for an entry we don't hold means we missed an earlier payload; the next
+            // full refresh resynchronizes it.
+            if (existing == null) {
+                CellTerminal.LOGGER.debug("Dropping patch for unknown entry {}", patch.getLong(idKey));
+                continue;
+            }
+
+            patcher.accept(existing, patch);
+        }
+    }
+
     private static <T> void applyFull(NBTTagCompound payload, Map<Long, T> target,
                                        Function<NBTTagCompound, T> parser,
                                        Function<T, Long> idFromObject) {
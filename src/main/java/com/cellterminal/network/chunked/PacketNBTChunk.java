@@ -16,45 +16,59 @@ import net.minecraftforge.fml.relauncher.SideOnly;
  * <p>
  * Multiple chunks make up one logical payload, identified by ({@code channel}, {@code sessionId}).
  * Chunks of the same session arrive in order on the network, but the assembler keys by index for
- * resilience. When all chunks have arrived, the assembler decompresses and dispatches the payload
- * to the registered {@link com.cellterminal.network.chunked.PayloadDispatcher channel handler}.
+ * resilience. The sender streams chunks while still compressing (see {@link ChunkingOutputStream}),
+ * so the chunk count is only known from the last chunk's flag. When all chunks have arrived, the
+ * assembler decompresses and dispatches the payload to the registered
+ * {@link com.cellterminal.network.chunked.PayloadDispatcher channel handler}.
  * <p>
  * Wire format:
  * <ul>
  *   <li>String channel</li>
  *   <li>int sessionId</li>
  *   <li>int chunkIndex</li>
- *   <li>int totalChunks</li>
+ *   <li>byte flags ({@link #FLAG_LAST} on the final chunk of a session)</li>
  *   <li>byte mode (see {@link PayloadMode})</li>
+ *   <li>byte codec (see {@link WireCodec})</li>
+ *   <li>byte compression (see {@link PayloadCompression})</li>
  *   <li>int payloadLen</li>
  *   <li>byte[payloadLen] payload</li>
  * </ul>
- * The payload is the raw bytes of the gzip-compressed NBT (a slice of, when split).
+ * The payload is the raw bytes of the compressed, codec-encoded NBT (a slice of, when split).
  * <p>
  * Default routing: {@link Side#CLIENT}. Registered in {@link com.cellterminal.network.CellTerminalNetwork}.
  */
 public class PacketNBTChunk implements IMessage {
 
+    /** Set on the final chunk of a session. */
+    public static final byte FLAG_LAST = 1;
+
     private String channel;
     private long sessionId;
     private int chunkIndex;
-    private int totalChunks;
+    private byte flags;
     private PayloadMode mode;
+    private WireCodec codec;
+    private PayloadCompression compression;
     private byte[] payload;
 
     public PacketNBTChunk() {
         this.channel = "";
         this.payload = new byte[0];
         this.mode = PayloadMode.FULL;
+        this.codec = WireCodec.NBT;
+        this.compression = PayloadCompression.NONE;
     }
 
-    public PacketNBTChunk(String channel, long sessionId, int chunkIndex, int totalChunks,
-                          PayloadMode mode, byte[] payload) {
+    public PacketNBTChunk(String channel, long sessionId, int chunkIndex, byte flags,
+                          PayloadMode mode, WireCodec codec, PayloadCompression compression,
+                          byte[] payload) {
         this.channel = channel;
         this.sessionId = sessionId;
         this.chunkIndex = chunkIndex;
-        this.totalChunks = totalChunks;
+        this.flags = flags;
         this.mode = mode;
+        this.codec = codec;
+        this.compression = compression;
         this.payload = payload;
     }
 
@@ -63,8 +77,10 @@ public class PacketNBTChunk implements IMessage {
         this.channel = ByteBufUtils.readUTF8String(buf);
         this.sessionId = buf.readLong();
         this.chunkIndex = buf.readInt();
-        this.totalChunks = buf.readInt();
+        this.flags = buf.readByte();
         this.mode = PayloadMode.fromId(buf.readByte());
+        this.codec = WireCodec.fromId(buf.readByte());
+        this.compression = PayloadCompression.fromId(buf.readByte());
         int len = buf.readInt();
         this.payload = new byte[len];
         buf.readBytes(this.payload);
@@ -75,8 +91,10 @@ public class PacketNBTChunk implements IMessage {
         ByteBufUtils.writeUTF8String(buf, this.channel);
         buf.writeLong(this.sessionId);
         buf.writeInt(this.chunkIndex);
-        buf.writeInt(this.totalChunks);
+        buf.writeByte(this.flags);
         buf.writeByte(this.mode.getId());
+        buf.writeByte(this.codec.getId());
+        buf.writeByte(this.compression.getId());
         buf.writeInt(this.payload.length);
         buf.writeBytes(this.payload);
     }
@@ -84,8 +102,10 @@ public class PacketNBTChunk implements IMessage {
     public String getChannel() { return channel; }
     public long getSessionId() { return sessionId; }
     public int getChunkIndex() { return chunkIndex; }
-    public int getTotalChunks() { return totalChunks; }
+    public boolean isLast() { return (flags & FLAG_LAST) != 0; }
     public PayloadMode getMode() { return mode; }
+    public WireCodec getCodec() { return codec; }
+    public PayloadCompression getCompression() { return compression; }
     public byte[] getPayload() { return payload; }
 
     public static class Handler implements IMessageHandler<PacketNBTChunk, IMessage> {
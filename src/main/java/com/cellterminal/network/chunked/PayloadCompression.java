@@ -0,0 +1,91 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+
+/**
+ * Compression applied to a serialized chunked payload before it is split into chunks.
+ * Stored as a single byte in {@link PacketNBTChunk}, so the receiver never has to guess.
+ * <p>
+ * The sender picks one per payload (see {@link ChunkingOutputStream}): small payloads (META, temp
+ * cells, most deltas) are sent as-is because deflate headers and CPU cost outweigh the gain,
+ * larger ones are deflated, optionally with a preset dictionary built from the terminal's own
+ * NBT key vocabulary ({@link #DICTIONARY}).
+ */
+public enum PayloadCompression {
+    /**
+     * Raw serialized bytes.
+     */
+    NONE((byte) 0),
+
+    /**
+     * zlib deflate stream.
+     */
+    DEFLATE((byte) 1),
+
+    /**
+     * zlib deflate stream primed with {@link #DICTIONARY}. Mostly helps small and medium
+     * payloads, where the key names would otherwise be sent literally at least once.
+     */
+    DEFLATE_DICT((byte) 2);
+
+    /**
+     * Preset deflate dictionary. Both vanilla NBT and the compact codec write strings with
+     * {@code writeUTF}, so the dictionary holds the same length-prefixed form. Deflate favours
+     * matches near the end of the dictionary, so the most frequent strings come last.
+     * <p>
+     * Changing this list breaks compatibility between different mod versions: keep client and
+     * server on the same build (the mod already requires that for its packets).
+     */
+    static final byte[] DICTIONARY = buildDictionary(
+        // Rare: integration and subnet keys
+        "essentiaAmount", "gasAmount", "blockItem", "cellData", "cellItem", "capacityUpgrades",
+        "primaryPos", "posX", "posY", "posZ", "hasSecurity", "hasPower", "accessible", "favorite",
+        "supportsIOMode", "usesSubnetInventory", "supportsPriority", "connectedName",
+        "connectedIcon", "localIcon", "remoteIcon", "connections", "outbound", "inventory",
+        "subnets", "storageBuses", "tempCells", "tempSlot", "terminalPos", "terminalDim",
+        "customName", "filter", "access", "side",
+        // Delta and patch structure
+        "added", "updated", "removed", "patched", "set", "unset", "cellsRemoved", "cntIdx",
+        "cntVal", "cntRemoved", "cntAdded", "stackDictReset", "stackDictBase", "stackDict",
+        // Storage and cell headers
+        "storages", "networkId", "priority", "name", "dim", "pos", "cells", "cell", "status",
+        "slotCount", "baseConfigSlots", "maxConfigSlots", "maxPartitionSlots", "slotsPerUpgrade",
+        "upgradeSlotCount", "upgrades", "usedTypes", "totalTypes", "usedBytes", "totalBytes",
+        "storedItemCount", "fluidAmount",
+        // Stacks: the bulk of every payload
+        "ForgeCaps", "tag", "Craft", "Req", "appliedenergistics2:", "minecraft:", "Damage",
+        "Count", "Cnt", "partition", "contents", "slot", "id"
+    );
+
+    private final byte id;
+
+    PayloadCompression(byte id) {
+        this.id = id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public static PayloadCompression fromId(byte id) {
+        for (PayloadCompression compression : values()) {
+            if (compression.id == id) return compression;
+        }
+
+        return NONE;
+    }
+
+    private static byte[] buildDictionary(String... words) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (String word : words) out.writeUTF(word);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -1,10 +1,22 @@
 package com.cellterminal.network.chunked;
 
+import java.util.function.BiFunction;
+
 import net.minecraft.nbt.NBTTagCompound;
 
 
 /**
  * Handler invoked on the client when a complete chunked payload has been reassembled.
+ * <p>
+ * Payloads are decoded on a background thread (see {@link ChunkedNBTReceiver}). A handler can
+ * move its own heavy work there too by overriding {@link #prepare}: the returned object is handed
+ * to {@link #onPrepared} on the client main thread, which then only has to swap it in. Simple
+ * handlers just implement {@link #onPayload}.
+ * <p>
+ * Payloads delivered in memory on an integrated server are the server's own compounds (see
+ * {@link ChunkedNBTSender}), so handlers must not modify the payload, nor the ItemStacks built
+ * from it, which share its {@code tag} compounds; copy a stack before changing it. Stack
+ * dictionary references, the one thing resolved in place, only occur in network payloads.
  */
 @FunctionalInterface
 public interface PayloadHandler {
@@ -16,4 +28,58 @@ public interface PayloadHandler {
      * @param data the decoded NBT payload
      */
     void onPayload(PayloadMode mode, NBTTagCompound data);
+
+    /**
+     * Called on the payload decoder thread, in arrival order, before {@link #onPrepared}.
+     * Must not touch GUI or world state, nor build {@code ItemStack}s (item registry and
+     * capability lookups are main-thread only).
+     *
+     * @return an object passed to {@link #onPrepared}, or null
+     */
+    default Object prepare(PayloadMode mode, NBTTagCompound data) {
+        return null;
+    }
+
+    /**
+     * Called on the client main thread with the result of {@link #prepare}, unless this handler
+     * was unregistered or replaced in the meantime.
+     */
+    default void onPrepared(PayloadMode mode, NBTTagCompound data, Object prepared) {
+        onPayload(mode, data);
+    }
+
+    /**
+     * Build a handler whose heavy work runs in {@link #prepare}.
+     *
+     * @param preparer runs on the decoder thread
+     * @param consumer runs on the client main thread with the preparer's result
+     */
+    static <P> PayloadHandler prepared(BiFunction<PayloadMode, NBTTagCompound, P> preparer,
+                                       PreparedConsumer<P> consumer) {
+        return new PayloadHandler() {
+            @Override
+            public void onPayload(PayloadMode mode, NBTTagCompound data) {
+                consumer.accept(mode, data, preparer.apply(mode, data));
+            }
+
+            @Override
+            public Object prepare(PayloadMode mode, NBTTagCompound data) {
+                return preparer.apply(mode, data);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void onPrepared(PayloadMode mode, NBTTagCompound data, Object prepared) {
+                consumer.accept(mode, data, (P) prepared);
+            }
+        };
+    }
+
+    /**
+     * Main-thread half of a {@link #prepared} handler.
+     */
+    @FunctionalInterface
+    interface PreparedConsumer<P> {
+        void accept(PayloadMode mode, NBTTagCompound data, P prepared);
+    }
 }
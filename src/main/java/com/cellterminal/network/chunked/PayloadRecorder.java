@@ -0,0 +1,83 @@
+package com.cellterminal.network.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.cellterminal.CellTerminal;
+import com.cellterminal.config.CellTerminalClientConfig;
+
+
+/**
+ * Debug recorder of the payloads the client receives, enabled by the {@code recordPayloads}
+ * client option. Every payload {@link ChunkedNBTReceiver} reassembles is appended to a
+ * {@link PayloadRecording} under {@code cellterminal/recordings} in the game directory, so a
+ * real session can be replayed against the client side offline.
+ * <p>
+ * A recording starts with the first payload after the option is turned on and ends when it is
+ * turned off (or the game exits). Terminals start every channel with a FULL payload, so turning
+ * the option on with no terminal open gives a recording that replays from scratch.
+ * <p>
+ * Threading: only called on the payload decoder thread.
+ */
+@SideOnly(Side.CLIENT)
+public final class PayloadRecorder {
+
+    private static PayloadRecording.Writer writer;
+    // Set after a write error, so a broken file is not retried for every payload
+    private static boolean failed = false;
+
+    private PayloadRecorder() {}
+
+    /**
+     * Record a payload as decoded by the receiver, before any handler touched it.
+     */
+    static void record(String channel, PayloadMode mode, NBTTagCompound payload) {
+        if (!CellTerminalClientConfig.getInstance().isRecordPayloads()) {
+            failed = false;
+            close();
+            return;
+        }
+
+        if (failed) return;
+
+        try {
+            if (writer == null) writer = new PayloadRecording.Writer(newFile());
+
+            writer.write(channel, mode, payload);
+        } catch (IOException e) {
+            CellTerminal.LOGGER.error("Failed to record payload, recording stopped", e);
+            failed = true;
+            close();
+        }
+    }
+
+    private static File newFile() {
+        File dir = new File(Minecraft.getMinecraft().gameDir, "cellterminal/recordings");
+        dir.mkdirs();
+
+        String name = "payloads-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".ctrec";
+        File file = new File(dir, name);
+        CellTerminal.LOGGER.info("Recording terminal payloads to {}", file);
+
+        return file;
+    }
+
+    private static void close() {
+        if (writer == null) return;
+
+        try {
+            writer.close();
+        } catch (IOException e) {
+            CellTerminal.LOGGER.warn("Failed to close payload recording", e);
+        }
+
+        writer = null;
+    }
+}
@@ -0,0 +1,146 @@
+package com.cellterminal.network.chunked;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+
+/**
+ * File format of a recorded payload stream (see {@link PayloadRecorder}): the payloads a client
+ * received, in arrival order, each with its channel, mode and arrival time.
+ * <p>
+ * The file is a gzip stream holding a magic number and format version, then one entry per
+ * payload: the time since the recording started (nanoseconds), the channel, the mode and the
+ * payload as {@link CompactNBTCodec} bytes. Payloads are recorded as the receiver decoded them,
+ * before stack dictionary references are resolved, so a replay has to go through the same
+ * handlers in the same order. Each entry is flushed, so a recording cut short by a crash
+ * stays readable up to its last complete entry.
+ */
+public final class PayloadRecording {
+
+    private static final int MAGIC = 0x43545250;  // "CTRP"
+    private static final int VERSION = 1;
+
+    private PayloadRecording() {}
+
+    /**
+     * One recorded payload.
+     */
+    public static final class Entry {
+        public final long nanos;
+        public final String channel;
+        public final PayloadMode mode;
+        public final byte[] bytes;
+
+        Entry(long nanos, String channel, PayloadMode mode, byte[] bytes) {
+            this.nanos = nanos;
+            this.channel = channel;
+            this.mode = mode;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Parse the payload. Each call returns a fresh compound, so an entry can be replayed
+         * more than once.
+         */
+        public NBTTagCompound decode() throws IOException {
+            return CompactNBTCodec.read(new DataInputStream(new ByteArrayInputStream(this.bytes)));
+        }
+    }
+
+    /**
+     * Appends payloads to a new recording. Not thread-safe.
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final long start = System.nanoTime();
+
+        public Writer(File file) throws IOException {
+            // Sync flush: every entry reaches the file as a complete deflate block
+            this.out = new DataOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)), true));
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.out.flush();
+        }
+
+        public void write(String channel, PayloadMode mode, NBTTagCompound payload) throws IOException {
+            long nanos = System.nanoTime() - this.start;
+
+            this.buffer.reset();
+            CompactNBTCodec.write(payload, new DataOutputStream(this.buffer));
+
+            this.out.writeLong(nanos);
+            this.out.writeUTF(channel);
+            this.out.writeByte(mode.ordinal());
+            this.out.writeInt(this.buffer.size());
+            this.buffer.writeTo(this.out);
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Reads the entries of a recording in order.
+     */
+    public static final class Reader implements Closeable {
+        private final DataInputStream in;
+
+        public Reader(File file) throws IOException {
+            this.in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+
+            try {
+                if (this.in.readInt() != MAGIC) throw new IOException("Not a payload recording: " + file);
+
+                int version = this.in.readUnsignedByte();
+                if (version != VERSION) throw new IOException("Unsupported payload recording version " + version);
+            } catch (IOException e) {
+                this.in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return the next entry, or null at the end of the recording (including a truncated
+         *         last entry)
+         */
+        public Entry next() throws IOException {
+            try {
+                long nanos = this.in.readLong();
+                String channel = this.in.readUTF();
+                int mode = this.in.readUnsignedByte();
+                byte[] bytes = new byte[this.in.readInt()];
+                this.in.readFully(bytes);
+
+                if (mode >= PayloadMode.values().length) throw new IOException("Unknown payload mode " + mode);
+
+                return new Entry(nanos, channel, PayloadMode.values()[mode], bytes);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
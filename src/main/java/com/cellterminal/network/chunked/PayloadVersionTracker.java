@@ -0,0 +1,101 @@
+package com.cellterminal.network.chunked;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.network.CellTerminalNetwork;
+import com.cellterminal.network.PacketPayloadAck;
+
+
+/**
+ * Client-side counterpart of the versioned {@link DeltaSnapshot}: remembers which snapshot
+ * version of each channel has been applied, drops deltas computed against any other version
+ * and reports back to the server with {@link PacketPayloadAck}.
+ * <p>
+ * Payloads without a version (server with {@code ackedDeltas} disabled) are always accepted
+ * and never acknowledged. Main thread only, except {@link #requestFull}.
+ */
+@SideOnly(Side.CLIENT)
+public class PayloadVersionTracker {
+
+    /**
+     * Reports to the server: a version was applied ({@code rejectedVersion} 0) or a payload was
+     * dropped while holding {@code version}.
+     */
+    @FunctionalInterface
+    interface AckSender {
+        void send(String channel, int version, int rejectedVersion);
+    }
+
+    private final Map<String, Integer> applied = new HashMap<>();
+    private final AckSender sender;
+
+    public PayloadVersionTracker() {
+        this(PayloadVersionTracker::sendPacket);
+    }
+
+    PayloadVersionTracker(AckSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Check whether a payload can be applied. A DELTA based on a version other than the one
+     * applied is rejected: the server is told which version we hold and resends from there.
+     */
+    public boolean accept(String channel, PayloadMode mode, NBTTagCompound data) {
+        if (mode == PayloadMode.FULL || !data.hasKey(DeltaSnapshot.KEY_VERSION)) return true;
+
+        int current = this.applied.getOrDefault(channel, 0);
+        if (data.getInteger(DeltaSnapshot.KEY_BASE) == current) return true;
+
+        this.sender.send(channel, current, data.getInteger(DeltaSnapshot.KEY_VERSION));
+
+        return false;
+    }
+
+    /**
+     * Record and acknowledge a payload that was just applied.
+     */
+    public void applied(String channel, NBTTagCompound data) {
+        if (!data.hasKey(DeltaSnapshot.KEY_VERSION)) return;
+
+        int version = data.getInteger(DeltaSnapshot.KEY_VERSION);
+        this.applied.put(channel, version);
+        this.sender.send(channel, version, 0);
+    }
+
+    /**
+     * Ask the server for a FULL payload on a channel, e.g. after the stack dictionary lost
+     * sync because a payload carrying definitions was abandoned. Safe to call from any thread.
+     */
+    public void requestFull(String channel, NBTTagCompound data) {
+        if (!data.hasKey(DeltaSnapshot.KEY_VERSION)) return;
+
+        int version = data.getInteger(DeltaSnapshot.KEY_VERSION);
+
+        // Version 0 is never retained by the server, so the resend is FULL
+        Minecraft.getMinecraft().addScheduledTask(() -> this.sender.send(channel, 0, version));
+    }
+
+    /**
+     * Forget all versions (network switch: the server resets its snapshots too).
+     */
+    public void clear() {
+        this.applied.clear();
+    }
+
+    private static void sendPacket(String channel, int version, int rejectedVersion) {
+        EntityPlayer player = Minecraft.getMinecraft().player;
+        if (player == null) return;
+
+        CellTerminalNetwork.INSTANCE.sendToServer(
+            new PacketPayloadAck(player.openContainer.windowId, channel, version, rejectedVersion));
+    }
+}
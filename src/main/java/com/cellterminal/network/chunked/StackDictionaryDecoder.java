@@ -0,0 +1,112 @@
+package com.cellterminal.network.chunked;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import com.cellterminal.CellTerminal;
+
+
+/**
+ * Client-side counterpart of {@link StackDictionaryEncoder}. Keeps the per-channel stack
+ * identities learned during the session and expands dictionary references back into plain
+ * {@code ItemStack} compounds, so the payload parsers never see the encoding.
+ * <p>
+ * Must run on every payload of a channel, including ones later dropped by the network-ID gate,
+ * since any payload may carry new definitions. Runs on the payload decoder thread while
+ * {@link #clear()} comes from the main thread, hence the synchronized methods.
+ */
+@SideOnly(Side.CLIENT)
+public class StackDictionaryDecoder {
+
+    private final Map<String, List<NBTTagCompound>> channels = new HashMap<>();
+
+    /**
+     * Learn the definitions carried by a payload and expand its references in place.
+     *
+     * @return false if the dictionary is out of sync with the server (definitions missing,
+     *         e.g. from an abandoned payload), in which case the channel needs a FULL payload
+     */
+    public synchronized boolean decode(String channel, NBTTagCompound payload) {
+        if (payload.getBoolean(StackDictionaryEncoder.KEY_RESET)) this.channels.remove(channel);
+
+        List<NBTTagCompound> identities = this.channels.computeIfAbsent(channel, k -> new ArrayList<>());
+        boolean inSync = true;
+
+        if (payload.hasKey(StackDictionaryEncoder.KEY_DEFINITIONS, Constants.NBT.TAG_LIST)) {
+            int base = payload.getInteger(StackDictionaryEncoder.KEY_BASE);
+            NBTTagList definitions = payload.getTagList(StackDictionaryEncoder.KEY_DEFINITIONS, Constants.NBT.TAG_COMPOUND);
+
+            if (base != identities.size()) {
+                CellTerminal.LOGGER.warn("Stack dictionary out of sync on {}: expected base {}, got {}",
+                    channel, identities.size(), base);
+                inSync = false;
+                while (identities.size() > base) identities.remove(identities.size() - 1);
+                while (identities.size() < base) identities.add(new NBTTagCompound());
+            }
+
+            for (int i = 0; i < definitions.tagCount(); i++) identities.add(definitions.getCompoundTagAt(i));
+        }
+
+        payload.removeTag(StackDictionaryEncoder.KEY_RESET);
+        payload.removeTag(StackDictionaryEncoder.KEY_BASE);
+        payload.removeTag(StackDictionaryEncoder.KEY_DEFINITIONS);
+
+        return expand(payload, identities) && inSync;
+    }
+
+    /**
+     * Forget all channels (network switch).
+     */
+    public synchronized void clear() {
+        this.channels.clear();
+    }
+
+    /**
+     * Expand all references below {@code tag}. Returns false if any of them was unknown.
+     */
+    private static boolean expand(NBTBase tag, List<NBTTagCompound> identities) {
+        if (tag instanceof NBTTagList) {
+            NBTTagList list = (NBTTagList) tag;
+            if (list.getTagType() != Constants.NBT.TAG_COMPOUND) return true;
+
+            boolean resolved = true;
+            for (int i = 0; i < list.tagCount(); i++) resolved &= expand(list.get(i), identities);
+            return resolved;
+        }
+
+        if (!(tag instanceof NBTTagCompound)) return true;
+
+        NBTTagCompound compound = (NBTTagCompound) tag;
+        if (compound.hasKey(StackDictionaryEncoder.KEY_REF, Constants.NBT.TAG_INT)) {
+            return resolve(compound, identities);
+        }
+
+        boolean resolved = true;
+        for (String key : compound.getKeySet()) resolved &= expand(compound.getTag(key), identities);
+        return resolved;
+    }
+
+    private static boolean resolve(NBTTagCompound ref, List<NBTTagCompound> identities) {
+        int id = ref.getInteger(StackDictionaryEncoder.KEY_REF);
+        ref.removeTag(StackDictionaryEncoder.KEY_REF);
+
+        if (id < 0 || id >= identities.size()) {
+            CellTerminal.LOGGER.debug("Unknown stack dictionary reference {}", id);
+            return false;
+        }
+
+        // Copy: ItemStack(NBTTagCompound) keeps the "tag" compound without copying it
+        NBTTagCompound identity = identities.get(id);
+        for (String key : identity.getKeySet()) ref.setTag(key, identity.getTag(key).copy());
+        return true;
+    }
+}
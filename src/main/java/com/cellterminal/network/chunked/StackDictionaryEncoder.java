@@ -0,0 +1,265 @@
+package com.cellterminal.network.chunked;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.util.NBTHasher;
+
+
+/**
+ * Server-side, per-container dictionary of item stack identities, so a stack that appears in the
+ * contents or partitions of hundreds of cells is sent once per session instead of once per cell.
+ * <p>
+ * Applied to an outgoing payload right before it is handed to {@link ChunkedNBTSender}. Every
+ * compound that looks like a serialized {@code ItemStack} (string {@code id} + byte
+ * {@code Count}) is split into its identity ({@link #IDENTITY_KEYS}: item, meta, NBT, caps) and
+ * the rest (counts, slot, flags). The identity gets an int ID the first time it is seen on the
+ * channel; the stack compound is replaced by {@code {"#": id, ...rest}}. Identities first used
+ * by a payload are appended to it under {@link #KEY_DEFINITIONS}, starting at index
+ * {@link #KEY_BASE}, so the client always learns an entry before (or with) its first reference.
+ * <p>
+ * Stacks whose {@code tag} and {@code ForgeCaps} hold more than {@link #MAX_IDENTITY_TAGS} tags
+ * (cells, backpacks and other items carrying an inventory) stay inline: they are nearly unique and change with their
+ * contents, so each update would only add another entry. Identities are looked up by their
+ * 64-bit {@link NBTHasher} hash rather than by deep {@code equals}, the same trade-off as the
+ * hash-only {@link com.cellterminal.container.handler.DeltaSnapshot}.
+ * <p>
+ * The input tree is never mutated: payloads often share compounds with the delta snapshot and
+ * the storage trackers' cached NBT, so rewritten compounds and lists are copied along the path
+ * to each replaced stack and everything else is shared.
+ * <p>
+ * State is per channel and restarts with every FULL payload (flagged with {@link #KEY_RESET}),
+ * which keeps the dictionary in sync across network switches and snapshot resets. The caller
+ * forces a FULL whenever {@link #needsFull(String)} says so: for a channel without dictionary
+ * state, and to bound growth once a channel has accumulated too many entries.
+ *
+ * @see StackDictionaryDecoder
+ */
+public class StackDictionaryEncoder {
+
+    /** Reference key replacing the identity keys of a dictionary-encoded stack. */
+    public static final String KEY_REF = "#";
+
+    /** Top-level list of identity compounds first referenced by this payload. */
+    public static final String KEY_DEFINITIONS = "stackDict";
+
+    /** Top-level int: dictionary ID of the first entry in {@link #KEY_DEFINITIONS}. */
+    public static final String KEY_BASE = "stackDictBase";
+
+    /** Top-level flag: the client must clear this channel's dictionary before reading. */
+    public static final String KEY_RESET = "stackDictReset";
+
+    /** Keys that make up a stack's identity. Everything else stays inline. */
+    static final String[] IDENTITY_KEYS = {"id", "Damage", "tag", "ForgeCaps"};
+
+    /** Most tags the {@code tag} and {@code ForgeCaps} of a dictionary identity may hold together. */
+    static final int MAX_IDENTITY_TAGS = 32;
+
+    static final int MAX_ENTRIES = 1 << 16;
+
+    private final Map<String, Channel> channels = new HashMap<>();
+
+    // Shared by all channels: one container, main thread only
+    private final NBTHasher hasher = new NBTHasher();
+
+    /**
+     * Encode a payload for the given channel. Returns the payload to send, which is either the
+     * input itself (nothing to encode) or a partially copied tree.
+     *
+     * @param full True if this is a FULL payload, which restarts the channel's dictionary.
+     */
+    public NBTTagCompound encode(String channel, NBTTagCompound payload, boolean full) {
+        Channel state = this.channels.computeIfAbsent(channel, k -> new Channel(this.hasher));
+        if (full) state.reset();
+
+        int base = state.identities.size();
+        NBTBase encoded = state.rewrite(payload);
+        NBTTagCompound result = (NBTTagCompound) encoded;
+
+        if (!full && state.identities.size() == base) return result;
+
+        // Top-level keys are added to our own copy only
+        if (result == payload) result = shallowCopy(payload);
+        if (full) result.setBoolean(KEY_RESET, true);
+
+        if (state.identities.size() > base) {
+            NBTTagList definitions = new NBTTagList();
+            for (int i = base; i < state.identities.size(); i++) definitions.appendTag(state.identities.get(i));
+
+            result.setInteger(KEY_BASE, base);
+            result.setTag(KEY_DEFINITIONS, definitions);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return True if the next payload on the channel must be FULL: the channel has no
+     *         dictionary state yet (or it was reset), or its dictionary grew past the cap.
+     */
+    public boolean needsFull(String channel) {
+        Channel state = this.channels.get(channel);
+
+        return state == null || state.identities.size() >= MAX_ENTRIES;
+    }
+
+    /**
+     * Forget a channel's dictionary. Its next payload must be FULL.
+     */
+    public void reset(String channel) {
+        this.channels.remove(channel);
+    }
+
+    public void resetAll() {
+        this.channels.clear();
+    }
+
+    static boolean isStack(NBTTagCompound compound) {
+        return compound.hasKey("id", Constants.NBT.TAG_STRING) && compound.hasKey("Count", Constants.NBT.TAG_BYTE);
+    }
+
+    /**
+     * Check that a tag tree holds at most {@code budget} tags, stopping as soon as it does not.
+     *
+     * @return the budget left, negative if the tree is larger
+     */
+    static int remainingTags(NBTBase tag, int budget) {
+        budget--;
+
+        if (tag instanceof NBTTagCompound) {
+            NBTTagCompound compound = (NBTTagCompound) tag;
+            for (String key : compound.getKeySet()) {
+                if (budget < 0) return budget;
+                budget = remainingTags(compound.getTag(key), budget);
+            }
+        } else if (tag instanceof NBTTagList) {
+            NBTTagList list = (NBTTagList) tag;
+            for (int i = 0; i < list.tagCount(); i++) {
+                if (budget < 0) return budget;
+                budget = remainingTags(list.get(i), budget);
+            }
+        }
+
+        return budget;
+    }
+
+    private static NBTTagCompound shallowCopy(NBTTagCompound compound) {
+        NBTTagCompound copy = new NBTTagCompound();
+        for (String key : compound.getKeySet()) copy.setTag(key, compound.getTag(key));
+
+        return copy;
+    }
+
+    private static final class Channel {
+        private final NBTHasher hasher;
+        private final Map<Long, Integer> ids = new HashMap<>();
+        private final List<NBTTagCompound> identities = new ArrayList<>();
+
+        Channel(NBTHasher hasher) {
+            this.hasher = hasher;
+        }
+
+        void reset() {
+            this.ids.clear();
+            this.identities.clear();
+        }
+
+        /**
+         * Rewrite a tag, returning the same instance when nothing below it changed.
+         */
+        NBTBase rewrite(NBTBase tag) {
+            if (tag instanceof NBTTagCompound) return rewriteCompound((NBTTagCompound) tag);
+            if (tag instanceof NBTTagList) return rewriteList((NBTTagList) tag);
+
+            return tag;
+        }
+
+        private NBTTagCompound rewriteCompound(NBTTagCompound compound) {
+            if (isStack(compound)) return isHeavy(compound) ? compound : encodeStack(compound);
+
+            NBTTagCompound copy = null;
+            for (String key : compound.getKeySet()) {
+                NBTBase child = compound.getTag(key);
+                NBTBase rewritten = rewrite(child);
+                if (rewritten == child) continue;
+
+                if (copy == null) copy = shallowCopy(compound);
+                copy.setTag(key, rewritten);
+            }
+
+            return copy != null ? copy : compound;
+        }
+
+        private NBTTagList rewriteList(NBTTagList list) {
+            // Only compound lists can hold stacks
+            if (list.getTagType() != Constants.NBT.TAG_COMPOUND) return list;
+
+            NBTTagList copy = null;
+            for (int i = 0; i < list.tagCount(); i++) {
+                NBTBase child = list.get(i);
+                NBTBase rewritten = rewrite(child);
+
+                if (copy == null && rewritten != child) {
+                    copy = new NBTTagList();
+                    for (int j = 0; j < i; j++) copy.appendTag(list.get(j));
+                }
+
+                if (copy != null) copy.appendTag(rewritten);
+            }
+
+            return copy != null ? copy : list;
+        }
+
+        private NBTTagCompound encodeStack(NBTTagCompound stack) {
+            NBTTagCompound identity = new NBTTagCompound();
+            NBTTagCompound ref = new NBTTagCompound();
+
+            for (String key : stack.getKeySet()) {
+                if (isIdentityKey(key)) {
+                    identity.setTag(key, stack.getTag(key));
+                } else {
+                    ref.setTag(key, stack.getTag(key));
+                }
+            }
+
+            long hash = this.hasher.hash(identity);
+            Integer id = this.ids.get(hash);
+            if (id == null) {
+                id = this.identities.size();
+                this.ids.put(hash, id);
+                this.identities.add(identity);
+            }
+
+            ref.setInteger(KEY_REF, id);
+
+            return ref;
+        }
+
+        private static boolean isHeavy(NBTTagCompound stack) {
+            int budget = MAX_IDENTITY_TAGS;
+
+            NBTBase tag = stack.getTag("tag");
+            if (tag != null) budget = remainingTags(tag, budget);
+
+            NBTBase caps = stack.getTag("ForgeCaps");
+            if (caps != null && budget >= 0) budget = remainingTags(caps, budget);
+
+            return budget < 0;
+        }
+
+        private static boolean isIdentityKey(String key) {
+            for (String identityKey : IDENTITY_KEYS) {
+                if (identityKey.equals(key)) return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+
+/**
+ * Incremental inflater for a {@link PayloadCompression} stream: chunks are fed one by one as
+ * they arrive and decompressed straight into a single growing output buffer, so neither the
+ * compressed chunks nor a joined copy of them have to be kept until the payload is complete.
+ * <p>
+ * Not thread-safe. The receiver only touches an instance from the payload decoder thread.
+ * {@link #close()} must be called on every instance (finished or abandoned) to release the
+ * native inflater memory.
+ */
+final class StreamingInflater {
+
+    private static final int MIN_CAPACITY = 8192;
+
+    private final PayloadCompression compression;
+    private final Inflater inflater;
+
+    private byte[] buffer;
+    private int size = 0;
+
+    StreamingInflater(PayloadCompression compression, int firstChunkLength) {
+        this.compression = compression;
+        this.inflater = compression == PayloadCompression.NONE ? null : new Inflater();
+
+        // Deflated terminal NBT typically expands about 4-8x
+        int estimate = compression == PayloadCompression.NONE ? firstChunkLength : firstChunkLength * 6;
+        this.buffer = new byte[Math.max(MIN_CAPACITY, estimate)];
+    }
+
+    /**
+     * Decompress the next chunk (chunks must be fed in index order).
+     */
+    void feed(byte[] chunk) throws IOException {
+        if (this.inflater == null) {
+            ensureCapacity(chunk.length);
+            System.arraycopy(chunk, 0, this.buffer, this.size, chunk.length);
+            this.size += chunk.length;
+            return;
+        }
+
+        if (this.inflater.finished()) throw new IOException("Data after end of compressed payload");
+
+        this.inflater.setInput(chunk);
+
+        try {
+            while (!this.inflater.finished()) {
+                if (this.size == this.buffer.length) ensureCapacity(this.buffer.length);
+
+                int read = this.inflater.inflate(this.buffer, this.size, this.buffer.length - this.size);
+                this.size += read;
+                if (read > 0) continue;
+
+                if (this.inflater.needsDictionary()) {
+                    if (this.compression != PayloadCompression.DEFLATE_DICT) {
+                        throw new IOException("Payload requires an unexpected preset dictionary");
+                    }
+
+                    this.inflater.setDictionary(PayloadCompression.DICTIONARY);
+                } else if (this.inflater.needsInput()) {
+                    // Chunk consumed; wait for the next one
+                    return;
+                }
+            }
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        }
+    }
+
+    /**
+     * @return the decompressed payload. Fails if the compressed stream is incomplete.
+     */
+    InputStream finish() throws IOException {
+        if (this.inflater != null && !this.inflater.finished()) throw new IOException("Truncated compressed payload");
+
+        return new ByteArrayInputStream(this.buffer, 0, this.size);
+    }
+
+    void close() {
+        if (this.inflater != null) this.inflater.end();
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.size + extra <= this.buffer.length) return;
+
+        int capacity = Math.max(this.buffer.length * 2, this.size + extra);
+        byte[] grown = new byte[capacity];
+        System.arraycopy(this.buffer, 0, grown, 0, this.size);
+        this.buffer = grown;
+    }
+}
@@ -0,0 +1,38 @@
+package com.cellterminal.network.chunked;
+
+
+/**
+ * Byte budget refilled once per server tick, used by {@link ChunkedNBTSender} for the per-tick
+ * pacing, the per-player quota and the server-wide limit.
+ * <p>
+ * Consumption may overdraw the bucket: a chunk is sent whole as long as any tokens are left,
+ * and the resulting debt is paid back by the following refills. This keeps the long-run rate
+ * exact without having to split chunks. Main thread only.
+ */
+final class TokenBucket {
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private long tokens = UNLIMITED;
+
+    /**
+     * Add one tick worth of tokens, capped at {@code capacity}. A non-positive amount makes the
+     * bucket unlimited; a bucket that was unlimited starts full.
+     */
+    void refill(long amount, long capacity) {
+        if (amount <= 0) {
+            this.tokens = UNLIMITED;
+            return;
+        }
+
+        this.tokens = (this.tokens == UNLIMITED) ? capacity : Math.min(capacity, this.tokens + amount);
+    }
+
+    boolean hasTokens() {
+        return this.tokens > 0;
+    }
+
+    void consume(long bytes) {
+        if (this.tokens != UNLIMITED) this.tokens -= bytes;
+    }
+}
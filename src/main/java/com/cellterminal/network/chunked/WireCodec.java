@@ -0,0 +1,52 @@
+package com.cellterminal.network.chunked;
+
+
+/**
+ * Serialization format of a chunked payload (before compression).
+ * Stored as a single byte in {@link PacketNBTChunk} and negotiated per connection: the client
+ * advertises the codecs it understands as a bit mask ({@link #bit()}) when a terminal GUI
+ * opens, and the server only uses codecs from that mask.
+ */
+public enum WireCodec {
+    /**
+     * Vanilla NBT serialization ({@code CompressedStreamTools}). Always supported; the fallback.
+     */
+    NBT((byte) 0),
+
+    /**
+     * {@link CompactNBTCodec}: varints and a per-payload string table instead of repeated keys.
+     */
+    COMPACT((byte) 1);
+
+    private final byte id;
+
+    WireCodec(byte id) {
+        this.id = id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public int bit() {
+        return 1 << id;
+    }
+
+    /**
+     * Bit mask of every codec this build can decode.
+     */
+    public static int supportedMask() {
+        int mask = 0;
+        for (WireCodec codec : values()) mask |= codec.bit();
+
+        return mask;
+    }
+
+    public static WireCodec fromId(byte id) {
+        for (WireCodec codec : values()) {
+            if (codec.id == id) return codec;
+        }
+
+        return NBT;
+    }
+}
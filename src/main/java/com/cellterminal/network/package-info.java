@@ -34,6 +34,8 @@
  *   <li>{@link com.cellterminal.network.PacketOpenWirelessTerminal}: Open wireless terminal
  *       GUI.</li>
  *   <li>{@link com.cellterminal.network.PacketPartitionAction}: Modify cell partition.</li>
+ *   <li>{@link com.cellterminal.network.PacketPayloadAck}: Acknowledge or reject a versioned
+ *       delta payload.</li>
  *   <li>{@link com.cellterminal.network.PacketPickupCell}: Move cell to cursor from temp
  *       inventory.</li>
  *   <li>{@link com.cellterminal.network.PacketRenameAction}: Rename storage/cell/bus/subnet.</li>
@@ -49,6 +51,8 @@
  *       network/subnet.</li>
  *   <li>{@link com.cellterminal.network.PacketTabChange}: Notify tab change for polling
  *       optimization.</li>
+ *   <li>{@link com.cellterminal.network.PacketTerminalHello}: Advertise the chunked-payload
+ *       codecs the client can decode.</li>
  *   <li>{@link com.cellterminal.network.PacketTempCellAction}: Temporary Area cell
  *       operations.</li>
  *   <li>{@link com.cellterminal.network.PacketTempCellPartitionAction}: Temporary Area cell partition
@@ -17,6 +17,8 @@
  *   <li>{@code integration/}: Mod integrations and the scanner registries that
  *       allow pluggable grid-scanning for different device types.</li>
  *   <li>{@code config/}: Server and client configuration with GUI support.</li>
+ *   <li>{@code metrics/}: Server-side performance counters, reported by the
+ *       {@code /cellterminal} admin command in {@code command/}.</li>
  *   <li>{@code items/}: Custom items (wired and wireless cell terminals).</li>
  *   <li>{@code part/}: ME cable part for the wired terminal.</li>
  *   <li>{@code proxy/}: Client/server proxy classes for startup logic.</li>
@@ -1,5 +1,8 @@
 package com.cellterminal.proxy;
 
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.client.event.ModelRegistryEvent;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
@@ -15,6 +18,8 @@ import com.cellterminal.client.KeyInputHandler;
 import com.cellterminal.client.UpgradeTooltipHandler;
 import com.cellterminal.client.WUTTooltipHandler;
 import com.cellterminal.integration.AE2WUTIntegration;
+import com.cellterminal.network.chunked.ChunkedNBTReceiver;
+import com.cellterminal.network.chunked.PayloadMode;
 
 
 public class ClientProxy extends CommonProxy {
@@ -69,4 +74,26 @@ public class ClientProxy extends CommonProxy {
         AE2WUTIntegration.registerGui();
         AE2WUTIntegration.registerIcon();
     }
+
+    /**
+     * Only the player on the local (in-memory) connection is this client: LAN guests go over
+     * the network as usual.
+     */
+    @Override
+    public boolean isLocalPlayer(EntityPlayerMP player) {
+        return player.connection != null && player.connection.getNetworkManager().isLocalChannel();
+    }
+
+    /**
+     * The payload is not copied: the server never modifies a compound once sent, and the client
+     * handlers only read it (see {@code PayloadHandler}).
+     */
+    @Override
+    public boolean deliverLocalPayload(EntityPlayerMP player, String channel, PayloadMode mode, NBTTagCompound data) {
+        if (!isLocalPlayer(player)) return false;
+
+        Minecraft.getMinecraft().addScheduledTask(() -> ChunkedNBTReceiver.acceptLocal(channel, mode, data));
+
+        return true;
+    }
 }
@@ -1,5 +1,7 @@
 package com.cellterminal.proxy;
 
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
@@ -13,6 +15,7 @@ import com.cellterminal.ItemRegistry;
 import com.cellterminal.config.CellTerminalServerConfig;
 import com.cellterminal.gui.GuiHandler;
 import com.cellterminal.integration.AE2WUTIntegration;
+import com.cellterminal.network.chunked.PayloadMode;
 
 
 public class CommonProxy {
@@ -41,4 +44,21 @@ public class CommonProxy {
 
     public void postInit(FMLPostInitializationEvent event) {
     }
+
+    /**
+     * Whether the player is this JVM's own client (host of the integrated server).
+     */
+    public boolean isLocalPlayer(EntityPlayerMP player) {
+        return false;
+    }
+
+    /**
+     * Hand a terminal payload straight to the client sharing this JVM, if the player is the
+     * host of the integrated server. Called on the server thread.
+     *
+     * @return true if the payload was handed over, false if it must go over the network
+     */
+    public boolean deliverLocalPayload(EntityPlayerMP player, String channel, PayloadMode mode, NBTTagCompound data) {
+        return false;
+    }
 }
@@ -9,7 +9,8 @@
  *   <li>{@link com.cellterminal.proxy.CommonProxy}: Base proxy handling config loading,
  *       item registration, GUI handler registration, and FML lifecycle events.</li>
  *   <li>{@link com.cellterminal.proxy.ClientProxy}: Client-side proxy registering
- *       keybindings, event handlers (block highlight, overlay), and model loading.</li>
+ *       keybindings, event handlers (block highlight, overlay), and model loading, and hands
+ *       terminal payloads to the client directly on an integrated server.</li>
  *   <li>{@link com.cellterminal.proxy.ServerProxy}: Server-side proxy (extends CommonProxy,
  *       currently empty).</li>
  * </ul>
@@ -0,0 +1,82 @@
+package com.cellterminal.util;
+
+
+/**
+ * Refresh interval that adapts to the measured cost of the work it paces (AIMD).
+ * <p>
+ * The owner adds the time spent on each refresh with {@link #addCost} (possibly over several
+ * calls, e.g. a time-sliced scan) and calls {@link #complete} once the refresh is done. If the
+ * refresh cost more than the allowed share of the ticks in the current interval, the interval
+ * doubles; otherwise it shrinks by one tick. Cheap refreshes keep the configured interval,
+ * expensive ones back off quickly and recover gradually once they get cheaper.
+ * <p>
+ * {@link #getInterval} never returns less than the configured interval, so adaptation only
+ * ever slows refreshes down.
+ */
+public final class AdaptiveInterval {
+
+    /** Nanoseconds in one server tick at 20 TPS */
+    public static final long TICK_NANOS = 50_000_000L;
+
+    /** Upper bound for the adapted interval (30 seconds) */
+    public static final int MAX_INTERVAL_TICKS = 600;
+
+    private int ticks = 1;
+    private long pendingCost = 0;
+    private long lastCost = 0;
+
+    /**
+     * Add time spent on the refresh in progress.
+     *
+     * @param nanos time spent, in nanoseconds
+     */
+    public void addCost(long nanos) {
+        this.pendingCost += nanos;
+    }
+
+    /**
+     * Finish the refresh in progress and adapt the interval to its total cost.
+     *
+     * @param tickShare the share of each tick the work may use on average (0 disables adaptation)
+     */
+    public void complete(double tickShare) {
+        this.lastCost = this.pendingCost;
+        this.pendingCost = 0;
+
+        if (tickShare <= 0) {
+            this.ticks = 1;
+            return;
+        }
+
+        double allowed = tickShare * TICK_NANOS * this.ticks;
+        if (this.lastCost > allowed) {
+            this.ticks = Math.min(MAX_INTERVAL_TICKS, this.ticks * 2);
+        } else if (this.ticks > 1) {
+            this.ticks--;
+        }
+    }
+
+    /**
+     * Get the effective interval.
+     *
+     * @param configuredTicks the configured (minimum) interval, in ticks
+     * @return the configured interval, or longer if refreshes have been too expensive
+     */
+    public int getInterval(int configuredTicks) {
+        return Math.max(configuredTicks, this.ticks);
+    }
+
+    /**
+     * Get the adapted interval regardless of any configured minimum.
+     */
+    public int getAdaptedTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Get the total cost of the last completed refresh, in nanoseconds.
+     */
+    public long getLastCost() {
+        return this.lastCost;
+    }
+}
@@ -0,0 +1,188 @@
+package com.cellterminal.util;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Set;
+
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTPrimitive;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+
+
+/**
+ * Computes a 64-bit content hash of an NBT tree by streaming it through a hashing
+ * {@link DataOutput}, using the same traversal as NBT serialization.
+ * <p>
+ * Nothing is allocated per hash: primitives are folded directly into the running state and
+ * strings are hashed char by char instead of being UTF-8 encoded first. An instance keeps
+ * mutable state, so it must only be used from one thread at a time (one per snapshot owner).
+ * <p>
+ * The hash follows the serialization order of {@code NBTTagCompound}, which iterates a
+ * {@code HashMap}. Equal compounds built the same way hash identically; a compound that ended
+ * up with a different internal iteration order may hash differently, which only costs a
+ * redundant update, never a missed one.
+ */
+public final class NBTHasher implements DataOutput {
+
+    private static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+
+    private long state = SEED;
+
+    /**
+     * Hash a compound. Returns the same value for equal, identically-built compounds.
+     */
+    public long hash(NBTTagCompound compound) {
+        this.state = SEED;
+
+        try {
+            CompressedStreamTools.write(compound, this);
+        } catch (IOException e) {
+            // Unreachable: this sink never throws.
+            throw new IllegalStateException(e);
+        }
+
+        return finish(this.state);
+    }
+
+    /**
+     * Hash a single tag of any type (e.g. one value of a compound).
+     */
+    public long hashTag(NBTBase tag) {
+        this.state = SEED;
+        mixTag(tag);
+
+        return finish(this.state);
+    }
+
+    /**
+     * Hash a compound while ignoring the given top-level keys. Used to derive an identity for
+     * an entry that is independent of its mutable fields (e.g. a stack ignoring its count).
+     */
+    public long hashExcluding(NBTTagCompound compound, Set<String> excludedKeys) {
+        this.state = SEED;
+
+        for (String key : compound.getKeySet()) {
+            if (excludedKeys.contains(key)) continue;
+
+            writeUTF(key);
+            mixTag(compound.getTag(key));
+        }
+
+        return finish(this.state);
+    }
+
+    private void mixTag(NBTBase tag) {
+        mix(tag.getId());
+
+        if (tag instanceof NBTTagCompound) {
+            try {
+                CompressedStreamTools.write((NBTTagCompound) tag, this);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        } else if (tag instanceof NBTTagList) {
+            NBTTagList list = (NBTTagList) tag;
+            mix(list.tagCount());
+            for (int i = 0; i < list.tagCount(); i++) mixTag(list.get(i));
+        } else if (tag instanceof NBTTagString) {
+            writeUTF(((NBTTagString) tag).getString());
+        } else if (tag instanceof NBTPrimitive) {
+            NBTPrimitive primitive = (NBTPrimitive) tag;
+            mix(primitive.getLong());
+            mix(Double.doubleToLongBits(primitive.getDouble()));
+        } else {
+            // Array tags: their hashCode covers the full contents.
+            mix(tag.hashCode());
+        }
+    }
+
+    /**
+     * Final avalanche (SplitMix64 finalizer) so that nearby inputs spread over all bits.
+     */
+    private static long finish(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+
+        return h ^ (h >>> 31);
+    }
+
+    private void mix(long value) {
+        this.state = (this.state ^ value) * PRIME;
+    }
+
+    @Override
+    public void write(int b) {
+        mix(b & 0xFF);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        mix(len);
+        for (int i = off; i < off + len; i++) mix(b[i] & 0xFF);
+    }
+
+    @Override
+    public void writeBoolean(boolean v) {
+        mix(v ? 1 : 0);
+    }
+
+    @Override
+    public void writeByte(int v) {
+        mix(v & 0xFF);
+    }
+
+    @Override
+    public void writeShort(int v) {
+        mix(v & 0xFFFF);
+    }
+
+    @Override
+    public void writeChar(int v) {
+        mix(v & 0xFFFF);
+    }
+
+    @Override
+    public void writeInt(int v) {
+        mix(v);
+    }
+
+    @Override
+    public void writeLong(long v) {
+        mix(v);
+    }
+
+    @Override
+    public void writeFloat(float v) {
+        mix(Float.floatToIntBits(v));
+    }
+
+    @Override
+    public void writeDouble(double v) {
+        mix(Double.doubleToLongBits(v));
+    }
+
+    @Override
+    public void writeBytes(String s) {
+        writeChars(s);
+    }
+
+    @Override
+    public void writeChars(String s) {
+        mix(s.length());
+        for (int i = 0; i < s.length(); i++) mix(s.charAt(i));
+    }
+
+    @Override
+    public void writeUTF(String s) {
+        writeChars(s);
+    }
+}
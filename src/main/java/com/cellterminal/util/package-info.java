@@ -5,6 +5,8 @@
  * <p>
  * <b>Classes:</b>
  * <ul>
+ *   <li>{@link com.cellterminal.util.AdaptiveInterval}: Refresh interval that backs off
+ *       (AIMD) when the measured cost of the refreshes exceeds a share of the tick.</li>
  *   <li>{@link com.cellterminal.util.AE2OldVersionSupport}: Compatibility shim for older
  *       AE2 versions; handles Baubles API fallback via reflection.</li>
  *   <li>{@link com.cellterminal.util.BigStackTracker}: Aggregates {@code IAEStack} counts
@@ -16,6 +18,8 @@
  *   <li>{@link com.cellterminal.util.ItemStackKey}: Immutable, hashable wrapper for
  *       {@code ItemStack} comparison by item, metadata, and NBT (ignoring count).
  *       Preferred when comparing items in a network or storage context, as the hash is cached.</li>
+ *   <li>{@link com.cellterminal.util.NBTHasher}: Allocation-free 64-bit content hash of an
+ *       NBT tree, used by hash-only delta snapshots.</li>
  *   <li>{@link com.cellterminal.util.PlayerMessageHelper}: Server-safe helper that sends
  *       colored feedback messages to players via {@code PacketPlayerFeedback}.</li>
  *   <li>{@link com.cellterminal.util.SafeMath}: Arithmetic utilities with overflow detection
@@ -0,0 +1,108 @@
+package com.cellterminal.container.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.client.CellInfo;
+import com.cellterminal.network.chunked.CompactNBTCodec;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Headers-first STORAGES payloads: requested cells pass through untouched, the others are
+ * summarized without modifying the (shared) input, and unchanged storages keep their filtered
+ * compound so the delta snapshot can skip them by identity.
+ */
+public class CellDetailFilterTest {
+
+    private static final int DRIVES = 20;
+
+    private NBTTagList storages;
+
+    @Before
+    public void setUp() {
+        MegabaseGenerator.bootstrap();
+
+        this.storages = new MegabaseGenerator().drives(DRIVES).partitionDensity(0.5).storages()
+            .getTagList("storages", Constants.NBT.TAG_COMPOUND);
+    }
+
+    private static NBTTagList cells(NBTTagCompound storage) {
+        return storage.getTagList("cells", Constants.NBT.TAG_COMPOUND);
+    }
+
+    private static int size(NBTTagList list) throws IOException {
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("storages", list);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactNBTCodec.write(payload, new DataOutputStream(bytes));
+
+        return bytes.size();
+    }
+
+    @Test
+    public void testApply_summarizesUnrequestedCells() throws IOException {
+        NBTTagCompound first = this.storages.getCompoundTagAt(0);
+        NBTTagCompound before = first.copy();
+
+        CellDetailFilter filter = new CellDetailFilter();
+        filter.setRequest(false, new long[] {first.getLong("id")}, new int[] {0}, 256);
+        NBTTagList filtered = filter.apply(this.storages);
+
+        Assert.assertEquals(before, first);
+        Assert.assertSame("requested cell sent as-is", cells(first).getCompoundTagAt(0),
+            cells(filtered.getCompoundTagAt(0)).getCompoundTagAt(0));
+
+        NBTTagCompound cell = cells(first).getCompoundTagAt(1);
+        NBTTagCompound summary = cells(filtered.getCompoundTagAt(0)).getCompoundTagAt(1);
+        Assert.assertFalse(summary.hasKey("contents"));
+        Assert.assertFalse(summary.hasKey("partition"));
+        Assert.assertEquals(cell.getLong("usedBytes"), summary.getLong("usedBytes"));
+
+        CellInfo full = new CellInfo(cell);
+        CellInfo header = new CellInfo(summary);
+        Assert.assertTrue(full.hasDetails());
+        Assert.assertFalse(header.hasDetails());
+        Assert.assertEquals(full.getContentTypeCount(), header.getContentTypeCount());
+        Assert.assertEquals(full.getHighestPartitionSlot(Integer.MAX_VALUE), header.getHighestPartitionSlot(Integer.MAX_VALUE));
+
+        Assert.assertTrue("summaries are smaller", size(filtered) * 2 < size(this.storages));
+    }
+
+    @Test
+    public void testApply_reusesUnchangedStorages() {
+        CellDetailFilter filter = new CellDetailFilter();
+        long firstId = this.storages.getCompoundTagAt(0).getLong("id");
+        filter.setRequest(false, new long[] {firstId}, new int[] {0}, 256);
+        NBTTagList first = filter.apply(this.storages);
+        NBTTagList second = filter.apply(this.storages);
+
+        for (int i = 0; i < DRIVES; i++) Assert.assertSame(first.getCompoundTagAt(i), second.getCompoundTagAt(i));
+
+        // Only the storage whose request changed is rebuilt
+        Assert.assertFalse(filter.setRequest(false, new long[] {firstId}, new int[] {0}, 256));
+        Assert.assertTrue(filter.setRequest(false, new long[] {firstId}, new int[] {1}, 256));
+        NBTTagList third = filter.apply(this.storages);
+
+        Assert.assertNotSame(first.getCompoundTagAt(0), third.getCompoundTagAt(0));
+        for (int i = 1; i < DRIVES; i++) Assert.assertSame(first.getCompoundTagAt(i), third.getCompoundTagAt(i));
+    }
+
+    @Test
+    public void testApply_allSendsInput() {
+        CellDetailFilter filter = new CellDetailFilter();
+        filter.setRequest(true, new long[0], new int[0], 256);
+
+        Assert.assertSame(this.storages, filter.apply(this.storages));
+    }
+}
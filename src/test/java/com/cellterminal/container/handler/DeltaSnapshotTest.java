@@ -0,0 +1,182 @@
+package com.cellterminal.container.handler;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+
+/**
+ * Versioned {@link DeltaSnapshot}: which versions are retained after acknowledgements and
+ * overflow, and which base the next payload uses after a reject.
+ */
+public class DeltaSnapshotTest {
+
+    private static final String CHANNEL = "ct:test";
+    private static final int ENTRIES = 3;
+
+    private DeltaSnapshot snapshot;
+    private int round = 0;
+
+    @Before
+    public void setUp() {
+        this.snapshot = new DeltaSnapshot();
+    }
+
+    /**
+     * A payload of {@link #ENTRIES} entries where entry 0 changes every round.
+     */
+    private NBTTagCompound nextPayload() {
+        NBTTagList entries = new NBTTagList();
+        for (int id = 0; id < ENTRIES; id++) {
+            NBTTagCompound entry = new NBTTagCompound();
+            entry.setLong("id", id);
+            entry.setInteger("value", id == 0 ? this.round : id);
+            entries.appendTag(entry);
+        }
+        this.round++;
+
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("entries", entries);
+
+        return payload;
+    }
+
+    private DeltaSnapshot.DeltaResult send() {
+        return this.snapshot.buildDelta(CHANNEL, nextPayload(), "entries", "id");
+    }
+
+    private static int version(DeltaSnapshot.DeltaResult result) {
+        return result.payload.getInteger(DeltaSnapshot.KEY_VERSION);
+    }
+
+    private static int base(DeltaSnapshot.DeltaResult result) {
+        return result.payload.getInteger(DeltaSnapshot.KEY_BASE);
+    }
+
+    // ==================== Versions ====================
+
+    @Test
+    public void testBuild_versionsAndBases() {
+        DeltaSnapshot.DeltaResult full = send();
+        DeltaSnapshot.DeltaResult first = send();
+        DeltaSnapshot.DeltaResult second = send();
+
+        Assert.assertTrue(full.isFull);
+        Assert.assertFalse(full.payload.hasKey(DeltaSnapshot.KEY_BASE));
+        Assert.assertFalse(first.isFull);
+
+        // Deltas are computed optimistically against the last sent version
+        Assert.assertEquals(version(full), base(first));
+        Assert.assertEquals(version(first), base(second));
+        Assert.assertEquals(1, second.payload.getTagList("updated", Constants.NBT.TAG_COMPOUND).tagCount());
+    }
+
+    @Test
+    public void testBuild_unchangedIsNotSent() {
+        NBTTagCompound payload = nextPayload();
+        this.snapshot.buildDelta(CHANNEL, payload, "entries", "id");
+
+        Assert.assertNull(this.snapshot.buildDelta(CHANNEL, payload.copy(), "entries", "id"));
+    }
+
+    @Test
+    public void testBuild_unversioned() {
+        this.snapshot.setVersioned(false);
+
+        DeltaSnapshot.DeltaResult full = send();
+        send();
+        send();
+
+        Assert.assertFalse(full.payload.hasKey(DeltaSnapshot.KEY_VERSION));
+        Assert.assertEquals("only the last payload is kept", ENTRIES, this.snapshot.getRetainedEntryCount());
+    }
+
+    // ==================== Acknowledge ====================
+
+    @Test
+    public void testAcknowledge_dropsOlderVersions() {
+        send();
+        send();
+        DeltaSnapshot.DeltaResult latest = send();
+        Assert.assertEquals(3 * ENTRIES, this.snapshot.getRetainedEntryCount());
+
+        this.snapshot.acknowledge(CHANNEL, version(latest));
+        Assert.assertEquals(ENTRIES, this.snapshot.getRetainedEntryCount());
+    }
+
+    @Test
+    public void testAcknowledge_unknownVersionIgnored() {
+        send();
+        send();
+
+        this.snapshot.acknowledge(CHANNEL, 99);
+        this.snapshot.acknowledge("ct:other", 1);
+        Assert.assertEquals(2 * ENTRIES, this.snapshot.getRetainedEntryCount());
+    }
+
+    @Test
+    public void testRetained_boundedWithoutAcknowledgements() {
+        for (int i = 0; i < DeltaSnapshot.MAX_RETAINED * 2; i++) send();
+
+        Assert.assertEquals(DeltaSnapshot.MAX_RETAINED * ENTRIES, this.snapshot.getRetainedEntryCount());
+    }
+
+    // ==================== Reject and Resync ====================
+
+    @Test
+    public void testReject_resyncsAgainstClientVersion() {
+        DeltaSnapshot.DeltaResult held = send();
+        DeltaSnapshot.DeltaResult lost = send();
+        send();
+
+        Assert.assertTrue(this.snapshot.reject(CHANNEL, version(held), version(lost)));
+
+        DeltaSnapshot.DeltaResult resync = send();
+        Assert.assertFalse(resync.isFull);
+        Assert.assertEquals(version(held), base(resync));
+
+        // Back to optimistic deltas on the resync payload
+        Assert.assertEquals(version(resync), base(send()));
+    }
+
+    @Test
+    public void testReject_staleAfterResync() {
+        DeltaSnapshot.DeltaResult held = send();
+        DeltaSnapshot.DeltaResult lost = send();
+        DeltaSnapshot.DeltaResult alsoLost = send();
+
+        Assert.assertTrue(this.snapshot.reject(CHANNEL, version(held), version(lost)));
+        send();
+
+        // The client also dropped the payload after the lost one; the resync already answers it
+        Assert.assertFalse(this.snapshot.reject(CHANNEL, version(held), version(alsoLost)));
+    }
+
+    @Test
+    public void testReject_overflowedVersionForcesFull() {
+        DeltaSnapshot.DeltaResult held = send();
+        DeltaSnapshot.DeltaResult lost = send();
+        for (int i = 0; i < DeltaSnapshot.MAX_RETAINED; i++) send();
+
+        // The version the client holds fell out of the retained window
+        Assert.assertTrue(this.snapshot.reject(CHANNEL, version(held), version(lost)));
+        Assert.assertTrue(send().isFull);
+    }
+
+    @Test
+    public void testReject_afterReset() {
+        DeltaSnapshot.DeltaResult held = send();
+        DeltaSnapshot.DeltaResult lost = send();
+        this.snapshot.reset(CHANNEL);
+
+        Assert.assertFalse("nothing to resync", this.snapshot.reject(CHANNEL, version(held), version(lost)));
+
+        DeltaSnapshot.DeltaResult full = send();
+        Assert.assertTrue(full.isFull);
+        Assert.assertTrue("versions keep increasing across resets", version(full) > version(lost));
+    }
+}
@@ -0,0 +1,233 @@
+package com.cellterminal.container.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.client.CellInfo;
+import com.cellterminal.client.StorageInfo;
+import com.cellterminal.gui.handler.TerminalDataManager;
+import com.cellterminal.network.chunked.PayloadMode;
+import com.cellterminal.network.chunked.TerminalChannels;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Nested STORAGES deltas applied patch after patch through {@link StorageInfo#applyPatch} and
+ * {@link CellInfo#applyPatch} must leave the client with the same storages as a FULL decode of
+ * the last server payload, including after a resync against an older retained version.
+ */
+public class NestedDeltaSnapshotTest {
+
+    private static final int DRIVES = 12;
+    private static final int ROUNDS = 6;
+
+    private MegabaseGenerator generator;
+
+    @Before
+    public void setUp() {
+        MegabaseGenerator.bootstrap();
+
+        this.generator = new MegabaseGenerator().drives(DRIVES).partitionDensity(0.5).nbtHeavy(0.2);
+        this.generator.collapseInventoryTabs();
+    }
+
+    private static NBTTagList storages(NBTTagCompound payload) {
+        return payload.getTagList("storages", Constants.NBT.TAG_COMPOUND);
+    }
+
+    private static NBTTagList cells(NBTTagCompound storage) {
+        return storage.getTagList("cells", Constants.NBT.TAG_COMPOUND);
+    }
+
+    /**
+     * Counts changed by the generator, plus content entries removed and added, a cell removed
+     * and a storage renamed, so every patch operation is exercised.
+     */
+    private static NBTTagCompound mutate(NBTTagCompound payload, long seed) {
+        Random random = new Random(seed);
+        NBTTagCompound next = MegabaseGenerator.mutate(payload, 0.3, seed);
+        NBTTagList storages = storages(next);
+
+        NBTTagCompound renamed = storages.getCompoundTagAt(random.nextInt(storages.tagCount()));
+        renamed.setString("name", "Drive " + seed);
+
+        NBTTagCompound storage = storages.getCompoundTagAt(random.nextInt(storages.tagCount()));
+        NBTTagList cells = cells(storage);
+        if (cells.tagCount() > 1) cells.removeTag(random.nextInt(cells.tagCount()));
+
+        for (int i = 0; i < cells.tagCount(); i++) {
+            NBTTagList contents = cells.getCompoundTagAt(i).getTagList("contents", Constants.NBT.TAG_COMPOUND);
+            if (contents.tagCount() < 2) continue;
+
+            // Move one entry to the end under a new count: a removal plus an addition
+            NBTTagCompound moved = (NBTTagCompound) contents.removeTag(random.nextInt(contents.tagCount()));
+            NBTTagCompound added = moved.copy();
+            added.setShort("Damage", (short) (moved.getShort("Damage") + 1));
+            contents.appendTag(added);
+            break;
+        }
+
+        return next;
+    }
+
+    private static void apply(TerminalDataManager client, DeltaSnapshot.DeltaResult result) {
+        // The client decodes its own copy; the server keeps the compounds it built
+        client.applyStorages(result.isFull ? PayloadMode.FULL : PayloadMode.DELTA, result.payload.copy());
+    }
+
+    private static DeltaSnapshot.DeltaResult build(DeltaSnapshot snapshot, NBTTagCompound payload) {
+        return snapshot.buildNestedDelta(TerminalChannels.STORAGES, payload, "storages", "id");
+    }
+
+    private static List<String> describe(TerminalDataManager client) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Long, StorageInfo> e : client.getStorageMap().entrySet()) {
+            StorageInfo storage = e.getValue();
+            lines.add(e.getKey() + " " + storage.getName() + " " + storage.getPos() + " " + storage.getSlotCount()
+                + " " + storage.getPriority() + " " + describe(storage.getBlockItem()));
+
+            for (CellInfo cell : storage.getCells()) {
+                String prefix = storage.getId() + ":" + cell.getSlot();
+                lines.add(prefix + " " + describe(cell.getCellItem()) + " " + cell.getStorageType() + " "
+                    + cell.getUsedBytes() + "/" + cell.getTotalBytes() + " " + cell.getTotalTypes() + " "
+                    + cell.getUpgradeSlotCount());
+
+                // Patched cells append new entries at the end, so only the set of contents must match
+                List<String> contents = new ArrayList<>();
+                for (int i = 0; i < cell.getContents().size(); i++) {
+                    contents.add(describe(cell.getContents().get(i)) + " x" + cell.getContentCount(i));
+                }
+                Collections.sort(contents);
+                for (String content : contents) lines.add(prefix + " content " + content);
+
+                for (int i = 0; i < cell.getPartition().size(); i++) {
+                    lines.add(prefix + " partition " + i + " " + describe(cell.getPartition().get(i)));
+                }
+
+                for (int i = 0; i < cell.getUpgrades().size(); i++) {
+                    lines.add(prefix + " upgrade " + cell.getUpgradeSlotIndex(i) + " " + describe(cell.getUpgrades().get(i)));
+                }
+            }
+        }
+
+        return lines;
+    }
+
+    private static String describe(ItemStack stack) {
+        return stack.isEmpty() ? "empty" : stack.writeToNBT(new NBTTagCompound()).toString();
+    }
+
+    private static List<String> fullDecode(NBTTagCompound payload) {
+        TerminalDataManager client = new TerminalDataManager();
+        apply(client, build(new DeltaSnapshot(), payload));
+
+        return describe(client);
+    }
+
+    @Test
+    public void testPatchSequence_matchesFullDecode() {
+        DeltaSnapshot snapshot = new DeltaSnapshot();
+        TerminalDataManager client = new TerminalDataManager();
+
+        NBTTagCompound payload = this.generator.storages();
+        DeltaSnapshot.DeltaResult first = build(snapshot, payload);
+        Assert.assertTrue(first.isFull);
+        apply(client, first);
+
+        int patched = 0;
+        for (int round = 1; round <= ROUNDS; round++) {
+            payload = mutate(payload, round);
+            DeltaSnapshot.DeltaResult result = build(snapshot, payload);
+            Assert.assertFalse("round " + round, result.isFull);
+
+            patched += result.payload.getTagList("patched", Constants.NBT.TAG_COMPOUND).tagCount();
+            apply(client, result);
+            snapshot.acknowledge(TerminalChannels.STORAGES, result.payload.getInteger(DeltaSnapshot.KEY_VERSION));
+
+            Assert.assertEquals("round " + round, fullDecode(payload), describe(client));
+        }
+
+        Assert.assertTrue("storages sent as nested patches", patched > 0);
+    }
+
+    @Test
+    public void testResync_againstRetainedVersion() {
+        DeltaSnapshot snapshot = new DeltaSnapshot();
+        TerminalDataManager client = new TerminalDataManager();
+
+        NBTTagCompound payload = this.generator.storages();
+        DeltaSnapshot.DeltaResult held = build(snapshot, payload);
+        apply(client, held);
+        int heldVersion = held.payload.getInteger(DeltaSnapshot.KEY_VERSION);
+
+        // Equal storages in new compounds, then real changes: none of these reach the client
+        NBTTagCompound copy = payload.copy();
+        copy.setInteger("refresh", 1);
+        Assert.assertNotNull(build(snapshot, copy));
+
+        payload = mutate(copy, 1);
+        DeltaSnapshot.DeltaResult lost = build(snapshot, payload);
+        payload = mutate(payload, 2);
+        build(snapshot, payload);
+
+        // The client still holds the first version: the next delta is computed against it
+        Assert.assertTrue(snapshot.reject(TerminalChannels.STORAGES, heldVersion,
+            lost.payload.getInteger(DeltaSnapshot.KEY_VERSION)));
+
+        payload = mutate(payload, 3);
+        DeltaSnapshot.DeltaResult resync = build(snapshot, payload);
+        Assert.assertFalse(resync.isFull);
+        Assert.assertEquals(heldVersion, resync.payload.getInteger(DeltaSnapshot.KEY_BASE));
+
+        apply(client, resync);
+        Assert.assertEquals(fullDecode(payload), describe(client));
+    }
+
+    @Test
+    public void testCellItem_inventoryNbtNotResent() {
+        DeltaSnapshot snapshot = new DeltaSnapshot();
+        NBTTagCompound payload = this.generator.storages();
+        build(snapshot, payload);
+
+        // The AE2 cell NBT follows the stored contents: changes with them, but is not patched
+        NBTTagCompound next = payload.copy();
+        NBTTagCompound cell = cells(storages(next).getCompoundTagAt(0)).getCompoundTagAt(0);
+        NBTTagCompound inventory = new NBTTagCompound();
+        inventory.setInteger("ic", 12345);
+        cell.getCompoundTag("cellItem").setTag("tag", inventory);
+        cell.setLong("usedBytes", cell.getLong("usedBytes") + 8);
+
+        NBTTagCompound cellPatch = patchOfFirstCell(build(snapshot, next));
+        Assert.assertTrue(cellPatch.getCompoundTag("set").hasKey("usedBytes"));
+        Assert.assertFalse(cellPatch.getCompoundTag("set").hasKey("cellItem"));
+
+        // A rename changes the display tag: resent with the whole item NBT
+        NBTTagCompound renamed = next.copy();
+        NBTTagCompound item = cells(storages(renamed).getCompoundTagAt(0)).getCompoundTagAt(0).getCompoundTag("cellItem");
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Ores");
+        item.getCompoundTag("tag").setTag("display", display);
+
+        cellPatch = patchOfFirstCell(build(snapshot, renamed));
+        Assert.assertEquals(item, cellPatch.getCompoundTag("set").getCompoundTag("cellItem"));
+    }
+
+    private static NBTTagCompound patchOfFirstCell(DeltaSnapshot.DeltaResult result) {
+        NBTTagList patched = result.payload.getTagList("patched", Constants.NBT.TAG_COMPOUND);
+        Assert.assertEquals(1, patched.tagCount());
+
+        return cells(patched.getCompoundTagAt(0)).getCompoundTagAt(0);
+    }
+}
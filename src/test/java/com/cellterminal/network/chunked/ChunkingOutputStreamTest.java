@@ -0,0 +1,188 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * {@link ChunkingOutputStream} emits chunks while the payload is still being written: whatever
+ * the write sizes, chunks must be numbered in order, full except for the last one (the only
+ * one flagged LAST), and join back into the payload.
+ */
+public class ChunkingOutputStreamTest {
+
+    private static final String CHANNEL = "ct:test";
+    private static final int LEVEL = 6;
+
+    private final List<PacketNBTChunk> chunks = new ArrayList<>();
+
+    private ChunkingOutputStream stream(int maxChunkBytes, int threshold, PayloadCompression deflateKind) {
+        return new ChunkingOutputStream(CHANNEL, 7, PayloadMode.DELTA, WireCodec.COMPACT, maxChunkBytes, threshold,
+            deflateKind, LEVEL, this.chunks::add);
+    }
+
+    /**
+     * Compressible but not trivially so, like serialized terminal NBT.
+     */
+    private static byte[] payload(int size) {
+        Random random = new Random(size);
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) bytes[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(256) : i % 31);
+
+        return bytes;
+    }
+
+    /**
+     * Write the payload in pieces of random size, including single-byte writes.
+     */
+    private static void writeInPieces(ChunkingOutputStream out, byte[] data, Random random) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            if (random.nextInt(5) == 0) {
+                out.write(data[offset++]);
+                continue;
+            }
+
+            int length = Math.min(data.length - offset, 1 + random.nextInt(3000));
+            out.write(data, offset, length);
+            offset += length;
+        }
+    }
+
+    private byte[] joined() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (PacketNBTChunk chunk : this.chunks) bytes.write(chunk.getPayload(), 0, chunk.getPayload().length);
+
+        return bytes.toByteArray();
+    }
+
+    private void assertChunkLayout(int maxChunkBytes, PayloadCompression compression) {
+        Assert.assertFalse("at least one chunk", this.chunks.isEmpty());
+
+        for (int i = 0; i < this.chunks.size(); i++) {
+            PacketNBTChunk chunk = this.chunks.get(i);
+            boolean last = i == this.chunks.size() - 1;
+
+            Assert.assertEquals(i, chunk.getChunkIndex());
+            Assert.assertEquals(last, chunk.isLast());
+            Assert.assertEquals(CHANNEL, chunk.getChannel());
+            Assert.assertEquals(7, chunk.getSessionId());
+            Assert.assertEquals(PayloadMode.DELTA, chunk.getMode());
+            Assert.assertEquals(WireCodec.COMPACT, chunk.getCodec());
+            Assert.assertEquals(compression, chunk.getCompression());
+
+            if (last) {
+                Assert.assertTrue(chunk.getPayload().length <= maxChunkBytes);
+            } else {
+                Assert.assertEquals("only the last chunk is partial", maxChunkBytes, chunk.getPayload().length);
+            }
+        }
+    }
+
+    // ==================== Compression Choice ====================
+
+    @Test
+    public void testClose_belowThresholdIsUncompressed() throws IOException {
+        byte[] data = payload(900);
+
+        try (ChunkingOutputStream out = stream(256, 1024, PayloadCompression.DEFLATE)) {
+            writeInPieces(out, data, new Random(1));
+        }
+
+        assertChunkLayout(256, PayloadCompression.NONE);
+        Assert.assertEquals(4, this.chunks.size());
+        Assert.assertArrayEquals(data, joined());
+    }
+
+    @Test
+    public void testClose_emptyPayloadIsOneLastChunk() throws IOException {
+        stream(256, 1024, PayloadCompression.DEFLATE).close();
+
+        assertChunkLayout(256, PayloadCompression.NONE);
+        Assert.assertEquals(1, this.chunks.size());
+        Assert.assertEquals(0, this.chunks.get(0).getPayload().length);
+    }
+
+    @Test
+    public void testWrite_thresholdReachedMidWrite() throws IOException {
+        byte[] data = payload(50_000);
+
+        try (ChunkingOutputStream out = stream(1000, 1024, PayloadCompression.DEFLATE)) {
+            // The held-back prefix is resolved inside a write that crosses the threshold
+            out.write(data, 0, 1000);
+            out.write(data, 1000, data.length - 1000);
+        }
+
+        assertChunkLayout(1000, PayloadCompression.DEFLATE);
+        Assert.assertArrayEquals(data, PayloadDeflate.decompress(PayloadCompression.DEFLATE, joined()));
+    }
+
+    // ==================== Chunk Boundaries ====================
+
+    @Test
+    public void testWrite_randomPiecesAndChunkSizes() throws IOException {
+        byte[] data = payload(200_000);
+        Random random = new Random(3);
+
+        for (PayloadCompression kind : new PayloadCompression[] {PayloadCompression.DEFLATE, PayloadCompression.DEFLATE_DICT}) {
+            for (int round = 0; round < 10; round++) {
+                this.chunks.clear();
+                int maxChunkBytes = 1 + random.nextInt(20_000);
+
+                ChunkingOutputStream out = stream(maxChunkBytes, 1024, kind);
+                writeInPieces(out, data, random);
+                out.close();
+
+                assertChunkLayout(maxChunkBytes, kind);
+                Assert.assertEquals(joined().length, out.getBytesEmitted());
+                Assert.assertArrayEquals(kind + " chunk " + maxChunkBytes, data, PayloadDeflate.decompress(kind, joined()));
+
+                // What the receiver does with the same chunks, one at a time
+                StreamingInflater inflater = new StreamingInflater(kind, this.chunks.get(0).getPayload().length);
+                try {
+                    for (PacketNBTChunk chunk : this.chunks) inflater.feed(chunk.getPayload());
+
+                    InputStream in = inflater.finish();
+                    ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) > 0) inflated.write(buffer, 0, read);
+                    Assert.assertArrayEquals(data, inflated.toByteArray());
+                } finally {
+                    inflater.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testClose_exactMultipleOfChunkSize() throws IOException {
+        byte[] data = payload(1024);
+
+        try (ChunkingOutputStream out = stream(256, 4096, PayloadCompression.DEFLATE)) {
+            out.write(data);
+        }
+
+        // A full buffer is held back, so the last chunk is full rather than empty
+        assertChunkLayout(256, PayloadCompression.NONE);
+        Assert.assertEquals(4, this.chunks.size());
+        Assert.assertArrayEquals(data, joined());
+    }
+
+    @Test
+    public void testClose_idempotent() throws IOException {
+        ChunkingOutputStream out = stream(256, 1024, PayloadCompression.DEFLATE);
+        out.write(payload(100));
+        out.close();
+        out.close();
+
+        Assert.assertEquals(1, this.chunks.size());
+    }
+}
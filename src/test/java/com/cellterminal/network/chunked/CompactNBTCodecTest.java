@@ -0,0 +1,171 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagLong;
+import net.minecraft.nbt.NBTTagLongArray;
+import net.minecraft.nbt.NBTTagString;
+
+
+/**
+ * Round trips through {@link CompactNBTCodec}: every tag type, the string table, and the
+ * zigzag varint boundaries.
+ */
+public class CompactNBTCodecTest {
+
+    private static byte[] encode(NBTTagCompound compound) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CompactNBTCodec.write(compound, new DataOutputStream(bytes));
+
+        return bytes.toByteArray();
+    }
+
+    private static NBTTagCompound decode(byte[] bytes) throws IOException {
+        return CompactNBTCodec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    private static NBTTagCompound roundTrip(NBTTagCompound compound) throws IOException {
+        return decode(encode(compound));
+    }
+
+    // ==================== Tag Types ====================
+
+    @Test
+    public void testRoundTrip_everyTagType() throws IOException {
+        NBTTagCompound nested = new NBTTagCompound();
+        nested.setString("id", "minecraft:stone");
+        nested.setByte("Count", (byte) 1);
+
+        NBTTagList compounds = new NBTTagList();
+        compounds.appendTag(nested);
+        compounds.appendTag(nested.copy());
+
+        NBTTagList strings = new NBTTagList();
+        strings.appendTag(new NBTTagString("a"));
+        strings.appendTag(new NBTTagString(""));
+
+        NBTTagCompound compound = new NBTTagCompound();
+        compound.setByte("byte", (byte) -7);
+        compound.setShort("short", (short) -12345);
+        compound.setInteger("int", 123456789);
+        compound.setLong("long", -9876543210L);
+        compound.setFloat("float", 1.5f);
+        compound.setDouble("double", -2.25);
+        compound.setByteArray("bytes", new byte[] {0, 1, -1, 127, -128});
+        compound.setString("string", "héllo wörld");
+        compound.setTag("compounds", compounds);
+        compound.setTag("strings", strings);
+        compound.setTag("empty", new NBTTagList());
+        compound.setTag("nested", nested);
+        compound.setIntArray("ints", new int[] {0, -1, 1, Integer.MIN_VALUE, Integer.MAX_VALUE});
+        compound.setTag("longs", new NBTTagLongArray(new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE}));
+
+        // Long arrays are embedded as vanilla NBT
+        Assert.assertEquals(compound, roundTrip(compound));
+    }
+
+    @Test
+    public void testRoundTrip_emptyCompound() throws IOException {
+        NBTTagCompound empty = new NBTTagCompound();
+
+        Assert.assertEquals(empty, roundTrip(empty));
+        Assert.assertEquals("version byte and a zero count", 2, encode(empty).length);
+    }
+
+    // ==================== Varints ====================
+
+    @Test
+    public void testRoundTrip_varintBoundaries() throws IOException {
+        long[] values = {0, 1, -1, 63, -64, 64, -65, 8191, 8192, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE};
+
+        for (long value : values) {
+            NBTTagCompound compound = new NBTTagCompound();
+            compound.setLong("v", value);
+            compound.setInteger("i", (int) value);
+            compound.setShort("s", (short) value);
+
+            Assert.assertEquals(String.valueOf(value), compound, roundTrip(compound));
+        }
+    }
+
+    @Test
+    public void testEncode_smallValuesTakeOneByte() throws IOException {
+        NBTTagCompound small = new NBTTagCompound();
+        small.setLong("v", -64);
+        NBTTagCompound large = new NBTTagCompound();
+        large.setLong("v", -65);
+
+        // zigzag(-64) = 127 fits in 7 bits, zigzag(-65) = 129 does not
+        Assert.assertEquals(encode(small).length + 1, encode(large).length);
+    }
+
+    // ==================== String Table ====================
+
+    @Test
+    public void testEncode_repeatedStringsAreReferences() throws IOException {
+        String name = "appliedenergistics2:material";
+
+        NBTTagList once = new NBTTagList();
+        once.appendTag(new NBTTagString(name));
+        NBTTagList twice = once.copy();
+        twice.appendTag(new NBTTagString(name));
+
+        NBTTagCompound first = new NBTTagCompound();
+        first.setTag("l", once);
+        NBTTagCompound second = new NBTTagCompound();
+        second.setTag("l", twice);
+
+        // The second occurrence is a one-byte reference; the count stays one byte too
+        Assert.assertEquals(encode(first).length + 1, encode(second).length);
+        Assert.assertEquals(second, roundTrip(second));
+    }
+
+    @Test
+    public void testRoundTrip_keysSharedWithValues() throws IOException {
+        NBTTagCompound inner = new NBTTagCompound();
+        inner.setString("id", "id");
+        inner.setTag("Count", new NBTTagByte((byte) 3));
+
+        NBTTagList list = new NBTTagList();
+        for (int i = 0; i < 300; i++) {
+            NBTTagCompound entry = inner.copy();
+            entry.setTag("Cnt", new NBTTagLong(i));
+            // The value refers back to the key just added to the table
+            entry.setString("name" + i, "name" + i);
+            list.appendTag(entry);
+        }
+
+        NBTTagCompound compound = new NBTTagCompound();
+        compound.setTag("storages", list);
+
+        // Past 127 table entries, references need two-byte varints
+        Assert.assertEquals(compound, roundTrip(compound));
+    }
+
+    // ==================== Errors ====================
+
+    @Test(expected = IOException.class)
+    public void testRead_unknownVersion() throws IOException {
+        byte[] bytes = encode(new NBTTagCompound());
+        bytes[0] = 99;
+
+        decode(bytes);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_invalidStringReference() throws IOException {
+        // version, one entry, key = reference to table entry 5 (empty table)
+        decode(new byte[] {1, 1, 5});
+    }
+}
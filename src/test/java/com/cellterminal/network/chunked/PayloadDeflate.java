@@ -0,0 +1,84 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ * Whole-array compression and decompression for a {@link PayloadCompression}, as a reference
+ * for the streaming {@link ChunkingOutputStream} and {@link StreamingInflater} in tests.
+ */
+final class PayloadDeflate {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private PayloadDeflate() {}
+
+    /**
+     * Compress serialized payload bytes.
+     *
+     * @param level Deflater level (0-9), ignored for {@link PayloadCompression#NONE}
+     */
+    static byte[] compress(PayloadCompression compression, byte[] raw, int level) {
+        if (compression == PayloadCompression.NONE) return raw;
+
+        Deflater deflater = new Deflater(level);
+        try {
+            if (compression == PayloadCompression.DEFLATE_DICT) deflater.setDictionary(PayloadCompression.DICTIONARY);
+
+            deflater.setInput(raw);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reverse {@link #compress}.
+     */
+    static byte[] decompress(PayloadCompression compression, byte[] data) throws IOException {
+        if (compression == PayloadCompression.NONE) return data;
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read > 0) {
+                    out.write(buffer, 0, read);
+                    continue;
+                }
+
+                if (inflater.needsDictionary()) {
+                    if (compression != PayloadCompression.DEFLATE_DICT) {
+                        throw new IOException("Payload requires an unexpected preset dictionary");
+                    }
+                    inflater.setDictionary(PayloadCompression.DICTIONARY);
+                } else if (inflater.needsInput()) {
+                    throw new IOException("Truncated compressed payload");
+                }
+            }
+
+            return out.toByteArray();
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IOException("Corrupt compressed payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.cellterminal.network.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.client.TabStateManager;
+import com.cellterminal.gui.handler.TerminalDataManager;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Replays a {@link PayloadRecording} (see {@link PayloadRecorder}) through {@link PayloadDispatcher}
+ * into a {@link TerminalDataManager}, headless, and reports the time spent per channel in each
+ * client step: parsing the recorded payload, the handler's prepare (dictionary resolution, on
+ * the decoder thread in game) and its apply (entry parsing and line rebuild, on the main thread
+ * in game).
+ * <p>
+ * The handlers mirror {@code GuiCellTerminalBase.registerPayloadHandlers} without the GUI: no
+ * network gating, no version checks or acknowledgements (there is no server to answer), subnets
+ * kept as raw entries, and drives and buses collapsed in the Inventory tabs (their content rows
+ * read the client config, which needs a running game). Rendering is not covered.
+ * <p>
+ * Payloads are replayed back to back on one thread, or at their recorded pace. Run from the IDE
+ * or with {@code ./gradlew payloadReplay -PreplayArgs="file=<recording> speed=recorded|max repeat=N"}.
+ */
+public final class PayloadReplay {
+
+    /**
+     * Totals for one channel.
+     */
+    public static final class ChannelStats {
+        public int payloads;
+        public int fullPayloads;
+        public long bytes;
+        public long decodeNanos;
+        public long prepareNanos;
+        public long applyNanos;
+    }
+
+    private final File file;
+    private final boolean recordedPace;
+    private TerminalDataManager dataManager;
+    private final Map<Long, NBTTagCompound> subnets = new HashMap<>();
+
+    /**
+     * @param recordedPace True to wait between payloads as long as the client did when recording,
+     *                     false to replay them as fast as possible
+     */
+    public PayloadReplay(File file, boolean recordedPace) {
+        this.file = file;
+        this.recordedPace = recordedPace;
+    }
+
+    /**
+     * Replay the whole recording into a fresh data manager.
+     *
+     * @return per-channel totals, in order of first appearance
+     */
+    public Map<String, ChannelStats> run() throws IOException, InterruptedException {
+        MegabaseGenerator.bootstrap();
+
+        this.dataManager = new TerminalDataManager();
+        this.subnets.clear();
+        registerHandlers();
+
+        Map<String, ChannelStats> stats = new LinkedHashMap<>();
+        long start = System.nanoTime();
+
+        try (PayloadRecording.Reader reader = new PayloadRecording.Reader(this.file)) {
+            PayloadRecording.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (this.recordedPace) {
+                    long wait = entry.nanos - (System.nanoTime() - start);
+                    if (wait > 0) Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+
+                PayloadHandler handler = PayloadDispatcher.get(entry.channel);
+                if (handler == null) continue;
+
+                ChannelStats channel = stats.computeIfAbsent(entry.channel, key -> new ChannelStats());
+                channel.payloads++;
+                if (entry.mode == PayloadMode.FULL) channel.fullPayloads++;
+                channel.bytes += entry.bytes.length;
+
+                long t0 = System.nanoTime();
+                NBTTagCompound data = entry.decode();
+                long t1 = System.nanoTime();
+                Object prepared = handler.prepare(entry.mode, data);
+                long t2 = System.nanoTime();
+                handler.onPrepared(entry.mode, data, prepared);
+                long t3 = System.nanoTime();
+
+                channel.decodeNanos += t1 - t0;
+                channel.prepareNanos += t2 - t1;
+                channel.applyNanos += t3 - t2;
+            }
+        } finally {
+            PayloadDispatcher.unregister(TerminalChannels.META);
+            PayloadDispatcher.unregister(TerminalChannels.STORAGES);
+            PayloadDispatcher.unregister(TerminalChannels.BUSES);
+            PayloadDispatcher.unregister(TerminalChannels.TEMP_CELLS);
+            PayloadDispatcher.unregister(TerminalChannels.SUBNETS);
+        }
+
+        return stats;
+    }
+
+    public TerminalDataManager getDataManager() {
+        return this.dataManager;
+    }
+
+    public Map<Long, NBTTagCompound> getSubnets() {
+        return this.subnets;
+    }
+
+    private void registerHandlers() {
+        TerminalDataManager data = this.dataManager;
+
+        PayloadDispatcher.register(TerminalChannels.META, data::applyMeta);
+        PayloadDispatcher.register(TerminalChannels.STORAGES, PayloadHandler.prepared(
+            (mode, payload) -> {
+                data.decodeStacks(TerminalChannels.STORAGES, payload);
+                return null;
+            },
+            (mode, payload, unused) -> {
+                collapseNewEntries(mode, payload, "storages",
+                    id -> tabs().setExpanded(TabStateManager.TabType.INVENTORY, id, false));
+                data.applyStorages(mode, payload);
+            }));
+        PayloadDispatcher.register(TerminalChannels.BUSES, PayloadHandler.prepared(
+            (mode, payload) -> {
+                data.decodeStacks(TerminalChannels.BUSES, payload);
+                return null;
+            },
+            (mode, payload, unused) -> {
+                // Bus expansion is keyed by -id - 1 (see TabStateManager#isBusExpanded)
+                collapseNewEntries(mode, payload, "storageBuses",
+                    id -> tabs().setExpanded(TabStateManager.TabType.STORAGE_BUS_INVENTORY, -id - 1, false));
+                data.applyBuses(mode, payload);
+            }));
+        PayloadDispatcher.register(TerminalChannels.TEMP_CELLS, PayloadHandler.prepared(
+            (mode, payload) -> {
+                data.decodeStacks(TerminalChannels.TEMP_CELLS, payload);
+                return null;
+            },
+            (mode, payload, unused) -> data.applyTempCells(mode, payload)));
+        PayloadDispatcher.register(TerminalChannels.SUBNETS, PayloadHandler.prepared(
+            (mode, payload) -> {
+                data.decodeStacks(TerminalChannels.SUBNETS, payload);
+                return null;
+            },
+            (mode, payload, unused) -> applySubnets(mode, payload)));
+    }
+
+    private static TabStateManager tabs() {
+        return TabStateManager.getInstance();
+    }
+
+    /**
+     * Collapse the entries a payload brings in, before it is applied: the FULL list, or the
+     * added entries of a DELTA (the others were collapsed when they first arrived).
+     */
+    private static void collapseNewEntries(PayloadMode mode, NBTTagCompound payload, String listKey,
+                                           LongConsumer collapse) {
+        NBTTagList entries = payload.getTagList(mode == PayloadMode.FULL ? listKey : "added", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < entries.tagCount(); i++) collapse.accept(entries.getCompoundTagAt(i).getLong("id"));
+    }
+
+    // SubnetInfo needs the client's localization, so subnets are applied as raw entries
+    private void applySubnets(PayloadMode mode, NBTTagCompound payload) {
+        DeltaApplier.applyRaw(mode, payload, "id", "subnets", this.subnets::clear, (id, entry) -> {
+            if (entry == null) {
+                this.subnets.remove(id);
+            } else {
+                this.subnets.put(id, entry);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Format per-channel totals as a table.
+     */
+    public static List<String> format(Map<String, ChannelStats> stats) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-10s %8s %6s %12s %12s %12s %12s",
+            "channel", "payloads", "full", "bytes (KiB)", "decode (ms)", "prepare (ms)", "apply (ms)"));
+
+        for (Map.Entry<String, ChannelStats> entry : stats.entrySet()) {
+            ChannelStats channel = entry.getValue();
+            lines.add(String.format("%-10s %8d %6d %12.1f %12.2f %12.2f %12.2f",
+                entry.getKey(), channel.payloads, channel.fullPayloads, channel.bytes / 1024.0,
+                channel.decodeNanos / 1_000_000.0, channel.prepareNanos / 1_000_000.0,
+                channel.applyNanos / 1_000_000.0));
+        }
+
+        return lines;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File file = null;
+        boolean recordedPace = false;
+        int repeat = 1;
+
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("Expected key=value, got " + arg);
+
+            switch (kv[0]) {
+                case "file": file = new File(kv[1]); break;
+                case "speed": recordedPace = kv[1].equals("recorded"); break;
+                case "repeat": repeat = Integer.parseInt(kv[1]); break;
+                default: throw new IllegalArgumentException("Unknown setting " + kv[0]);
+            }
+        }
+
+        if (file == null) throw new IllegalArgumentException("Missing file=<recording>");
+
+        PayloadReplay replay = new PayloadReplay(file, recordedPace);
+        for (int round = 1; round <= repeat; round++) {
+            long start = System.nanoTime();
+            Map<String, ChannelStats> stats = replay.run();
+
+            System.out.printf("Round %d: %.2f ms%n", round, (System.nanoTime() - start) / 1_000_000.0);
+            for (String line : format(stats)) System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.cellterminal.network.chunked;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.container.handler.ChannelPayloadBuilder;
+import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Records a small session the way the server sends it (FULL, then a DELTA on storages) and
+ * replays it through the {@link PayloadReplay} harness.
+ */
+public class PayloadReplayTest {
+
+    private static final int DRIVES = 20;
+    private static final int BUSES = 8;
+    private static final int SUBNETS = 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * @param flushedLengths if not null, receives the file length after each of the 4 payloads
+     */
+    private File record(long[] flushedLengths) throws IOException {
+        MegabaseGenerator.bootstrap();
+
+        MegabaseGenerator generator = new MegabaseGenerator().drives(DRIVES).buses(BUSES).subnets(SUBNETS);
+        NBTTagCompound storages = generator.storages();
+        DeltaSnapshot snapshot = new DeltaSnapshot();
+        StackDictionaryEncoder dictionary = new StackDictionaryEncoder();
+
+        NBTTagCompound[] payloads = {storages, generator.buses(), generator.subnets(),
+            MegabaseGenerator.mutate(storages, 0.2, 2)};
+        String[] channels = {TerminalChannels.STORAGES, TerminalChannels.BUSES, TerminalChannels.SUBNETS,
+            TerminalChannels.STORAGES};
+        String[] listKeys = {"storages", "storageBuses", "subnets", "storages"};
+
+        File file = folder.newFile();
+        try (PayloadRecording.Writer writer = new PayloadRecording.Writer(file)) {
+            for (int i = 0; i < payloads.length; i++) {
+                write(writer, snapshot, dictionary, channels[i], payloads[i], listKeys[i],
+                    channels[i].equals(TerminalChannels.STORAGES));
+                if (flushedLengths != null) flushedLengths[i] = file.length();
+            }
+        }
+
+        return file;
+    }
+
+    private static void write(PayloadRecording.Writer writer, DeltaSnapshot snapshot, StackDictionaryEncoder dictionary,
+                              String channel, NBTTagCompound payload, String listKey, boolean nested) throws IOException {
+        DeltaSnapshot.DeltaResult result = ChannelPayloadBuilder.build(snapshot, dictionary, channel, payload, listKey,
+            "id", nested, false);
+        if (result == null) return;
+
+        writer.write(channel, result.isFull ? PayloadMode.FULL : PayloadMode.DELTA, result.payload);
+    }
+
+    @Test
+    public void testReplay_appliesRecordedSession() throws IOException, InterruptedException {
+        PayloadReplay replay = new PayloadReplay(record(null), false);
+        Map<String, PayloadReplay.ChannelStats> stats = replay.run();
+
+        Assert.assertEquals(DRIVES, replay.getDataManager().getStorageMap().size());
+        Assert.assertEquals(BUSES, replay.getDataManager().getStorageBusMap().size());
+        Assert.assertEquals(SUBNETS, replay.getSubnets().size());
+
+        PayloadReplay.ChannelStats storages = stats.get(TerminalChannels.STORAGES);
+        Assert.assertEquals(2, storages.payloads);
+        Assert.assertEquals(1, storages.fullPayloads);
+        Assert.assertFalse(PayloadReplay.format(stats).isEmpty());
+    }
+
+    @Test
+    public void testReader_stopsAtTruncatedEntry() throws IOException {
+        // Cut the file in the middle of the last payload, as a crash while recording would
+        long[] lengths = new long[4];
+        File file = record(lengths);
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength((lengths[2] + lengths[3]) / 2);
+        }
+
+        int entries = 0;
+        try (PayloadRecording.Reader reader = new PayloadRecording.Reader(file)) {
+            while (reader.next() != null) entries++;
+        }
+
+        Assert.assertEquals("complete entries before the cut", 3, entries);
+    }
+}
@@ -0,0 +1,206 @@
+package com.cellterminal.network.chunked;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.container.handler.DeltaSnapshot;
+
+
+/**
+ * Client {@link PayloadVersionTracker} wired to a server {@link DeltaSnapshot}: payloads lost
+ * in transit (abandoned sessions) are detected, reported, and answered with a resync delta or,
+ * once the held version is no longer retained, a FULL payload. After each delivered payload the
+ * client holds exactly the server's entries.
+ */
+public class PayloadVersionTrackerTest {
+
+    private static final String CHANNEL = "ct:test";
+
+    private final DeltaSnapshot server = new DeltaSnapshot();
+    private final List<int[]> reports = new ArrayList<>();
+    private final Map<Long, NBTTagCompound> client = new HashMap<>();
+
+    private PayloadVersionTracker tracker;
+    private NBTTagCompound serverPayload;
+    private int round = 0;
+
+    @Before
+    public void setUp() {
+        // Reports reach the server immediately, as PacketPayloadAck would
+        this.tracker = new PayloadVersionTracker((channel, version, rejectedVersion) -> {
+            this.reports.add(new int[] {version, rejectedVersion});
+
+            if (rejectedVersion == 0) {
+                this.server.acknowledge(channel, version);
+            } else {
+                this.server.reject(channel, version, rejectedVersion);
+            }
+        });
+    }
+
+    /**
+     * Build the next server payload: entry 0 changes every round, entry 9 comes and goes.
+     */
+    private DeltaSnapshot.DeltaResult build() {
+        NBTTagList entries = new NBTTagList();
+        for (long id = 0; id < 4; id++) entries.appendTag(entry(id, id == 0 ? this.round : (int) id));
+        if (this.round % 2 == 1) entries.appendTag(entry(9, this.round));
+        this.round++;
+
+        this.serverPayload = new NBTTagCompound();
+        this.serverPayload.setTag("entries", entries);
+
+        return this.server.buildDelta(CHANNEL, this.serverPayload, "entries", "id");
+    }
+
+    private static NBTTagCompound entry(long id, int value) {
+        NBTTagCompound entry = new NBTTagCompound();
+        entry.setLong("id", id);
+        entry.setInteger("value", value);
+
+        return entry;
+    }
+
+    /**
+     * Deliver a payload as the receiver does: check its version, apply, acknowledge.
+     *
+     * @return whether the payload was applied
+     */
+    private boolean deliver(DeltaSnapshot.DeltaResult result) {
+        PayloadMode mode = result.isFull ? PayloadMode.FULL : PayloadMode.DELTA;
+        NBTTagCompound data = result.payload.copy();
+        if (!this.tracker.accept(CHANNEL, mode, data)) return false;
+
+        DeltaApplier.applyRaw(mode, data, "id", "entries", this.client::clear, (id, entry) -> {
+            if (entry == null) {
+                this.client.remove(id);
+            } else {
+                this.client.put(id, entry);
+            }
+            return null;
+        });
+        this.tracker.applied(CHANNEL, data);
+
+        return true;
+    }
+
+    private void assertClientInSync() {
+        Map<Long, NBTTagCompound> expected = new HashMap<>();
+        NBTTagList entries = this.serverPayload.getTagList("entries", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < entries.tagCount(); i++) expected.put(entries.getCompoundTagAt(i).getLong("id"), entries.getCompoundTagAt(i));
+
+        Assert.assertEquals(expected, this.client);
+    }
+
+    private int[] lastReport() {
+        return this.reports.get(this.reports.size() - 1);
+    }
+
+    // ==================== Delivery ====================
+
+    @Test
+    public void testDeliver_acknowledgesEachVersion() {
+        for (int i = 0; i < 5; i++) {
+            DeltaSnapshot.DeltaResult result = build();
+            Assert.assertTrue(deliver(result));
+            Assert.assertArrayEquals(new int[] {result.payload.getInteger(DeltaSnapshot.KEY_VERSION), 0}, lastReport());
+            assertClientInSync();
+        }
+    }
+
+    @Test
+    public void testDeliver_unversionedPayloadsAreNotAcknowledged() {
+        this.server.setVersioned(false);
+
+        Assert.assertTrue(deliver(build()));
+        Assert.assertTrue(deliver(build()));
+        Assert.assertTrue(this.reports.isEmpty());
+        assertClientInSync();
+    }
+
+    // ==================== Lost Payloads ====================
+
+    @Test
+    public void testLostDelta_resyncsFromHeldVersion() {
+        DeltaSnapshot.DeltaResult held = build();
+        deliver(held);
+        build();
+        DeltaSnapshot.DeltaResult next = build();
+
+        // Based on the lost payload: dropped and reported with the version we hold
+        Assert.assertFalse(deliver(next));
+        Assert.assertArrayEquals(new int[] {held.payload.getInteger(DeltaSnapshot.KEY_VERSION),
+            next.payload.getInteger(DeltaSnapshot.KEY_VERSION)}, lastReport());
+
+        DeltaSnapshot.DeltaResult resync = build();
+        Assert.assertFalse(resync.isFull);
+        Assert.assertTrue(deliver(resync));
+        assertClientInSync();
+
+        // Optimistic deltas resume
+        Assert.assertTrue(deliver(build()));
+        assertClientInSync();
+    }
+
+    @Test
+    public void testLostDeltas_beyondRetainedWindowResendFull() {
+        deliver(build());
+
+        // A long stall: more payloads lost than the server retains
+        for (int i = 0; i < 10; i++) build();
+
+        Assert.assertFalse(deliver(build()));
+
+        DeltaSnapshot.DeltaResult resend = build();
+        Assert.assertTrue(resend.isFull);
+        Assert.assertTrue(deliver(resend));
+        assertClientInSync();
+
+        Assert.assertTrue(deliver(build()));
+        assertClientInSync();
+    }
+
+    @Test
+    public void testLostDeltas_staleRejectsDoNotResendTwice() {
+        deliver(build());
+        build();
+        DeltaSnapshot.DeltaResult first = build();
+        DeltaSnapshot.DeltaResult second = build();
+
+        // Both in flight when the first reject reaches the server
+        Assert.assertFalse(deliver(first));
+        DeltaSnapshot.DeltaResult resync = build();
+        Assert.assertFalse(deliver(second));
+
+        Assert.assertTrue(deliver(resync));
+        assertClientInSync();
+
+        // The second reject was stale: the next payload builds on the resync, not on a new one
+        DeltaSnapshot.DeltaResult after = build();
+        Assert.assertEquals(resync.payload.getInteger(DeltaSnapshot.KEY_VERSION), after.payload.getInteger(DeltaSnapshot.KEY_BASE));
+        Assert.assertTrue(deliver(after));
+        assertClientInSync();
+    }
+
+    @Test
+    public void testFull_alwaysAccepted() {
+        deliver(build());
+        build();
+        this.server.reset(CHANNEL);
+
+        DeltaSnapshot.DeltaResult full = build();
+        Assert.assertTrue(full.isFull);
+        Assert.assertTrue(deliver(full));
+        assertClientInSync();
+    }
+}
@@ -0,0 +1,306 @@
+package com.cellterminal.network.chunked;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.minecraft.nbt.NBTTagCompound;
+
+import com.cellterminal.config.CellTerminalServerConfig;
+import com.cellterminal.container.handler.ChannelPayloadBuilder;
+import com.cellterminal.container.handler.DeltaSnapshot;
+import com.cellterminal.gui.handler.TerminalDataManager;
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Headless end-to-end run of the terminal sync path on a {@link MegabaseGenerator} network:
+ * for each channel, a FULL payload and then a DELTA after some contents changed go through
+ * {@link ChannelPayloadBuilder} (delta and stack dictionary, as the container sends them),
+ * {@link ChunkedNBTSender#encode}, {@link ChunkedNBTReceiver#decode} and into a
+ * {@link TerminalDataManager}. Each stage reports its wall time, the bytes it allocated on the
+ * calling thread and, for the encoder, the codec-encoded and compressed payload size.
+ * <p>
+ * Snapshot, dictionary and delta settings follow the server config defaults. Stages run
+ * back to back on one thread, so times include no queueing or network latency.
+ * <p>
+ * Run from the IDE or with {@code ./gradlew perfHarness}; arguments are {@code key=value}
+ * pairs of the generator settings, e.g. {@code drives=2000 buses=500 subnets=50}.
+ */
+public final class PerfHarness {
+
+    /**
+     * One measured stage.
+     */
+    public static final class Stage {
+        public final String channel;
+        public final PayloadMode mode;
+        public final String name;
+        public final long nanos;
+        /** Bytes allocated by the calling thread, or -1 if the JVM does not report it */
+        public final long allocatedBytes;
+        /** Codec-encoded payload size (encode stage only, else 0) */
+        public long rawBytes;
+        /** Compressed payload size, summed over chunks (encode stage only, else 0) */
+        public long wireBytes;
+
+        Stage(String channel, PayloadMode mode, String name, long nanos, long allocatedBytes) {
+            this.channel = channel;
+            this.mode = mode;
+            this.name = name;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private interface Step<T> {
+        T run() throws IOException;
+    }
+
+    private final MegabaseGenerator generator;
+    private final DeltaSnapshot snapshot = new DeltaSnapshot();
+    private final StackDictionaryEncoder stackDictionary = new StackDictionaryEncoder();
+    private final TerminalDataManager dataManager = new TerminalDataManager();
+    private final Map<Long, NBTTagCompound> subnets = new HashMap<>();
+    private final List<Stage> stages = new ArrayList<>();
+    private long sessionId = 0;
+
+    public PerfHarness(MegabaseGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Send every channel FULL, then change the contents of a fraction of the holders and send
+     * every channel again (normally as a DELTA).
+     *
+     * @param changedFraction fraction of cells, buses and subnets whose contents change
+     * @return the measured stages, in order
+     */
+    public List<Stage> run(double changedFraction) throws IOException {
+        MegabaseGenerator.bootstrap();
+        this.generator.collapseInventoryTabs();
+
+        NBTTagCompound storages = this.generator.storages();
+        NBTTagCompound buses = this.generator.buses();
+        NBTTagCompound subnetList = this.generator.subnets();
+
+        CellTerminalServerConfig config = CellTerminalServerConfig.getInstance();
+        boolean nested = config.isNestedStorageDeltasEnabled();
+
+        send(TerminalChannels.STORAGES, storages, "storages", nested);
+        send(TerminalChannels.BUSES, buses, "storageBuses", false);
+        send(TerminalChannels.SUBNETS, subnetList, "subnets", false);
+        rebuild(PayloadMode.FULL);
+
+        send(TerminalChannels.STORAGES, MegabaseGenerator.mutate(storages, changedFraction, 2), "storages", nested);
+        send(TerminalChannels.BUSES, MegabaseGenerator.mutate(buses, changedFraction, 3), "storageBuses", false);
+        send(TerminalChannels.SUBNETS, MegabaseGenerator.mutate(subnetList, changedFraction, 4), "subnets", false);
+        rebuild(PayloadMode.DELTA);
+
+        return this.stages;
+    }
+
+    public TerminalDataManager getDataManager() {
+        return this.dataManager;
+    }
+
+    public Map<Long, NBTTagCompound> getSubnets() {
+        return this.subnets;
+    }
+
+    private void send(String channel, NBTTagCompound fullPayload, String listKey, boolean nested) throws IOException {
+        // Server: delta and stack dictionary, exactly as ContainerCellTerminalBase.sendChunked
+        fullPayload.setLong("networkId", 0);
+        DeltaSnapshot.DeltaResult result = measure(channel, null, "build", () -> ChannelPayloadBuilder.build(
+            this.snapshot, this.stackDictionary, channel, fullPayload, listKey, "id", nested, false));
+        if (result == null) return;
+
+        PayloadMode mode = result.isFull ? PayloadMode.FULL : PayloadMode.DELTA;
+        NBTTagCompound payload = result.payload;
+
+        // Encoder thread in the mod; the receiver reads the same chunks back
+        List<PacketNBTChunk> chunks = new ArrayList<>();
+        long session = ++this.sessionId;
+        boolean encoded = measure(channel, mode, "encode",
+            () -> ChunkedNBTSender.encode(channel, session, mode, WireCodec.COMPACT, payload, chunks::add));
+        if (!encoded) throw new IOException("Failed to encode " + channel);
+
+        Stage encode = this.stages.get(this.stages.size() - 1);
+        encode.rawBytes = rawSize(payload);
+        for (PacketNBTChunk chunk : chunks) encode.wireBytes += chunk.getPayload().length;
+
+        // Client decoder thread: inflate, parse, resolve dictionary references
+        NBTTagCompound received = measure(channel, mode, "decode", () -> {
+            NBTTagCompound nbt = ChunkedNBTReceiver.decode(chunks);
+            this.dataManager.decodeStacks(channel, nbt);
+            return nbt;
+        });
+
+        // Client main thread: parse the entries (ItemStacks) and apply them, which also updates the lines
+        switch (channel) {
+            case TerminalChannels.STORAGES:
+                measure(channel, mode, "apply", () -> {
+                    this.dataManager.applyStorages(mode, received);
+                    return null;
+                });
+                break;
+            case TerminalChannels.BUSES:
+                measure(channel, mode, "apply", () -> {
+                    this.dataManager.applyBuses(mode, received);
+                    return null;
+                });
+                break;
+            default:
+                // SubnetInfo needs the client's localization, so subnets are applied as raw entries
+                measure(channel, mode, "apply", () -> {
+                    DeltaApplier.applyRaw(mode, received, "id", listKey, this.subnets::clear, (id, entry) -> {
+                        if (entry == null) {
+                            this.subnets.remove(id);
+                        } else {
+                            this.subnets.put(id, entry);
+                        }
+                        return null;
+                    });
+                    return null;
+                });
+                break;
+        }
+    }
+
+    // Filter or search change: full line rebuild
+    private void rebuild(PayloadMode round) throws IOException {
+        measure("lines", round, "rebuild", () -> {
+            this.dataManager.rebuildLines();
+            return null;
+        });
+    }
+
+    private <T> T measure(String channel, PayloadMode mode, String name, Step<T> step) throws IOException {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        T result = step.run();
+        long nanos = System.nanoTime() - start;
+        long allocatedAfter = allocatedBytes();
+
+        // The build stage decides the mode; it is known once the stage ran
+        PayloadMode stageMode = mode;
+        if (stageMode == null) {
+            DeltaSnapshot.DeltaResult delta = (DeltaSnapshot.DeltaResult) result;
+            stageMode = delta == null || !delta.isFull ? PayloadMode.DELTA : PayloadMode.FULL;
+        }
+
+        long allocated = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+        this.stages.add(new Stage(channel, stageMode, name, nanos, allocated));
+
+        return result;
+    }
+
+    /**
+     * Bytes allocated so far by the calling thread (HotSpot's ThreadMXBean extension), or -1.
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return -1;
+
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported() || !hotspot.isThreadAllocatedMemoryEnabled()) return -1;
+
+        return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long rawSize(NBTTagCompound payload) throws IOException {
+        long[] size = {0};
+        OutputStream counter = new OutputStream() {
+            @Override
+            public void write(int b) {
+                size[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                size[0] += len;
+            }
+        };
+
+        try (DataOutputStream dos = new DataOutputStream(counter)) {
+            CompactNBTCodec.write(payload, dos);
+        }
+
+        return size[0];
+    }
+
+    /**
+     * Format stages as a table, with FULL and DELTA totals.
+     */
+    public static List<String> format(List<Stage> stages) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-10s %-5s %-10s %12s %14s %12s %12s",
+            "channel", "mode", "stage", "time (ms)", "allocated (KiB)", "raw (KiB)", "wire (KiB)"));
+
+        for (PayloadMode round : PayloadMode.values()) {
+            long nanos = 0;
+            long allocated = 0;
+            long raw = 0;
+            long wire = 0;
+
+            for (Stage stage : stages) {
+                if (stage.mode != round) continue;
+
+                lines.add(String.format("%-10s %-5s %-10s %12.2f %14s %12s %12s",
+                    stage.channel, stage.mode, stage.name, stage.nanos / 1_000_000.0, kib(stage.allocatedBytes),
+                    stage.rawBytes > 0 ? kib(stage.rawBytes) : "", stage.wireBytes > 0 ? kib(stage.wireBytes) : ""));
+
+                nanos += stage.nanos;
+                allocated += Math.max(0, stage.allocatedBytes);
+                raw += stage.rawBytes;
+                wire += stage.wireBytes;
+            }
+
+            lines.add(String.format("%-10s %-5s %-10s %12.2f %14s %12s %12s",
+                "total", round, "", nanos / 1_000_000.0, kib(allocated), kib(raw), kib(wire)));
+        }
+
+        return lines;
+    }
+
+    private static String kib(long bytes) {
+        return bytes < 0 ? "n/a" : String.format("%.1f", bytes / 1024.0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        MegabaseGenerator generator = new MegabaseGenerator().drives(1000).buses(200).subnets(20);
+        double changed = 0.05;
+
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (kv.length != 2) throw new IllegalArgumentException("Expected key=value, got " + arg);
+
+            switch (kv[0]) {
+                case "seed": generator.seed(Long.parseLong(kv[1])); break;
+                case "drives": generator.drives(Integer.parseInt(kv[1])); break;
+                case "cellsPerDrive": generator.cellsPerDrive(Integer.parseInt(kv[1])); break;
+                case "cells": generator.cells(Integer.parseInt(kv[1])); break;
+                case "typesPerCell": generator.typesPerCell(Integer.parseInt(kv[1])); break;
+                case "partitionDensity": generator.partitionDensity(Double.parseDouble(kv[1])); break;
+                case "nbtHeavy": generator.nbtHeavy(Double.parseDouble(kv[1])); break;
+                case "buses": generator.buses(Integer.parseInt(kv[1])); break;
+                case "typesPerBus": generator.typesPerBus(Integer.parseInt(kv[1])); break;
+                case "subnets": generator.subnets(Integer.parseInt(kv[1])); break;
+                case "typesPerSubnet": generator.typesPerSubnet(Integer.parseInt(kv[1])); break;
+                case "changed": changed = Double.parseDouble(kv[1]); break;
+                default: throw new IllegalArgumentException("Unknown setting " + kv[0]);
+            }
+        }
+
+        System.out.printf("%d drives, %d cells, %d storage buses, %d subnets, %.0f%% changed%n",
+            generator.getDriveCount(), generator.getCellCount(), generator.getBusCount(),
+            generator.getSubnetCount(), changed * 100);
+
+        for (String line : format(new PerfHarness(generator).run(changed))) System.out.println(line);
+    }
+}
@@ -0,0 +1,83 @@
+package com.cellterminal.network.chunked;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Runs the {@link PerfHarness} on a small network: every stage must be measured, and the data
+ * must survive the round trip through the sender, the receiver and the data manager.
+ */
+public class PerfHarnessTest {
+
+    private static final int DRIVES = 20;
+    private static final int BUSES = 8;
+    private static final int SUBNETS = 4;
+
+    private static long wireBytes(List<PerfHarness.Stage> stages, String channel, PayloadMode mode) {
+        long bytes = 0;
+        for (PerfHarness.Stage stage : stages) {
+            if (stage.channel.equals(channel) && stage.mode == mode) bytes += stage.wireBytes;
+        }
+
+        return bytes;
+    }
+
+    @Test
+    public void testRoundTrip_appliesEveryEntry() throws IOException {
+        MegabaseGenerator generator = new MegabaseGenerator().drives(DRIVES).buses(BUSES).subnets(SUBNETS).nbtHeavy(0.2);
+        PerfHarness harness = new PerfHarness(generator);
+        harness.run(0.1);
+
+        Assert.assertEquals(DRIVES, harness.getDataManager().getStorageMap().size());
+        Assert.assertEquals(BUSES, harness.getDataManager().getStorageBusMap().size());
+        Assert.assertEquals(SUBNETS, harness.getSubnets().size());
+        Assert.assertFalse(harness.getDataManager().getLines().isEmpty());
+    }
+
+    @Test
+    public void testStages_reportTimeAndBytes() throws IOException {
+        MegabaseGenerator generator = new MegabaseGenerator().drives(DRIVES).buses(BUSES).subnets(SUBNETS);
+        List<PerfHarness.Stage> stages = new PerfHarness(generator).run(0.1);
+
+        for (PerfHarness.Stage stage : stages) {
+            Assert.assertTrue(stage.name + " time", stage.nanos > 0);
+            if (stage.name.equals("encode")) Assert.assertTrue(stage.channel + " wire bytes", stage.wireBytes > 0);
+        }
+
+        long full = wireBytes(stages, TerminalChannels.STORAGES, PayloadMode.FULL);
+        long delta = wireBytes(stages, TerminalChannels.STORAGES, PayloadMode.DELTA);
+        Assert.assertTrue("FULL payload sent", full > 0);
+        Assert.assertTrue("DELTA smaller than FULL", delta > 0 && delta < full);
+        Assert.assertFalse(PerfHarness.format(stages).isEmpty());
+    }
+
+    @Test
+    public void testGenerator_isDeterministic() {
+        MegabaseGenerator.bootstrap();
+
+        MegabaseGenerator a = new MegabaseGenerator().seed(7).cells(25).buses(3).subnets(2);
+        MegabaseGenerator b = new MegabaseGenerator().seed(7).cells(25).buses(3).subnets(2);
+
+        Assert.assertEquals(a.storages(), b.storages());
+        Assert.assertEquals(a.buses(), b.buses());
+        Assert.assertEquals(a.subnets(), b.subnets());
+
+        NBTTagList storages = a.storages().getTagList("storages", Constants.NBT.TAG_COMPOUND);
+        int cells = 0;
+        for (int i = 0; i < storages.tagCount(); i++) {
+            cells += storages.getCompoundTagAt(i).getTagList("cells", Constants.NBT.TAG_COMPOUND).tagCount();
+        }
+
+        Assert.assertEquals(3, storages.tagCount());
+        Assert.assertEquals(25, cells);
+    }
+}
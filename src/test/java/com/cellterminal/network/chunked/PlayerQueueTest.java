@@ -0,0 +1,213 @@
+package com.cellterminal.network.chunked;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.cellterminal.network.chunked.ChunkedNBTSender.PendingPayload;
+import com.cellterminal.network.chunked.ChunkedNBTSender.PlayerQueue;
+import com.cellterminal.network.chunked.ChunkedNBTSender.Throttle;
+
+
+/**
+ * {@link ChunkedNBTSender}'s per-player queue: payload ordering with priorities and FULL
+ * replacement, and which budget holds chunks back (tick pacing, player quota, the limit shared
+ * by all players, the connection).
+ */
+public class PlayerQueueTest {
+
+    private final TokenBucket global = new TokenBucket();
+
+    /**
+     * Queue that records what it sends instead of writing to a connection.
+     */
+    private static final class RecordingQueue extends PlayerQueue {
+        final List<String> sent = new ArrayList<>();
+        final List<Throttle> throttles = new ArrayList<>();
+        boolean writable = true;
+
+        RecordingQueue(TokenBucket global) {
+            super(null, global);
+        }
+
+        @Override
+        void sendChunk(String channel, PacketNBTChunk chunk) {
+            this.sent.add(channel + "#" + chunk.getChunkIndex());
+        }
+
+        @Override
+        void recordThrottle(Throttle limit) {
+            this.throttles.add(limit);
+        }
+
+        @Override
+        boolean isWritable() {
+            return this.writable;
+        }
+
+        /**
+         * Send until something holds the queue back, as a flush does for a single player.
+         */
+        int drain() {
+            int chunks = 0;
+            while (sendNext()) chunks++;
+
+            return chunks;
+        }
+    }
+
+    private static PendingPayload payload(String channel, boolean priority, int chunks, int chunkBytes) {
+        PendingPayload payload = new PendingPayload(channel, priority);
+        for (int i = 0; i < chunks; i++) {
+            byte flags = (i == chunks - 1) ? PacketNBTChunk.FLAG_LAST : 0;
+            payload.chunks.add(new PacketNBTChunk(channel, 1, i, flags, PayloadMode.DELTA, WireCodec.COMPACT,
+                PayloadCompression.NONE, new byte[chunkBytes]));
+        }
+        payload.done = true;
+
+        return payload;
+    }
+
+    private static List<String> channels(PlayerQueue queue) {
+        List<String> channels = new ArrayList<>();
+        for (PendingPayload payload : queue.payloads) channels.add(payload.channel + (payload.priority ? "!" : ""));
+
+        return channels;
+    }
+
+    // ==================== Ordering ====================
+
+    @Test
+    public void testEnqueue_priorityAheadOfNormal() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("b", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("meta", true, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("tab", true, 1, 10), PayloadMode.DELTA);
+
+        // Priority payloads keep their own order
+        Assert.assertEquals(Arrays.asList("meta!", "tab!", "a", "b"), channels(queue));
+    }
+
+    @Test
+    public void testEnqueue_priorityNeverAheadOfOwnChannel() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("b", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("c", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("b", true, 1, 10), PayloadMode.DELTA);
+
+        // The older delta on "b" must arrive first
+        Assert.assertEquals(Arrays.asList("a", "b", "b!", "c"), channels(queue));
+    }
+
+    @Test
+    public void testEnqueue_fullReplacesOlderPayloadsOfItsChannel() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("b", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("a", false, 1, 10), PayloadMode.DELTA);
+        queue.enqueue(payload("a", false, 1, 10), PayloadMode.FULL);
+
+        Assert.assertEquals(Arrays.asList("b", "a"), channels(queue));
+    }
+
+    @Test
+    public void testSendNext_stopsAtPayloadStillEncoding() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+
+        PendingPayload encoding = payload("a", false, 2, 10);
+        encoding.done = false;
+        queue.enqueue(encoding, PayloadMode.DELTA);
+        queue.enqueue(payload("b", false, 1, 10), PayloadMode.DELTA);
+
+        // Chunks compressed so far leave, the next payload waits for the rest
+        Assert.assertEquals(2, queue.drain());
+        Assert.assertEquals(Arrays.asList("a#0", "a#1"), queue.sent);
+
+        encoding.done = true;
+        Assert.assertEquals(1, queue.drain());
+        Assert.assertEquals("b#0", queue.sent.get(2));
+        Assert.assertTrue(queue.payloads.isEmpty());
+        Assert.assertTrue("waiting for the encoder is not a throttle", queue.throttles.isEmpty());
+    }
+
+    // ==================== Budgets ====================
+
+    @Test
+    public void testTickBudget_oversizedChunkBorrowsFromNextTick() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 10, 600), PayloadMode.DELTA);
+
+        // 1000 bytes per tick: the second 600-byte chunk leaves on the 400 remaining
+        queue.refill(1000, 0, 0);
+        Assert.assertEquals(2, queue.drain());
+        Assert.assertEquals(Collections.singletonList(Throttle.TICK_BUDGET), queue.throttles);
+
+        // 200 bytes of debt: 800 left next tick
+        queue.refill(1000, 0, 0);
+        Assert.assertEquals(2, queue.drain());
+
+        // Counted once per tick however often the queue is polled
+        queue.drain();
+        Assert.assertEquals(2, queue.throttles.size());
+    }
+
+    @Test
+    public void testQuota_burstThenSustainedRate() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 20, 1000), PayloadMode.DELTA);
+
+        // 20000 bytes per second is 1000 per tick, with a 3000 byte burst
+        queue.refill(0, 20_000, 3000);
+        Assert.assertEquals(3, queue.drain());
+        Assert.assertEquals(Throttle.PLAYER_QUOTA, queue.throttles.get(0));
+
+        for (int tick = 0; tick < 5; tick++) {
+            queue.refill(0, 20_000, 3000);
+            Assert.assertEquals("tick " + tick, 1, queue.drain());
+        }
+    }
+
+    @Test
+    public void testGlobalLimit_sharedFairlyBetweenPlayers() {
+        RecordingQueue first = new RecordingQueue(this.global);
+        RecordingQueue second = new RecordingQueue(this.global);
+        first.enqueue(payload("a", false, 10, 500), PayloadMode.DELTA);
+        second.enqueue(payload("a", false, 10, 500), PayloadMode.DELTA);
+
+        for (int tick = 0; tick < 3; tick++) {
+            this.global.refill(1000, 1000);
+            first.refill(0, 0, 0);
+            second.refill(0, 0, 0);
+
+            // One chunk per player in turn, as flush does
+            boolean progress = true;
+            while (progress) progress = first.sendNext() | second.sendNext();
+
+            Assert.assertEquals(tick + 1, first.sent.size());
+            Assert.assertEquals(tick + 1, second.sent.size());
+        }
+
+        Assert.assertEquals(Throttle.GLOBAL_LIMIT, first.throttles.get(0));
+        Assert.assertEquals(Throttle.GLOBAL_LIMIT, second.throttles.get(0));
+    }
+
+    @Test
+    public void testConnection_notWritableHoldsEverything() {
+        RecordingQueue queue = new RecordingQueue(this.global);
+        queue.enqueue(payload("a", false, 3, 10), PayloadMode.DELTA);
+        queue.refill(0, 0, 0);
+
+        queue.writable = false;
+        Assert.assertEquals(0, queue.drain());
+        Assert.assertEquals(Collections.singletonList(Throttle.CONNECTION), queue.throttles);
+
+        queue.writable = true;
+        Assert.assertEquals(3, queue.drain());
+    }
+}
@@ -0,0 +1,197 @@
+package com.cellterminal.network.chunked;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.common.util.Constants;
+
+
+/**
+ * {@link StackDictionaryEncoder} to {@link StackDictionaryDecoder} round trips: payloads decode
+ * back to the input, the dictionary grows only with new identities, heavy stacks stay inline,
+ * and FULL payloads reset both sides once {@link StackDictionaryEncoder#needsFull} asks for it.
+ */
+public class StackDictionaryTest {
+
+    private static final String CHANNEL = "ct:test";
+
+    private StackDictionaryEncoder encoder;
+    private StackDictionaryDecoder decoder;
+
+    @Before
+    public void setUp() {
+        this.encoder = new StackDictionaryEncoder();
+        this.decoder = new StackDictionaryDecoder();
+    }
+
+    private static NBTTagCompound stack(String item, int damage, long count) {
+        NBTTagCompound stack = new NBTTagCompound();
+        stack.setString("id", item);
+        stack.setByte("Count", (byte) 1);
+        stack.setShort("Damage", (short) damage);
+        stack.setLong("Cnt", count);
+
+        return stack;
+    }
+
+    /**
+     * A storages payload: one cell per damage value in [first, last), each holding a stone
+     * stack and a stack of its own damage value.
+     */
+    private static NBTTagCompound payload(int first, int last) {
+        NBTTagList storages = new NBTTagList();
+        for (int i = first; i < last; i++) {
+            NBTTagList contents = new NBTTagList();
+            contents.appendTag(stack("minecraft:stone", 0, i));
+            contents.appendTag(stack("minecraft:wool", i, 64));
+
+            NBTTagCompound storage = new NBTTagCompound();
+            storage.setLong("id", i);
+            storage.setTag("contents", contents);
+            storages.appendTag(storage);
+        }
+
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("storages", storages);
+
+        return payload;
+    }
+
+    /**
+     * Encode, check the input was left alone, decode a copy as the client would.
+     */
+    private NBTTagCompound roundTrip(NBTTagCompound payload, boolean full) {
+        NBTTagCompound before = payload.copy();
+        NBTTagCompound encoded = this.encoder.encode(CHANNEL, payload, full);
+        Assert.assertEquals("input must not be mutated", before, payload);
+
+        NBTTagCompound received = encoded.copy();
+        Assert.assertTrue(this.decoder.decode(CHANNEL, received));
+        Assert.assertEquals(payload, received);
+
+        return encoded;
+    }
+
+    private static int definitions(NBTTagCompound encoded) {
+        return encoded.getTagList(StackDictionaryEncoder.KEY_DEFINITIONS, Constants.NBT.TAG_COMPOUND).tagCount();
+    }
+
+    // ==================== Round Trip ====================
+
+    @Test
+    public void testRoundTrip_fullDefinesEachIdentityOnce() {
+        Assert.assertTrue(this.encoder.needsFull(CHANNEL));
+
+        NBTTagCompound encoded = roundTrip(payload(0, 50), true);
+
+        // Stone once, plus one wool per damage value; counts stay inline
+        Assert.assertTrue(encoded.getBoolean(StackDictionaryEncoder.KEY_RESET));
+        Assert.assertEquals(51, definitions(encoded));
+        Assert.assertFalse(this.encoder.needsFull(CHANNEL));
+    }
+
+    @Test
+    public void testRoundTrip_deltaGrowsWithNewIdentitiesOnly() {
+        roundTrip(payload(0, 10), true);
+
+        NBTTagCompound known = roundTrip(payload(0, 10), false);
+        Assert.assertFalse(known.hasKey(StackDictionaryEncoder.KEY_DEFINITIONS));
+        Assert.assertFalse(known.hasKey(StackDictionaryEncoder.KEY_RESET));
+
+        NBTTagCompound grown = roundTrip(payload(5, 20), false);
+        Assert.assertEquals(11, grown.getInteger(StackDictionaryEncoder.KEY_BASE));
+        Assert.assertEquals(10, definitions(grown));
+    }
+
+    @Test
+    public void testRoundTrip_heavyStackStaysInline() {
+        roundTrip(payload(0, 1), true);
+
+        for (int round = 0; round < 5; round++) {
+            // A cell item whose tag holds its inventory, changing every round
+            NBTTagList inventory = new NBTTagList();
+            for (int i = 0; i < StackDictionaryEncoder.MAX_IDENTITY_TAGS; i++) inventory.appendTag(stack("minecraft:dirt", i, round));
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setTag("items", inventory);
+
+            NBTTagCompound cell = stack("appliedenergistics2:storage_cell_64k", 0, 1);
+            cell.setTag("tag", tag);
+
+            NBTTagCompound payload = payload(0, 1);
+            payload.getTagList("storages", Constants.NBT.TAG_COMPOUND).getCompoundTagAt(0).setTag("cellItem", cell);
+
+            NBTTagCompound encoded = roundTrip(payload, false);
+            Assert.assertFalse("round " + round, encoded.hasKey(StackDictionaryEncoder.KEY_DEFINITIONS));
+        }
+    }
+
+    @Test
+    public void testRoundTrip_smallTagIsAnIdentity() {
+        roundTrip(payload(0, 1), true);
+
+        NBTTagCompound named = stack("minecraft:diamond_sword", 0, 1);
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Sting");
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setTag("display", display);
+        named.setTag("tag", tag);
+
+        NBTTagCompound payload = payload(0, 1);
+        payload.getTagList("storages", Constants.NBT.TAG_COMPOUND).getCompoundTagAt(0).setTag("cellItem", named);
+
+        Assert.assertEquals(1, definitions(roundTrip(payload, false)));
+        Assert.assertEquals("equal identities share the entry", 0, definitions(roundTrip(payload.copy(), false)));
+    }
+
+    // ==================== Resets ====================
+
+    @Test
+    public void testNeedsFull_afterCapThenFullResets() {
+        roundTrip(payload(0, 1), true);
+
+        int first = 1;
+        while (!this.encoder.needsFull(CHANNEL)) {
+            int last = first + 4096;
+            roundTrip(payload(first, last), false);
+            first = last;
+        }
+        Assert.assertTrue(first >= StackDictionaryEncoder.MAX_ENTRIES - 1);
+
+        // The FULL restarts numbering on both sides
+        NBTTagCompound encoded = roundTrip(payload(0, 3), true);
+        Assert.assertEquals(0, encoded.getInteger(StackDictionaryEncoder.KEY_BASE));
+        Assert.assertEquals(4, definitions(encoded));
+        Assert.assertFalse(this.encoder.needsFull(CHANNEL));
+
+        roundTrip(payload(3, 5), false);
+    }
+
+    @Test
+    public void testReset_needsFull() {
+        roundTrip(payload(0, 3), true);
+        this.encoder.reset(CHANNEL);
+        Assert.assertTrue(this.encoder.needsFull(CHANNEL));
+
+        roundTrip(payload(0, 3), true);
+        this.encoder.resetAll();
+        Assert.assertTrue(this.encoder.needsFull(CHANNEL));
+    }
+
+    @Test
+    public void testDecode_lostDefinitionsOutOfSyncUntilFull() {
+        roundTrip(payload(0, 3), true);
+
+        // Carries definitions but never reaches the client
+        this.encoder.encode(CHANNEL, payload(3, 6), false);
+
+        NBTTagCompound next = this.encoder.encode(CHANNEL, payload(6, 9), false).copy();
+        Assert.assertFalse(this.decoder.decode(CHANNEL, next));
+
+        // What the receiver does next: request a FULL, which resynchronizes both sides
+        roundTrip(payload(0, 9), true);
+        roundTrip(payload(9, 12), false);
+    }
+}
@@ -0,0 +1,177 @@
+package com.cellterminal.network.chunked;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * {@link StreamingInflater} fed a compressed payload cut into chunks at arbitrary boundaries,
+ * including inside the zlib header and the preset dictionary ID, must rebuild the exact bytes
+ * {@link PayloadDeflate#decompress} does.
+ */
+public class StreamingInflaterTest {
+
+    private static final int LEVEL = 6;
+
+    /**
+     * Terminal-like bytes: dictionary words in writeUTF form with varying numbers in between,
+     * large enough to grow the inflater's output buffer several times.
+     */
+    private static byte[] payload(int entries) throws IOException {
+        Random random = new Random(entries);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        for (int i = 0; i < entries; i++) {
+            out.writeUTF("id");
+            out.writeUTF("minecraft:stone_" + random.nextInt(500));
+            out.writeUTF("Cnt");
+            out.writeLong(random.nextInt(100_000));
+            out.writeUTF("slot");
+            out.writeInt(i);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static List<byte[]> cut(byte[] data, int[] boundaries) {
+        List<byte[]> chunks = new ArrayList<>();
+        int start = 0;
+        for (int boundary : boundaries) {
+            chunks.add(Arrays.copyOfRange(data, start, boundary));
+            start = boundary;
+        }
+        chunks.add(Arrays.copyOfRange(data, start, data.length));
+
+        return chunks;
+    }
+
+    private static List<byte[]> cutRandomly(byte[] data, Random random, int maxChunk) {
+        List<byte[]> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < data.length) {
+            int end = Math.min(data.length, start + 1 + random.nextInt(maxChunk));
+            chunks.add(Arrays.copyOfRange(data, start, end));
+            start = end;
+        }
+
+        return chunks;
+    }
+
+    private static byte[] inflate(PayloadCompression compression, List<byte[]> chunks) throws IOException {
+        StreamingInflater inflater = new StreamingInflater(compression, chunks.get(0).length);
+        try {
+            for (byte[] chunk : chunks) inflater.feed(chunk);
+
+            return readAll(inflater.finish());
+        } finally {
+            inflater.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) out.write(buffer, 0, read);
+
+        return out.toByteArray();
+    }
+
+    // ==================== Chunk Boundaries ====================
+
+    @Test
+    public void testFeed_randomChunkBoundaries() throws IOException {
+        byte[] raw = payload(4000);
+
+        for (PayloadCompression compression : PayloadCompression.values()) {
+            byte[] compressed = PayloadDeflate.compress(compression, raw, LEVEL);
+            Assert.assertArrayEquals(raw, PayloadDeflate.decompress(compression, compressed));
+
+            Random random = new Random(42);
+            for (int round = 0; round < 20; round++) {
+                int maxChunk = 1 + random.nextInt(compressed.length);
+                Assert.assertArrayEquals(compression + " max chunk " + maxChunk,
+                    raw, inflate(compression, cutRandomly(compressed, random, maxChunk)));
+            }
+        }
+    }
+
+    @Test
+    public void testFeed_oneByteChunks() throws IOException {
+        byte[] raw = payload(300);
+
+        for (PayloadCompression compression : PayloadCompression.values()) {
+            byte[] compressed = PayloadDeflate.compress(compression, raw, LEVEL);
+            Assert.assertArrayEquals(compression.toString(), raw, inflate(compression, cutRandomly(compressed, new Random(0), 1)));
+        }
+    }
+
+    @Test
+    public void testFeed_boundariesInsideHeaderAndDictionaryId() throws IOException {
+        byte[] raw = payload(50);
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE_DICT, raw, LEVEL);
+
+        // zlib header (2 bytes) then the dictionary's Adler-32 (4 bytes)
+        for (int first = 1; first <= 7; first++) {
+            for (int second = first; second <= 8; second++) {
+                Assert.assertArrayEquals(first + "/" + second, raw,
+                    inflate(PayloadCompression.DEFLATE_DICT, cut(compressed, new int[] {first, second})));
+            }
+        }
+    }
+
+    @Test
+    public void testFeed_emptyChunks() throws IOException {
+        byte[] raw = payload(50);
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE, raw, LEVEL);
+
+        List<byte[]> chunks = new ArrayList<>();
+        chunks.add(new byte[0]);
+        chunks.addAll(cut(compressed, new int[] {compressed.length / 2, compressed.length / 2}));
+
+        Assert.assertArrayEquals(raw, inflate(PayloadCompression.DEFLATE, chunks));
+    }
+
+    // ==================== Errors ====================
+
+    @Test(expected = IOException.class)
+    public void testFinish_truncatedStream() throws IOException {
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE, payload(500), LEVEL);
+
+        inflate(PayloadCompression.DEFLATE, cut(Arrays.copyOf(compressed, compressed.length - 4), new int[] {10}));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFeed_dataAfterEnd() throws IOException {
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE, payload(50), LEVEL);
+
+        List<byte[]> chunks = cut(compressed, new int[0]);
+        chunks.add(new byte[] {1, 2, 3});
+        inflate(PayloadCompression.DEFLATE, chunks);
+    }
+
+    @Test(expected = IOException.class)
+    public void testFeed_unexpectedDictionary() throws IOException {
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE_DICT, payload(50), LEVEL);
+
+        inflate(PayloadCompression.DEFLATE, cut(compressed, new int[] {3}));
+    }
+
+    @Test(expected = IOException.class)
+    public void testFeed_corruptStream() throws IOException {
+        byte[] compressed = PayloadDeflate.compress(PayloadCompression.DEFLATE, payload(500), LEVEL);
+        for (int i = 10; i < 40; i++) compressed[i] ^= 0x5A;
+
+        inflate(PayloadCompression.DEFLATE, cut(compressed, new int[] {20}));
+    }
+}
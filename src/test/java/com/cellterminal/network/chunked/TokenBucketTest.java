@@ -0,0 +1,97 @@
+package com.cellterminal.network.chunked;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * {@link TokenBucket}: overdraft is paid back by later refills, refills are capped, and a
+ * non-positive rate means unlimited.
+ */
+public class TokenBucketTest {
+
+    // ==================== Unlimited ====================
+
+    @Test
+    public void testNew_isUnlimited() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.consume(Long.MAX_VALUE / 2);
+        bucket.consume(Long.MAX_VALUE / 2);
+
+        Assert.assertTrue(bucket.hasTokens());
+    }
+
+    @Test
+    public void testRefill_nonPositiveAmountClearsDebt() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.refill(100, 100);
+        bucket.consume(10_000);
+        Assert.assertFalse(bucket.hasTokens());
+
+        bucket.refill(0, 100);
+        Assert.assertTrue(bucket.hasTokens());
+
+        // Limited again: starts full, not from the old debt
+        bucket.refill(100, 300);
+        bucket.consume(299);
+        Assert.assertTrue(bucket.hasTokens());
+        bucket.consume(1);
+        Assert.assertFalse(bucket.hasTokens());
+    }
+
+    // ==================== Refill ====================
+
+    @Test
+    public void testRefill_cappedAtCapacity() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.refill(100, 300);
+        for (int i = 0; i < 10; i++) bucket.refill(100, 300);
+
+        bucket.consume(300);
+        Assert.assertFalse(bucket.hasTokens());
+    }
+
+    // ==================== Overdraft ====================
+
+    @Test
+    public void testConsume_overdraftPaidBackByRefills() {
+        TokenBucket bucket = new TokenBucket();
+        bucket.refill(100, 300);
+
+        // One large chunk while any tokens are left: 700 bytes of debt
+        bucket.consume(1000);
+        Assert.assertFalse(bucket.hasTokens());
+
+        for (int i = 0; i < 7; i++) {
+            Assert.assertFalse("tick " + i, bucket.hasTokens());
+            bucket.refill(100, 300);
+        }
+        Assert.assertFalse("debt paid back exactly, nothing left", bucket.hasTokens());
+
+        bucket.refill(100, 300);
+        Assert.assertTrue(bucket.hasTokens());
+    }
+
+    @Test
+    public void testConsume_longRunRateIsExact() {
+        TokenBucket bucket = new TokenBucket();
+        long rate = 1000;
+        long capacity = 2000;
+        int chunk = 1500;
+        int ticks = 10_000;
+        long sent = 0;
+
+        // What the sender does: refill each tick, send whole chunks while tokens remain
+        for (int tick = 0; tick < ticks; tick++) {
+            bucket.refill(rate, capacity);
+            while (bucket.hasTokens()) {
+                bucket.consume(chunk);
+                sent += chunk;
+            }
+        }
+
+        // Everything sent beyond the rate is the initial burst plus at most one chunk of debt
+        Assert.assertTrue(sent >= rate * (ticks - 1));
+        Assert.assertTrue(sent <= rate * (ticks - 1) + capacity + chunk);
+    }
+}
@@ -0,0 +1,187 @@
+package com.cellterminal.network.chunked;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.cellterminal.perf.MegabaseGenerator;
+
+
+/**
+ * Wire-size and allocation gate: canonical networks go through the container's send path
+ * ({@code ChannelPayloadBuilder} then {@link ChunkedNBTSender#encode}), once FULL and once as a
+ * DELTA after 5% of the contents changed. The compressed bytes per channel are compared against
+ * the checked-in baseline ({@code src/test/resources/com/cellterminal/perf/wire-baseline.properties}),
+ * and the test fails when one grows past the tolerance.
+ * <p>
+ * The bytes the server side allocated are recorded too, but only checked on request: they depend
+ * on the JVM, its JIT state and escape analysis, so they are compared on the machine that
+ * recorded them rather than in every test run. Measuring them needs a JIT warm-up run, which is
+ * skipped otherwise.
+ * <p>
+ * System properties (set by {@code ./gradlew test -PperfRecord -PperfTolerance=.. -PperfCheckAlloc
+ * -PperfAllocTolerance=..}):
+ * <ul>
+ *   <li>{@code cellterminal.perf.record}: path of the baseline file to rewrite with the measured values
+ *       instead of checking them</li>
+ *   <li>{@code cellterminal.perf.tolerance}: allowed growth of wire bytes, in percent (default 5)</li>
+ *   <li>{@code cellterminal.perf.checkAlloc}: also check the allocated bytes</li>
+ *   <li>{@code cellterminal.perf.allocTolerance}: allowed growth of allocated bytes, in percent (default 25)</li>
+ * </ul>
+ * A dataset without any recorded value is skipped with a message to record it. Once a dataset is
+ * recorded, a measured metric missing from its baseline fails the test: record again after adding
+ * a channel.
+ */
+public class WireSizeRegressionTest {
+
+    private static final String BASELINE = "/com/cellterminal/perf/wire-baseline.properties";
+    private static final double CHANGED = 0.05;
+
+    private static double percent(String property, double fallback) {
+        String value = System.getProperty(property);
+
+        return value == null || value.isEmpty() ? fallback : Double.parseDouble(value);
+    }
+
+    private static String channelKey(String channel) {
+        switch (channel) {
+            case TerminalChannels.STORAGES: return "storages";
+            case TerminalChannels.BUSES: return "buses";
+            case TerminalChannels.SUBNETS: return "subnets";
+            default: return channel;
+        }
+    }
+
+    /**
+     * Wire bytes per channel and mode and, if asked for, server-side allocations (build and
+     * encode) per mode.
+     */
+    private static Map<String, Long> measure(MegabaseGenerator generator, boolean allocations) throws IOException {
+        // First run warms up the JIT, so the measured allocations are those of compiled code
+        if (allocations) new PerfHarness(generator).run(CHANGED);
+        List<PerfHarness.Stage> stages = new PerfHarness(generator).run(CHANGED);
+
+        Map<String, Long> metrics = new TreeMap<>();
+        for (PerfHarness.Stage stage : stages) {
+            String mode = stage.mode.name().toLowerCase();
+
+            if (stage.name.equals("encode")) {
+                metrics.merge(channelKey(stage.channel) + "." + mode + ".wireBytes", stage.wireBytes, Long::sum);
+            }
+
+            if (allocations && (stage.name.equals("build") || stage.name.equals("encode")) && stage.allocatedBytes >= 0) {
+                metrics.merge("server." + mode + ".allocatedBytes", stage.allocatedBytes, Long::sum);
+            }
+        }
+
+        return metrics;
+    }
+
+    private static Properties loadBaseline(File file) throws IOException {
+        Properties baseline = new Properties();
+
+        if (file != null) {
+            if (file.isFile()) {
+                try (InputStream in = new FileInputStream(file)) {
+                    baseline.load(in);
+                }
+            }
+
+            return baseline;
+        }
+
+        try (InputStream in = WireSizeRegressionTest.class.getResourceAsStream(BASELINE)) {
+            if (in != null) baseline.load(in);
+        }
+
+        return baseline;
+    }
+
+    private static void record(File file, String dataset, Map<String, Long> metrics) throws IOException {
+        Properties baseline = loadBaseline(file);
+        for (Map.Entry<String, Long> entry : metrics.entrySet()) {
+            baseline.setProperty(dataset + "." + entry.getKey(), Long.toString(entry.getValue()));
+        }
+
+        // Sorted, so re-recording gives a readable diff
+        StringBuilder out = new StringBuilder();
+        out.append("# Wire-size and allocation baseline for WireSizeRegressionTest\n");
+        out.append("# Re-record with: ./gradlew test --tests '*WireSizeRegressionTest' -PperfRecord\n");
+        for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+            out.append(key).append('=').append(baseline.getProperty(key)).append('\n');
+        }
+
+        file.getParentFile().mkdirs();
+        try (OutputStream os = new FileOutputStream(file)) {
+            os.write(out.toString().getBytes("ISO-8859-1"));
+        }
+    }
+
+    private static boolean hasDataset(Properties baseline, String dataset) {
+        for (String key : baseline.stringPropertyNames()) {
+            if (key.startsWith(dataset + ".")) return true;
+        }
+
+        return false;
+    }
+
+    private static void check(String dataset, MegabaseGenerator generator) throws IOException {
+        String recordPath = System.getProperty("cellterminal.perf.record");
+        if (recordPath != null && !recordPath.isEmpty()) {
+            record(new File(recordPath), dataset, measure(generator, true));
+            return;
+        }
+
+        Properties baseline = loadBaseline(null);
+        Assume.assumeTrue("No baseline recorded for " + dataset + ", record one with -PperfRecord",
+            hasDataset(baseline, dataset));
+
+        Map<String, Long> metrics = measure(generator, Boolean.getBoolean("cellterminal.perf.checkAlloc"));
+        double wireTolerance = percent("cellterminal.perf.tolerance", 5);
+        double allocTolerance = percent("cellterminal.perf.allocTolerance", 25);
+
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : metrics.entrySet()) {
+            String key = dataset + "." + entry.getKey();
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                failures.add(key + ": no baseline, record one with -PperfRecord");
+                continue;
+            }
+
+            long limit = Long.parseLong(expected.trim());
+            double tolerance = key.endsWith(".allocatedBytes") ? allocTolerance : wireTolerance;
+            long actual = entry.getValue();
+
+            if (actual > limit * (1 + tolerance / 100)) {
+                failures.add(String.format("%s: %d bytes, baseline %d (+%.1f%%, allowed +%.1f%%)",
+                    key, actual, limit, (actual - limit) * 100.0 / limit, tolerance));
+            }
+        }
+
+        Assert.assertTrue("Sync payloads grew past or are missing from the baseline:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    @Test
+    public void testBase_withinBaseline() throws IOException {
+        check("base", new MegabaseGenerator().drives(200).buses(50).subnets(10));
+    }
+
+    @Test
+    public void testMegabase_withinBaseline() throws IOException {
+        check("megabase", new MegabaseGenerator().drives(2000).buses(400).subnets(40).nbtHeavy(0.1));
+    }
+}
@@ -0,0 +1,537 @@
+package com.cellterminal.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.init.Bootstrap;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.util.math.BlockPos;
+import net.minecraftforge.common.util.Constants;
+
+import com.cellterminal.client.StorageType;
+import com.cellterminal.client.TabStateManager;
+import com.cellterminal.config.CellTerminalServerConfig;
+
+
+/**
+ * Synthetic megabase for benchmarks and perf tests: STORAGES, BUSES and SUBNETS payloads in the
+ * shape built by {@code CellDataHandler}, {@code StorageBusDataHandler} and
+ * {@code AE2SubnetScanner}, without a world or a grid. Every setter returns the generator, and
+ * generation is seeded, so the same settings always produce the same payloads.
+ * <p>
+ * Call {@link #bootstrap()} once before building or parsing payloads.
+ */
+public final class MegabaseGenerator {
+
+    /** First storage ID; drive {@code n} gets {@code STORAGE_ID_BASE + n}. */
+    public static final long STORAGE_ID_BASE = 1000L;
+
+    /** First storage bus ID; bus {@code n} gets {@code BUS_ID_BASE + n}. */
+    public static final long BUS_ID_BASE = 1_000_000L;
+
+    /** First subnet ID; subnet {@code n} gets {@code SUBNET_ID_BASE + n}. */
+    public static final long SUBNET_ID_BASE = 2_000_000L;
+
+    // Item cell and AE2 storage bus slot layout
+    private static final int CELL_PARTITION_SLOTS = 63;
+    private static final int BUS_BASE_CONFIG_SLOTS = 18;
+    private static final int BUS_SLOTS_PER_UPGRADE = 9;
+    private static final int BUS_MAX_CONFIG_SLOTS = 63;
+
+    private static final String[] PLAIN_ITEMS = {
+        "minecraft:iron_ingot", "minecraft:gold_ingot", "minecraft:diamond", "minecraft:redstone",
+        "minecraft:cobblestone", "minecraft:dirt", "minecraft:coal", "minecraft:emerald",
+        "minecraft:quartz", "minecraft:glass", "minecraft:sand", "minecraft:gravel",
+        "minecraft:obsidian", "minecraft:string", "minecraft:bone", "minecraft:glowstone_dust",
+        "minecraft:slime_ball", "minecraft:ender_pearl", "minecraft:blaze_rod", "minecraft:clay_ball"
+    };
+
+    // Items with metadata variants, so a type pool of a few hundred entries needs no mods
+    private static final String[] VARIANT_ITEMS = {
+        "minecraft:wool", "minecraft:dye", "minecraft:stained_glass", "minecraft:stained_hardened_clay",
+        "minecraft:concrete", "minecraft:concrete_powder", "minecraft:carpet", "minecraft:stained_glass_pane"
+    };
+
+    private static final String[] HEAVY_ITEMS = {
+        "minecraft:enchanted_book", "minecraft:diamond_sword", "minecraft:diamond_pickaxe",
+        "minecraft:potion", "minecraft:written_book"
+    };
+
+    private static final String CELL_ITEM = "appliedenergistics2:storage_cell_64k";
+    private static final String DRIVE_ITEM = "appliedenergistics2:drive";
+    private static final String BUS_ITEM = "appliedenergistics2:part";
+    private static final String INTERFACE_ITEM = "appliedenergistics2:interface";
+    private static final String UPGRADE_ITEM = "appliedenergistics2:material";
+
+    private static boolean bootstrapped = false;
+
+    private long seed = 1;
+    private int drives = 100;
+    private int cellsPerDrive = 10;
+    private int cellLimit = -1;
+    private int typesPerCell = 12;
+    private double partitionDensity = 0.25;
+    private double nbtHeavy = 0.05;
+    private int buses = 0;
+    private int typesPerBus = 27;
+    private int subnets = 0;
+    private int typesPerSubnet = 50;
+
+    /**
+     * Register the vanilla items (needed to parse stacks) and load a default server config
+     * (needed by the encoder) from a throwaway directory.
+     */
+    public static synchronized void bootstrap() {
+        if (bootstrapped) return;
+
+        Bootstrap.register();
+
+        try {
+            File configDir = Files.createTempDirectory("cellterminal-perf").toFile();
+            configDir.deleteOnExit();
+            CellTerminalServerConfig.init(configDir);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create the perf config directory", e);
+        }
+
+        bootstrapped = true;
+    }
+
+    public MegabaseGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public MegabaseGenerator drives(int drives) {
+        this.drives = drives;
+        this.cellLimit = -1;
+        return this;
+    }
+
+    public MegabaseGenerator cellsPerDrive(int cellsPerDrive) {
+        this.cellsPerDrive = cellsPerDrive;
+        return this;
+    }
+
+    /**
+     * Generate exactly this many cells: as many full drives as needed, the last one partly filled.
+     */
+    public MegabaseGenerator cells(int cells) {
+        this.cellLimit = cells;
+        return this;
+    }
+
+    public MegabaseGenerator typesPerCell(int typesPerCell) {
+        this.typesPerCell = typesPerCell;
+        return this;
+    }
+
+    /**
+     * Fraction of cells (and storage buses) with a partition, 0 to 1.
+     */
+    public MegabaseGenerator partitionDensity(double partitionDensity) {
+        this.partitionDensity = partitionDensity;
+        return this;
+    }
+
+    /**
+     * Fraction of stored types that carry a large unique tag (enchantments, lore, book pages),
+     * 0 to 1.
+     */
+    public MegabaseGenerator nbtHeavy(double nbtHeavy) {
+        this.nbtHeavy = nbtHeavy;
+        return this;
+    }
+
+    public MegabaseGenerator buses(int buses) {
+        this.buses = buses;
+        return this;
+    }
+
+    public MegabaseGenerator typesPerBus(int typesPerBus) {
+        this.typesPerBus = typesPerBus;
+        return this;
+    }
+
+    public MegabaseGenerator subnets(int subnets) {
+        this.subnets = subnets;
+        return this;
+    }
+
+    public MegabaseGenerator typesPerSubnet(int typesPerSubnet) {
+        this.typesPerSubnet = typesPerSubnet;
+        return this;
+    }
+
+    public int getDriveCount() {
+        if (this.cellLimit < 0) return this.drives;
+
+        return (this.cellLimit + this.cellsPerDrive - 1) / this.cellsPerDrive;
+    }
+
+    public int getCellCount() {
+        return this.cellLimit < 0 ? this.drives * this.cellsPerDrive : this.cellLimit;
+    }
+
+    public int getBusCount() {
+        return this.buses;
+    }
+
+    public int getSubnetCount() {
+        return this.subnets;
+    }
+
+    /**
+     * Build the STORAGES payload: {@code {storages: [drive...]}}.
+     */
+    public NBTTagCompound storages() {
+        Random random = new Random(this.seed);
+        NBTTagList storages = new NBTTagList();
+
+        int cellsLeft = getCellCount();
+        for (int drive = 0; drive < getDriveCount(); drive++) {
+            int slots = Math.min(this.cellsPerDrive, cellsLeft);
+            storages.appendTag(drive(drive, slots, random));
+            cellsLeft -= slots;
+        }
+
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("storages", storages);
+
+        return payload;
+    }
+
+    /**
+     * Build the BUSES payload: {@code {storageBuses: [bus...]}}, AE2 item storage buses on chests.
+     */
+    public NBTTagCompound buses() {
+        Random random = new Random(this.seed * 31 + 1);
+        NBTTagList buses = new NBTTagList();
+        for (int bus = 0; bus < this.buses; bus++) buses.appendTag(bus(bus, random));
+
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("storageBuses", buses);
+
+        return payload;
+    }
+
+    /**
+     * Build the SUBNETS payload: {@code {subnets: [subnet...]}}, each reached through one storage
+     * bus on the main network.
+     */
+    public NBTTagCompound subnets() {
+        Random random = new Random(this.seed * 31 + 2);
+        NBTTagList subnets = new NBTTagList();
+        for (int subnet = 0; subnet < this.subnets; subnet++) subnets.appendTag(subnet(subnet, random));
+
+        NBTTagCompound payload = new NBTTagCompound();
+        payload.setTag("subnets", subnets);
+
+        return payload;
+    }
+
+    /**
+     * Copy a payload built by this class, changing the stored count of one stack in a fraction
+     * of its holders (cells, buses or subnets), like a busy network between two refreshes.
+     */
+    public static NBTTagCompound mutate(NBTTagCompound payload, double fraction, long seed) {
+        Random random = new Random(seed);
+        NBTTagCompound copy = payload.copy();
+
+        for (String listKey : copy.getKeySet()) {
+            NBTTagList entries = copy.getTagList(listKey, Constants.NBT.TAG_COMPOUND);
+
+            for (int i = 0; i < entries.tagCount(); i++) {
+                NBTTagCompound entry = entries.getCompoundTagAt(i);
+                if (!entry.hasKey("cells")) {
+                    if (random.nextDouble() < fraction) mutateHolder(entry, random);
+                    continue;
+                }
+
+                NBTTagList cells = entry.getTagList("cells", Constants.NBT.TAG_COMPOUND);
+                for (int j = 0; j < cells.tagCount(); j++) {
+                    if (random.nextDouble() < fraction) mutateHolder(cells.getCompoundTagAt(j), random);
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Collapse the generated drives and buses in the Inventory tabs. Expanded content rows read
+     * the slot limit from the client config, which needs a running game.
+     */
+    public void collapseInventoryTabs() {
+        TabStateManager tabs = TabStateManager.getInstance();
+
+        for (int drive = 0; drive < getDriveCount(); drive++) {
+            tabs.setExpanded(TabStateManager.TabType.INVENTORY, STORAGE_ID_BASE + drive, false);
+        }
+
+        // Bus expansion is keyed by -id - 1 (see TabStateManager#isBusExpanded)
+        for (int bus = 0; bus < this.buses; bus++) {
+            tabs.setExpanded(TabStateManager.TabType.STORAGE_BUS_INVENTORY, -(BUS_ID_BASE + bus) - 1, false);
+        }
+    }
+
+    private static void mutateHolder(NBTTagCompound holder, Random random) {
+        String key = holder.hasKey("inventory") ? "inventory" : "contents";
+        NBTTagList contents = holder.getTagList(key, Constants.NBT.TAG_COMPOUND);
+        if (contents.tagCount() == 0) return;
+
+        NBTTagCompound stack = contents.getCompoundTagAt(random.nextInt(contents.tagCount()));
+        long delta = 1 + random.nextInt(64);
+        stack.setLong("Cnt", stack.getLong("Cnt") + delta);
+        if (holder.hasKey("storedItemCount")) holder.setLong("storedItemCount", holder.getLong("storedItemCount") + delta);
+    }
+
+    // CellDataHandler.createStorageData
+    private NBTTagCompound drive(int index, int slots, Random random) {
+        NBTTagCompound storage = new NBTTagCompound();
+        storage.setLong("id", STORAGE_ID_BASE + index);
+        storage.setLong("pos", position(index).toLong());
+        storage.setInteger("dim", 0);
+        storage.setString("name", "Drive " + index);
+        if (index % 3 == 0) storage.setInteger("priority", index % 10);
+        storage.setTag("blockItem", itemStack(DRIVE_ITEM, 0));
+        storage.setInteger("slotCount", this.cellsPerDrive);
+
+        NBTTagList cells = new NBTTagList();
+        for (int slot = 0; slot < slots; slot++) cells.appendTag(cell(slot, random));
+        storage.setTag("cells", cells);
+
+        return storage;
+    }
+
+    // CellDataHandler.createCellData for an item cell
+    private NBTTagCompound cell(int slot, Random random) {
+        NBTTagCompound cell = new NBTTagCompound();
+        cell.setInteger("slot", slot);
+        cell.setInteger("status", 1);
+        cell.setTag("cellItem", itemStack(CELL_ITEM, 0));
+        StorageType.ITEM.writeToNBT(cell);
+
+        List<NBTTagCompound> types = types(this.typesPerCell, random);
+        NBTTagList contents = new NBTTagList();
+        long stored = 0;
+        for (NBTTagCompound type : types) {
+            long count = 1 + random.nextInt(100_000);
+            contents.appendTag(aeStack(type, count));
+            stored += count;
+        }
+
+        cell.setLong("usedBytes", stored / 8 + types.size() * 8L);
+        cell.setLong("totalBytes", 65536);
+        cell.setLong("usedTypes", types.size());
+        cell.setLong("totalTypes", CELL_PARTITION_SLOTS);
+        cell.setLong("storedItemCount", stored);
+
+        boolean partitioned = random.nextDouble() < this.partitionDensity;
+        cell.setTag("partition", partition(CELL_PARTITION_SLOTS, partitioned ? types : null));
+
+        cell.setInteger("upgradeSlotCount", 2);
+        NBTTagList upgrades = new NBTTagList();
+        if (partitioned) upgrades.appendTag(upgrade(0, 56));
+        cell.setTag("upgrades", upgrades);
+        cell.setTag("contents", contents);
+
+        return cell;
+    }
+
+    // StorageBusDataHandler.createItemStorageBusData on a chest
+    private NBTTagCompound bus(int index, Random random) {
+        NBTTagCompound bus = new NBTTagCompound();
+        bus.setLong("id", BUS_ID_BASE + index);
+        bus.setLong("pos", position(index).up(8).toLong());
+        bus.setInteger("dim", 0);
+        bus.setInteger("side", index % 6);
+        bus.setInteger("priority", index % 5);
+        StorageType.ITEM.writeToNBT(bus);
+        bus.setInteger("access", 2);
+
+        bus.setInteger("baseConfigSlots", BUS_BASE_CONFIG_SLOTS);
+        bus.setInteger("slotsPerUpgrade", BUS_SLOTS_PER_UPGRADE);
+        bus.setInteger("maxConfigSlots", BUS_MAX_CONFIG_SLOTS);
+
+        if (index % 7 == 0) bus.setString("customName", "Bus " + index);
+        bus.setString("connectedName", "Chest");
+        bus.setTag("connectedIcon", itemStack("minecraft:chest", 0));
+
+        List<NBTTagCompound> types = types(this.typesPerBus, random);
+        boolean partitioned = random.nextDouble() < this.partitionDensity;
+        bus.setTag("partition", partition(BUS_BASE_CONFIG_SLOTS, partitioned ? types : null));
+
+        NBTTagList contents = new NBTTagList();
+        for (NBTTagCompound type : types) {
+            NBTTagCompound stack = type.copy();
+            stack.setLong("Cnt", 1 + random.nextInt(3_456));
+            contents.appendTag(stack);
+        }
+        bus.setTag("contents", contents);
+
+        bus.setInteger("upgradeSlotCount", 5);
+        NBTTagList upgrades = new NBTTagList();
+        if (partitioned) upgrades.appendTag(upgrade(0, 56));
+        bus.setTag("upgrades", upgrades);
+
+        return bus;
+    }
+
+    // AbstractSubnetScanner.createBaseSubnetNBT + AE2SubnetScanner.createSubnetNBT
+    private NBTTagCompound subnet(int index, Random random) {
+        BlockPos pos = position(index).up(16);
+
+        NBTTagCompound subnet = new NBTTagCompound();
+        subnet.setLong("id", SUBNET_ID_BASE + index);
+        subnet.setLong("primaryPos", pos.toLong());
+        subnet.setInteger("dim", 0);
+        subnet.setInteger("posX", pos.getX());
+        subnet.setInteger("posY", pos.getY());
+        subnet.setInteger("posZ", pos.getZ());
+        if (index % 4 == 0) subnet.setString("customName", "Subnet " + index);
+        subnet.setBoolean("hasSecurity", index % 5 == 0);
+        subnet.setBoolean("accessible", true);
+        subnet.setBoolean("hasPower", true);
+
+        NBTTagList inventory = new NBTTagList();
+        for (NBTTagCompound type : types(this.typesPerSubnet, random)) {
+            NBTTagCompound stack = type.copy();
+            stack.setLong("Cnt", 1 + random.nextInt(1_000_000));
+            inventory.appendTag(stack);
+        }
+        subnet.setTag("inventory", inventory);
+
+        NBTTagCompound connection = new NBTTagCompound();
+        connection.setLong("pos", pos.down().toLong());
+        connection.setInteger("dim", 0);
+        connection.setBoolean("outbound", false);
+        connection.setBoolean("usesSubnetInventory", false);
+        connection.setInteger("side", 1);
+        connection.setTag("localIcon", itemStack(BUS_ITEM, 220));
+        connection.setTag("remoteIcon", itemStack(INTERFACE_ITEM, 0));
+
+        // All filter slots are sent, empty ones as air
+        NBTTagList filter = new NBTTagList();
+        for (int i = 0; i < BUS_MAX_CONFIG_SLOTS; i++) {
+            NBTTagCompound air = itemStack("minecraft:air", 0);
+            air.setByte("Count", (byte) 0);
+            filter.appendTag(air);
+        }
+        connection.setTag("filter", filter);
+        connection.setInteger("maxPartitionSlots", BUS_MAX_CONFIG_SLOTS);
+
+        NBTTagList connections = new NBTTagList();
+        connections.appendTag(connection);
+        subnet.setTag("connections", connections);
+
+        return subnet;
+    }
+
+    /**
+     * Pick distinct stack identities (ItemStack NBT, count 1) from the type pool, starting at a
+     * random offset. NBT-heavy types are unique, as renamed or enchanted gear is in practice.
+     */
+    private List<NBTTagCompound> types(int count, Random random) {
+        List<NBTTagCompound> types = new ArrayList<>(count);
+        int poolSize = PLAIN_ITEMS.length + VARIANT_ITEMS.length * 16;
+        int first = random.nextInt(poolSize);
+
+        for (int i = 0; i < count; i++) {
+            if (random.nextDouble() < this.nbtHeavy) {
+                types.add(heavyStack(random));
+                continue;
+            }
+
+            int n = (first + i) % poolSize;
+            if (n < PLAIN_ITEMS.length) {
+                types.add(itemStack(PLAIN_ITEMS[n], 0));
+            } else {
+                n -= PLAIN_ITEMS.length;
+                types.add(itemStack(VARIANT_ITEMS[n / 16], n % 16));
+            }
+        }
+
+        return types;
+    }
+
+    private static NBTTagCompound heavyStack(Random random) {
+        NBTTagCompound stack = itemStack(HEAVY_ITEMS[random.nextInt(HEAVY_ITEMS.length)], 0);
+        NBTTagCompound tag = new NBTTagCompound();
+
+        NBTTagList enchantments = new NBTTagList();
+        for (int i = 0; i < 1 + random.nextInt(5); i++) {
+            NBTTagCompound enchantment = new NBTTagCompound();
+            enchantment.setShort("id", (short) random.nextInt(70));
+            enchantment.setShort("lvl", (short) (1 + random.nextInt(5)));
+            enchantments.appendTag(enchantment);
+        }
+        tag.setTag("ench", enchantments);
+
+        NBTTagCompound display = new NBTTagCompound();
+        display.setString("Name", "Relic #" + Long.toHexString(random.nextLong()));
+        NBTTagList lore = new NBTTagList();
+        for (int i = 0; i < 4; i++) lore.appendTag(new NBTTagString("Forged in batch " + random.nextInt(10_000)));
+        display.setTag("Lore", lore);
+        tag.setTag("display", display);
+
+        stack.setTag("tag", tag);
+
+        return stack;
+    }
+
+    // ItemStack.writeToNBT
+    private static NBTTagCompound itemStack(String id, int damage) {
+        NBTTagCompound stack = new NBTTagCompound();
+        stack.setString("id", id);
+        stack.setByte("Count", (byte) 1);
+        stack.setShort("Damage", (short) damage);
+
+        return stack;
+    }
+
+    // AEItemStack.writeToNBT
+    private static NBTTagCompound aeStack(NBTTagCompound type, long count) {
+        NBTTagCompound stack = type.copy();
+        stack.setLong("Cnt", count);
+        stack.setLong("Req", 0);
+        stack.setBoolean("Craft", false);
+
+        return stack;
+    }
+
+    private static NBTTagCompound upgrade(int slot, int damage) {
+        NBTTagCompound upgrade = itemStack(UPGRADE_ITEM, damage);
+        upgrade.setInteger("slot", slot);
+
+        return upgrade;
+    }
+
+    /**
+     * Partition list: every slot is sent, filled ones carry the stack.
+     *
+     * @param types the types to partition to, or null for an empty partition
+     */
+    private static NBTTagList partition(int slots, List<NBTTagCompound> types) {
+        NBTTagList partition = new NBTTagList();
+
+        for (int i = 0; i < slots; i++) {
+            NBTTagCompound part = types != null && i < types.size() ? types.get(i).copy() : new NBTTagCompound();
+            part.setInteger("slot", i);
+            partition.appendTag(part);
+        }
+
+        return partition;
+    }
+
+    // Drives are laid out in 64 x 64 layers around the origin
+    private static BlockPos position(int index) {
+        return new BlockPos(index % 64, 64 + index / 4096, (index / 64) % 64);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cellterminal.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * {@link AdaptiveInterval} steps: doubling on expensive refreshes up to the cap, shrinking by
+ * one tick on cheap ones, and never going below the configured interval.
+ */
+public class AdaptiveIntervalTest {
+
+    // 10% of a tick: 5 ms allowed per tick of interval
+    private static final double SHARE = 0.1;
+    private static final long ALLOWED_PER_TICK = 5_000_000L;
+
+    private static void refresh(AdaptiveInterval interval, long nanos) {
+        interval.addCost(nanos);
+        interval.complete(SHARE);
+    }
+
+    // ==================== Increase ====================
+
+    @Test
+    public void testComplete_expensiveRefreshDoubles() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+
+        int expected = 1;
+        for (int i = 0; i < 5; i++) {
+            // Always over budget, whatever the current interval
+            refresh(interval, ALLOWED_PER_TICK * 1000);
+            expected *= 2;
+            Assert.assertEquals(expected, interval.getAdaptedTicks());
+        }
+    }
+
+    @Test
+    public void testComplete_cappedAtMaximum() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+        for (int i = 0; i < 20; i++) refresh(interval, Long.MAX_VALUE / 2);
+
+        Assert.assertEquals(AdaptiveInterval.MAX_INTERVAL_TICKS, interval.getAdaptedTicks());
+    }
+
+    @Test
+    public void testComplete_allowedShareScalesWithInterval() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+        refresh(interval, ALLOWED_PER_TICK + 1);
+        refresh(interval, ALLOWED_PER_TICK * 2 + 1);
+        Assert.assertEquals(4, interval.getAdaptedTicks());
+
+        // Within the 4-tick allowance: one tick back
+        refresh(interval, ALLOWED_PER_TICK * 4);
+        Assert.assertEquals(3, interval.getAdaptedTicks());
+    }
+
+    // ==================== Decrease ====================
+
+    @Test
+    public void testComplete_cheapRefreshShrinksByOneTick() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+        for (int i = 0; i < 4; i++) refresh(interval, ALLOWED_PER_TICK * 1000);
+        Assert.assertEquals(16, interval.getAdaptedTicks());
+
+        for (int expected = 15; expected >= 1; expected--) {
+            refresh(interval, 0);
+            Assert.assertEquals(expected, interval.getAdaptedTicks());
+        }
+
+        refresh(interval, 0);
+        Assert.assertEquals("never below one tick", 1, interval.getAdaptedTicks());
+    }
+
+    @Test
+    public void testComplete_zeroShareDisablesAdaptation() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+        for (int i = 0; i < 4; i++) refresh(interval, ALLOWED_PER_TICK * 1000);
+
+        interval.addCost(ALLOWED_PER_TICK * 1000);
+        interval.complete(0);
+        Assert.assertEquals(1, interval.getAdaptedTicks());
+    }
+
+    // ==================== Cost ====================
+
+    @Test
+    public void testAddCost_accumulatesUntilComplete() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+
+        // A time-sliced refresh: three slices, each within budget on its own
+        interval.addCost(ALLOWED_PER_TICK / 2);
+        interval.addCost(ALLOWED_PER_TICK / 2);
+        interval.addCost(ALLOWED_PER_TICK / 2);
+        interval.complete(SHARE);
+
+        Assert.assertEquals(ALLOWED_PER_TICK / 2 * 3, interval.getLastCost());
+        Assert.assertEquals(2, interval.getAdaptedTicks());
+
+        // The next refresh starts from zero
+        refresh(interval, 1);
+        Assert.assertEquals(1, interval.getLastCost());
+        Assert.assertEquals(1, interval.getAdaptedTicks());
+    }
+
+    // ==================== Effective Interval ====================
+
+    @Test
+    public void testGetInterval_neverBelowConfigured() {
+        AdaptiveInterval interval = new AdaptiveInterval();
+        Assert.assertEquals(20, interval.getInterval(20));
+
+        for (int i = 0; i < 5; i++) refresh(interval, ALLOWED_PER_TICK * 1000);
+        Assert.assertEquals(32, interval.getInterval(20));
+        Assert.assertEquals(40, interval.getInterval(40));
+    }
+}